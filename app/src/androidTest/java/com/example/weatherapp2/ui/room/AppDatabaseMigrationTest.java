@@ -0,0 +1,103 @@
+package com.example.weatherapp2.ui.room;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica as migrações da {@link AppDatabase} a partir dos esquemas exportados.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppDatabaseMigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    @Test
+    public void migrate1To2KeepsLatestRowPerLocation() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1);
+        // Na versão 1 cada toque na lista acrescentava uma linha nova
+        db.execSQL("INSERT INTO weather (location, tempMin, tempMax) VALUES ('Lisbon,PT', 14.0, 20.0)");
+        db.execSQL("INSERT INTO weather (location, tempMin, tempMax) VALUES ('Porto,PT', 12.0, 18.0)");
+        db.execSQL("INSERT INTO weather (location, tempMin, tempMax) VALUES ('Lisbon,PT', 15.5, 22.0)");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 2, true, AppDatabase.MIGRATION_1_2);
+
+        // As linhas ficam pela ordem da gravação mais recente de cada localização
+        try (Cursor cursor = db.query("SELECT location, tempMin, tempMax, updatedAt, latitude, longitude "
+                + "FROM weather ORDER BY rowid")) {
+            assertEquals(2, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Porto,PT", cursor.getString(0));
+            assertTrue(cursor.moveToNext());
+            assertEquals("Lisbon,PT", cursor.getString(0));
+            assertEquals(15.5, cursor.getDouble(1), 0);
+            assertEquals(22.0, cursor.getDouble(2), 0);
+            assertEquals(0, cursor.getLong(3));
+            assertTrue(cursor.isNull(4));
+            assertTrue(cursor.isNull(5));
+        }
+    }
+
+    @Test
+    public void migrate1To2DropsRowsStoredUnderTheApiName() throws IOException {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 1);
+        db.execSQL("INSERT INTO weather (location, tempMin, tempMax) VALUES ('Lisbon', 14.0, 20.0)");
+        db.execSQL("INSERT INTO weather (location, tempMin, tempMax) VALUES (NULL, 10.0, 11.0)");
+        db.execSQL("INSERT INTO weather (location, tempMin, tempMax) VALUES ('Lisbon,PT', 15.0, 21.0)");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, 2, true, AppDatabase.MIGRATION_1_2);
+
+        try (Cursor cursor = db.query("SELECT location FROM weather")) {
+            assertEquals(1, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Lisbon,PT", cursor.getString(0));
+        }
+    }
+
+    @Test
+    public void upsertUpdatesRowForSameLocationInPlaceAfterMigration() throws IOException {
+        helper.createDatabase(TEST_DB, 1).close();
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AppDatabase database = Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                .addMigrations(AppDatabase.MIGRATION_1_2)
+                .build();
+        helper.closeWhenFinished(database);
+        WeatherDao dao = database.weatherDao();
+
+        dao.upsert(new WeatherEntity("Lisbon,PT", 14.0, 20.0, 1000L));
+        dao.upsert(new WeatherEntity("Porto,PT", 12.0, 18.0, 1000L));
+        dao.upsert(new WeatherEntity("Lisbon,PT", 16.0, 23.0, 2000L));
+
+        WeatherEntity lisbon = dao.getWeatherByLocation("Lisbon,PT");
+        assertEquals(16.0, lisbon.getTempMin(), 0);
+        assertEquals(23.0, lisbon.getTempMax(), 0);
+        assertEquals(2000L, lisbon.getUpdatedAt());
+        // A linha atualizada mantém a posição em vez de passar para o fim
+        List<WeatherEntity> all = dao.getAll();
+        assertEquals(2, all.size());
+        assertEquals("Lisbon,PT", all.get(0).getLocation());
+        assertEquals("Porto,PT", all.get(1).getLocation());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.weatherapp2.ui.room;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Micro-benchmark do {@link WeatherDao} sobre uma base de dados em disco com {@link #ROWS} localizações:
+ * gravação em lote numa transação contra uma gravação por chamada, e consulta por localização
+ * através do índice contra a mesma consulta numa cópia da tabela sem índice (o esquema da versão 1).
+ * Os testes verificam o resultado e o plano das consultas; os tempos dependem do dispositivo e são
+ * apenas escritos no logcat com a etiqueta {@link #TAG}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherDaoBenchmarkTest {
+
+    private static final String TAG = "WeatherDaoBenchmark";
+    private static final String TEST_DB = "benchmark-test";
+    private static final int ROWS = 10_000;
+    private static final int LOOKUPS = 1_000;
+
+    private Context context;
+    private AppDatabase database;
+    private WeatherDao dao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        database = Room.databaseBuilder(context, AppDatabase.class, TEST_DB).build();
+        dao = database.weatherDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void batchedAndSingleUpsertsWriteEveryRow() {
+        List<WeatherEntity> entities = entities(ROWS, 1000L);
+
+        long batchedNanos = System.nanoTime();
+        dao.upsertAll(entities);
+        batchedNanos = System.nanoTime() - batchedNanos;
+
+        List<WeatherEntity> updated = entities(ROWS, 2000L);
+        long singleNanos = System.nanoTime();
+        for (WeatherEntity entity : updated) {
+            dao.upsert(entity);
+        }
+        singleNanos = System.nanoTime() - singleNanos;
+
+        Log.i(TAG, String.format("upsert %d rows: batched %d ms, one per call %d ms",
+                ROWS, batchedNanos / 1_000_000, singleNanos / 1_000_000));
+
+        assertEquals(ROWS, count("weather"));
+        assertEquals(2000L, dao.getWeatherByLocation("City" + (ROWS - 1)).getUpdatedAt());
+    }
+
+    @Test
+    public void lookupByLocationUsesThePrimaryKeyIndex() {
+        dao.upsertAll(entities(ROWS, 1000L));
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("CREATE TABLE weather_scan AS SELECT * FROM weather");
+
+        try (Cursor plan = db.query("EXPLAIN QUERY PLAN SELECT * FROM weather WHERE location = 'City1'")) {
+            assertTrue(plan.moveToFirst());
+            String detail = plan.getString(plan.getColumnIndexOrThrow("detail"));
+            // A chave primária TEXT tem o índice automático do SQLite
+            assertTrue(detail, detail.contains("sqlite_autoindex_weather_1"));
+        }
+        try (Cursor plan = db.query("EXPLAIN QUERY PLAN SELECT * FROM weather_scan WHERE location = 'City1'")) {
+            assertTrue(plan.moveToFirst());
+            String detail = plan.getString(plan.getColumnIndexOrThrow("detail"));
+            assertTrue(detail, detail.startsWith("SCAN"));
+        }
+
+        String[] keys = new String[LOOKUPS];
+        Random random = new Random(42);
+        for (int i = 0; i < LOOKUPS; i++) {
+            keys[i] = "City" + random.nextInt(ROWS);
+        }
+
+        long indexedNanos = System.nanoTime();
+        for (String key : keys) {
+            assertNotNull(dao.getWeatherByLocation(key));
+        }
+        indexedNanos = System.nanoTime() - indexedNanos;
+
+        long scanNanos = System.nanoTime();
+        for (String key : keys) {
+            try (Cursor cursor = db.query("SELECT * FROM weather_scan WHERE location = ?", new Object[]{key})) {
+                assertTrue(cursor.moveToFirst());
+            }
+        }
+        scanNanos = System.nanoTime() - scanNanos;
+
+        Log.i(TAG, String.format("%d lookups over %d rows: indexed %d us/lookup, full scan %d us/lookup",
+                LOOKUPS, ROWS, indexedNanos / LOOKUPS / 1000, scanNanos / LOOKUPS / 1000));
+    }
+
+    private int count(String table) {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + table, null)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+
+    private static List<WeatherEntity> entities(int count, long updatedAt) {
+        List<WeatherEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(new WeatherEntity("City" + i, 10 + i % 10, 20 + i % 10, updatedAt));
+        }
+        return entities;
+    }
+}
@@ -8,7 +8,11 @@ import android.view.MenuItem;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
 
+import com.example.weatherapp2.ui.debug.NetworkMetricsActivity;
 import com.example.weatherapp2.ui.list.WeatherListFragment;
 import com.example.weatherapp2.ui.map.WeatherMapFragment;
 import com.example.weatherapp2.widget.WidgetConfigureActivity;
@@ -16,13 +20,17 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 /**
  * Atividade principal da aplicação que gerencia a navegação entre fragmentos.
- * Contém um menu para configuração de widgets e uma barra de navegação inferior
+ * Contém um menu para configuração de widgets e para o ecrã de métricas de rede, e uma barra de navegação inferior
  * para alternar entre a lista de clima e o mapa de clima.
+ * <p>
+ * Os separadores são escondidos e mostrados em vez de substituídos, por isso trocar de separador
+ * não destrói as visualizações nem repete os pedidos. O mapa (e o SDK do Google Maps) só é criado
+ * quando o separador do mapa é aberto pela primeira vez.
  */
 public class MainActivity extends AppCompatActivity {
 
-    private WeatherListFragment weatherListFragment;
-    private WeatherMapFragment weatherMapFragment;
+    static final String TAG_LIST = "weather_list";
+    static final String TAG_MAP = "weather_map";
 
     /**
      * Inicializa a atividade. Define o layout da atividade e configura a navegação inferior.
@@ -37,10 +45,13 @@ public class MainActivity extends AppCompatActivity {
         // Configura a navegação inferior
         BottomNavigationView navigation = findViewById(R.id.bottom_navigation);
         navigation.setOnNavigationItemSelectedListener(mOnNavigationItemSelectedListener);
+        // Voltar a tocar no separador aberto não faz nada
+        navigation.setOnNavigationItemReselectedListener(item -> { });
 
-        // Inicializa os fragmentos
-        weatherListFragment = new WeatherListFragment();
-        weatherMapFragment = new WeatherMapFragment();
+        // Num processo restaurado, o FragmentManager recria os fragmentos e o separador visível
+        if (savedInstanceState == null) {
+            showTab(TAG_LIST);
+        }
     }
 
     /**
@@ -71,6 +82,10 @@ public class MainActivity extends AppCompatActivity {
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
             startActivity(intent);
             return true;
+        } else if (id == R.id.action_network_metrics) {
+            // Abre o ecrã de depuração com as métricas de rede e das caches
+            startActivity(new Intent(this, NetworkMetricsActivity.class));
+            return true;
         }
 
         return super.onOptionsItemSelected(item);
@@ -86,12 +101,12 @@ public class MainActivity extends AppCompatActivity {
             int id = item.getItemId();
 
             if (id == R.id.navigation_list) {
-                // Carrega o fragmento da lista de clima
-                loadFragment(weatherListFragment);
+                // Mostra o fragmento da lista de clima
+                showTab(TAG_LIST);
                 return true;
             } else if (id == R.id.navigation_map) {
-                // Carrega o fragmento do mapa de clima
-                loadFragment(weatherMapFragment);
+                // Mostra o fragmento do mapa de clima, criando-o na primeira vez
+                showTab(TAG_MAP);
                 return true;
             }
 
@@ -100,14 +115,28 @@ public class MainActivity extends AppCompatActivity {
     };
 
     /**
-     * Substitui o fragmento exibido no contêiner de fragmentos.
+     * Mostra o fragmento de um separador e esconde os restantes. O fragmento é criado e adicionado
+     * na primeira vez; depois disso, a sua visualização e o seu estado são mantidos. Os fragmentos
+     * escondidos ficam em pausa, para que o mapa não continue a desenhar fora do ecrã.
      *
-     * @param fragment O fragmento a ser exibido.
+     * @param tag A etiqueta do separador ({@link #TAG_LIST} ou {@link #TAG_MAP}).
      */
-    private void loadFragment(Fragment fragment) {
-        getSupportFragmentManager()
-                .beginTransaction()
-                .replace(R.id.fragment_container, fragment)
-                .commit();
+    void showTab(String tag) {
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        FragmentTransaction transaction = fragmentManager.beginTransaction().setReorderingAllowed(true);
+        for (Fragment fragment : fragmentManager.getFragments()) {
+            if (!tag.equals(fragment.getTag()) && !fragment.isHidden()) {
+                transaction.hide(fragment).setMaxLifecycle(fragment, Lifecycle.State.STARTED);
+            }
+        }
+
+        Fragment fragment = fragmentManager.findFragmentByTag(tag);
+        if (fragment == null) {
+            fragment = TAG_MAP.equals(tag) ? new WeatherMapFragment() : new WeatherListFragment();
+            transaction.add(R.id.fragment_container, fragment, tag);
+        } else {
+            transaction.show(fragment).setMaxLifecycle(fragment, Lifecycle.State.RESUMED);
+        }
+        transaction.commit();
     }
 }
@@ -0,0 +1,65 @@
+package com.example.weatherapp2.ui.catalog;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * O {@link CityCatalog} empacotado na aplicação, em {@code assets/}{@value CityCatalog#ASSET_NAME},
+ * mapeado diretamente a partir do APK.
+ */
+public final class BundledCityCatalog {
+
+    private static CityCatalog INSTANCE;
+
+    private BundledCityCatalog() {
+    }
+
+    /**
+     * Obtém o catálogo da aplicação, mapeado a partir dos assets na primeira chamada.
+     *
+     * @param context O contexto da aplicação.
+     * @return O catálogo partilhado.
+     * @throws IllegalStateException Se o catálogo empacotado estiver em falta ou for inválido.
+     */
+    public static synchronized CityCatalog getInstance(Context context) {
+        if (INSTANCE == null) {
+            try {
+                INSTANCE = openAsset(context.getApplicationContext());
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read " + CityCatalog.ASSET_NAME, e);
+            }
+            if (INSTANCE == null) {
+                throw new IllegalStateException("Invalid " + CityCatalog.ASSET_NAME);
+            }
+        }
+        return INSTANCE;
+    }
+
+    private static CityCatalog openAsset(Context context) throws IOException {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(CityCatalog.ASSET_NAME);
+             FileInputStream in = descriptor.createInputStream()) {
+            // O mapeamento continua válido depois de o canal ser fechado
+            return CityCatalog.open(in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength()));
+        } catch (IOException e) {
+            // Um asset comprimido não pode ser mapeado; é lido para um buffer fora do heap
+            try (InputStream in = context.getAssets().open(CityCatalog.ASSET_NAME)) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                for (int read; (read = in.read(chunk)) > 0; ) {
+                    bytes.write(chunk, 0, read);
+                }
+                ByteBuffer direct = ByteBuffer.allocateDirect(bytes.size());
+                direct.put(bytes.toByteArray()).flip();
+                return CityCatalog.open(direct);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.weatherapp2.ui.debug;
+
+import com.example.weatherapp2.ui.network.NetworkMetrics;
+import com.example.weatherapp2.ui.network.RequestScheduler;
+import com.example.weatherapp2.ui.room.ForecastCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Relatório de diagnóstico da rede e das caches: as {@link NetworkMetrics} de cada endpoint, as
+ * estatísticas da {@link ForecastCache} e o estado do {@link RequestScheduler}. É mostrado no ecrã
+ * de depuração e pode ser gravado num ficheiro para ser recolhido de um dispositivo.
+ */
+public final class MetricsReport {
+
+    /**
+     * Prefixo dos ficheiros gravados por {@link #dump}.
+     */
+    public static final String FILE_PREFIX = "metrics-";
+
+    private MetricsReport() {
+    }
+
+    /**
+     * Cria o relatório.
+     *
+     * @param nowMillis      O instante do relatório.
+     * @param network        As métricas da rede.
+     * @param cacheStats     As estatísticas da cache de previsões.
+     * @param schedulerStats As estatísticas do escalonador de pedidos.
+     * @return O relatório em texto.
+     */
+    public static String build(long nowMillis, NetworkMetrics network, ForecastCache.Stats cacheStats,
+                               RequestScheduler.Stats schedulerStats) {
+        StringWriter writer = new StringWriter();
+        PrintWriter out = new PrintWriter(writer);
+        out.printf("Metrics at %s%n%n", utc("yyyy-MM-dd'T'HH:mm:ss'Z'", nowMillis));
+
+        out.println("Network");
+        String networkReport = network.getReport();
+        out.print(networkReport.isEmpty() ? "  no requests yet\n" : networkReport);
+        out.println();
+
+        out.println("Forecast cache");
+        out.printf(Locale.ROOT, "  %d memory hits, %d persistent hits, %d stale, %d misses (hit rate %.0f%%)%n",
+                cacheStats.memoryHits, cacheStats.persistentHits, cacheStats.staleHits, cacheStats.misses,
+                cacheStats.getHitRate() * 100);
+        out.printf("  %d entries, %d of %d bytes (%d pinned for prefetch), %d evictions%n",
+                cacheStats.memoryEntries, cacheStats.memoryBytes, cacheStats.memoryBudgetBytes,
+                cacheStats.pinnedBytes, cacheStats.evictions);
+        out.println();
+
+        out.println("Request scheduler");
+        out.printf("  queued: %d foreground, %d widget, %d prefetch; %d tokens available%n",
+                schedulerStats.foregroundQueued, schedulerStats.widgetQueued, schedulerStats.prefetchQueued,
+                schedulerStats.availableTokens);
+        out.printf(Locale.ROOT, "  %d granted, average wait %.1f ms, max wait %d ms%n", schedulerStats.grantedCount,
+                schedulerStats.getAverageWaitMillis(), schedulerStats.maxWaitMillis);
+        out.flush();
+        return writer.toString();
+    }
+
+    /**
+     * Grava um relatório num ficheiro novo, com o instante no nome.
+     *
+     * @param directory O diretório de destino, criado se não existir.
+     * @param nowMillis O instante do relatório.
+     * @param report    O relatório.
+     * @return O ficheiro gravado.
+     * @throws IOException Se a gravação falhar.
+     */
+    public static File dump(File directory, long nowMillis, String report) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = new File(directory, FILE_PREFIX + utc("yyyyMMdd-HHmmss", nowMillis) + ".txt");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(report);
+        }
+        return file;
+    }
+
+    private static String utc(String pattern, long millis) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.weatherapp2.ui.debug;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.network.AppExecutors;
+import com.example.weatherapp2.ui.network.LifecycleTaskScope;
+import com.example.weatherapp2.ui.network.NetworkMetrics;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+
+import java.io.File;
+
+/**
+ * Ecrã de depuração com o {@link MetricsReport}: latências por endpoint, códigos de estado, bytes,
+ * uso das caches e fila do escalonador. O botão de gravação escreve o relatório num ficheiro em
+ * {@code Android/data/<pacote>/files/metrics/}, que pode ser recolhido com {@code adb pull}.
+ */
+public class NetworkMetricsActivity extends AppCompatActivity {
+
+    private TextView reportTextView;
+    private LifecycleTaskScope taskScope;
+
+    /**
+     * Inicializa a atividade e mostra o relatório atual.
+     *
+     * @param savedInstanceState O estado salvo da atividade, se disponível.
+     */
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_network_metrics);
+
+        reportTextView = findViewById(R.id.metrics_report);
+        Button refreshButton = findViewById(R.id.metrics_refresh);
+        Button dumpButton = findViewById(R.id.metrics_dump);
+        taskScope = LifecycleTaskScope.bind(this);
+
+        refreshButton.setOnClickListener(v -> refresh());
+        dumpButton.setOnClickListener(v -> dump());
+        refresh();
+    }
+
+    /**
+     * Cria o relatório no pool de I/O, porque o repositório pode abrir a base de dados, e mostra-o.
+     */
+    private void refresh() {
+        Context context = getApplicationContext();
+        taskScope.submit(AppExecutors.getInstance().io(), () -> buildReport(context),
+                new LifecycleTaskScope.Callback<String>() {
+                    @Override
+                    public void onResult(String report) {
+                        reportTextView.setText(report);
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        reportTextView.setText(error.toString());
+                    }
+                });
+    }
+
+    /**
+     * Grava o relatório atual num ficheiro e mostra o caminho.
+     */
+    private void dump() {
+        Context context = getApplicationContext();
+        taskScope.submit(AppExecutors.getInstance().io(), () -> {
+            String report = buildReport(context);
+            return MetricsReport.dump(getDumpDirectory(context), System.currentTimeMillis(), report);
+        }, new LifecycleTaskScope.Callback<File>() {
+            @Override
+            public void onResult(File file) {
+                Toast.makeText(NetworkMetricsActivity.this, file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Toast.makeText(NetworkMetricsActivity.this, "Failed to write metrics", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * @return O diretório dos relatórios: o armazenamento externo da aplicação, acessível por
+     * {@code adb pull} sem root, ou o armazenamento interno se o externo não estiver disponível.
+     */
+    static File getDumpDirectory(Context context) {
+        File external = context.getExternalFilesDir("metrics");
+        return external != null ? external : new File(context.getFilesDir(), "metrics");
+    }
+
+    private static String buildReport(Context context) {
+        WeatherRepository repository = WeatherRepository.getInstance(context);
+        return MetricsReport.build(System.currentTimeMillis(), NetworkMetrics.getInstance(),
+                repository.getCacheStats(), repository.getSchedulerStats());
+    }
+}
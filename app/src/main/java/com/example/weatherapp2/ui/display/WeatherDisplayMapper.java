@@ -0,0 +1,80 @@
+package com.example.weatherapp2.ui.display;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+
+import androidx.annotation.DrawableRes;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converte objetos {@link Weather} em {@link WeatherDisplayModel}. Deve ser usado fora da
+ * thread principal, no mesmo passo que busca ou lê os dados. A idade das condições é formatada
+ * na associação, com {@link #formatUpdatedAt}.
+ */
+public class WeatherDisplayMapper {
+
+    /**
+     * Converte uma lista de objetos {@link Weather}.
+     *
+     * @param weathers Os objetos a converter.
+     * @return Um modelo por cada objeto, pela mesma ordem.
+     */
+    public List<WeatherDisplayModel> mapAll(List<Weather> weathers) {
+        List<WeatherDisplayModel> models = new ArrayList<>(weathers.size());
+        for (Weather weather : weathers) {
+            models.add(map(weather));
+        }
+        return models;
+    }
+
+    /**
+     * Converte um objeto {@link Weather}.
+     *
+     * @param weather O clima a converter.
+     * @return O modelo pronto a mostrar.
+     */
+    public WeatherDisplayModel map(Weather weather) {
+        return new WeatherDisplayModel(weather,
+                TemperatureFormatter.formatMin(weather.getTempMin()),
+                TemperatureFormatter.formatMax(weather.getTempMax()),
+                iconFor(weather.getTempMax()));
+    }
+
+    /**
+     * Escolhe o ícone do clima com base na temperatura máxima.
+     *
+     * @param tempMax A temperatura máxima em °C.
+     * @return O recurso do ícone.
+     */
+    @DrawableRes
+    public static int iconFor(double tempMax) {
+        if (tempMax <= 15) {
+            return R.drawable.frio;
+        } else if (tempMax >= 20) {
+            return R.drawable.calor;
+        } else {
+            return R.drawable.nuvem;
+        }
+    }
+
+    /**
+     * Formata a idade das condições, por exemplo "Updated 2 hours ago".
+     *
+     * @param context   O contexto usado para ler as strings.
+     * @param updatedAt O instante das condições em milissegundos, ou 0 se for desconhecido.
+     * @param now       O instante atual.
+     * @return O texto do indicador de atualização.
+     */
+    public static String formatUpdatedAt(Context context, long updatedAt, long now) {
+        if (updatedAt <= 0) {
+            return context.getString(R.string.updated_unknown);
+        }
+        CharSequence age = DateUtils.getRelativeTimeSpanString(updatedAt, now, DateUtils.MINUTE_IN_MILLIS);
+        return context.getString(R.string.updated_at, age);
+    }
+}
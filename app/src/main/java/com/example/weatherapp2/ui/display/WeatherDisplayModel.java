@@ -0,0 +1,111 @@
+package com.example.weatherapp2.ui.display;
+
+import android.content.Context;
+
+import androidx.annotation.DrawableRes;
+
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+/**
+ * Clima de uma localização pronto a mostrar: os textos já formatados e o ícone já escolhido.
+ * É criado fora da thread principal pelo {@link WeatherDisplayMapper}, para que associar uma linha
+ * ou um widget se reduza a chamadas de setters, sem formatação nem alocações.
+ * <p>
+ * A idade das condições ("Updated 5 minutes ago") muda com o tempo, por isso não faz parte do
+ * modelo: o modelo guarda a hora da observação e o texto é formatado na associação, para um
+ * instante de referência, e guardado até esse instante mudar.
+ */
+public final class WeatherDisplayModel {
+
+    private final Weather weather;
+    private final String tempMinText;
+    private final String tempMaxText;
+    @DrawableRes
+    private final int iconRes;
+    private String updatedAtText;
+    private long updatedAtTextNow;
+
+    WeatherDisplayModel(Weather weather, String tempMinText, String tempMaxText, @DrawableRes int iconRes) {
+        this.weather = weather;
+        this.tempMinText = tempMinText;
+        this.tempMaxText = tempMaxText;
+        this.iconRes = iconRes;
+    }
+
+    /**
+     * @return O clima a partir do qual o modelo foi criado.
+     */
+    public Weather getWeather() {
+        return weather;
+    }
+
+    public String getLocation() {
+        return weather.getLocation();
+    }
+
+    public String getTempMinText() {
+        return tempMinText;
+    }
+
+    public String getTempMaxText() {
+        return tempMaxText;
+    }
+
+    /**
+     * @return O instante das condições em milissegundos, ou 0 se for desconhecido.
+     */
+    public long getUpdatedAt() {
+        return weather.getUpdatedAt();
+    }
+
+    /**
+     * Obtém a idade das condições em relação a um instante. O texto só é formatado de novo quando
+     * o instante muda. Deve ser chamado na thread principal.
+     *
+     * @param context O contexto usado para ler as strings.
+     * @param now     O instante de referência.
+     * @return O texto do indicador de atualização, por exemplo "Updated 2 hours ago".
+     */
+    public String getUpdatedAtText(Context context, long now) {
+        if (updatedAtText == null || updatedAtTextNow != now) {
+            updatedAtText = WeatherDisplayMapper.formatUpdatedAt(context, weather.getUpdatedAt(), now);
+            updatedAtTextNow = now;
+        }
+        return updatedAtText;
+    }
+
+    @DrawableRes
+    public int getIconRes() {
+        return iconRes;
+    }
+
+    /**
+     * Dois modelos são iguais quando mostram exatamente o mesmo conteúdo; a idade das condições
+     * é comparada pela hora da observação, não pelo texto.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WeatherDisplayModel)) {
+            return false;
+        }
+        WeatherDisplayModel other = (WeatherDisplayModel) o;
+        return iconRes == other.iconRes
+                && getLocation().equals(other.getLocation())
+                && tempMinText.equals(other.tempMinText)
+                && tempMaxText.equals(other.tempMaxText)
+                && getUpdatedAt() == other.getUpdatedAt();
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getLocation().hashCode();
+        result = 31 * result + tempMinText.hashCode();
+        result = 31 * result + tempMaxText.hashCode();
+        result = 31 * result + (int) (getUpdatedAt() ^ (getUpdatedAt() >>> 32));
+        result = 31 * result + iconRes;
+        return result;
+    }
+}
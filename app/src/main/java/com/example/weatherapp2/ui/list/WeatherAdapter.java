@@ -1,105 +1,204 @@
 package com.example.weatherapp2.ui.list;
 
-import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.weatherapp2.R;
-import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.display.WeatherDisplayModel;
 
 import java.util.List;
 
 /**
  * Adaptador personalizado para exibir uma lista de informações de clima.
- * Extende {@link BaseAdapter} para fornecer uma visão personalizada de cada item na lista.
+ * Estende {@link ListAdapter}: cada nova lista é comparada com a anterior numa thread de fundo
+ * e só as linhas cujo conteúdo mudou voltam a ser associadas. Cada localização tem um ID estável.
+ * Os itens são {@link WeatherDisplayModel} já formatados, por isso associar uma linha não aloca memória.
+ * A idade das condições é formatada em relação a um instante de referência do adaptador, que a
+ * visualização avança com {@link #refreshUpdatedAt(long)} para que o texto não fique parado.
  */
-public class WeatherAdapter extends BaseAdapter {
-    private Context context;
-    private List<Weather> weatherList;
+public class WeatherAdapter extends ListAdapter<WeatherDisplayModel, WeatherAdapter.ViewHolder> {
+
+    /**
+     * Recebe os cliques nas linhas da lista.
+     */
+    public interface OnItemClickListener {
+        void onItemClick(WeatherDisplayModel model);
+    }
+
+    /**
+     * Compara as linhas pela localização e o conteúdo pelos textos, pela hora das condições e pelo
+     * ícone mostrados.
+     */
+    static final DiffUtil.ItemCallback<WeatherDisplayModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<WeatherDisplayModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull WeatherDisplayModel oldItem, @NonNull WeatherDisplayModel newItem) {
+            return oldItem.getLocation().equals(newItem.getLocation());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull WeatherDisplayModel oldItem, @NonNull WeatherDisplayModel newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    /**
+     * Indica que só a idade das condições mudou, para que a linha não seja associada de novo.
+     */
+    private static final Object PAYLOAD_UPDATED_AT = new Object();
+
+    private final OnItemClickListener onItemClickListener;
+    private long now = System.currentTimeMillis();
 
     /**
      * Construtor do adaptador.
      *
-     * @param context       O contexto da aplicação, usado para inflar layouts e acessar recursos.
-     * @param weatherList   A lista de objetos {@link Weather} a ser exibida na lista.
+     * @param onItemClickListener O listener chamado quando uma linha é tocada.
      */
-    public WeatherAdapter(Context context, List<Weather> weatherList) {
-        this.context = context;
-        this.weatherList = weatherList;
+    public WeatherAdapter(OnItemClickListener onItemClickListener) {
+        super(DIFF_CALLBACK);
+        this.onItemClickListener = onItemClickListener;
+        setHasStableIds(true);
     }
 
     /**
-     * Retorna o número de itens na lista de clima.
+     * Retorna o ID estável da localização na posição indicada.
+     * O ID é calculado a partir da localização, por isso é sempre o mesmo e o adaptador não
+     * guarda nenhuma tabela que cresça com as localizações já mostradas.
      *
-     * @return O número de itens na lista {@link #weatherList}.
+     * @param position A posição do item na lista.
+     * @return O ID da localização.
      */
     @Override
-    public int getCount() {
-        return weatherList.size();
+    public long getItemId(int position) {
+        return stableId(getItem(position).getLocation());
     }
 
     /**
-     * Retorna o item na posição especificada.
+     * Hash FNV-1a de 64 bits da localização: não aloca memória e, com as poucas dezenas de linhas
+     * da lista, a probabilidade de duas localizações terem o mesmo ID é desprezável.
      *
-     * @param position A posição do item na lista.
-     * @return O objeto {@link Weather} na posição especificada.
+     * @param location A localização.
+     * @return O ID da localização.
+     */
+    static long stableId(String location) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < location.length(); i++) {
+            hash ^= location.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Infla o layout de uma linha e guarda as referências às suas views.
+     *
+     * @param parent   O grupo pai ao qual a visualização será adicionada.
+     * @param viewType O tipo de visualização (só existe um).
+     * @return O {@link ViewHolder} da nova linha.
      */
+    @NonNull
     @Override
-    public Object getItem(int position) {
-        return weatherList.get(position);
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false);
+        return new ViewHolder(view);
     }
 
     /**
-     * Retorna o ID da posição do item na lista.
+     * Preenche uma linha com o clima da posição indicada.
      *
+     * @param holder   O {@link ViewHolder} da linha.
      * @param position A posição do item na lista.
-     * @return O ID da posição do item na lista (neste caso, a posição é retornada como ID).
      */
     @Override
-    public long getItemId(int position) {
-        return position;
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.bind(getItem(position));
     }
 
     /**
-     * Cria e retorna a visualização de um item na lista. Se a visualização reciclada não estiver disponível,
-     * um novo layout é inflado.
+     * Preenche uma linha; se só a idade das condições mudou, atualiza apenas esse texto.
      *
-     * @param position     A posição do item na lista.
-     * @param convertView  A visualização reciclada, se disponível. Caso contrário, uma nova visualização será inflada.
-     * @param parent       O grupo pai ao qual a visualização será adicionada.
-     * @return A visualização configurada para o item na posição especificada.
+     * @param holder   O {@link ViewHolder} da linha.
+     * @param position A posição do item na lista.
+     * @param payloads As alterações parciais, ou uma lista vazia para associar a linha toda.
      */
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        if (convertView == null) {
-            convertView = LayoutInflater.from(context).inflate(R.layout.list_item, parent, false);
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_UPDATED_AT) {
+            holder.bindUpdatedAt(getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
         }
+    }
 
-        Weather currentWeather = (Weather) getItem(position);
+    /**
+     * Avança o instante em relação ao qual a idade das condições é mostrada e atualiza esse texto
+     * em todas as linhas.
+     *
+     * @param now O instante atual.
+     */
+    public void refreshUpdatedAt(long now) {
+        this.now = now;
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_UPDATED_AT);
+    }
 
-        ImageView weatherIcon = convertView.findViewById(R.id.weather_icon);
-        TextView locationTextView = convertView.findViewById(R.id.location);
-        TextView tempMinTextView = convertView.findViewById(R.id.temp_min);
-        TextView tempMaxTextView = convertView.findViewById(R.id.temp_max);
+    /**
+     * Guarda as views de uma linha, para que {@code findViewById} só seja chamado quando a linha é criada.
+     */
+    public class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView weatherIcon;
+        final TextView locationTextView;
+        final TextView tempMinTextView;
+        final TextView tempMaxTextView;
+        final TextView updatedAtTextView;
+        private int boundIconRes;
 
-        // Atualiza o ícone do clima com base na temperatura máxima
-        if (currentWeather.getTempMax() <= 15) {
-            weatherIcon.setImageResource(R.drawable.frio);
-        } else if (currentWeather.getTempMax() >= 20) {
-            weatherIcon.setImageResource(R.drawable.calor);
-        } else {
-            weatherIcon.setImageResource(R.drawable.nuvem);
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            weatherIcon = itemView.findViewById(R.id.weather_icon);
+            locationTextView = itemView.findViewById(R.id.location);
+            tempMinTextView = itemView.findViewById(R.id.temp_min);
+            tempMaxTextView = itemView.findViewById(R.id.temp_max);
+            updatedAtTextView = itemView.findViewById(R.id.updated_at);
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    onItemClickListener.onItemClick(getItem(position));
+                }
+            });
         }
 
-        // Atualiza o texto com a localização e as temperaturas
-        locationTextView.setText(currentWeather.getLocation());
-        tempMinTextView.setText(String.format("Min: %.1f°C", currentWeather.getTempMin()));
-        tempMaxTextView.setText(String.format("Max: %.1f°C", currentWeather.getTempMax()));
+        /**
+         * Mostra um modelo nesta linha. O ícone só é recarregado quando muda.
+         *
+         * @param model O modelo a mostrar.
+         */
+        void bind(WeatherDisplayModel model) {
+            if (boundIconRes != model.getIconRes()) {
+                boundIconRes = model.getIconRes();
+                weatherIcon.setImageResource(boundIconRes);
+            }
+            locationTextView.setText(model.getLocation());
+            tempMinTextView.setText(model.getTempMinText());
+            tempMaxTextView.setText(model.getTempMaxText());
+            bindUpdatedAt(model);
+        }
 
-        return convertView;
+        /**
+         * Mostra a idade das condições em relação ao instante de referência do adaptador.
+         *
+         * @param model O modelo a mostrar.
+         */
+        void bindUpdatedAt(WeatherDisplayModel model) {
+            updatedAtTextView.setText(model.getUpdatedAtText(itemView.getContext(), now));
+        }
     }
 }
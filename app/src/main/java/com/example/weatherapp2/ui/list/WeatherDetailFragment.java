@@ -1,21 +1,16 @@
 package com.example.weatherapp2.ui.list;
 
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.network.AppExecutors;
+import com.example.weatherapp2.ui.network.LifecycleTaskScope;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -27,9 +22,12 @@ public class WeatherDetailFragment extends AppCompatActivity {
     private TextView locationTextView;
     private TextView detailsTextView;
     private String location;
+    private LifecycleTaskScope taskScope;
 
     /**
      * Inicializa a atividade. Configura a interface do usuário e inicia a busca pelos detalhes do clima.
+     * Se a previsão já estiver em memória, é mostrada de imediato; caso contrário, é pedida à rede,
+     * e o pedido é cancelado se a atividade for destruída antes de a resposta chegar.
      *
      * @param savedInstanceState O estado salvo da atividade, se disponível.
      */
@@ -45,66 +43,59 @@ public class WeatherDetailFragment extends AppCompatActivity {
         location = getIntent().getStringExtra("location");
         locationTextView.setText(location);
 
+        // Uma previsão buscada antecipadamente pela lista é mostrada de imediato, sem pedido de rede
+        WeatherRepository repository = WeatherRepository.getInstance(getApplicationContext());
+        Forecast prefetched = repository.peekForecast(location);
+        if (prefetched != null) {
+            showDetails(prefetched.toDailySummaries());
+            return;
+        }
+
         // Busca os detalhes do clima
-        String url = "https://api.openweathermap.org/data/2.5/forecast?q=" + location + ",pt&appid=6285a2ad6dbc06206791b13cdb864c27&units=metric";
-        new FetchWeatherDetailTask().execute(url);
+        taskScope = LifecycleTaskScope.bind(this);
+        String requested = location;
+        taskScope.submit(AppExecutors.getInstance().io(),
+                () -> repository.getForecast(requested).toDailySummaries(), new DetailCallback());
     }
 
     /**
-     * Tarefa assíncrona para buscar detalhes do clima da API e processar os resultados.
+     * Mostra os detalhes do clima, um por linha.
+     *
+     * @param details A lista de strings contendo detalhes do clima.
      */
-    private class FetchWeatherDetailTask extends AsyncTask<String, Void, List<String>> {
+    private void showDetails(List<String> details) {
+        if (details != null && !details.isEmpty()) {
+            StringBuilder detailsText = new StringBuilder();
+            for (String detail : details) {
+                detailsText.append(detail).append("\n");
+            }
+            detailsTextView.setText(detailsText.toString());
+        }
+    }
+
+    /**
+     * Recebe os detalhes do clima na thread principal.
+     */
+    private class DetailCallback implements LifecycleTaskScope.Callback<List<String>> {
 
         /**
-         * Executa a tarefa em segundo plano para buscar os detalhes do clima.
+         * Atualiza a interface do usuário com os detalhes do clima.
          *
-         * @param urls A URL da API para buscar os dados do clima.
-         * @return Uma lista de strings contendo detalhes do clima.
+         * @param details A lista de strings contendo detalhes do clima.
          */
         @Override
-        protected List<String> doInBackground(String... urls) {
-            List<String> result = new ArrayList<>();
-            try {
-                URL url = new URL(urls[0]);
-                HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(urlConnection.getInputStream()));
-                StringBuilder json = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    json.append(line);
-                }
-                reader.close();
-
-                JSONObject jsonObject = new JSONObject(json.toString());
-                JSONArray list = jsonObject.getJSONArray("list");
-                for (int i = 0; i < list.length(); i += 8) { // Pega o clima de cada dia
-                    JSONObject dayForecast = list.getJSONObject(i);
-                    JSONObject main = dayForecast.getJSONObject("main");
-                    double tempMin = main.getDouble("temp_min");
-                    double tempMax = main.getDouble("temp_max");
-                    String date = dayForecast.getString("dt_txt").split(" ")[0];
-                    result.add(date + ": Min: " + tempMin + "°C, Max: " + tempMax + "°C");
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return result;
+        public void onResult(List<String> details) {
+            showDetails(details);
         }
 
         /**
-         * Atualiza a interface do usuário com os detalhes do clima após a tarefa em segundo plano ser concluída.
+         * Regista a falha do pedido; o ecrã fica só com o nome da localização.
          *
-         * @param details A lista de strings contendo detalhes do clima.
+         * @param error O erro lançado pelo pedido.
          */
         @Override
-        protected void onPostExecute(List<String> details) {
-            if (details != null && !details.isEmpty()) {
-                StringBuilder detailsText = new StringBuilder();
-                for (String detail : details) {
-                    detailsText.append(detail).append("\n");
-                }
-                detailsTextView.setText(detailsText.toString());
-            }
+        public void onError(Exception error) {
+            error.printStackTrace();
         }
     }
 }
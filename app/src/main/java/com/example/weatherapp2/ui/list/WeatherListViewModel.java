@@ -0,0 +1,257 @@
+package com.example.weatherapp2.ui.list;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.weatherapp2.ui.catalog.BundledCityCatalog;
+import com.example.weatherapp2.ui.catalog.CityCatalog;
+import com.example.weatherapp2.ui.display.WeatherDisplayMapper;
+import com.example.weatherapp2.ui.display.WeatherDisplayModel;
+import com.example.weatherapp2.ui.network.AppExecutors;
+import com.example.weatherapp2.ui.network.BatchedWeatherLoader;
+import com.example.weatherapp2.ui.network.CityIdStore;
+import com.example.weatherapp2.ui.network.PreferencesCityIdStore;
+import com.example.weatherapp2.ui.network.ForecastPrefetcher;
+import com.example.weatherapp2.ui.network.ParallelFetchEngine;
+import com.example.weatherapp2.ui.network.RequestScheduler;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Estado da lista de previsões, mantido enquanto a {@link WeatherListFragment} existir, mesmo que a
+ * sua visualização seja escondida, destruída ou recriada (troca de separador, rotação do ecrã).
+ * <p>
+ * A primeira chamada a {@link #load()} mostra as últimas condições gravadas e busca as condições
+ * de todas as localizações em paralelo; as chamadas seguintes não fazem nada, e a visualização
+ * nova recebe as linhas já carregadas. Os pedidos só são cancelados quando o ViewModel é descartado.
+ * <p>
+ * As previsões das linhas visíveis e das cidades abertas recentemente são buscadas antecipadamente
+ * pelo {@link ForecastPrefetcher}, para que os detalhes dessas cidades abram sem esperar pela rede.
+ */
+public class WeatherListViewModel extends AndroidViewModel {
+
+    /**
+     * Número de previsões buscadas antecipadamente em simultâneo.
+     */
+    static final int PREFETCH_THREADS = 2;
+
+    private final MutableLiveData<List<WeatherDisplayModel>> weathers = new MutableLiveData<>();
+    private final List<WeatherDisplayModel> weatherList = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final ParallelFetchEngine fetchEngine;
+    private final CityIdStore cityIdStore;
+    private final BatchedWeatherLoader batchedLoader;
+    private final WeatherDisplayMapper displayMapper;
+    private final LastConditionsStore conditionsStore;
+    private final ExecutorService prefetchExecutor;
+    private final ForecastPrefetcher prefetcher;
+    private boolean loadStarted;
+
+    /**
+     * Cria o motor de busca e o carregador em lote usados pela lista.
+     * Os resultados são convertidos em modelos de apresentação nas threads do motor e
+     * entregues na thread principal.
+     *
+     * @param application A aplicação.
+     */
+    public WeatherListViewModel(@NonNull Application application) {
+        super(application);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        fetchEngine = new ParallelFetchEngine(ParallelFetchEngine.DEFAULT_MAX_CONCURRENCY, mainHandler::post);
+        cityIdStore = new PreferencesCityIdStore(application);
+        WeatherRepository repository = WeatherRepository.getInstance(application);
+        batchedLoader = new BatchedWeatherLoader(repository, cityIdStore);
+        displayMapper = new WeatherDisplayMapper();
+        conditionsStore = LastConditionsStore.getInstance(application);
+        prefetchExecutor = AppExecutors.newIoPool("forecast-prefetch", PREFETCH_THREADS);
+        // A antecipação só gasta fichas do escalonador que sobram dos pedidos do ecrã e dos widgets
+        prefetcher = new ForecastPrefetcher(location -> RequestScheduler.withPriority(
+                RequestScheduler.Priority.PREFETCH, () -> repository.getForecast(location)),
+                repository::pinForecasts, prefetchExecutor, ForecastPrefetcher.DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * @return As linhas da lista, atualizadas na thread principal sempre que chega um resultado.
+     */
+    public LiveData<List<WeatherDisplayModel>> getWeathers() {
+        return weathers;
+    }
+
+    /**
+     * Mostra as últimas condições gravadas e inicia, em paralelo, a busca dos dados do clima.
+     * Só tem efeito na primeira chamada.
+     */
+    public void load() {
+        if (loadStarted) {
+            return;
+        }
+        loadStarted = true;
+
+        // Localizações mostradas por omissão, do catálogo de cidades; os IDs do catálogo evitam resolver o nome
+        List<String> locations = new ArrayList<>();
+        for (CityCatalog.City city : BundledCityCatalog.getInstance(getApplication()).getDefaults()) {
+            locations.add(city.getLocation());
+            if (city.getId() > 0 && !cityIdStore.hasCityId(city.getLocation())) {
+                cityIdStore.putCityId(city.getLocation(), city.getId());
+            }
+        }
+
+        // Mostra as últimas condições gravadas destas localizações, sem esperar pela rede; as
+        // condições gravadas pelo widget ou pelo modo "perto de mim" de outras cidades ficam de fora
+        Callable<List<WeatherDisplayModel>> snapshotTask = () -> {
+            List<Weather> stored = new ArrayList<>(locations.size());
+            for (String location : locations) {
+                Weather weather = conditionsStore.get(location);
+                if (weather != null) {
+                    stored.add(weather);
+                }
+            }
+            return displayMapper.mapAll(stored);
+        };
+        fetchEngine.execute(Collections.singletonList(snapshotTask), new SnapshotListener());
+
+        // Agrupa as localizações em pedidos por ID; só as localizações ainda não resolvidas são pedidas por nome
+        List<Callable<List<Weather>>> tasks = batchedLoader.createTasks(locations);
+
+        // Busca os dados do clima em paralelo; cada resultado aparece na lista assim que chega
+        fetchEngine.execute(toDisplayTasks(tasks), new WeatherResultListener());
+    }
+
+    /**
+     * Indica as localizações das linhas visíveis, cujas previsões passam a ser buscadas antecipadamente.
+     *
+     * @param locations As localizações visíveis, pela ordem do ecrã.
+     */
+    public void onRowsVisible(List<String> locations) {
+        prefetcher.setVisible(locations);
+    }
+
+    /**
+     * Regista a abertura dos detalhes de uma localização, cuja previsão é mantida em memória.
+     *
+     * @param location A localização aberta.
+     */
+    public void onDetailOpened(String location) {
+        prefetcher.onOpened(location);
+    }
+
+    /**
+     * Cancela os pedidos pendentes e liberta as threads do motor de busca e da antecipação.
+     */
+    @Override
+    protected void onCleared() {
+        fetchEngine.shutdown();
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Coloca as condições na lista, uma linha por localização, e publica uma cópia da lista.
+     *
+     * @param models          Os modelos a mostrar.
+     * @param replaceExisting Verdadeiro para substituir as linhas já mostradas da mesma localização.
+     */
+    private void applyWeathers(List<WeatherDisplayModel> models, boolean replaceExisting) {
+        for (WeatherDisplayModel weather : models) {
+            Integer position = positions.get(weather.getLocation());
+            if (position == null) {
+                positions.put(weather.getLocation(), weatherList.size());
+                weatherList.add(weather);
+            } else if (replaceExisting) {
+                weatherList.set(position, weather);
+            }
+        }
+        weathers.setValue(new ArrayList<>(weatherList));
+    }
+
+    /**
+     * Acrescenta a cada tarefa a conversão do resultado em modelos de apresentação,
+     * para que a formatação corra na mesma thread de fundo que o pedido.
+     */
+    private List<Callable<List<WeatherDisplayModel>>> toDisplayTasks(List<Callable<List<Weather>>> tasks) {
+        List<Callable<List<WeatherDisplayModel>>> displayTasks = new ArrayList<>(tasks.size());
+        for (Callable<List<Weather>> task : tasks) {
+            displayTasks.add(() -> displayMapper.mapAll(task.call()));
+        }
+        return displayTasks;
+    }
+
+    /**
+     * Recebe as condições gravadas no banco de dados. Só preenche as localizações para as quais
+     * ainda não chegou nenhum resultado da rede.
+     */
+    private class SnapshotListener implements ParallelFetchEngine.Listener<List<WeatherDisplayModel>> {
+
+        @Override
+        public void onResult(List<WeatherDisplayModel> models) {
+            applyWeathers(models, false);
+        }
+
+        @Override
+        public void onError(Exception error) {
+            error.printStackTrace();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Recebe os resultados do {@link ParallelFetchEngine} na thread principal e
+     * atualiza a lista à medida que cada localização chega.
+     */
+    private class WeatherResultListener implements ParallelFetchEngine.Listener<List<WeatherDisplayModel>> {
+
+        private final List<Weather> received = new ArrayList<>();
+
+        /**
+         * Substitui as linhas das localizações recebidas num pedido.
+         *
+         * @param models Os modelos recebidos num pedido.
+         */
+        @Override
+        public void onResult(List<WeatherDisplayModel> models) {
+            for (WeatherDisplayModel weather : models) {
+                received.add(weather.getWeather());
+            }
+            applyWeathers(models, true);
+        }
+
+        /**
+         * Regista a falha de uma localização sem interromper as restantes.
+         *
+         * @param error O erro lançado pelo pedido.
+         */
+        @Override
+        public void onError(Exception error) {
+            error.printStackTrace();
+        }
+
+        /**
+         * Salva no banco de dados todos os resultados desta atualização de uma só vez, numa única
+         * transação. A gravação corre no pool de I/O e não é cancelada com o ViewModel.
+         */
+        @Override
+        public void onComplete() {
+            if (!received.isEmpty()) {
+                List<Weather> results = new ArrayList<>(received);
+                AppExecutors.getInstance().io().execute(() -> conditionsStore.putAll(results));
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.weatherapp2.ui.location;
+
+/**
+ * Fonte da posição do dispositivo. Permite trocar o {@link FusedDeviceLocationSource} por uma
+ * posição fixa nos testes.
+ */
+public interface DeviceLocationSource {
+
+    /**
+     * Obtém a posição atual, ou a última conhecida, e entrega-a ao callback.
+     *
+     * @param callback Recebe a posição ou a falha.
+     */
+    void getLocation(Callback callback);
+
+    /**
+     * Recebe o resultado de {@link #getLocation(Callback)}.
+     */
+    interface Callback {
+        void onLocation(double latitude, double longitude);
+
+        /**
+         * @param error A causa, ou null se simplesmente não houver posição disponível.
+         */
+        void onUnavailable(Exception error);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.weatherapp2.ui.location;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+/**
+ * Posição do dispositivo obtida pelo {@link FusedLocationProviderClient} dos Google Play Services.
+ * Usa a última posição conhecida, que não liga o GPS; só se não houver nenhuma é que pede uma
+ * posição nova, com precisão de rede para poupar bateria.
+ */
+public class FusedDeviceLocationSource implements DeviceLocationSource {
+
+    private final Context context;
+    private final FusedLocationProviderClient client;
+
+    /**
+     * Construtor da fonte.
+     *
+     * @param context O contexto da aplicação.
+     */
+    public FusedDeviceLocationSource(Context context) {
+        this.context = context.getApplicationContext();
+        this.client = LocationServices.getFusedLocationProviderClient(this.context);
+    }
+
+    /**
+     * Verifica se a aplicação tem permissão para obter a posição, aproximada ou exata.
+     *
+     * @param context O contexto.
+     * @return Verdadeiro se uma das permissões de localização foi concedida.
+     */
+    public static boolean hasPermission(Context context) {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void getLocation(Callback callback) {
+        if (!hasPermission(context)) {
+            callback.onUnavailable(new SecurityException("Location permission not granted"));
+            return;
+        }
+        client.getLastLocation()
+                .addOnSuccessListener(location -> {
+                    if (location != null) {
+                        callback.onLocation(location.getLatitude(), location.getLongitude());
+                    } else {
+                        requestCurrentLocation(callback);
+                    }
+                })
+                .addOnFailureListener(callback::onUnavailable);
+    }
+
+    @SuppressLint("MissingPermission")
+    private void requestCurrentLocation(Callback callback) {
+        client.getCurrentLocation(Priority.PRIORITY_BALANCED_POWER_ACCURACY, null)
+                .addOnSuccessListener(location -> {
+                    if (location != null) {
+                        callback.onLocation(location.getLatitude(), location.getLongitude());
+                    } else {
+                        callback.onUnavailable(null);
+                    }
+                })
+                .addOnFailureListener(callback::onUnavailable);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.weatherapp2.ui.location;
+
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modo "perto de mim": obtém a posição do dispositivo e procura as cidades do catálogo local mais
+ * próximas com uma {@link NearestCityIndex}. As condições de cada cidade vêm do
+ * {@link LastConditionsStore}; só as cidades sem condições gravadas, ou com condições mais antigas
+ * do que {@link #MAX_AGE_MILLIS}, são pedidas, e o resultado é gravado para que a próxima procura
+ * seja servida localmente.
+ */
+public class NearbyCitiesFinder {
+
+    /**
+     * Número de cidades mostradas por omissão.
+     */
+    public static final int DEFAULT_COUNT = 5;
+
+    /**
+     * Idade máxima das condições gravadas servidas sem pedido, a mesma das previsões desatualizadas.
+     */
+    public static final long MAX_AGE_MILLIS = ForecastCache.MAX_STALE_MILLIS;
+
+    private final DeviceLocationSource locationSource;
+    private final LastConditionsStore conditionsStore;
+    private final ConditionsFetcher fetcher;
+    private final Executor backgroundExecutor;
+    private final Executor callbackExecutor;
+    private final Clock clock;
+    private final AtomicLong fetchCount = new AtomicLong();
+    private volatile Catalog catalog = new Catalog(new String[0], new String[0], new double[0], new double[0]);
+
+    /**
+     * Construtor do localizador.
+     *
+     * @param locationSource     A fonte da posição do dispositivo.
+     * @param conditionsStore    As últimas condições gravadas.
+     * @param fetcher            Obtém as condições de uma cidade que não estão gravadas.
+     * @param backgroundExecutor O executor onde a procura e os pedidos são feitos.
+     * @param callbackExecutor   O executor onde o resultado é entregue, normalmente a thread principal.
+     * @param clock              O relógio usado para a idade das condições gravadas.
+     */
+    public NearbyCitiesFinder(DeviceLocationSource locationSource, LastConditionsStore conditionsStore,
+                              ConditionsFetcher fetcher, Executor backgroundExecutor, Executor callbackExecutor,
+                              Clock clock) {
+        this.locationSource = locationSource;
+        this.conditionsStore = conditionsStore;
+        this.fetcher = fetcher;
+        this.backgroundExecutor = backgroundExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * Substitui o catálogo de cidades e constrói a árvore. Deve ser chamado fora da thread principal.
+     *
+     * @param names      O nome de cada cidade, tal como é mostrado.
+     * @param queries    A localização de cada cidade (por exemplo, "Porto,PT"): é pedida à API e é a
+     *                   chave das condições gravadas, a mesma usada pela lista e pelo widget.
+     * @param latitudes  A latitude de cada cidade.
+     * @param longitudes A longitude de cada cidade.
+     */
+    public void setCities(String[] names, String[] queries, double[] latitudes, double[] longitudes) {
+        catalog = new Catalog(names, queries, latitudes, longitudes);
+    }
+
+    /**
+     * @return O número de cidades no catálogo.
+     */
+    public int getCityCount() {
+        return catalog.names.length;
+    }
+
+    /**
+     * Obtém a posição do dispositivo e procura as cidades mais próximas em segundo plano.
+     *
+     * @param count    O número de cidades a devolver.
+     * @param callback Recebe as cidades, da mais próxima para a mais afastada.
+     */
+    public void findNearby(int count, Callback callback) {
+        locationSource.getLocation(new DeviceLocationSource.Callback() {
+            @Override
+            public void onLocation(double latitude, double longitude) {
+                backgroundExecutor.execute(() -> {
+                    List<NearbyCity> cities = findNear(latitude, longitude, count);
+                    callbackExecutor.execute(() -> callback.onNearby(latitude, longitude, cities));
+                });
+            }
+
+            @Override
+            public void onUnavailable(Exception error) {
+                callbackExecutor.execute(() -> callback.onError(error));
+            }
+        });
+    }
+
+    /**
+     * Procura as cidades mais próximas de uma posição e junta-lhes as condições.
+     * Deve ser chamado fora da thread principal.
+     *
+     * @param latitude  A latitude da posição.
+     * @param longitude A longitude da posição.
+     * @param count     O número de cidades a devolver.
+     * @return As cidades, da mais próxima para a mais afastada.
+     */
+    public List<NearbyCity> findNear(double latitude, double longitude, int count) {
+        Catalog catalog = this.catalog;
+        int[] nearest = catalog.index.nearest(latitude, longitude, count);
+        if (nearest.length == 0) {
+            return Collections.emptyList();
+        }
+
+        long oldest = clock.currentTimeMillis() - MAX_AGE_MILLIS;
+        List<NearbyCity> cities = new ArrayList<>(nearest.length);
+        List<Weather> fetched = new ArrayList<>();
+        for (int city : nearest) {
+            String name = catalog.names[city];
+            String location = catalog.queries[city];
+            double cityLatitude = catalog.latitudes[city];
+            double cityLongitude = catalog.longitudes[city];
+            Weather weather = conditionsStore.get(location);
+            boolean fromCache = weather != null && weather.getUpdatedAt() >= oldest;
+            if (!fromCache) {
+                Weather fresh = fetch(location, cityLatitude, cityLongitude);
+                if (fresh != null) {
+                    weather = fresh;
+                    fetched.add(fresh);
+                } else if (weather != null) {
+                    // Sem rede, as condições antigas valem mais do que nenhumas
+                    fromCache = true;
+                }
+            }
+            cities.add(new NearbyCity(name, cityLatitude, cityLongitude,
+                    NearestCityIndex.haversineMeters(latitude, longitude, cityLatitude, cityLongitude), weather, fromCache));
+        }
+        if (!fetched.isEmpty()) {
+            conditionsStore.putAll(fetched);
+        }
+        return cities;
+    }
+
+    /**
+     * @return O número de cidades pedidas à rede por não terem condições gravadas recentes.
+     */
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    private Weather fetch(String location, double latitude, double longitude) {
+        fetchCount.incrementAndGet();
+        try {
+            Weather weather = fetcher.fetch(location);
+            // A API pode devolver outro nome; a cidade fica gravada com a localização e a posição do catálogo
+            return new Weather(location, weather.getTempMin(), weather.getTempMax(), weather.getUpdatedAt(), latitude, longitude);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Obtém as condições atuais de uma cidade.
+     */
+    public interface ConditionsFetcher {
+        Weather fetch(String location) throws Exception;
+    }
+
+    /**
+     * Recebe o resultado de {@link #findNearby(int, Callback)}.
+     */
+    public interface Callback {
+        /**
+         * @param latitude  A latitude do dispositivo.
+         * @param longitude A longitude do dispositivo.
+         * @param cities    As cidades mais próximas, da mais próxima para a mais afastada.
+         */
+        void onNearby(double latitude, double longitude, List<NearbyCity> cities);
+
+        /**
+         * @param error A causa, ou null se não houver posição disponível.
+         */
+        void onError(Exception error);
+    }
+
+    /**
+     * Uma cidade próxima do dispositivo.
+     */
+    public static final class NearbyCity {
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final double distanceMeters;
+        private final Weather weather;
+        private final boolean fromCache;
+
+        NearbyCity(String name, double latitude, double longitude, double distanceMeters, Weather weather, boolean fromCache) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.distanceMeters = distanceMeters;
+            this.weather = weather;
+            this.fromCache = fromCache;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        /**
+         * @return As condições da cidade, ou null se não estavam gravadas e o pedido falhou. Se as
+         * condições gravadas eram antigas e o pedido falhou, são as gravadas.
+         */
+        public Weather getWeather() {
+            return weather;
+        }
+
+        /**
+         * @return Verdadeiro se as condições vieram das condições gravadas, sem pedido à rede.
+         */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+    }
+
+    private static final class Catalog {
+        final String[] names;
+        final String[] queries;
+        final double[] latitudes;
+        final double[] longitudes;
+        final NearestCityIndex index;
+
+        Catalog(String[] names, String[] queries, double[] latitudes, double[] longitudes) {
+            if (names.length != latitudes.length || queries.length != names.length) {
+                throw new IllegalArgumentException("Invalid catalog: " + names.length + "/" + latitudes.length);
+            }
+            this.names = names;
+            this.queries = queries;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.index = new NearestCityIndex(latitudes, longitudes);
+        }
+    }
+}
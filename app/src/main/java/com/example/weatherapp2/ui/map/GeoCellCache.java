@@ -0,0 +1,157 @@
+package com.example.weatherapp2.ui.map;
+
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache do clima atual por célula de uma grelha de latitude/longitude. Toques no mapa a poucas
+ * centenas de metros uns dos outros caem na mesma célula e são respondidos localmente enquanto
+ * o resultado for válido ({@link Forecast#CURRENT_CONDITIONS_TTL_MILLIS} depois de ser buscado).
+ * O número de células guardadas é limitado; as menos usadas são removidas primeiro.
+ */
+public class GeoCellCache {
+
+    /**
+     * Lado de cada célula em graus; 0,003° são cerca de 330 m de latitude.
+     */
+    public static final double CELL_DEGREES = 0.003;
+
+    /**
+     * Número máximo de células guardadas.
+     */
+    public static final int MAX_CELLS = 256;
+
+    private static GeoCellCache INSTANCE;
+
+    private final Clock clock;
+    private final long validityMillis;
+    private final LinkedHashMap<Long, Entry> cells;
+
+    private long hitCount;
+    private long missCount;
+    private long expiredCount;
+
+    /**
+     * Construtor da cache.
+     *
+     * @param clock          O relógio usado para avaliar a validade.
+     * @param validityMillis Durante quanto tempo um resultado responde aos toques na mesma célula.
+     * @param maxCells       O número máximo de células guardadas.
+     */
+    public GeoCellCache(Clock clock, long validityMillis, int maxCells) {
+        this.clock = clock;
+        this.validityMillis = validityMillis;
+        this.cells = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxCells;
+            }
+        };
+    }
+
+    /**
+     * Obtém a cache partilhada por todas as instâncias do mapa.
+     *
+     * @return A cache usada por toda a aplicação.
+     */
+    public static synchronized GeoCellCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new GeoCellCache(Clock.SYSTEM, Forecast.CURRENT_CONDITIONS_TTL_MILLIS, MAX_CELLS);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Calcula a chave da célula de uma coordenada.
+     *
+     * @param latitude  A latitude.
+     * @param longitude A longitude.
+     * @return A chave com o índice da linha nos 32 bits altos e o da coluna nos 32 bits baixos.
+     */
+    public static long cellOf(double latitude, double longitude) {
+        long row = (long) Math.floor(latitude / CELL_DEGREES);
+        long column = (long) Math.floor(longitude / CELL_DEGREES);
+        return (row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Procura o clima da célula de uma coordenada.
+     *
+     * @param latitude  A latitude.
+     * @param longitude A longitude.
+     * @return O clima guardado para a célula, ou null se não existir ou já não for válido.
+     */
+    public synchronized WeatherResponse get(double latitude, double longitude) {
+        long cell = cellOf(latitude, longitude);
+        Entry entry = cells.get(cell);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        if (clock.currentTimeMillis() >= entry.expiresAtMillis) {
+            cells.remove(cell);
+            expiredCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.weather;
+    }
+
+    /**
+     * Guarda o clima de uma coordenada na sua célula.
+     *
+     * @param latitude  A latitude.
+     * @param longitude A longitude.
+     * @param weather   O clima buscado.
+     */
+    public synchronized void put(double latitude, double longitude, WeatherResponse weather) {
+        cells.put(cellOf(latitude, longitude), new Entry(weather, clock.currentTimeMillis() + validityMillis));
+    }
+
+    /**
+     * @return Uma cópia das estatísticas atuais da cache.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, expiredCount, cells.size());
+    }
+
+    /**
+     * Estatísticas de uso da cache de células.
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long expired;
+        public final int cells;
+
+        Stats(long hits, long misses, long expired, int cells) {
+            this.hits = hits;
+            this.misses = misses;
+            this.expired = expired;
+            this.cells = cells;
+        }
+
+        /**
+         * @return A fração de toques respondidos pela cache.
+         */
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private static class Entry {
+        final WeatherResponse weather;
+        final long expiresAtMillis;
+
+        Entry(WeatherResponse weather, long expiresAtMillis) {
+            this.weather = weather;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
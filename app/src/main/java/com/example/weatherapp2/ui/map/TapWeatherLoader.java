@@ -0,0 +1,167 @@
+package com.example.weatherapp2.ui.map;
+
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca o clima dos toques no mapa. Os toques são agrupados: o pedido só sai depois de
+ * {@code debounceMillis} sem novos toques, e cada toque cancela o anterior, quer ainda esteja à
+ * espera quer o pedido já esteja em curso (a thread é interrompida, o que aborta a chamada HTTP).
+ * Só o resultado do último toque é entregue, por isso os resultados nunca chegam fora de ordem.
+ * Toques numa célula já presente na {@link GeoCellCache} são respondidos sem pedido.
+ */
+public class TapWeatherLoader {
+
+    /**
+     * Espera, depois do último toque, antes de fazer o pedido.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    private final Fetcher fetcher;
+    private final GeoCellCache cache;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    private final long debounceMillis;
+
+    private Future<?> pending;
+    private long generation;
+    private long requestCount;
+    private long cancelledCount;
+
+    /**
+     * Construtor do carregador.
+     *
+     * @param fetcher          O pedido de rede por coordenada.
+     * @param cache            A cache de células.
+     * @param scheduler        O executor onde a espera e o pedido correm; deve ter uma única thread, e
+     *                         só uma {@link com.example.weatherapp2.ui.network.IoThread} aborta a chamada
+     *                         HTTP ao ser interrompida (ver {@code AppExecutors.newIoScheduler}).
+     * @param callbackExecutor O executor onde os resultados são entregues (por exemplo, a thread principal).
+     * @param debounceMillis   A espera depois do último toque.
+     */
+    public TapWeatherLoader(Fetcher fetcher, GeoCellCache cache, ScheduledExecutorService scheduler,
+                            Executor callbackExecutor, long debounceMillis) {
+        this.fetcher = fetcher;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Regista um toque, substituindo o toque anterior.
+     *
+     * @param latitude  A latitude tocada.
+     * @param longitude A longitude tocada.
+     * @param callback  Recebe o resultado, se este toque não for substituído entretanto.
+     */
+    public synchronized void onTap(double latitude, double longitude, Callback callback) {
+        long tap = ++generation;
+        cancelPending();
+
+        WeatherResponse cached = cache.get(latitude, longitude);
+        if (cached != null) {
+            callbackExecutor.execute(() -> deliver(tap, callback, cached, null));
+            return;
+        }
+
+        pending = scheduler.schedule(() -> fetch(tap, latitude, longitude, callback), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancela o toque pendente, por exemplo quando a visualização do mapa é destruída.
+     */
+    public synchronized void cancel() {
+        generation++;
+        cancelPending();
+    }
+
+    /**
+     * Cancela o toque pendente e termina a thread dos pedidos.
+     */
+    public void shutdown() {
+        cancel();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return O número de pedidos de rede feitos.
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return O número de toques cancelados por um toque mais recente.
+     */
+    public synchronized long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    private void cancelPending() {
+        if (pending != null && !pending.isDone()) {
+            pending.cancel(true);
+            cancelledCount++;
+        }
+        pending = null;
+    }
+
+    private void fetch(long tap, double latitude, double longitude, Callback callback) {
+        synchronized (this) {
+            if (tap != generation) {
+                return;
+            }
+            requestCount++;
+        }
+
+        WeatherResponse weather = null;
+        Exception error = null;
+        try {
+            weather = fetcher.fetch(latitude, longitude);
+            cache.put(latitude, longitude, weather);
+        } catch (Exception e) {
+            error = e;
+        }
+
+        if (Thread.interrupted()) {
+            // Substituído durante o pedido; o resultado já não interessa
+            return;
+        }
+        WeatherResponse result = weather;
+        Exception failure = error;
+        callbackExecutor.execute(() -> deliver(tap, callback, result, failure));
+    }
+
+    private void deliver(long tap, Callback callback, WeatherResponse weather, Exception error) {
+        synchronized (this) {
+            if (tap != generation) {
+                return;
+            }
+        }
+        if (error != null) {
+            callback.onError(error);
+        } else {
+            callback.onWeather(weather);
+        }
+    }
+
+    /**
+     * Pedido de rede do clima atual de uma coordenada.
+     */
+    public interface Fetcher {
+        WeatherResponse fetch(double latitude, double longitude) throws Exception;
+    }
+
+    /**
+     * Recebe o resultado do último toque.
+     */
+    public interface Callback {
+        void onWeather(WeatherResponse weather);
+
+        void onError(Exception error);
+    }
+}
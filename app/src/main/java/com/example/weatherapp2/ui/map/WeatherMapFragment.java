@@ -1,46 +1,118 @@
 package com.example.weatherapp2.ui.map;
 
+import android.Manifest;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 
 import com.example.weatherapp2.R;
-import com.example.weatherapp2.ui.retrofit.RetrofitClient;
-import com.example.weatherapp2.ui.retrofit.WeatherApiService;
+import com.example.weatherapp2.ui.catalog.BundledCityCatalog;
+import com.example.weatherapp2.ui.catalog.CityCatalog;
+import com.example.weatherapp2.ui.location.FusedDeviceLocationSource;
+import com.example.weatherapp2.ui.location.NearbyCitiesFinder;
+import com.example.weatherapp2.ui.network.AppExecutors;
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.network.LifecycleTaskScope;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
 import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Fragmento que exibe um mapa com a capacidade de visualizar e selecionar localizações.
  * O mapa é inicializado com uma localização padrão e pode buscar e exibir informações meteorológicas
- * com base na localização clicada.
+ * com base na localização clicada. Os toques passam pelo {@link TapWeatherLoader}: toques rápidos
+ * são agrupados, os pedidos substituídos são cancelados e toques perto de um anterior são respondidos
+ * pela {@link GeoCellCache}.
+ * <p>
+ * As cidades com condições gravadas são desenhadas a partir de um {@link SpatialIndex}: quando a
+ * câmara para, só os grupos das células visíveis são consultados, e só os marcadores que entram ou
+ * saem da área visível são adicionados ou removidos. O índice é reconstruído sempre que o
+ * separador do mapa volta a ser mostrado, para incluir as condições gravadas entretanto pela lista.
+ * <p>
+ * O botão "perto de mim" usa a posição do dispositivo para mostrar as cidades mais próximas,
+ * através do {@link NearbyCitiesFinder}.
  */
 public class WeatherMapFragment extends Fragment {
 
     private GoogleMap mMap;
     private Marker currentMarker;
-    private static final String BASE_URL = "https://api.openweathermap.org/data/2.5/";
     private static final String KEY_LATITUDE = "latitude";
     private static final String KEY_LONGITUDE = "longitude";
     private static final String PREFS_NAME = "weatherApp";
-    private static final String API_KEY = "6285a2ad6dbc06206791b13cdb864c27";
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private TapWeatherLoader tapLoader;
+    private ExecutorService nearbyExecutor;
+    private LifecycleTaskScope viewTasks;
+    private SpatialIndex cityIndex;
+    private List<Weather> indexedCities;
+    private int cityIndexGeneration;
+    private final Map<Long, Marker> cityMarkers = new HashMap<>();
+    private final Set<Long> visibleCells = new HashSet<>();
+    private int markerZoom = -1;
+    private NearbyCitiesFinder nearbyFinder;
+
+    /**
+     * Pede a permissão de localização e, se for concedida, mostra as cidades próximas.
+     */
+    private final ActivityResultLauncher<String[]> locationPermissionLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestMultiplePermissions(), granted -> {
+                if (granted.containsValue(true)) {
+                    showNearbyCities();
+                } else {
+                    showToast("Location permission denied", Toast.LENGTH_SHORT);
+                }
+            });
+
+    /**
+     * Cria o carregador dos toques e o localizador de cidades próximas, com os pedidos em threads
+     * próprias e os resultados na thread principal.
+     *
+     * @param savedInstanceState O estado salvo, se disponível.
+     */
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        WeatherRepository repository = WeatherRepository.getInstance(requireContext());
+        tapLoader = new TapWeatherLoader(repository::getCurrentByCoordinates, GeoCellCache.getInstance(),
+                AppExecutors.newIoScheduler("map-tap"), mainHandler::post, TapWeatherLoader.DEFAULT_DEBOUNCE_MILLIS);
+        nearbyExecutor = AppExecutors.newIoPool("map-nearby", 1);
+        nearbyFinder = new NearbyCitiesFinder(new FusedDeviceLocationSource(requireContext()),
+                LastConditionsStore.getInstance(requireContext()),
+                location -> repository.getCurrentByName(location).toWeather(),
+                nearbyExecutor, mainHandler::post, Clock.SYSTEM);
+        loadNearbyCatalog(BundledCityCatalog.getInstance(requireContext()));
+    }
 
     /**
      * Infla a visualização para este fragmento.
@@ -66,6 +138,7 @@ public class WeatherMapFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        viewTasks = LifecycleTaskScope.bind(getViewLifecycleOwner());
 
         // Obtém o fragmento do mapa e configura o callback para quando o mapa estiver pronto
         SupportMapFragment mapFragment = (SupportMapFragment) getChildFragmentManager()
@@ -73,6 +146,15 @@ public class WeatherMapFragment extends Fragment {
         if (mapFragment != null) {
             mapFragment.getMapAsync(mapReadyCallback);
         }
+
+        view.findViewById(R.id.near_me_button).setOnClickListener(v -> {
+            if (FusedDeviceLocationSource.hasPermission(requireContext())) {
+                showNearbyCities();
+            } else {
+                locationPermissionLauncher.launch(new String[]{
+                        Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.ACCESS_FINE_LOCATION});
+            }
+        });
     }
 
     /**
@@ -104,6 +186,15 @@ public class WeatherMapFragment extends Fragment {
                     .build();              // Cria uma CameraPosition a partir do construtor
             mMap.animateCamera(CameraUpdateFactory.newCameraPosition(cameraPosition));
 
+            // Desenha as cidades gravadas sempre que a câmara para
+            mMap.setOnCameraIdleListener(WeatherMapFragment.this::renderVisibleCities);
+            loadCityIndex();
+
+            // Sem localização guardada, abre junto ao dispositivo em vez do ponto por omissão
+            if (!preferences.contains(KEY_LATITUDE) && FusedDeviceLocationSource.hasPermission(requireContext())) {
+                showNearbyCities();
+            }
+
             // Configura o ouvinte de clique no mapa
             mMap.setOnMapClickListener(latLng -> {
                 // Remove o marcador atual, se houver
@@ -128,30 +219,231 @@ public class WeatherMapFragment extends Fragment {
 
     /**
      * Busca informações meteorológicas para uma localização específica e exibe os resultados em um Toast.
+     * Um novo toque substitui este pedido, e o Toast só aparece para o último toque.
      *
      * @param latitude A latitude da localização.
      * @param longitude A longitude da localização.
      */
     private void fetchWeather(double latitude, double longitude) {
-        WeatherApiService apiService = RetrofitClient.getClient(BASE_URL).create(WeatherApiService.class);
-        Call<WeatherResponse> call = apiService.getWeather(latitude, longitude, API_KEY, "metric");
+        tapLoader.onTap(latitude, longitude, new TapWeatherLoader.Callback() {
+            @Override
+            public void onWeather(WeatherResponse weather) {
+                showToast(String.format("Current temperature: %.1f°C", weather.main.temp), Toast.LENGTH_LONG);
+            }
 
-        call.enqueue(new Callback<WeatherResponse>() {
             @Override
-            public void onResponse(Call<WeatherResponse> call, Response<WeatherResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    WeatherResponse weather = response.body();
-                    String weatherInfo = String.format("Current temperature: %.1f°C", weather.main.temp);
-                    Toast.makeText(getActivity(), weatherInfo, Toast.LENGTH_LONG).show();
+            public void onError(Exception error) {
+                if (error instanceof IOException) {
+                    showToast("Failed to get weather data", Toast.LENGTH_SHORT);
                 } else {
-                    Toast.makeText(getActivity(), "Failed to get weather data", Toast.LENGTH_SHORT).show();
+                    showToast("Error: " + error.getMessage(), Toast.LENGTH_SHORT);
+                }
+            }
+        });
+    }
+
+    /**
+     * Passa as cidades do catálogo para o localizador de cidades próximas, em segundo plano.
+     * As condições são gravadas com o nome da cidade, e os pedidos usam o nome e o país.
+     */
+    private void loadNearbyCatalog(CityCatalog catalog) {
+        nearbyExecutor.execute(() -> {
+            int count = catalog.size();
+            String[] names = new String[count];
+            String[] queries = new String[count];
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = catalog.getName(i);
+                queries[i] = names[i] + "," + catalog.getCountry(i);
+                latitudes[i] = catalog.getLatitude(i);
+                longitudes[i] = catalog.getLongitude(i);
+            }
+            nearbyFinder.setCities(names, queries, latitudes, longitudes);
+        });
+    }
+
+    /**
+     * Reconstrói o índice das cidades quando o separador do mapa volta a ser mostrado: enquanto
+     * esteve escondido, a lista pode ter gravado cidades novas ou condições mais recentes.
+     *
+     * @param hidden Verdadeiro se o fragmento passou a estar escondido.
+     */
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (!hidden && mMap != null) {
+            loadCityIndex();
+        }
+    }
+
+    /**
+     * Constrói, no pool de CPU, o índice espacial das cidades com posição conhecida e depois
+     * desenha as que estão visíveis. A construção é cancelada se a visualização for destruída, e o
+     * resultado de uma construção ultrapassada por outra mais recente é ignorado.
+     */
+    private void loadCityIndex() {
+        LastConditionsStore store = LastConditionsStore.getInstance(requireContext());
+        int generation = ++cityIndexGeneration;
+        List<Weather> cities = new ArrayList<>();
+        viewTasks.submit(AppExecutors.getInstance().cpu(), () -> {
+            for (Weather weather : store.getAll()) {
+                if (weather.hasCoordinates()) {
+                    cities.add(weather);
                 }
             }
+            double[] latitudes = new double[cities.size()];
+            double[] longitudes = new double[cities.size()];
+            for (int i = 0; i < latitudes.length; i++) {
+                latitudes[i] = cities.get(i).getLatitude();
+                longitudes[i] = cities.get(i).getLongitude();
+            }
+            return new SpatialIndex(latitudes, longitudes);
+        }, new LifecycleTaskScope.Callback<SpatialIndex>() {
+            @Override
+            public void onResult(SpatialIndex index) {
+                if (generation != cityIndexGeneration) {
+                    return;
+                }
+                indexedCities = cities;
+                cityIndex = index;
+                // Os marcadores apontam para as cidades do índice anterior: são todos substituídos
+                removeCityMarkers();
+                renderVisibleCities();
+            }
 
             @Override
-            public void onFailure(Call<WeatherResponse> call, Throwable t) {
-                Toast.makeText(getActivity(), "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+            public void onError(Exception error) {
+                error.printStackTrace();
             }
         });
     }
+
+    /**
+     * Atualiza os marcadores das cidades para a área visível. Se o nível de zoom mudou, os grupos
+     * são outros e todos os marcadores são substituídos; caso contrário, só são adicionados os
+     * grupos que entraram na área visível e removidos os que saíram.
+     */
+    private void renderVisibleCities() {
+        if (mMap == null || cityIndex == null) {
+            return;
+        }
+        int zoom = Math.min(SpatialIndex.MAX_ZOOM, (int) mMap.getCameraPosition().zoom);
+        if (zoom != markerZoom) {
+            removeCityMarkers();
+            markerZoom = zoom;
+        }
+
+        LatLngBounds bounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+        visibleCells.clear();
+        cityIndex.query(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude, zoom,
+                (cellKey, latitude, longitude, count, pointIndex) -> {
+                    visibleCells.add(cellKey);
+                    if (!cityMarkers.containsKey(cellKey)) {
+                        cityMarkers.put(cellKey, mMap.addMarker(cityMarker(latitude, longitude, count, pointIndex)));
+                    }
+                });
+
+        for (Iterator<Map.Entry<Long, Marker>> it = cityMarkers.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Marker> entry = it.next();
+            if (!visibleCells.contains(entry.getKey())) {
+                entry.getValue().remove();
+                it.remove();
+            }
+        }
+    }
+
+    private void removeCityMarkers() {
+        for (Marker marker : cityMarkers.values()) {
+            marker.remove();
+        }
+        cityMarkers.clear();
+        markerZoom = -1;
+    }
+
+    private MarkerOptions cityMarker(double latitude, double longitude, int count, int pointIndex) {
+        MarkerOptions options = new MarkerOptions().position(new LatLng(latitude, longitude));
+        if (pointIndex >= 0) {
+            Weather weather = indexedCities.get(pointIndex);
+            return options.title(weather.getLocation())
+                    .snippet(String.format("Min: %.1f°C  Max: %.1f°C", weather.getTempMin(), weather.getTempMax()));
+        }
+        return options.title(count + " cities")
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE));
+    }
+
+    /**
+     * Obtém a posição do dispositivo, marca-a no mapa e enquadra as cidades mais próximas,
+     * listando-as com a distância e as últimas condições conhecidas.
+     */
+    private void showNearbyCities() {
+        nearbyFinder.findNearby(NearbyCitiesFinder.DEFAULT_COUNT, new NearbyCitiesFinder.Callback() {
+            @Override
+            public void onNearby(double latitude, double longitude, List<NearbyCitiesFinder.NearbyCity> cities) {
+                if (mMap == null) {
+                    return;
+                }
+                LatLng device = new LatLng(latitude, longitude);
+                if (currentMarker != null) {
+                    currentMarker.remove();
+                }
+                currentMarker = mMap.addMarker(new MarkerOptions().position(device).title("You are here"));
+                if (cities.isEmpty()) {
+                    mMap.animateCamera(CameraUpdateFactory.newLatLng(device));
+                    showToast("No cities with a known position yet", Toast.LENGTH_SHORT);
+                    return;
+                }
+
+                LatLngBounds.Builder bounds = new LatLngBounds.Builder().include(device);
+                StringBuilder message = new StringBuilder();
+                for (NearbyCitiesFinder.NearbyCity city : cities) {
+                    bounds.include(new LatLng(city.getLatitude(), city.getLongitude()));
+                    if (message.length() > 0) {
+                        message.append('\n');
+                    }
+                    message.append(String.format("%s  %.1f km", city.getName(), city.getDistanceMeters() / 1000));
+                    Weather weather = city.getWeather();
+                    if (weather != null) {
+                        message.append(String.format("  %.1f°C / %.1f°C", weather.getTempMin(), weather.getTempMax()));
+                    }
+                }
+                mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds.build(), 120));
+                showToast(message.toString(), Toast.LENGTH_LONG);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                showToast("Location unavailable", Toast.LENGTH_SHORT);
+            }
+        });
+    }
+
+    private void showToast(String message, int duration) {
+        if (getActivity() != null) {
+            Toast.makeText(getActivity(), message, duration).show();
+        }
+    }
+
+    /**
+     * Cancela o toque pendente quando a visualização é destruída.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        tapLoader.cancel();
+        cityMarkers.clear();
+        markerZoom = -1;
+        mMap = null;
+    }
+
+    /**
+     * Liberta as threads usadas para os pedidos de clima e para as cidades próximas.
+     */
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        tapLoader.shutdown();
+        nearbyExecutor.shutdownNow();
+    }
 }
@@ -0,0 +1,163 @@
+package com.example.weatherapp2.ui.network;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executores partilhados por toda a aplicação, em substituição do {@code AsyncTask}.
+ * <p>
+ * O trabalho de I/O (rede, banco de dados, ficheiros) e o trabalho de CPU (índices, formatação)
+ * correm em pools separados: um lote de pedidos lentos não atrasa uma gravação nem a construção
+ * de um índice, e o trabalho de CPU não ocupa mais threads do que os núcleos disponíveis.
+ * As threads de I/O são {@link IoThread}s, por isso cancelar uma tarefa com
+ * {@code future.cancel(true)} cancela também o pedido HTTP em curso.
+ * <p>
+ * Para trabalho cujo resultado vai para uma visualização, use um {@link LifecycleTaskScope},
+ * que cancela as tarefas quando a visualização é destruída.
+ */
+public class AppExecutors {
+
+    /**
+     * Número de threads do pool de I/O.
+     */
+    public static final int IO_THREADS = 8;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static AppExecutors INSTANCE;
+
+    private final ExecutorService io;
+    private final ExecutorService cpu;
+    private final Executor mainThread;
+
+    /**
+     * Construtor dos executores.
+     *
+     * @param io         O executor do trabalho de I/O.
+     * @param cpu        O executor do trabalho de CPU.
+     * @param mainThread O executor da thread principal.
+     */
+    public AppExecutors(ExecutorService io, ExecutorService cpu, Executor mainThread) {
+        this.io = io;
+        this.cpu = cpu;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Obtém os executores partilhados, criando-os na primeira chamada.
+     *
+     * @return Os executores usados por toda a aplicação.
+     */
+    public static synchronized AppExecutors getInstance() {
+        if (INSTANCE == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            INSTANCE = new AppExecutors(newIoPool("app-io", IO_THREADS),
+                    newPool("app-cpu", Math.max(2, processors), false), mainHandler::post);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Substitui os executores partilhados, por exemplo por executores síncronos.
+     *
+     * @param executors Os executores a devolver por {@link #getInstance()}.
+     */
+    @VisibleForTesting
+    public static synchronized void setInstance(AppExecutors executors) {
+        INSTANCE = executors;
+    }
+
+    /**
+     * @return O executor do trabalho de I/O.
+     */
+    public ExecutorService io() {
+        return io;
+    }
+
+    /**
+     * @return O executor do trabalho de CPU.
+     */
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    /**
+     * @return O executor da thread principal.
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Cria um pool de {@link IoThread}s com um número fixo de threads, que terminam quando ficam
+     * inativas. No fim de cada tarefa, a ação de cancelamento registada na thread é removida.
+     *
+     * @param name    O prefixo do nome das threads.
+     * @param threads O número máximo de tarefas em simultâneo.
+     * @return O novo pool.
+     */
+    public static ThreadPoolExecutor newIoPool(String name, int threads) {
+        return newPool(name, threads, true);
+    }
+
+    /**
+     * Cria um executor agendado de uma única {@link IoThread}, para pedidos feitos depois de uma
+     * espera (por exemplo, os toques agrupados no mapa). Cancelar uma tarefa com
+     * {@code future.cancel(true)} cancela também o pedido HTTP em curso, e as tarefas canceladas
+     * antes de correr saem logo da fila.
+     *
+     * @param name O prefixo do nome da thread.
+     * @return O novo executor.
+     */
+    public static ScheduledThreadPoolExecutor newIoScheduler(String name) {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, newThreadFactory(name, true)) {
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable error) {
+                clearCancelAction();
+            }
+        };
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    private static ThreadPoolExecutor newPool(String name, int threads, boolean io) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), newThreadFactory(name, io)) {
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable error) {
+                clearCancelAction();
+            }
+        };
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory newThreadFactory(String name, boolean io) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            String threadName = name + "-" + count.incrementAndGet();
+            Thread thread = io ? new IoThread(runnable, threadName) : new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void clearCancelAction() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof IoThread) {
+            ((IoThread) thread).setCancelAction(null);
+        }
+    }
+}
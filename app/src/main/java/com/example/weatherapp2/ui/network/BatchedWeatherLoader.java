@@ -0,0 +1,104 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Converte uma lista de localizações no menor número possível de pedidos à API.
+ * Localizações com ID conhecido são agrupadas em pedidos {@code /group} de até
+ * {@link #MAX_IDS_PER_REQUEST} cidades; as restantes são resolvidas uma única vez por nome
+ * e o ID obtido fica guardado no {@link CityIdStore}.
+ * As condições devolvidas têm a localização pedida ("Lisbon,PT"), e não o nome devolvido pela API,
+ * para que a lista, o widget e o modo "perto de mim" gravem cada cidade com a mesma chave.
+ */
+public class BatchedWeatherLoader {
+
+    /**
+     * Número máximo de IDs aceites pelo endpoint {@code /group}.
+     */
+    public static final int MAX_IDS_PER_REQUEST = 20;
+
+    private final WeatherRepository repository;
+    private final CityIdStore cityIdStore;
+
+    /**
+     * Construtor do carregador.
+     *
+     * @param repository  O repositório usado para os pedidos à API.
+     * @param cityIdStore O armazenamento dos IDs já resolvidos.
+     */
+    public BatchedWeatherLoader(WeatherRepository repository, CityIdStore cityIdStore) {
+        this.repository = repository;
+        this.cityIdStore = cityIdStore;
+    }
+
+    /**
+     * Cria as tarefas necessárias para obter o clima atual de todas as localizações.
+     * Cada tarefa devolve os objetos {@link Weather} do seu pedido e pode ser executada
+     * pelo {@link ParallelFetchEngine}.
+     *
+     * @param locations As localizações a buscar.
+     * @return Uma tarefa por cada grupo de IDs e uma por cada localização ainda por resolver.
+     */
+    public List<Callable<List<Weather>>> createTasks(List<String> locations) {
+        List<Callable<List<Weather>>> tasks = new ArrayList<>();
+        List<Long> knownIds = new ArrayList<>();
+        Map<Long, String> locationsById = new HashMap<>();
+
+        for (String location : locations) {
+            long cityId = cityIdStore.getCityId(location);
+            if (cityId >= 0) {
+                knownIds.add(cityId);
+                locationsById.put(cityId, location);
+            } else {
+                tasks.add(() -> resolveAndFetch(location));
+            }
+        }
+
+        for (int start = 0; start < knownIds.size(); start += MAX_IDS_PER_REQUEST) {
+            List<Long> chunk = new ArrayList<>(
+                    knownIds.subList(start, Math.min(start + MAX_IDS_PER_REQUEST, knownIds.size())));
+            tasks.add(() -> fetchByIds(chunk, locationsById));
+        }
+        return tasks;
+    }
+
+    /**
+     * Busca o clima de uma localização pelo nome e guarda o ID devolvido para os pedidos seguintes.
+     *
+     * @param location A localização em texto livre.
+     * @return Uma lista com o clima da localização.
+     * @throws Exception Se o pedido falhar.
+     */
+    private List<Weather> resolveAndFetch(String location) throws Exception {
+        WeatherResponse body = repository.getCurrentByName(location);
+        cityIdStore.putCityId(location, body.id);
+        return Collections.singletonList(body.toWeather().withLocation(location));
+    }
+
+    /**
+     * Busca o clima atual de um grupo de cidades e devolve cada uma com a localização pedida.
+     *
+     * @param cityIds       Os IDs a pedir.
+     * @param locationsById A localização de cada ID.
+     * @return O clima das cidades devolvidas pela API.
+     * @throws Exception Se o pedido falhar.
+     */
+    private List<Weather> fetchByIds(List<Long> cityIds, Map<Long, String> locationsById) throws Exception {
+        Map<Long, Weather> byId = repository.getCurrentByIds(cityIds);
+        List<Weather> result = new ArrayList<>(byId.size());
+        for (Map.Entry<Long, Weather> city : byId.entrySet()) {
+            String location = locationsById.get(city.getKey());
+            result.add(location != null ? city.getValue().withLocation(location) : city.getValue());
+        }
+        return result;
+    }
+}
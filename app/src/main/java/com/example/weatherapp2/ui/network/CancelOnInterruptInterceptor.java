@@ -0,0 +1,28 @@
+package com.example.weatherapp2.ui.network;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Interceptor do OkHttp que liga cada pedido síncrono à {@link IoThread} que o executa: quando a
+ * tarefa é cancelada e a thread interrompida, a chamada é cancelada, o socket é fechado e a ligação
+ * sai do pool em vez de ficar presa à espera da resposta.
+ * <p>
+ * A ação fica registada antes de o pedido seguir, por isso cobre a ligação, o envio, a espera pelo
+ * cabeçalho e a leitura do corpo, que é feita depois de o interceptor devolver a resposta; é
+ * removida pelo pool no fim da tarefa (ver {@link AppExecutors#newIoPool}). Em threads que não são
+ * {@link IoThread}, o pedido segue sem alterações.
+ */
+public class CancelOnInterruptInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof IoThread) {
+            ((IoThread) thread).setCancelAction(chain.call()::cancel);
+        }
+        return chain.proceed(chain.request());
+    }
+}
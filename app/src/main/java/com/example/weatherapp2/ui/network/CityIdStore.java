@@ -0,0 +1,33 @@
+package com.example.weatherapp2.ui.network;
+
+/**
+ * Guarda o ID estável da OpenWeather resolvido para cada localização, para que a resolução do nome
+ * em texto livre aconteça apenas uma vez por instalação. A aplicação usa o
+ * {@link PreferencesCityIdStore}; os testes podem usar um armazenamento em memória.
+ */
+public interface CityIdStore {
+
+    /**
+     * Obtém o ID resolvido para uma localização.
+     *
+     * @param location A localização tal como é enviada à API (por exemplo, "Madrid,es").
+     * @return O ID da cidade, ou -1 se a localização ainda não foi resolvida.
+     */
+    long getCityId(String location);
+
+    /**
+     * Indica se a localização já tem um ID resolvido.
+     *
+     * @param location A localização tal como é enviada à API.
+     * @return Verdadeiro se o ID é conhecido.
+     */
+    boolean hasCityId(String location);
+
+    /**
+     * Guarda o ID resolvido para uma localização.
+     *
+     * @param location A localização tal como é enviada à API.
+     * @param cityId   O ID devolvido pela OpenWeather.
+     */
+    void putCityId(String location, long cityId);
+}
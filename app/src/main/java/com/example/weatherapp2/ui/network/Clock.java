@@ -0,0 +1,17 @@
+package com.example.weatherapp2.ui.network;
+
+/**
+ * Fonte do tempo atual. Permite substituir o relógio do sistema por um relógio virtual nos testes.
+ */
+public interface Clock {
+
+    /**
+     * Relógio do sistema.
+     */
+    Clock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return O tempo atual em milissegundos desde a época.
+     */
+    long currentTimeMillis();
+}
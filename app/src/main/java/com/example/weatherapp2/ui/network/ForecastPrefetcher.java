@@ -0,0 +1,203 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.room.ForecastCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Busca antecipadamente as previsões completas das cidades que o utilizador provavelmente vai
+ * abrir: as linhas visíveis na lista e as cidades abertas recentemente. As previsões ficam na
+ * {@link ForecastCache} em memória, por isso os detalhes dessas cidades abrem sem esperar pela rede.
+ * <p>
+ * As cidades visíveis têm prioridade sobre as recentes, e o conjunto é limitado a um orçamento em
+ * bytes estimados, para que a antecipação nunca ocupe mais do que uma parte da LRU. Esse orçamento
+ * fica reservado na cache pelo {@link Pinner}: as previsões antecipadas não são removidas para dar
+ * lugar às que o utilizador vai abrindo. Quando as linhas visíveis mudam, a reserva passa para as
+ * novas cidades e os pedidos ainda em fila das que deixaram de interessar são cancelados.
+ * <p>
+ * Os pedidos correm no executor recebido, que deve ter poucas threads para não competir com a
+ * atualização da lista. Todos os métodos podem ser chamados de qualquer thread.
+ */
+public class ForecastPrefetcher {
+
+    /**
+     * Número de cidades abertas recentemente mantidas em memória.
+     */
+    public static final int RECENT_CAPACITY = 8;
+
+    /**
+     * Orçamento usado por padrão: um quarto da LRU de previsões.
+     */
+    public static final int DEFAULT_BUDGET_BYTES = ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES / 4;
+
+    /**
+     * Tamanho estimado de uma previsão de 5 dias (40 intervalos, nome com até 16 caracteres)
+     * ainda não buscada; ver {@link Forecast#getEstimatedSizeBytes()}.
+     */
+    static final int ESTIMATED_FORECAST_BYTES = 64 + 2 * 16 + 40 * (8 + 8 + 8);
+
+    /**
+     * Pedido da previsão completa de uma localização.
+     */
+    public interface Fetcher {
+        Forecast fetch(String location) throws Exception;
+    }
+
+    /**
+     * Reserva na cache as previsões das localizações a manter, normalmente
+     * {@code repository::pinForecasts}.
+     */
+    public interface Pinner {
+        void pin(List<String> locations, int budgetBytes);
+    }
+
+    private final Fetcher fetcher;
+    private final Pinner pinner;
+    private final ExecutorService executor;
+    private final int budgetBytes;
+    private final List<String> visible = new ArrayList<>();
+    private final LinkedHashSet<String> recent = new LinkedHashSet<>();
+    private final Map<String, Future<?>> inFlight = new HashMap<>();
+    private final Map<String, Integer> sizes = new HashMap<>();
+    private long prefetchCount;
+
+    /**
+     * Construtor do prefetcher.
+     *
+     * @param fetcher     O pedido da previsão, normalmente {@code repository::getForecast}.
+     * @param pinner      A reserva das previsões na cache.
+     * @param executor    O executor dos pedidos.
+     * @param budgetBytes O tamanho máximo, em bytes estimados, das previsões mantidas.
+     */
+    public ForecastPrefetcher(Fetcher fetcher, Pinner pinner, ExecutorService executor, int budgetBytes) {
+        this.fetcher = fetcher;
+        this.pinner = pinner;
+        this.executor = executor;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Indica as localizações das linhas visíveis, pela ordem do ecrã.
+     *
+     * @param locations As localizações visíveis.
+     */
+    public synchronized void setVisible(List<String> locations) {
+        visible.clear();
+        visible.addAll(locations);
+        schedule();
+    }
+
+    /**
+     * Regista a abertura dos detalhes de uma localização, que passa a ser a mais recente.
+     *
+     * @param location A localização aberta.
+     */
+    public synchronized void onOpened(String location) {
+        recent.remove(location);
+        recent.add(location);
+        if (recent.size() > RECENT_CAPACITY) {
+            Iterator<String> oldest = recent.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        schedule();
+    }
+
+    /**
+     * Calcula as localizações a manter em memória: as visíveis e depois as recentes, da mais
+     * recente para a mais antiga, até esgotar o orçamento.
+     *
+     * @return As localizações, por ordem de prioridade.
+     */
+    public synchronized List<String> getWanted() {
+        LinkedHashSet<String> candidates = new LinkedHashSet<>(visible);
+        List<String> recentFirst = new ArrayList<>(recent);
+        for (int i = recentFirst.size() - 1; i >= 0; i--) {
+            candidates.add(recentFirst.get(i));
+        }
+
+        List<String> wanted = new ArrayList<>(candidates.size());
+        int usedBytes = 0;
+        for (String location : candidates) {
+            Integer size = sizes.get(location);
+            usedBytes += size != null ? size : ESTIMATED_FORECAST_BYTES;
+            if (usedBytes > budgetBytes) {
+                break;
+            }
+            wanted.add(location);
+        }
+        return wanted;
+    }
+
+    /**
+     * @return O número de pedidos em fila ou em curso.
+     */
+    public synchronized int getPendingCount() {
+        pruneDone();
+        return inFlight.size();
+    }
+
+    /**
+     * @return O número de pedidos antecipados feitos até agora.
+     */
+    public synchronized long getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    /**
+     * Reserva na cache as previsões a manter, cancela os pedidos em fila que deixaram de interessar
+     * e submete os que faltam. Uma previsão já em memória é devolvida pela cache sem pedido de rede.
+     */
+    private void schedule() {
+        pruneDone();
+        List<String> wanted = getWanted();
+        pinner.pin(wanted, budgetBytes);
+        Set<String> wantedSet = new LinkedHashSet<>(wanted);
+
+        Iterator<Map.Entry<String, Future<?>>> iterator = inFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Future<?>> entry = iterator.next();
+            if (!wantedSet.contains(entry.getKey())) {
+                // Um pedido já em curso termina: a resposta fica na cache para a próxima vez
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+
+        for (String location : wanted) {
+            if (!inFlight.containsKey(location)) {
+                prefetchCount++;
+                inFlight.put(location, executor.submit(() -> prefetch(location)));
+            }
+        }
+    }
+
+    private void prefetch(String location) {
+        try {
+            Forecast forecast = fetcher.fetch(location);
+            synchronized (this) {
+                sizes.put(location, forecast.getEstimatedSizeBytes());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void pruneDone() {
+        Iterator<Future<?>> iterator = inFlight.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.weatherapp2.ui.network;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread de I/O que, ao ser interrompida, cancela também a operação bloqueante em curso.
+ * <p>
+ * Uma leitura de socket bloqueada não responde a {@link Thread#interrupt()}, por isso cancelar a
+ * {@link java.util.concurrent.Future} de um pedido de rede não o pararia: a ligação continuaria
+ * ocupada até à resposta chegar. Quem faz a operação regista uma ação de cancelamento (por
+ * exemplo, {@code call::cancel} do OkHttp, ver {@link CancelOnInterruptInterceptor}), que é
+ * executada pela thread que interrompe.
+ */
+public class IoThread extends Thread {
+
+    private final AtomicReference<Runnable> cancelAction = new AtomicReference<>();
+
+    /**
+     * Construtor da thread.
+     *
+     * @param runnable O código a executar.
+     * @param name     O nome da thread.
+     */
+    public IoThread(Runnable runnable, String name) {
+        super(runnable, name);
+    }
+
+    /**
+     * Regista a ação que cancela a operação em curso nesta thread, substituindo a anterior.
+     * Se a thread já tiver sido interrompida, a ação é executada de imediato.
+     *
+     * @param action A ação de cancelamento, ou null para a remover.
+     */
+    public void setCancelAction(Runnable action) {
+        cancelAction.set(action);
+        if (action != null && isInterrupted() && cancelAction.compareAndSet(action, null)) {
+            action.run();
+        }
+    }
+
+    /**
+     * Interrompe a thread e executa a ação de cancelamento registada, se houver.
+     */
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        Runnable action = cancelAction.getAndSet(null);
+        if (action != null) {
+            action.run();
+        }
+    }
+}
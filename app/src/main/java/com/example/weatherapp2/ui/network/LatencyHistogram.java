@@ -0,0 +1,132 @@
+package com.example.weatherapp2.ui.network;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências com tamanho fixo, que pode ser atualizado por várias threads sem locks.
+ * <p>
+ * Os valores são guardados em microssegundos em baldes logarítmicos: cada potência de dois é
+ * dividida em {@value #SUB_BUCKETS} baldes iguais, por isso um percentil tem um erro relativo de no
+ * máximo 12,5%. Os valores abaixo de 2<sup>36</sup> µs (cerca de 19 horas) têm balde próprio;
+ * os maiores ficam no último.
+ * <p>
+ * A leitura não pára as escritas: um percentil calculado durante uma gravação pode não incluir o
+ * valor que está a ser gravado.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 35;
+
+    /**
+     * Número de baldes de cada histograma.
+     */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Grava uma duração.
+     *
+     * @param nanos A duração em nanossegundos; valores negativos contam como zero.
+     */
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)));
+    }
+
+    /**
+     * Grava uma duração.
+     *
+     * @param micros A duração em microssegundos.
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sumMicros.addAndGet(value);
+        long max;
+        while (value > (max = maxMicros.get())) {
+            if (maxMicros.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return O número de durações gravadas.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return A maior duração gravada, em microssegundos.
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * @return A duração média, em microssegundos, ou 0 se não houver durações.
+     */
+    public long getMeanMicros() {
+        long total = count.get();
+        return total == 0 ? 0 : sumMicros.get() / total;
+    }
+
+    /**
+     * Calcula um percentil.
+     *
+     * @param percentile O percentil, entre 0 e 100.
+     * @return O limite superior do balde que contém o percentil, em microssegundos,
+     * nunca acima da maior duração gravada; 0 se não houver durações.
+     */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + sub) * width) + width - 1;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.weatherapp2.ui.network;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Conjunto de tarefas em segundo plano ligado ao ciclo de vida de uma visualização ou atividade.
+ * <p>
+ * Quando o dono chega a {@link Lifecycle.Event#ON_DESTROY}, todas as tarefas ainda em fila ou em
+ * execução são canceladas com interrupção (o que, numa {@link IoThread}, cancela também o pedido
+ * HTTP) e nenhum resultado é entregue depois disso. As tarefas canceladas deixam de referenciar o
+ * código e o callback, por isso o fragmento ou a atividade não ficam presos a um pedido lento.
+ * <p>
+ * Os resultados são entregues no executor de callbacks, normalmente a thread principal.
+ * Todos os métodos podem ser chamados de qualquer thread.
+ */
+public class LifecycleTaskScope implements LifecycleEventObserver {
+
+    /**
+     * Recebe o resultado de uma tarefa. Não é chamado se o âmbito já tiver sido cancelado.
+     *
+     * @param <T> O tipo do resultado.
+     */
+    public interface Callback<T> {
+
+        /**
+         * @param result O resultado da tarefa.
+         */
+        void onResult(T result);
+
+        /**
+         * @param error O erro lançado pela tarefa.
+         */
+        void onError(Exception error);
+    }
+
+    private final Executor callbackExecutor;
+    private final Set<Task<?>> tasks = new HashSet<>();
+    private boolean cancelled;
+
+    /**
+     * Construtor do âmbito, sem ligação a um ciclo de vida; as tarefas são canceladas com {@link #cancel()}.
+     *
+     * @param callbackExecutor O executor onde os callbacks são chamados.
+     */
+    public LifecycleTaskScope(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Cria um âmbito que é cancelado quando o dono é destruído, com os callbacks na thread principal.
+     * Num fragmento, use {@code getViewLifecycleOwner()} para ligar as tarefas à visualização.
+     *
+     * @param owner O dono do ciclo de vida.
+     * @return O novo âmbito.
+     */
+    public static LifecycleTaskScope bind(LifecycleOwner owner) {
+        LifecycleTaskScope scope = new LifecycleTaskScope(AppExecutors.getInstance().mainThread());
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            scope.cancel();
+        } else {
+            owner.getLifecycle().addObserver(scope);
+        }
+        return scope;
+    }
+
+    /**
+     * Executa uma tarefa e entrega o resultado ao callback, se o âmbito não tiver sido cancelado entretanto.
+     *
+     * @param executor O executor da tarefa, por exemplo {@link AppExecutors#io()} ou {@link AppExecutors#cpu()}.
+     * @param work     O trabalho a executar.
+     * @param callback O callback que recebe o resultado.
+     * @param <T>      O tipo do resultado.
+     * @return A tarefa, que pode ser cancelada individualmente.
+     */
+    public <T> Future<T> submit(Executor executor, Callable<T> work, Callback<T> callback) {
+        Task<T> task = new Task<>(work, callback);
+        synchronized (this) {
+            if (cancelled) {
+                task.cancel(false);
+                return task;
+            }
+            tasks.add(task);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Cancela todas as tarefas em curso e as que forem submetidas a seguir.
+     */
+    public void cancel() {
+        Task<?>[] pending;
+        synchronized (this) {
+            cancelled = true;
+            pending = tasks.toArray(new Task<?>[0]);
+            tasks.clear();
+        }
+        for (Task<?> task : pending) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * @return Verdadeiro se o âmbito tiver sido cancelado.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return O número de tarefas ainda não terminadas.
+     */
+    public synchronized int getActiveCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event == Lifecycle.Event.ON_DESTROY) {
+            source.getLifecycle().removeObserver(this);
+            cancel();
+        }
+    }
+
+    private synchronized void remove(Task<?> task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * Uma tarefa do âmbito. O callback é largado quando a tarefa termina, para que uma tarefa
+     * cancelada que ainda esteja na fila do executor não mantenha a visualização em memória.
+     */
+    private final class Task<T> extends FutureTask<T> {
+        private Callback<T> callback;
+
+        Task(Callable<T> work, Callback<T> callback) {
+            super(work);
+            this.callback = callback;
+        }
+
+        @Override
+        protected void done() {
+            remove(this);
+            Callback<T> target;
+            synchronized (this) {
+                target = callback;
+                callback = null;
+            }
+            if (isCancelled() || target == null) {
+                return;
+            }
+
+            T result = null;
+            Exception error = null;
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            T finalResult = result;
+            Exception finalError = error;
+            callbackExecutor.execute(() -> {
+                if (LifecycleTaskScope.this.isCancelled()) {
+                    return;
+                }
+                if (finalError != null) {
+                    target.onError(finalError);
+                } else {
+                    target.onResult(finalResult);
+                }
+            });
+        }
+    }
+}
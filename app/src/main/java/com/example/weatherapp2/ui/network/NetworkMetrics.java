@@ -0,0 +1,350 @@
+package com.example.weatherapp2.ui.network;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Métricas de todos os pedidos à API do clima, agrupadas por endpoint.
+ * <p>
+ * O cliente HTTP regista um {@link EventListener} por chamada (ver {@link #eventListenerFactory()}),
+ * que mede as fases do pedido (DNS, ligação, tempo até ao primeiro byte, corpo e total), conta os
+ * bytes transferidos, os códigos de estado, as falhas e o uso da cache HTTP. Cada endpoint tem um
+ * conjunto fixo de contadores e de {@link LatencyHistogram}s, atualizados sem locks, por isso a
+ * medição não atrasa os pedidos.
+ */
+public class NetworkMetrics {
+
+    /**
+     * Os endpoints da API medidos em separado.
+     */
+    public enum Endpoint {
+        WEATHER("weather"),
+        GROUP("group"),
+        FORECAST("forecast"),
+        OTHER("other");
+
+        public final String path;
+
+        Endpoint(String path) {
+            this.path = path;
+        }
+
+        /**
+         * Identifica o endpoint pelo último segmento do caminho da URL.
+         *
+         * @param url A URL do pedido.
+         * @return O endpoint, ou {@link #OTHER}.
+         */
+        public static Endpoint of(HttpUrl url) {
+            List<String> segments = url.pathSegments();
+            String last = segments.isEmpty() ? "" : segments.get(segments.size() - 1);
+            for (Endpoint endpoint : values()) {
+                if (endpoint.path.equals(last)) {
+                    return endpoint;
+                }
+            }
+            return OTHER;
+        }
+    }
+
+    private static NetworkMetrics INSTANCE;
+
+    private final EndpointMetrics[] endpoints = new EndpointMetrics[Endpoint.values().length];
+
+    public NetworkMetrics() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            endpoints[endpoint.ordinal()] = new EndpointMetrics(endpoint);
+        }
+    }
+
+    /**
+     * @return As métricas partilhadas por todos os clientes HTTP da aplicação.
+     */
+    public static synchronized NetworkMetrics getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new NetworkMetrics();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return A fábrica de listeners a registar no {@link okhttp3.OkHttpClient.Builder}.
+     */
+    public EventListener.Factory eventListenerFactory() {
+        return call -> new CallListener(get(Endpoint.of(call.request().url())));
+    }
+
+    /**
+     * @param endpoint O endpoint.
+     * @return As métricas do endpoint.
+     */
+    public EndpointMetrics get(Endpoint endpoint) {
+        return endpoints[endpoint.ordinal()];
+    }
+
+    /**
+     * Escreve um relatório de texto com as métricas de cada endpoint que já recebeu pedidos.
+     *
+     * @param writer O destino do relatório.
+     */
+    public void writeReport(Writer writer) {
+        PrintWriter out = new PrintWriter(writer);
+        for (EndpointMetrics metrics : endpoints) {
+            if (metrics.getCalls() == 0) {
+                continue;
+            }
+            out.printf("/%s: %d calls, %d failed, %d canceled%n", metrics.endpoint.path,
+                    metrics.getCalls(), metrics.getFailures(), metrics.getCancellations());
+            out.printf("  status 2xx %d, 3xx %d, 4xx %d, 5xx %d%n", metrics.getStatusCount(2),
+                    metrics.getStatusCount(3), metrics.getStatusCount(4), metrics.getStatusCount(5));
+            out.printf("  http cache: %d hits, %d conditional hits, %d misses%n",
+                    metrics.getCacheHits(), metrics.getCacheConditionalHits(), metrics.getCacheMisses());
+            out.printf("  bytes: %d sent, %d received%n", metrics.getBytesSent(), metrics.getBytesReceived());
+            writeHistogram(out, "total", metrics.total);
+            writeHistogram(out, "dns", metrics.dns);
+            writeHistogram(out, "connect", metrics.connect);
+            writeHistogram(out, "ttfb", metrics.timeToFirstByte);
+            writeHistogram(out, "body", metrics.body);
+            String lastError = metrics.getLastError();
+            if (lastError != null) {
+                out.printf("  last error: %s%n", lastError);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return O relatório de {@link #writeReport(Writer)} como texto.
+     */
+    public String getReport() {
+        StringWriter writer = new StringWriter();
+        writeReport(writer);
+        return writer.toString();
+    }
+
+    private static void writeHistogram(PrintWriter out, String name, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        out.printf("  %-7s n=%d p50=%s p95=%s p99=%s max=%s%n", name, histogram.getCount(),
+                millis(histogram.getPercentileMicros(50)), millis(histogram.getPercentileMicros(95)),
+                millis(histogram.getPercentileMicros(99)), millis(histogram.getMaxMicros()));
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+    }
+
+    /**
+     * Contadores e histogramas de um endpoint.
+     */
+    public static class EndpointMetrics {
+        public final Endpoint endpoint;
+        public final LatencyHistogram total = new LatencyHistogram();
+        public final LatencyHistogram dns = new LatencyHistogram();
+        public final LatencyHistogram connect = new LatencyHistogram();
+        public final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+        public final LatencyHistogram body = new LatencyHistogram();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong cancellations = new AtomicLong();
+        final AtomicLong bytesSent = new AtomicLong();
+        final AtomicLong bytesReceived = new AtomicLong();
+        final AtomicLong cacheHits = new AtomicLong();
+        final AtomicLong cacheConditionalHits = new AtomicLong();
+        final AtomicLong cacheMisses = new AtomicLong();
+        final AtomicLongArray statusClasses = new AtomicLongArray(6);
+        final AtomicReference<String> lastError = new AtomicReference<>();
+
+        EndpointMetrics(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * @return O número de chamadas terminadas, com sucesso ou não.
+         */
+        public long getCalls() {
+            return total.getCount();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getCancellations() {
+            return cancellations.get();
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        public long getCacheHits() {
+            return cacheHits.get();
+        }
+
+        public long getCacheConditionalHits() {
+            return cacheConditionalHits.get();
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses.get();
+        }
+
+        /**
+         * @param statusClass A classe do código de estado (2 para 2xx, 4 para 4xx, ...).
+         * @return O número de respostas com um código dessa classe.
+         */
+        public long getStatusCount(int statusClass) {
+            return statusClass >= 0 && statusClass < statusClasses.length() ? statusClasses.get(statusClass) : 0;
+        }
+
+        /**
+         * @return A mensagem da última falha, ou null.
+         */
+        public String getLastError() {
+            return lastError.get();
+        }
+
+        void recordStatus(int code) {
+            int statusClass = code / 100;
+            if (statusClass >= 0 && statusClass < statusClasses.length()) {
+                statusClasses.incrementAndGet(statusClass);
+            }
+        }
+    }
+
+    /**
+     * Mede uma chamada. O OkHttp cria um listener por chamada e entrega os eventos em sequência,
+     * por isso os instantes guardados não precisam de sincronização.
+     */
+    private static class CallListener extends EventListener {
+        private final EndpointMetrics metrics;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long requestStart;
+        private long bodyStart;
+
+        CallListener(EndpointMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+            metrics.dns.recordNanos(System.nanoTime() - dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy,
+                               Protocol protocol) {
+            metrics.connect.recordNanos(System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress address, Proxy proxy,
+                                  Protocol protocol, IOException e) {
+            metrics.connect.recordNanos(System.nanoTime() - connectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            metrics.bytesSent.addAndGet(byteCount);
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            metrics.timeToFirstByte.recordNanos(System.nanoTime() - requestStart);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            metrics.recordStatus(response.code());
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            metrics.body.recordNanos(System.nanoTime() - bodyStart);
+            metrics.bytesReceived.addAndGet(byteCount);
+        }
+
+        @Override
+        public void cacheHit(Call call, Response response) {
+            metrics.cacheHits.incrementAndGet();
+            metrics.recordStatus(response.code());
+        }
+
+        @Override
+        public void cacheConditionalHit(Call call, Response cachedResponse) {
+            metrics.cacheConditionalHits.incrementAndGet();
+        }
+
+        @Override
+        public void cacheMiss(Call call) {
+            metrics.cacheMisses.incrementAndGet();
+        }
+
+        @Override
+        public void canceled(Call call) {
+            metrics.cancellations.incrementAndGet();
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            metrics.total.recordNanos(System.nanoTime() - callStart);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException e) {
+            metrics.total.recordNanos(System.nanoTime() - callStart);
+            metrics.failures.incrementAndGet();
+            metrics.lastError.set(e.getClass().getSimpleName() + ": " + e.getMessage()
+                    + " (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart) + " ms)");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.weatherapp2.ui.network;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Motor de busca que executa pedidos de rede em paralelo com um limite de concorrência configurável.
+ * Cada resultado é entregue ao {@link Listener} assim que fica disponível, em vez de esperar
+ * pela conclusão de todo o lote. As tarefas correm em {@link IoThread}s, por isso
+ * {@link #cancelAll()} cancela também os pedidos HTTP em curso.
+ */
+public class ParallelFetchEngine {
+
+    /**
+     * Número de pedidos simultâneos usado por padrão.
+     */
+    public static final int DEFAULT_MAX_CONCURRENCY = 6;
+
+    /**
+     * Recebe os resultados das tarefas à medida que terminam.
+     *
+     * @param <T> O tipo de resultado produzido por cada tarefa.
+     */
+    public interface Listener<T> {
+
+        /**
+         * Chamado para cada tarefa concluída com sucesso.
+         *
+         * @param result O resultado da tarefa.
+         */
+        void onResult(T result);
+
+        /**
+         * Chamado para cada tarefa que falhou.
+         *
+         * @param error O erro lançado pela tarefa.
+         */
+        void onError(Exception error);
+
+        /**
+         * Chamado uma única vez, depois de todas as tarefas terminarem.
+         */
+        void onComplete();
+    }
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private final List<Future<?>> inFlight = new ArrayList<>();
+
+    /**
+     * Construtor do motor de busca.
+     *
+     * @param maxConcurrency   O número máximo de pedidos executados em simultâneo.
+     * @param callbackExecutor O executor onde o {@link Listener} é chamado (por exemplo, a thread principal).
+     */
+    public ParallelFetchEngine(int maxConcurrency, Executor callbackExecutor) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be >= 1");
+        }
+        this.callbackExecutor = callbackExecutor;
+        this.executor = AppExecutors.newIoPool("weather-fetch", maxConcurrency);
+    }
+
+    /**
+     * Submete um lote de tarefas. No máximo {@code maxConcurrency} correm ao mesmo tempo;
+     * as restantes ficam em fila.
+     *
+     * @param tasks    As tarefas a executar.
+     * @param listener O listener que recebe os resultados.
+     * @param <T>      O tipo de resultado das tarefas.
+     */
+    public <T> void execute(List<? extends Callable<T>> tasks, Listener<T> listener) {
+        if (tasks.isEmpty()) {
+            callbackExecutor.execute(listener::onComplete);
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        synchronized (inFlight) {
+            // Descarta as tarefas de lotes anteriores que já terminaram
+            Iterator<Future<?>> iterator = inFlight.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isDone()) {
+                    iterator.remove();
+                }
+            }
+
+            for (Callable<T> task : tasks) {
+                inFlight.add(executor.submit(() -> {
+                    try {
+                        T result = task.call();
+                        if (result != null && !Thread.currentThread().isInterrupted()) {
+                            callbackExecutor.execute(() -> listener.onResult(result));
+                        }
+                    } catch (Exception e) {
+                        if (!Thread.currentThread().isInterrupted()) {
+                            callbackExecutor.execute(() -> listener.onError(e));
+                        }
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            callbackExecutor.execute(listener::onComplete);
+                        }
+                    }
+                }));
+            }
+        }
+    }
+
+    /**
+     * Cancela todas as tarefas ainda pendentes ou em execução.
+     */
+    public void cancelAll() {
+        synchronized (inFlight) {
+            for (Future<?> future : inFlight) {
+                future.cancel(true);
+            }
+            inFlight.clear();
+        }
+    }
+
+    /**
+     * Cancela as tarefas pendentes e liberta as threads do motor.
+     */
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.weatherapp2.ui.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * {@link CityIdStore} guardado em SharedPreferences, que sobrevive ao fecho da aplicação.
+ */
+public class PreferencesCityIdStore implements CityIdStore {
+
+    private static final String PREFS_NAME = "com.example.weatherapp2.city_ids";
+    private static final long UNKNOWN_ID = -1L;
+
+    private final SharedPreferences prefs;
+
+    /**
+     * Construtor do armazenamento de IDs.
+     *
+     * @param context O contexto da aplicação.
+     */
+    public PreferencesCityIdStore(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public long getCityId(String location) {
+        return prefs.getLong(location, UNKNOWN_ID);
+    }
+
+    @Override
+    public boolean hasCityId(String location) {
+        return getCityId(location) != UNKNOWN_ID;
+    }
+
+    @Override
+    public void putCityId(String location, long cityId) {
+        prefs.edit().putLong(location, cityId).apply();
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.weatherapp2.ui.network;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * Escalonador único, partilhado por todo o processo, dos pedidos à API da OpenWeather.
+ * <p>
+ * Um balde de fichas limita o ritmo dos pedidos: o balde tem {@code capacity} fichas, cada pedido
+ * gasta uma, e é reposta uma ficha a cada {@code refillMillis}. Numa janela de um minuto passam no
+ * máximo {@code capacity + 60000 / refillMillis} pedidos; os valores padrão (30 fichas e uma ficha a
+ * cada 2 segundos) mantêm essa soma dentro das 60 chamadas por minuto do plano gratuito.
+ * <p>
+ * Os pedidos que não encontram ficha esperam numa fila ordenada por {@link Priority} e, dentro da
+ * mesma prioridade, por ordem de chegada. As prioridades mais baixas só recebem uma ficha se
+ * deixarem no balde a sua reserva, para que um lote de pedidos em segundo plano não atrase o que
+ * o utilizador está a ver.
+ * <p>
+ * A prioridade de um pedido é a da thread que o faz (ver {@link #withPriority}); por omissão é
+ * {@link Priority#FOREGROUND}. O tempo vem de um {@link Clock}, por isso o escalonador pode ser
+ * testado com um relógio virtual através de {@link #enqueue} e {@link #dispatch}.
+ */
+public class RequestScheduler {
+
+    /**
+     * Prioridade de um pedido, da mais alta para a mais baixa.
+     */
+    public enum Priority {
+        /**
+         * Pedidos de que o ecrã visível está à espera: lista, detalhes, mapa.
+         */
+        FOREGROUND(0),
+        /**
+         * Atualização dos widgets.
+         */
+        WIDGET(2),
+        /**
+         * Pedidos especulativos: previsões antecipadas e revalidações da cache.
+         */
+        PREFETCH(10);
+
+        /**
+         * Número de fichas que têm de ficar no balde depois de um pedido desta prioridade.
+         */
+        public final int reserve;
+
+        Priority(int reserve) {
+            this.reserve = reserve;
+        }
+    }
+
+    /**
+     * Capacidade padrão do balde.
+     */
+    public static final int DEFAULT_CAPACITY = 30;
+
+    /**
+     * Intervalo padrão entre fichas repostas.
+     */
+    public static final long DEFAULT_REFILL_MILLIS = 2000;
+
+    /**
+     * Tempo máximo de cada espera bloqueante antes de voltar a verificar o balde.
+     */
+    private static final long MAX_WAIT_SLICE_MILLIS = 250;
+
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<>();
+    private static RequestScheduler INSTANCE;
+
+    private final int capacity;
+    private final long refillMillis;
+    private final Clock clock;
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>();
+    private final Map<Priority, Integer> queued = new EnumMap<>(Priority.class);
+    private long tokens;
+    private long lastRefillAt;
+    private long sequence;
+    private long grantedCount;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+
+    /**
+     * Construtor do escalonador. O balde começa cheio.
+     *
+     * @param capacity     O número máximo de fichas no balde.
+     * @param refillMillis O intervalo entre fichas repostas.
+     * @param clock        O relógio usado para repor as fichas e medir as esperas.
+     */
+    public RequestScheduler(int capacity, long refillMillis, Clock clock) {
+        if (capacity <= Priority.PREFETCH.reserve || refillMillis <= 0) {
+            throw new IllegalArgumentException("Invalid bucket: " + capacity + " tokens every " + refillMillis + " ms");
+        }
+        this.capacity = capacity;
+        this.refillMillis = refillMillis;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.lastRefillAt = clock.currentTimeMillis();
+        for (Priority priority : Priority.values()) {
+            queued.put(priority, 0);
+        }
+    }
+
+    /**
+     * Obtém o escalonador partilhado, com os limites do plano gratuito da OpenWeather.
+     *
+     * @return O escalonador usado por todos os pedidos da aplicação.
+     */
+    public static synchronized RequestScheduler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new RequestScheduler(DEFAULT_CAPACITY, DEFAULT_REFILL_MILLIS, Clock.SYSTEM);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Cria um escalonador sem limite prático, para fontes remotas falsas e testes.
+     *
+     * @return Um novo escalonador.
+     */
+    public static RequestScheduler unlimited() {
+        return new RequestScheduler(Integer.MAX_VALUE, 1, Clock.SYSTEM);
+    }
+
+    /**
+     * Executa um trabalho com uma prioridade: os pedidos feitos por ele nesta thread usam essa prioridade.
+     *
+     * @param priority A prioridade.
+     * @param work     O trabalho a executar.
+     * @param <T>      O tipo do resultado.
+     * @return O resultado do trabalho.
+     * @throws Exception O erro lançado pelo trabalho.
+     */
+    public static <T> T withPriority(Priority priority, Callable<T> work) throws Exception {
+        Priority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        try {
+            return work.call();
+        } finally {
+            PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * @return A prioridade dos pedidos feitos pela thread atual.
+     */
+    public static Priority currentPriority() {
+        Priority priority = PRIORITY.get();
+        return priority != null ? priority : Priority.FOREGROUND;
+    }
+
+    /**
+     * Espera por uma ficha, com a prioridade da thread atual, e faz o pedido.
+     *
+     * @param request O pedido.
+     * @param <T>     O tipo do resultado.
+     * @return O resultado do pedido.
+     * @throws Exception O erro lançado pelo pedido, ou {@link InterruptedException} se a espera for interrompida.
+     */
+    public <T> T execute(Callable<T> request) throws Exception {
+        acquire(currentPriority());
+        return request.call();
+    }
+
+    /**
+     * Espera, bloqueando a thread, até receber uma ficha.
+     *
+     * @param priority A prioridade do pedido.
+     * @throws InterruptedException Se a espera for interrompida; o pedido sai da fila.
+     */
+    public synchronized void acquire(Priority priority) throws InterruptedException {
+        await(enqueue(priority));
+    }
+
+    /**
+     * Espera, bloqueando a thread, até um pedido já colocado na fila receber a sua ficha.
+     * A prioridade do pedido pode subir durante a espera (ver {@link #raise}).
+     *
+     * @param ticket O bilhete devolvido por {@link #enqueue}.
+     * @throws InterruptedException Se a espera for interrompida; o pedido sai da fila.
+     */
+    public synchronized void await(Ticket ticket) throws InterruptedException {
+        dispatch();
+        try {
+            while (!ticket.granted) {
+                wait(Math.max(1, Math.min(getDelayUntilNextTokenMillis(), MAX_WAIT_SLICE_MILLIS)));
+                dispatch();
+            }
+        } catch (InterruptedException e) {
+            if (queue.remove(ticket)) {
+                queued.put(ticket.priority, queued.get(ticket.priority) - 1);
+            }
+            // Outro pedido pode ter ficado à frente na fila
+            dispatch();
+            throw e;
+        }
+    }
+
+    /**
+     * Sobe a prioridade de um pedido que ainda está na fila, por exemplo quando o ecrã visível
+     * passa a esperar por um pedido iniciado em segundo plano. Não faz nada se o pedido já tiver
+     * ficha, se tiver saído da fila ou se já tiver uma prioridade igual ou mais alta.
+     *
+     * @param ticket   O bilhete do pedido.
+     * @param priority A nova prioridade.
+     */
+    public synchronized void raise(Ticket ticket, Priority priority) {
+        if (ticket.granted || priority.compareTo(ticket.priority) >= 0 || !queue.remove(ticket)) {
+            return;
+        }
+        queued.put(ticket.priority, queued.get(ticket.priority) - 1);
+        ticket.priority = priority;
+        queue.add(ticket);
+        queued.put(priority, queued.get(priority) + 1);
+        dispatch();
+    }
+
+    /**
+     * Coloca um pedido na fila sem esperar. A ficha é atribuída por {@link #dispatch()}.
+     *
+     * @param priority A prioridade do pedido.
+     * @return O bilhete do pedido.
+     */
+    public synchronized Ticket enqueue(Priority priority) {
+        Ticket ticket = new Ticket(priority, sequence++, clock.currentTimeMillis());
+        queue.add(ticket);
+        queued.put(priority, queued.get(priority) + 1);
+        return ticket;
+    }
+
+    /**
+     * Repõe as fichas pelo tempo decorrido e atribui-as aos pedidos da fila, pela ordem de prioridade.
+     *
+     * @return O número de pedidos que receberam uma ficha.
+     */
+    public synchronized int dispatch() {
+        refill();
+        long now = clock.currentTimeMillis();
+        int granted = 0;
+        while (!queue.isEmpty() && tokens > queue.peek().priority.reserve) {
+            Ticket ticket = queue.poll();
+            queued.put(ticket.priority, queued.get(ticket.priority) - 1);
+            tokens--;
+            ticket.granted = true;
+            ticket.waitMillis = now - ticket.enqueuedAt;
+            grantedCount++;
+            totalWaitMillis += ticket.waitMillis;
+            maxWaitMillis = Math.max(maxWaitMillis, ticket.waitMillis);
+            granted++;
+        }
+        if (granted > 0) {
+            notifyAll();
+        }
+        return granted;
+    }
+
+    /**
+     * @return O tempo até à próxima ficha, ou 0 se o balde estiver cheio.
+     */
+    public synchronized long getDelayUntilNextTokenMillis() {
+        refill();
+        if (tokens >= capacity) {
+            return 0;
+        }
+        return Math.max(0, lastRefillAt + refillMillis - clock.currentTimeMillis());
+    }
+
+    /**
+     * @return As estatísticas do escalonador.
+     */
+    public synchronized Stats getStats() {
+        refill();
+        return new Stats(queued.get(Priority.FOREGROUND), queued.get(Priority.WIDGET), queued.get(Priority.PREFETCH),
+                tokens, grantedCount, totalWaitMillis, maxWaitMillis);
+    }
+
+    private void refill() {
+        long now = clock.currentTimeMillis();
+        long elapsed = now - lastRefillAt;
+        if (elapsed < refillMillis) {
+            return;
+        }
+        long added = elapsed / refillMillis;
+        if (tokens + added >= capacity) {
+            tokens = capacity;
+            lastRefillAt = now;
+        } else {
+            tokens += added;
+            lastRefillAt += added * refillMillis;
+        }
+    }
+
+    /**
+     * Um pedido na fila do escalonador.
+     */
+    public static final class Ticket implements Comparable<Ticket> {
+        Priority priority;
+        final long sequence;
+        final long enqueuedAt;
+        boolean granted;
+        long waitMillis;
+
+        Ticket(Priority priority, long sequence, long enqueuedAt) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        /**
+         * @return A prioridade atual do pedido.
+         */
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return Verdadeiro se o pedido já tiver recebido uma ficha.
+         */
+        public boolean isGranted() {
+            return granted;
+        }
+
+        /**
+         * @return O tempo que o pedido esperou na fila.
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Estatísticas do escalonador.
+     */
+    public static class Stats {
+        public final int foregroundQueued;
+        public final int widgetQueued;
+        public final int prefetchQueued;
+        public final long availableTokens;
+        public final long grantedCount;
+        public final long totalWaitMillis;
+        public final long maxWaitMillis;
+
+        Stats(int foregroundQueued, int widgetQueued, int prefetchQueued, long availableTokens,
+              long grantedCount, long totalWaitMillis, long maxWaitMillis) {
+            this.foregroundQueued = foregroundQueued;
+            this.widgetQueued = widgetQueued;
+            this.prefetchQueued = prefetchQueued;
+            this.availableTokens = availableTokens;
+            this.grantedCount = grantedCount;
+            this.totalWaitMillis = totalWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        /**
+         * @return O número total de pedidos à espera.
+         */
+        public int getQueueDepth() {
+            return foregroundQueued + widgetQueued + prefetchQueued;
+        }
+
+        /**
+         * @return O tempo médio de espera dos pedidos atendidos, em milissegundos.
+         */
+        public double getAverageWaitMillis() {
+            return grantedCount == 0 ? 0 : (double) totalWaitMillis / grantedCount;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.weatherapp2.ui.network;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupa chamadas simultâneas com a mesma chave numa única execução.
+ * A primeira chamada executa o pedido; as chamadas que chegam enquanto ele está em curso
+ * esperam e recebem o mesmo resultado (ou o mesmo erro).
+ * <p>
+ * Se a primeira chamada for cancelada (a sua thread interrompida, o que numa {@link IoThread}
+ * cancela também a chamada HTTP), o cancelamento não passa às outras: o pedido é abandonado e
+ * uma das chamadas que esperavam repete-o, com as restantes juntas a ela.
+ *
+ * @param <K> O tipo da chave que identifica o pedido.
+ * @param <V> O tipo do resultado.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong issuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Executa o pedido para a chave, ou junta-se a um pedido igual já em curso.
+     *
+     * @param key    A chave do pedido (por exemplo, endpoint e localização).
+     * @param loader O pedido a executar se não houver nenhum em curso.
+     * @return O resultado partilhado do pedido.
+     * @throws Exception O erro lançado pelo pedido, ou {@link InterruptedException} se a espera for interrompida.
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        return execute(key, null, loader);
+    }
+
+    /**
+     * Executa o pedido para a chave depois de receber uma ficha do escalonador, ou junta-se a um
+     * pedido igual já em curso. Só a chamada que inicia o pedido espera por uma ficha; uma chamada
+     * que se junta com uma prioridade mais alta (ver {@link RequestScheduler#currentPriority()})
+     * sobe a prioridade dessa ficha, para que o ecrã visível não fique atrás de uma antecipação.
+     *
+     * @param key       A chave do pedido (por exemplo, endpoint e localização).
+     * @param scheduler O escalonador que dá as fichas, ou null para executar logo.
+     * @param loader    O pedido a executar se não houver nenhum em curso.
+     * @return O resultado partilhado do pedido.
+     * @throws Exception O erro lançado pelo pedido, ou {@link InterruptedException} se a espera for interrompida.
+     */
+    public V execute(K key, RequestScheduler scheduler, Callable<V> loader) throws Exception {
+        RequestScheduler.Priority priority = RequestScheduler.currentPriority();
+        while (true) {
+            Flight<V> flight = new Flight<>(priority);
+            Flight<V> existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                return lead(key, flight, scheduler, loader);
+            }
+            coalescedCount.incrementAndGet();
+            existing.raise(priority);
+            if (existing.awaitDone()) {
+                return existing.result();
+            }
+            // Quem iniciou o pedido foi cancelado; esta chamada repete-o ou junta-se a quem o repetir
+        }
+    }
+
+    private V lead(K key, Flight<V> flight, RequestScheduler scheduler, Callable<V> loader) throws Exception {
+        issuedCount.incrementAndGet();
+        try {
+            if (scheduler != null) {
+                flight.acquire(scheduler);
+            }
+            flight.complete(loader.call(), null);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException || Thread.currentThread().isInterrupted()) {
+                // O cancelamento é só de quem iniciou o pedido: as outras chamadas não recebem o erro
+                flights.remove(key, flight);
+                flight.abandon();
+                throw e;
+            }
+            flight.complete(null, e);
+        } catch (Error e) {
+            flight.complete(null, new ExecutionException(e));
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+        return flight.result();
+    }
+
+    /**
+     * @return O número de pedidos efetivamente executados.
+     */
+    public long getIssuedCount() {
+        return issuedCount.get();
+    }
+
+    /**
+     * @return O número de chamadas que reaproveitaram um pedido já em curso.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return O número de pedidos em curso neste momento.
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * Um pedido em curso e o seu resultado, partilhado por todas as chamadas que esperam por ele.
+     */
+    private static class Flight<V> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private V value;
+        private Exception error;
+        private volatile boolean abandoned;
+        private RequestScheduler.Priority priority;
+        private RequestScheduler scheduler;
+        private RequestScheduler.Ticket ticket;
+
+        Flight(RequestScheduler.Priority priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * Coloca o pedido na fila com a prioridade mais alta das chamadas que já esperam por ele.
+         */
+        void acquire(RequestScheduler scheduler) throws InterruptedException {
+            RequestScheduler.Ticket ticket;
+            synchronized (this) {
+                this.scheduler = scheduler;
+                ticket = this.ticket = scheduler.enqueue(priority);
+            }
+            scheduler.await(ticket);
+        }
+
+        /**
+         * Sobe a prioridade do pedido, se a nova for mais alta; se já estiver na fila, sobe a da ficha.
+         */
+        synchronized void raise(RequestScheduler.Priority priority) {
+            if (priority.compareTo(this.priority) >= 0) {
+                return;
+            }
+            this.priority = priority;
+            if (ticket != null) {
+                scheduler.raise(ticket, priority);
+            }
+        }
+
+        void complete(V value, Exception error) {
+            this.value = value;
+            this.error = error;
+            done.countDown();
+        }
+
+        /**
+         * Liberta as chamadas que esperam sem lhes dar um resultado, para que repitam o pedido.
+         */
+        void abandon() {
+            abandoned = true;
+            done.countDown();
+        }
+
+        /**
+         * Espera pelo fim do pedido.
+         *
+         * @return Verdadeiro se houver resultado, falso se o pedido tiver sido abandonado.
+         */
+        boolean awaitDone() throws InterruptedException {
+            done.await();
+            return !abandoned;
+        }
+
+        V result() throws Exception {
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.weatherapp2.ui.preferences;
+
+import android.content.Context;
+import android.preference.EditTextPreference;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.AttributeSet;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.ListPopupWindow;
+import android.widget.Toast;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.catalog.BundledCityCatalog;
+import com.example.weatherapp2.ui.catalog.CityCatalog;
+
+import java.util.List;
+
+/**
+ * Preferência de localização com sugestões do {@link CityCatalog} enquanto o utilizador escreve.
+ * Só são guardadas cidades do catálogo, na forma enviada à API ("Porto,PT"); um texto que não
+ * corresponda a nenhuma cidade é rejeitado logo ao fechar o diálogo, sem esperar por um pedido falhado.
+ */
+public class CityPreference extends EditTextPreference {
+
+    private static final int MAX_SUGGESTIONS = 8;
+
+    private ListPopupWindow suggestions;
+    private boolean watching;
+
+    public CityPreference(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    /**
+     * Liga as sugestões ao campo de texto do diálogo. O campo é reutilizado entre diálogos,
+     * por isso o listener só é adicionado uma vez.
+     *
+     * @param view A vista do diálogo.
+     */
+    @Override
+    protected void onBindDialogView(View view) {
+        super.onBindDialogView(view);
+        EditText editText = getEditText();
+        suggestions = new ListPopupWindow(getContext());
+        suggestions.setAnchorView(editText);
+        suggestions.setOnItemClickListener((parent, item, position, id) -> {
+            CityCatalog.City city = (CityCatalog.City) parent.getItemAtPosition(position);
+            editText.setText(city.getLocation());
+            editText.setSelection(editText.length());
+            suggestions.dismiss();
+        });
+        if (!watching) {
+            watching = true;
+            editText.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    showSuggestions(s.toString());
+                }
+            });
+        }
+    }
+
+    private void showSuggestions(String query) {
+        if (suggestions == null) {
+            return;
+        }
+        CityCatalog catalog = BundledCityCatalog.getInstance(getContext());
+        List<CityCatalog.City> cities = catalog.search(query, MAX_SUGGESTIONS);
+        if (cities.isEmpty() || catalog.find(query) != null) {
+            suggestions.dismiss();
+            return;
+        }
+        suggestions.setAdapter(new ArrayAdapter<>(getContext(), android.R.layout.simple_list_item_1, cities));
+        suggestions.show();
+    }
+
+    /**
+     * Guarda a cidade na forma do catálogo, ou rejeita o texto se não for uma cidade conhecida.
+     *
+     * @param positiveResult Verdadeiro se o utilizador confirmou o diálogo.
+     */
+    @Override
+    protected void onDialogClosed(boolean positiveResult) {
+        if (suggestions != null) {
+            suggestions.dismiss();
+            suggestions = null;
+        }
+        if (positiveResult) {
+            String text = getEditText().getText().toString();
+            CityCatalog.City city = BundledCityCatalog.getInstance(getContext()).find(text);
+            if (city == null) {
+                Toast.makeText(getContext(), getContext().getString(R.string.unknown_city, text), Toast.LENGTH_SHORT).show();
+                positiveResult = false;
+            } else {
+                getEditText().setText(city.getLocation());
+            }
+        }
+        super.onDialogClosed(positiveResult);
+    }
+}
@@ -7,18 +7,29 @@ import android.preference.PreferenceActivity;
 import android.preference.PreferenceManager;
 
 import com.example.weatherapp2.R;
+import com.example.weatherapp2.widget.WidgetRefreshScheduler;
 
 public class SettingsActivity extends PreferenceActivity {
 
+    // O SharedPreferences só guarda uma referência fraca ao listener, por isso é mantido num campo
+    private final SharedPreferences.OnSharedPreferenceChangeListener listener = (sharedPreferences, key) -> {
+        if ("update_frequency".equals(key)) {
+            WidgetRefreshScheduler.schedule(getApplicationContext());
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         addPreferencesFromResource(R.xml.preferences);
 
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
-        prefs.registerOnSharedPreferenceChangeListener((sharedPreferences, key) -> {
-            if (key.equals("update_frequency")) {
-            }
-        });
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(listener);
+        super.onDestroy();
     }
 }
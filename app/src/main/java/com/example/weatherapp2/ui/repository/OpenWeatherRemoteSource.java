@@ -0,0 +1,91 @@
+package com.example.weatherapp2.ui.repository;
+
+import com.example.weatherapp2.BuildConfig;
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+import com.example.weatherapp2.ui.retrofit.WeatherApiService;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.ForecastParser;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Implementação de {@link WeatherRemoteSource} que fala com a API pública da OpenWeather, ou com
+ * um servidor que a imite. A URL base e a chave da API são recebidas no construtor; os valores
+ * usados pela aplicação vêm do {@link BuildConfig} e podem ser trocados no momento da compilação.
+ */
+public class OpenWeatherRemoteSource implements WeatherRemoteSource {
+
+    private static final String UNITS = "metric";
+
+    private final WeatherApiService apiService;
+    private final String apiKey;
+
+    /**
+     * Construtor da fonte remota, com a chave da API da aplicação.
+     *
+     * @param baseUrl    A URL base da API, terminada em "/".
+     * @param httpClient O cliente HTTP partilhado (ver {@link RetrofitClient#getHttpClient}).
+     */
+    public OpenWeatherRemoteSource(String baseUrl, OkHttpClient httpClient) {
+        this(baseUrl, BuildConfig.OPENWEATHER_API_KEY, httpClient);
+    }
+
+    /**
+     * Construtor da fonte remota.
+     *
+     * @param baseUrl    A URL base da API, terminada em "/".
+     * @param apiKey     A chave enviada em cada pedido.
+     * @param httpClient O cliente HTTP partilhado (ver {@link RetrofitClient#getHttpClient}).
+     */
+    public OpenWeatherRemoteSource(String baseUrl, String apiKey, OkHttpClient httpClient) {
+        this.apiService = RetrofitClient.getClient(baseUrl, httpClient).create(WeatherApiService.class);
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public Forecast fetchForecast(String location) throws IOException {
+        try (ResponseBody body = body(apiService.getForecast(location, apiKey, UNITS))) {
+            return ForecastParser.parse(body.charStream());
+        }
+    }
+
+    @Override
+    public WeatherResponse fetchCurrentByName(String location) throws IOException {
+        return body(apiService.getWeatherByName(location, apiKey, UNITS));
+    }
+
+    @Override
+    public List<WeatherResponse> fetchCurrentByIds(String cityIds) throws IOException {
+        GroupWeatherResponse group = body(apiService.getWeatherByIds(cityIds, apiKey, UNITS));
+        if (group.list == null) {
+            throw new IOException("Empty group response for " + cityIds);
+        }
+        return group.list;
+    }
+
+    @Override
+    public WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) throws IOException {
+        return body(apiService.getWeather(latitude, longitude, apiKey, UNITS));
+    }
+
+    /**
+     * Executa uma chamada Retrofit de forma síncrona e devolve o corpo da resposta.
+     *
+     * @throws IOException Se o pedido falhar ou a resposta não tiver corpo.
+     */
+    private static <T> T body(Call<T> call) throws IOException {
+        Response<T> response = call.execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("HTTP " + response.code() + " for " + call.request().url());
+        }
+        return response.body();
+    }
+}
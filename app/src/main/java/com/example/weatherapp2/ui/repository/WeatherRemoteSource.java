@@ -0,0 +1,33 @@
+package com.example.weatherapp2.ui.repository;
+
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Pedidos de rede à API da OpenWeather usados pelo {@link WeatherRepository}.
+ */
+public interface WeatherRemoteSource {
+
+    /**
+     * Busca a previsão de 5 dias ({@code /forecast}) de uma localização.
+     */
+    Forecast fetchForecast(String location) throws IOException;
+
+    /**
+     * Busca o clima atual ({@code /weather}) de uma localização em texto livre.
+     */
+    WeatherResponse fetchCurrentByName(String location) throws IOException;
+
+    /**
+     * Busca o clima atual ({@code /group}) de até 20 cidades pelos seus IDs, separados por vírgulas.
+     */
+    List<WeatherResponse> fetchCurrentByIds(String cityIds) throws IOException;
+
+    /**
+     * Busca o clima atual ({@code /weather}) de uma coordenada.
+     */
+    WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) throws IOException;
+}
@@ -0,0 +1,348 @@
+package com.example.weatherapp2.ui.repository;
+
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.weatherapp2.BuildConfig;
+import com.example.weatherapp2.ui.network.RequestScheduler;
+import com.example.weatherapp2.ui.network.SingleFlight;
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.ForecastCache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Ponto único de acesso aos dados do clima, partilhado pela lista, pelos detalhes, pelo widget e pelo mapa.
+ * Pedidos simultâneos para o mesmo endpoint e a mesma localização são agrupados num único
+ * pedido de rede, cujo resultado é entregue a todas as chamadas que esperam por ele.
+ * As previsões e as condições atuais passam pela {@link ForecastCache}: uma entrada válida evita
+ * o pedido de rede e uma entrada desatualizada é devolvida de imediato enquanto é revalidada
+ * em segundo plano.
+ * Cada pedido de rede passa pelo {@link RequestScheduler}, com a prioridade da thread que o faz;
+ * as revalidações em segundo plano usam a prioridade {@link RequestScheduler.Priority#PREFETCH}.
+ * Todos os métodos são bloqueantes e devem ser chamados fora da thread principal.
+ */
+public class WeatherRepository {
+
+    private static WeatherRepository INSTANCE;
+
+    private final WeatherRemoteSource remoteSource;
+    private final ForecastCache cache;
+    private final Executor revalidationExecutor;
+    private final RequestScheduler scheduler;
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    /**
+     * Construtor do repositório, sem limite ao ritmo dos pedidos.
+     *
+     * @param remoteSource         A fonte dos pedidos de rede.
+     * @param cache                A cache de previsões.
+     * @param revalidationExecutor O executor onde as entradas desatualizadas são revalidadas.
+     */
+    public WeatherRepository(WeatherRemoteSource remoteSource, ForecastCache cache, Executor revalidationExecutor) {
+        this(remoteSource, cache, revalidationExecutor, RequestScheduler.unlimited());
+    }
+
+    /**
+     * Construtor do repositório.
+     *
+     * @param remoteSource         A fonte dos pedidos de rede.
+     * @param cache                A cache de previsões.
+     * @param revalidationExecutor O executor onde as entradas desatualizadas são revalidadas.
+     * @param scheduler            O escalonador que limita o ritmo dos pedidos de rede.
+     */
+    public WeatherRepository(WeatherRemoteSource remoteSource, ForecastCache cache, Executor revalidationExecutor,
+                             RequestScheduler scheduler) {
+        this.remoteSource = remoteSource;
+        this.cache = cache;
+        this.revalidationExecutor = revalidationExecutor;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Obtém a instância partilhada do repositório.
+     *
+     * @param context O contexto da aplicação.
+     * @return O repositório usado por toda a aplicação.
+     */
+    public static synchronized WeatherRepository getInstance(Context context) {
+        if (INSTANCE == null) {
+            INSTANCE = new WeatherRepository(
+                    new OpenWeatherRemoteSource(BuildConfig.OPENWEATHER_BASE_URL, BuildConfig.OPENWEATHER_API_KEY,
+                            RetrofitClient.getHttpClient(context)),
+                    ForecastCache.getInstance(context), Executors.newSingleThreadExecutor(),
+                    RequestScheduler.getInstance());
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Substitui a instância partilhada, por exemplo por um repositório sobre uma fonte remota falsa.
+     *
+     * @param repository O repositório a devolver por {@link #getInstance(Context)}.
+     */
+    @VisibleForTesting
+    public static synchronized void setInstance(WeatherRepository repository) {
+        INSTANCE = repository;
+    }
+
+    /**
+     * Obtém a previsão de 5 dias de uma localização.
+     *
+     * @param location A localização tal como é enviada à API.
+     * @return A previsão da localização.
+     * @throws Exception Se o pedido falhar.
+     */
+    public Forecast getForecast(String location) throws Exception {
+        String key = "forecast:" + location;
+        Callable<Forecast> loader = () -> remoteSource.fetchForecast(location);
+
+        ForecastCache.Hit hit = cache.get(key);
+        if (hit != null) {
+            if (!hit.isFresh()) {
+                revalidate(key, loader);
+            }
+            return hit.getForecast();
+        }
+        return loadAndCache(key, loader);
+    }
+
+    /**
+     * Obtém a previsão de uma localização se ela já estiver em memória, sem bloquear: pode ser
+     * chamado na thread principal. Uma previsão desatualizada é devolvida e revalidada em segundo plano.
+     *
+     * @param location A localização tal como é enviada à API.
+     * @return A previsão, ou null se não estiver em memória.
+     */
+    public Forecast peekForecast(String location) {
+        String key = "forecast:" + location;
+        ForecastCache.Hit hit = cache.peek(key);
+        if (hit == null) {
+            return null;
+        }
+        if (!hit.isFresh()) {
+            revalidate(key, () -> remoteSource.fetchForecast(location));
+        }
+        return hit.getForecast();
+    }
+
+    /**
+     * Reserva memória na cache para as previsões das localizações indicadas, que substituem as
+     * reservadas anteriormente; ver {@link ForecastCache#pin}. Não bloqueia.
+     *
+     * @param locations   As localizações tal como são enviadas à API.
+     * @param budgetBytes O tamanho máximo, em bytes estimados, reservado para essas previsões.
+     */
+    public void pinForecasts(Collection<String> locations, int budgetBytes) {
+        List<String> keys = new ArrayList<>(locations.size());
+        for (String location : locations) {
+            keys.add("forecast:" + location);
+        }
+        cache.pin(keys, budgetBytes);
+    }
+
+    /**
+     * Obtém o clima atual de uma localização em texto livre.
+     *
+     * @param location A localização tal como é enviada à API.
+     * @return O clima atual, incluindo o ID da cidade.
+     * @throws Exception Se o pedido falhar.
+     */
+    public WeatherResponse getCurrentByName(String location) throws Exception {
+        WeatherResponse response = load("weather:q=" + location, () -> remoteSource.fetchCurrentByName(location));
+        cache.put(currentKey(response.id), toForecast(response));
+        return response;
+    }
+
+    /**
+     * Obtém o clima atual de um grupo de cidades. As cidades com condições válidas na cache não
+     * são pedidas; as restantes são buscadas num único pedido {@code /group}. As cidades com
+     * condições desatualizadas são devolvidas de imediato e revalidadas em segundo plano.
+     *
+     * @param cityIds Os IDs das cidades (no máximo 20 por chamada).
+     * @return O clima atual de cada cidade, por ID; as cidades que a API não devolveu, ou devolveu
+     * sem temperaturas, ficam de fora.
+     * @throws Exception Se o pedido falhar.
+     */
+    public Map<Long, Weather> getCurrentByIds(List<Long> cityIds) throws Exception {
+        Map<Long, Weather> result = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+
+        for (long cityId : cityIds) {
+            ForecastCache.Hit hit = cache.get(currentKey(cityId));
+            if (hit == null) {
+                missing.add(cityId);
+            } else {
+                result.put(cityId, hit.getForecast().toCurrentWeather());
+                if (!hit.isFresh()) {
+                    stale.add(cityId);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            result.putAll(fetchGroup(missing));
+        }
+        if (!stale.isEmpty()) {
+            revalidationExecutor.execute(() -> {
+                try {
+                    RequestScheduler.withPriority(RequestScheduler.Priority.PREFETCH, () -> fetchGroup(stale));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Obtém o clima atual de uma coordenada.
+     *
+     * @param latitude  A latitude da localização.
+     * @param longitude A longitude da localização.
+     * @return O clima atual da coordenada.
+     * @throws Exception Se o pedido falhar.
+     */
+    public WeatherResponse getCurrentByCoordinates(double latitude, double longitude) throws Exception {
+        return load("weather:" + latitude + "," + longitude,
+                () -> requireConditions(remoteSource.fetchCurrentByCoordinates(latitude, longitude)));
+    }
+
+    /**
+     * @return As estatísticas da cache de previsões.
+     */
+    public ForecastCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * @return As estatísticas do escalonador de pedidos: fila por prioridade e tempos de espera.
+     */
+    public RequestScheduler.Stats getSchedulerStats() {
+        return scheduler.getStats();
+    }
+
+    /**
+     * @return O número de pedidos de rede efetivamente feitos.
+     */
+    public long getIssuedRequestCount() {
+        return singleFlight.getIssuedCount();
+    }
+
+    /**
+     * @return O número de chamadas servidas por um pedido que já estava em curso.
+     */
+    public long getCoalescedRequestCount() {
+        return singleFlight.getCoalescedCount();
+    }
+
+    /**
+     * Busca o clima atual de um grupo de cidades e guarda cada uma na cache.
+     */
+    private Map<Long, Weather> fetchGroup(List<Long> cityIds) throws Exception {
+        String joinedIds = joinIds(cityIds);
+        List<WeatherResponse> cities = load("group:" + joinedIds, () -> {
+            List<WeatherResponse> responses = remoteSource.fetchCurrentByIds(joinedIds);
+            for (WeatherResponse response : responses) {
+                if (response.hasConditions()) {
+                    cache.put(currentKey(response.id), toForecast(response));
+                }
+            }
+            return responses;
+        });
+
+        Map<Long, Weather> result = new LinkedHashMap<>();
+        for (WeatherResponse city : cities) {
+            // Uma cidade sem temperaturas fica de fora, como as que a API não devolveu
+            if (city.hasConditions()) {
+                result.put(city.id, city.toWeather());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Busca uma previsão e guarda-a na cache. Chamadas simultâneas partilham o mesmo pedido.
+     */
+    private Forecast loadAndCache(String key, Callable<Forecast> loader) throws Exception {
+        return load(key, () -> {
+            Forecast forecast = loader.call();
+            cache.put(key, forecast);
+            return forecast;
+        });
+    }
+
+    /**
+     * Revalida em segundo plano uma previsão desatualizada, a menos que outra chamada já o tenha feito.
+     */
+    private void revalidate(String key, Callable<Forecast> loader) {
+        revalidationExecutor.execute(() -> {
+            ForecastCache.Hit current = cache.get(key);
+            if (current != null && current.isFresh()) {
+                return;
+            }
+            try {
+                RequestScheduler.withPriority(RequestScheduler.Priority.PREFETCH, () -> loadAndCache(key, loader));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Converte uma observação do clima atual numa previsão de um único intervalo, para ser guardada na cache.
+     */
+    private static Forecast toForecast(WeatherResponse response) throws IOException {
+        requireConditions(response);
+        return new Forecast(response.name, new long[]{response.dt},
+                new double[]{response.main.tempMin}, new double[]{response.main.tempMax});
+    }
+
+    /**
+     * Rejeita uma resposta sem temperaturas, para que o erro seja claro em vez de um {@code NullPointerException}.
+     */
+    private static WeatherResponse requireConditions(WeatherResponse response) throws IOException {
+        if (!response.hasConditions()) {
+            throw new IOException("Weather response without \"main\" for " + response.name + " (id " + response.id + ")");
+        }
+        return response;
+    }
+
+    private static String currentKey(long cityId) {
+        return "current:" + cityId;
+    }
+
+    private static String joinIds(List<Long> ids) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                joined.append(',');
+            }
+            joined.append(ids.get(i));
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Faz um pedido de rede. Só a chamada que inicia o pedido espera por uma ficha do escalonador;
+     * as chamadas agrupadas com ela não gastam fichas, mas sobem a prioridade da ficha se forem
+     * mais urgentes.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Callable<T> loader) throws Exception {
+        return (T) singleFlight.execute(key, scheduler, (Callable<Object>) (Callable<?>) loader);
+    }
+}
@@ -1,17 +1,129 @@
 package com.example.weatherapp2.ui.retrofit;
 
+import android.content.Context;
+
+import com.example.weatherapp2.ui.network.CancelOnInterruptInterceptor;
+import com.example.weatherapp2.ui.network.NetworkMetrics;
+import com.example.weatherapp2.ui.network.ParallelFetchEngine;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponseAdapter;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponseAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+/**
+ * Cliente HTTP e instâncias Retrofit partilhados por toda a aplicação.
+ * Todos os pedidos passam pelo mesmo {@link OkHttpClient}, que reutiliza as ligações abertas,
+ * pede as respostas comprimidas com gzip e guarda-as numa cache em disco; quando a resposta
+ * guardada traz {@code ETag} ou {@code Last-Modified}, o pedido seguinte é condicional e um
+ * {@code 304} é servido a partir do disco. Um pedido feito numa
+ * {@link com.example.weatherapp2.ui.network.IoThread} é cancelado quando a sua tarefa é cancelada.
+ * As respostas JSON são lidas por adaptadores escritos à mão (ver {@link #createGson()}), sem reflexão.
+ * Cada chamada é medida pelas {@link NetworkMetrics}.
+ */
 public class RetrofitClient {
-    private static Retrofit retrofit = null;
 
-    public static Retrofit getClient(String baseUrl) {
-        if (retrofit == null) {
+    /**
+     * Tamanho máximo da cache HTTP em disco.
+     */
+    public static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 20;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static OkHttpClient httpClient = null;
+    private static final Map<String, Retrofit> retrofits = new HashMap<>();
+    private static final Gson gson = createGson();
+
+    /**
+     * Obtém o cliente HTTP partilhado, criando-o na primeira chamada.
+     *
+     * @param context O contexto usado para encontrar o diretório de cache.
+     * @return O cliente usado por todos os pedidos da aplicação.
+     */
+    public static synchronized OkHttpClient getHttpClient(Context context) {
+        if (httpClient == null) {
+            httpClient = createHttpClient(new File(context.getApplicationContext().getCacheDir(), "http"));
+        }
+        return httpClient;
+    }
+
+    /**
+     * Cria um cliente HTTP com a configuração da aplicação, medido pelas métricas partilhadas.
+     *
+     * @param cacheDirectory O diretório da cache HTTP.
+     * @return Um novo cliente.
+     */
+    public static OkHttpClient createHttpClient(File cacheDirectory) {
+        return createHttpClient(cacheDirectory, NetworkMetrics.getInstance());
+    }
+
+    /**
+     * Cria um cliente HTTP com a configuração da aplicação.
+     * O pool mantém tantas ligações inativas quantos os pedidos simultâneos do {@link ParallelFetchEngine}.
+     *
+     * @param cacheDirectory O diretório da cache HTTP.
+     * @param metrics        As métricas onde cada chamada é registada.
+     * @return Um novo cliente.
+     */
+    public static OkHttpClient createHttpClient(File cacheDirectory, NetworkMetrics metrics) {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(ParallelFetchEngine.DEFAULT_MAX_CONCURRENCY,
+                        KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .cache(new Cache(cacheDirectory, CACHE_SIZE_BYTES))
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addInterceptor(new CancelOnInterruptInterceptor())
+                .eventListenerFactory(metrics.eventListenerFactory())
+                .build();
+    }
+
+    /**
+     * Cria o Gson usado pelos conversores Retrofit, com um adaptador sem reflexão para cada
+     * modelo de resposta, para que nem a primeira resposta nem as seguintes passem pela
+     * leitura reflexiva dos campos.
+     *
+     * @return Um novo Gson.
+     */
+    public static Gson createGson() {
+        WeatherResponseAdapter weatherAdapter = new WeatherResponseAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(WeatherResponse.class, weatherAdapter)
+                .registerTypeAdapter(GroupWeatherResponse.class, new GroupWeatherResponseAdapter(weatherAdapter))
+                .create();
+    }
+
+    /**
+     * Obtém a instância Retrofit para uma URL base. Cada URL base tem a sua instância,
+     * todas sobre o mesmo cliente HTTP.
+     *
+     * @param baseUrl    A URL base da API, terminada em "/".
+     * @param httpClient O cliente HTTP a usar.
+     * @return A instância Retrofit da URL base.
+     */
+    public static synchronized Retrofit getClient(String baseUrl, OkHttpClient httpClient) {
+        Retrofit retrofit = retrofits.get(baseUrl);
+        if (retrofit == null || retrofit.callFactory() != httpClient) {
             retrofit = new Retrofit.Builder()
                     .baseUrl(baseUrl)
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .client(httpClient)
+                    .addConverterFactory(GsonConverterFactory.create(gson))
                     .build();
+            retrofits.put(baseUrl, retrofit);
         }
         return retrofit;
     }
@@ -1,10 +1,13 @@
 package com.example.weatherapp2.ui.retrofit;
 
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
 import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface WeatherApiService {
     @GET("weather")
@@ -14,4 +17,39 @@ public interface WeatherApiService {
             @Query("appid") String apiKey,
             @Query("units") String units
     );
+
+    /**
+     * Clima atual para uma localização em texto livre. A resposta inclui o ID estável da cidade,
+     * usado depois por {@link #getWeatherByIds}.
+     */
+    @GET("weather")
+    Call<WeatherResponse> getWeatherByName(
+            @Query("q") String location,
+            @Query("appid") String apiKey,
+            @Query("units") String units
+    );
+
+    /**
+     * Clima atual para até 20 cidades num único pedido.
+     *
+     * @param cityIds Os IDs das cidades separados por vírgulas.
+     */
+    @GET("group")
+    Call<GroupWeatherResponse> getWeatherByIds(
+            @Query("id") String cityIds,
+            @Query("appid") String apiKey,
+            @Query("units") String units
+    );
+
+    /**
+     * Previsão de 5 dias em intervalos de 3 horas. O corpo não é carregado em memória:
+     * é lido em streaming pelo {@link com.example.weatherapp2.ui.retrofit.response.ForecastParser}.
+     */
+    @Streaming
+    @GET("forecast")
+    Call<ResponseBody> getForecast(
+            @Query("q") String location,
+            @Query("appid") String apiKey,
+            @Query("units") String units
+    );
 }
@@ -1,10 +0,0 @@
-package com.example.weatherapp2.ui.retrofit.response;
-
-public class WeatherResponse {
-    public Main main;
-
-    public class Main {
-        public double temp;
-    }
-
-}
@@ -2,20 +2,47 @@ package com.example.weatherapp2.ui.room;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-@Database(entities = {WeatherEntity.class}, version = 1)
+@Database(entities = {WeatherEntity.class}, version = 2)
 public abstract class AppDatabase extends RoomDatabase {
     private static AppDatabase INSTANCE;
 
+    /**
+     * Versão 1 para 2: a localização do catálogo ("Lisbon,PT") passa a ser a chave primária, para que
+     * cada gravação atualize a linha existente no lugar, e são acrescentadas a hora da gravação e a
+     * posição da cidade. Das linhas duplicadas da versão 1 (uma por cada toque na lista) fica a mais
+     * recente de cada localização, pela ordem do {@code id} antigo, que passa a ser a do
+     * {@code rowid}. As linhas gravadas com o nome devolvido pela API ("Lisbon") nunca mais seriam
+     * atualizadas e não são copiadas; as restantes ficam sem hora nem posição até à próxima atualização.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `weather_new` (`location` TEXT NOT NULL, "
+                    + "`tempMin` REAL NOT NULL, `tempMax` REAL NOT NULL, `updatedAt` INTEGER NOT NULL, "
+                    + "`latitude` REAL, `longitude` REAL, PRIMARY KEY(`location`))");
+            database.execSQL("INSERT INTO `weather_new` (`location`, `tempMin`, `tempMax`, `updatedAt`) "
+                    + "SELECT `location`, `tempMin`, `tempMax`, 0 FROM `weather` "
+                    + "WHERE `id` IN (SELECT MAX(`id`) FROM `weather` GROUP BY `location`) "
+                    + "AND `location` IS NOT NULL AND instr(`location`, ',') > 0 ORDER BY `id`");
+            database.execSQL("DROP TABLE `weather`");
+            database.execSQL("ALTER TABLE `weather_new` RENAME TO `weather`");
+        }
+    };
+
     public abstract WeatherDao weatherDao();
 
-    public static AppDatabase getDatabase(Context context) {
+    public static synchronized AppDatabase getDatabase(Context context) {
         if (INSTANCE == null) {
             INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             AppDatabase.class, "weather_database")
+                    .addMigrations(MIGRATION_1_2)
                     .build();
         }
         return INSTANCE;
@@ -0,0 +1,18 @@
+package com.example.weatherapp2.ui.room;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+@Dao
+public interface CachedForecastDao {
+    @Query("SELECT * FROM forecast_cache WHERE cacheKey = :cacheKey")
+    CachedForecastEntity get(String cacheKey);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void put(CachedForecastEntity entity);
+
+    @Query("DELETE FROM forecast_cache WHERE expiresAt < :cutoff")
+    int deleteExpiredBefore(long cutoff);
+}
@@ -0,0 +1,90 @@
+package com.example.weatherapp2.ui.room;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+@Entity(tableName = "forecast_cache")
+public class CachedForecastEntity {
+
+    @PrimaryKey
+    @NonNull
+    private String cacheKey;
+    private byte[] payload;
+    private long expiresAt;
+
+    public CachedForecastEntity(@NonNull String cacheKey, byte[] payload, long expiresAt) {
+        this.cacheKey = cacheKey;
+        this.payload = payload;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Cria a linha da cache para uma previsão, codificada num formato binário compacto.
+     *
+     * @param cacheKey  A chave da previsão na cache.
+     * @param forecast  A previsão a guardar.
+     * @param expiresAt O instante de expiração em milissegundos.
+     * @return A linha a gravar.
+     */
+    public static CachedForecastEntity fromForecast(String cacheKey, Forecast forecast, long expiresAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(forecast.getEstimatedSizeBytes());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(forecast.getCityName());
+            out.writeInt(forecast.size());
+            for (int i = 0; i < forecast.size(); i++) {
+                out.writeLong(forecast.getTimestamp(i));
+                out.writeDouble(forecast.getTempMin(i));
+                out.writeDouble(forecast.getTempMax(i));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new CachedForecastEntity(cacheKey, bytes.toByteArray(), expiresAt);
+    }
+
+    /**
+     * Descodifica a previsão guardada nesta linha.
+     *
+     * @return A previsão, ou null se o conteúdo estiver corrompido.
+     */
+    public Forecast toForecast() {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String cityName = in.readUTF();
+            int size = in.readInt();
+            long[] timestamps = new long[size];
+            double[] tempMin = new double[size];
+            double[] tempMax = new double[size];
+            for (int i = 0; i < size; i++) {
+                timestamps[i] = in.readLong();
+                tempMin[i] = in.readDouble();
+                tempMax[i] = in.readDouble();
+            }
+            return new Forecast(cityName, timestamps, tempMin, tempMax);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Getters
+    @NonNull
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
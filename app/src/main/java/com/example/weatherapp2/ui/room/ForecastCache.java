@@ -0,0 +1,332 @@
+package com.example.weatherapp2.ui.room;
+
+import android.content.Context;
+
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache de previsões em dois níveis: uma LRU em memória limitada por um orçamento em bytes,
+ * sobre uma tabela Room persistente. A validade de cada previsão vem dos seus próprios {@code dt}
+ * (ver {@link Forecast#getExpiresAtMillis(long)}). Depois de expirada, uma previsão continua a ser
+ * servida como "desatualizada" durante {@link #MAX_STALE_MILLIS}, para que quem chama possa
+ * mostrá-la logo e revalidar em segundo plano.
+ * <p>
+ * Parte do orçamento pode ser reservada para um conjunto de chaves fixadas (ver {@link #pin}): enquanto
+ * couberem na reserva, essas entradas não são removidas para dar lugar às restantes.
+ * <p>
+ * As leituras do nível persistente acedem ao disco e devem ser feitas fora da thread principal.
+ */
+public class ForecastCache {
+
+    /**
+     * Orçamento de memória usado por padrão (cerca de 250 previsões de 5 dias).
+     */
+    public static final int DEFAULT_MEMORY_BUDGET_BYTES = 256 * 1024;
+
+    /**
+     * Tempo máximo, depois da expiração, durante o qual uma previsão ainda pode ser servida.
+     */
+    public static final long MAX_STALE_MILLIS = 12 * 60 * 60 * 1000L;
+
+    private static ForecastCache INSTANCE;
+
+    private final CachedForecastDao persistentTier;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> memoryTier = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> pinned = new HashSet<>();
+    private int memoryBudgetBytes;
+    private int memoryBytes;
+    private int pinnedBudgetBytes;
+    private int pinnedBytes;
+    private boolean persistentTierTrimmed;
+
+    private long memoryHitCount;
+    private long persistentHitCount;
+    private long staleHitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Construtor da cache.
+     *
+     * @param persistentTier    O DAO da tabela persistente.
+     * @param memoryBudgetBytes O tamanho máximo, em bytes estimados, da LRU em memória.
+     * @param clock             O relógio usado para avaliar a validade.
+     */
+    public ForecastCache(CachedForecastDao persistentTier, int memoryBudgetBytes, Clock clock) {
+        this.persistentTier = persistentTier;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.clock = clock;
+    }
+
+    /**
+     * Obtém a instância partilhada da cache.
+     *
+     * @param context O contexto da aplicação.
+     * @return A cache usada por toda a aplicação.
+     */
+    public static synchronized ForecastCache getInstance(Context context) {
+        if (INSTANCE == null) {
+            CachedForecastDao dao = ForecastCacheDatabase.getDatabase(context).cachedForecastDao();
+            INSTANCE = new ForecastCache(dao, DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Procura uma previsão, primeiro em memória e depois no nível persistente.
+     * Uma previsão encontrada apenas no nível persistente é promovida para a memória.
+     *
+     * @param key A chave da previsão.
+     * @return O resultado com a previsão e a indicação de validade, ou null se não existir
+     * nenhuma previsão utilizável.
+     */
+    public Hit get(String key) {
+        long now = clock.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = memoryTier.get(key);
+            if (entry != null) {
+                if (entry.isUsable(now)) {
+                    memoryHitCount++;
+                    return toHit(entry, now);
+                }
+                removeFromMemory(key);
+            }
+        }
+
+        CachedForecastEntity row = persistentTier.get(key);
+        Forecast forecast = row != null ? row.toForecast() : null;
+
+        synchronized (this) {
+            if (forecast != null) {
+                Entry entry = new Entry(forecast, row.getExpiresAt());
+                if (entry.isUsable(now)) {
+                    putInMemory(key, entry);
+                    persistentHitCount++;
+                    return toHit(entry, now);
+                }
+            }
+            missCount++;
+            return null;
+        }
+    }
+
+    /**
+     * Procura uma previsão apenas em memória, sem aceder ao disco; pode ser chamado na thread principal.
+     *
+     * @param key A chave da previsão.
+     * @return O resultado com a previsão e a indicação de validade, ou null se a previsão não
+     * estiver em memória.
+     */
+    public synchronized Hit peek(String key) {
+        long now = clock.currentTimeMillis();
+        Entry entry = memoryTier.get(key);
+        if (entry == null || !entry.isUsable(now)) {
+            return null;
+        }
+        memoryHitCount++;
+        return toHit(entry, now);
+    }
+
+    /**
+     * Guarda uma previsão acabada de buscar nos dois níveis.
+     *
+     * @param key      A chave da previsão.
+     * @param forecast A previsão.
+     */
+    public void put(String key, Forecast forecast) {
+        long now = clock.currentTimeMillis();
+        Entry entry = new Entry(forecast, forecast.getExpiresAtMillis(now));
+        synchronized (this) {
+            putInMemory(key, entry);
+        }
+
+        persistentTier.put(CachedForecastEntity.fromForecast(key, forecast, entry.expiresAtMillis));
+        if (!persistentTierTrimmed) {
+            // Remove uma vez por processo as linhas que já não podem ser servidas
+            persistentTierTrimmed = true;
+            persistentTier.deleteExpiredBefore(now - MAX_STALE_MILLIS);
+        }
+    }
+
+    /**
+     * Altera o orçamento da LRU em memória, removendo as entradas menos usadas se for preciso.
+     *
+     * @param memoryBudgetBytes O novo tamanho máximo em bytes estimados.
+     */
+    public synchronized void setMemoryBudgetBytes(int memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        trimMemory();
+    }
+
+    /**
+     * Reserva parte do orçamento da LRU em memória para as chaves indicadas, que substituem as
+     * fixadas anteriormente. Enquanto o tamanho somado das entradas fixadas não passar de
+     * {@code budgetBytes}, elas só são removidas depois de todas as outras; acima da reserva voltam
+     * a competir pela ordem de uso. As chaves ainda sem entrada ficam fixadas quando forem guardadas.
+     *
+     * @param keys        As chaves a manter em memória.
+     * @param budgetBytes O tamanho máximo, em bytes estimados, reservado para as chaves fixadas.
+     */
+    public synchronized void pin(Collection<String> keys, int budgetBytes) {
+        pinned.clear();
+        pinned.addAll(keys);
+        pinnedBudgetBytes = budgetBytes;
+        pinnedBytes = 0;
+        for (Map.Entry<String, Entry> entry : memoryTier.entrySet()) {
+            if (pinned.contains(entry.getKey())) {
+                pinnedBytes += entry.getValue().sizeBytes;
+            }
+        }
+        trimMemory();
+    }
+
+    /**
+     * @return Uma cópia das estatísticas atuais da cache.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(memoryHitCount, persistentHitCount, staleHitCount, missCount, evictionCount,
+                memoryTier.size(), memoryBytes, memoryBudgetBytes, pinnedBytes);
+    }
+
+    private Hit toHit(Entry entry, long now) {
+        boolean fresh = entry.isFresh(now);
+        if (!fresh) {
+            staleHitCount++;
+        }
+        return new Hit(entry.forecast, fresh);
+    }
+
+    private void putInMemory(String key, Entry entry) {
+        removeFromMemory(key);
+        memoryTier.put(key, entry);
+        memoryBytes += entry.sizeBytes;
+        if (pinned.contains(key)) {
+            pinnedBytes += entry.sizeBytes;
+        }
+        trimMemory();
+    }
+
+    private void removeFromMemory(String key) {
+        Entry previous = memoryTier.remove(key);
+        if (previous != null) {
+            memoryBytes -= previous.sizeBytes;
+            if (pinned.contains(key)) {
+                pinnedBytes -= previous.sizeBytes;
+            }
+        }
+    }
+
+    /**
+     * Remove as entradas menos usadas até caber no orçamento, saltando as fixadas enquanto couberem
+     * na reserva.
+     */
+    private void trimMemory() {
+        Iterator<Map.Entry<String, Entry>> eldest = memoryTier.entrySet().iterator();
+        while (memoryBytes > memoryBudgetBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> entry = eldest.next();
+            boolean isPinned = pinned.contains(entry.getKey());
+            if (isPinned && pinnedBytes <= Math.min(pinnedBudgetBytes, memoryBudgetBytes)) {
+                continue;
+            }
+            memoryBytes -= entry.getValue().sizeBytes;
+            if (isPinned) {
+                pinnedBytes -= entry.getValue().sizeBytes;
+            }
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Resultado de uma consulta à cache.
+     */
+    public static class Hit {
+        private final Forecast forecast;
+        private final boolean fresh;
+
+        Hit(Forecast forecast, boolean fresh) {
+            this.forecast = forecast;
+            this.fresh = fresh;
+        }
+
+        public Forecast getForecast() {
+            return forecast;
+        }
+
+        /**
+         * @return Verdadeiro se a previsão ainda não expirou; falso se deve ser revalidada.
+         */
+        public boolean isFresh() {
+            return fresh;
+        }
+    }
+
+    /**
+     * Estatísticas de uso da cache.
+     */
+    public static class Stats {
+        public final long memoryHits;
+        public final long persistentHits;
+        public final long staleHits;
+        public final long misses;
+        public final long evictions;
+        public final int memoryEntries;
+        public final int memoryBytes;
+        public final int memoryBudgetBytes;
+        public final int pinnedBytes;
+
+        Stats(long memoryHits, long persistentHits, long staleHits, long misses, long evictions,
+              int memoryEntries, int memoryBytes, int memoryBudgetBytes, int pinnedBytes) {
+            this.memoryHits = memoryHits;
+            this.persistentHits = persistentHits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.memoryEntries = memoryEntries;
+            this.memoryBytes = memoryBytes;
+            this.memoryBudgetBytes = memoryBudgetBytes;
+            this.pinnedBytes = pinnedBytes;
+        }
+
+        /**
+         * @return A fração de consultas servidas pela cache (em qualquer nível).
+         */
+        public double getHitRate() {
+            long hits = memoryHits + persistentHits;
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * Uma previsão guardada em memória com o seu instante de expiração.
+     */
+    private static class Entry {
+        final Forecast forecast;
+        final long expiresAtMillis;
+        final int sizeBytes;
+
+        Entry(Forecast forecast, long expiresAtMillis) {
+            this.forecast = forecast;
+            this.expiresAtMillis = expiresAtMillis;
+            this.sizeBytes = forecast.getEstimatedSizeBytes();
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAtMillis;
+        }
+
+        boolean isUsable(long now) {
+            return now < expiresAtMillis + MAX_STALE_MILLIS;
+        }
+    }
+}
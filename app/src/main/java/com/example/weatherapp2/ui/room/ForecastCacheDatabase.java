@@ -0,0 +1,28 @@
+package com.example.weatherapp2.ui.room;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+/**
+ * Base de dados separada para a cache de previsões, para que possa ser limpa ou recriada
+ * sem afetar os dados guardados em {@link AppDatabase}.
+ */
+@Database(entities = {CachedForecastEntity.class}, version = 1, exportSchema = false)
+public abstract class ForecastCacheDatabase extends RoomDatabase {
+    private static ForecastCacheDatabase INSTANCE;
+
+    public abstract CachedForecastDao cachedForecastDao();
+
+    public static synchronized ForecastCacheDatabase getDatabase(Context context) {
+        if (INSTANCE == null) {
+            INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
+                            ForecastCacheDatabase.class, "forecast_cache_database")
+                    .fallbackToDestructiveMigration()
+                    .build();
+        }
+        return INSTANCE;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.weatherapp2.ui.room;
+
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Últimas condições conhecidas de cada localização, partilhadas pela lista e pelo widget.
+ * Num processo novo as condições são lidas do {@link ConditionsSnapshot}, um ficheiro mapeado em
+ * memória, sem abrir o SQLite; só se o ficheiro faltar ou for inválido é que a tabela {@code weather}
+ * é lida, e o ficheiro é reescrito a partir dela. Depois da primeira leitura o widget pode ser
+ * desenhado de imediato, sem acesso ao disco nem à rede.
+ * As gravações vão para o Room, para a memória e para o snapshot.
+ */
+public class LastConditionsStore {
+
+    /**
+     * Nome do ficheiro do snapshot, dentro de {@link Context#getFilesDir()}.
+     */
+    public static final String SNAPSHOT_FILE_NAME = "last_conditions.bin";
+
+    private static LastConditionsStore INSTANCE;
+
+    private final DaoProvider daoProvider;
+    private final File snapshotFile;
+    private final Executor executor;
+    private final Object writeLock = new Object();
+    private final Object snapshotLock = new Object();
+    private ConditionsSnapshot snapshot;
+    private Map<String, Weather> conditions;
+    private volatile boolean loaded;
+    private long snapshotGeneration;
+    private long writtenGeneration;
+
+    /**
+     * Construtor do armazenamento.
+     *
+     * @param daoProvider  Fornece o DAO da tabela {@code weather}; só é chamado quando o Room é necessário.
+     * @param snapshotFile O ficheiro do snapshot, ou null para usar só o Room.
+     * @param executor     O executor onde as leituras assíncronas são feitas.
+     */
+    public LastConditionsStore(DaoProvider daoProvider, File snapshotFile, Executor executor) {
+        this.daoProvider = daoProvider;
+        this.snapshotFile = snapshotFile;
+        this.executor = executor;
+    }
+
+    /**
+     * Obtém a instância partilhada do armazenamento. O Room só é inicializado quando for preciso.
+     *
+     * @param context O contexto da aplicação.
+     * @return O armazenamento usado por toda a aplicação.
+     */
+    public static synchronized LastConditionsStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            Context appContext = context.getApplicationContext();
+            INSTANCE = new LastConditionsStore(() -> AppDatabase.getDatabase(appContext).weatherDao(),
+                    new File(appContext.getFilesDir(), SNAPSHOT_FILE_NAME), Executors.newSingleThreadExecutor());
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Substitui a instância partilhada, por exemplo por um armazenamento sobre outra base de dados.
+     *
+     * @param store O armazenamento a devolver por {@link #getInstance(Context)}.
+     */
+    @VisibleForTesting
+    public static synchronized void setInstance(LastConditionsStore store) {
+        INSTANCE = store;
+    }
+
+    /**
+     * @return Verdadeiro se as condições já foram lidas e {@link #peek(String)} pode ser usado
+     * na thread principal.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Devolve as condições de uma localização sem ler o disco nem a base de dados.
+     *
+     * @param location A localização.
+     * @return As últimas condições conhecidas, ou null se não existirem ou ainda não tiverem sido lidas.
+     */
+    public synchronized Weather peek(String location) {
+        if (conditions != null) {
+            return conditions.get(location);
+        }
+        return snapshot != null ? snapshot.get(location) : null;
+    }
+
+    /**
+     * Como {@link #peek(String)}, mas lê as condições primeiro se ainda não tiverem sido lidas.
+     * Deve ser chamado fora da thread principal.
+     *
+     * @param location A localização.
+     * @return As últimas condições conhecidas, ou null se não existirem.
+     */
+    public Weather get(String location) {
+        ensureLoaded();
+        return peek(location);
+    }
+
+    /**
+     * Lê as condições de todas as localizações, pela ordem em que foram gravadas.
+     * A primeira chamada lê o snapshot (ou a tabela) e deve ser feita fora da thread principal.
+     *
+     * @return As últimas condições conhecidas.
+     */
+    public List<Weather> getAll() {
+        ensureLoaded();
+        synchronized (this) {
+            if (conditions != null) {
+                return new ArrayList<>(conditions.values());
+            }
+            return snapshot.toList();
+        }
+    }
+
+    /**
+     * Lê as condições em segundo plano, se ainda não tiverem sido lidas, e depois chama {@code onLoaded}
+     * na thread do executor.
+     *
+     * @param onLoaded A ação a executar quando as condições estiverem disponíveis.
+     */
+    public void loadAsync(Runnable onLoaded) {
+        executor.execute(() -> {
+            ensureLoaded();
+            onLoaded.run();
+        });
+    }
+
+    /**
+     * Grava as condições de uma atualização numa única transação, atualiza a memória e reescreve
+     * o snapshot. Condições sem hora de observação ficam com a hora atual, e condições sem posição
+     * mantêm a posição já conhecida. Gravações concorrentes são feitas uma de cada vez, para que o
+     * Room, a memória e o snapshot fiquem com a mesma versão; {@link #peek(String)} só espera pela
+     * atualização da memória, nunca pela transação.
+     * Deve ser chamado fora da thread principal.
+     *
+     * @param weathers As condições recebidas.
+     */
+    public void putAll(List<Weather> weathers) {
+        ensureLoaded();
+        List<Weather> all;
+        long generation;
+        // Uma gravação de cada vez: o Room e a memória ficam com as condições da última a terminar
+        synchronized (writeLock) {
+            long now = System.currentTimeMillis();
+            List<WeatherEntity> weatherEntities = new ArrayList<>(weathers.size());
+            List<Weather> stamped = new ArrayList<>(weathers.size());
+            synchronized (this) {
+                Map<String, Weather> current = materialize();
+                for (Weather weather : weathers) {
+                    Weather merged = withKnownFields(weather, current.get(weather.getLocation()), now);
+                    weatherEntities.add(WeatherEntity.fromWeather(merged, merged.getUpdatedAt()));
+                    stamped.add(merged);
+                }
+            }
+            daoProvider.get().upsertAll(weatherEntities);
+
+            synchronized (this) {
+                Map<String, Weather> current = materialize();
+                for (Weather weather : stamped) {
+                    // O upsert atualiza a linha no lugar; a memória mantém a mesma ordem
+                    current.put(weather.getLocation(), weather);
+                }
+                all = new ArrayList<>(current.values());
+                generation = ++snapshotGeneration;
+            }
+        }
+        writeSnapshot(generation, all);
+    }
+
+    /**
+     * Completa as condições recebidas: sem hora de observação ficam com a hora atual, e sem posição
+     * (por exemplo, quando vêm da cache de previsões) mantêm a posição já conhecida.
+     */
+    private static Weather withKnownFields(Weather weather, Weather previous, long now) {
+        long updatedAt = weather.getUpdatedAt() > 0 ? weather.getUpdatedAt() : now;
+        boolean keepPosition = !weather.hasCoordinates() && previous != null && previous.hasCoordinates();
+        if (updatedAt == weather.getUpdatedAt() && !keepPosition) {
+            return weather;
+        }
+        return new Weather(weather.getLocation(), weather.getTempMin(), weather.getTempMax(), updatedAt,
+                keepPosition ? previous.getLatitude() : weather.getLatitude(),
+                keepPosition ? previous.getLongitude() : weather.getLongitude());
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            snapshot = snapshotFile != null ? ConditionsSnapshot.open(snapshotFile) : null;
+            if (snapshot == null) {
+                // Sem snapshot válido: lê a tabela e reconstrói o ficheiro para o próximo arranque
+                Map<String, Weather> fromRoom = new LinkedHashMap<>();
+                for (WeatherEntity entity : daoProvider.get().getAll()) {
+                    fromRoom.put(entity.getLocation(), entity.toWeather());
+                }
+                conditions = fromRoom;
+                writeSnapshot(++snapshotGeneration, new ArrayList<>(fromRoom.values()));
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Passa as condições do snapshot para memória antes da primeira gravação.
+     */
+    private Map<String, Weather> materialize() {
+        if (conditions == null) {
+            conditions = new LinkedHashMap<>();
+            for (Weather weather : snapshot.toList()) {
+                conditions.put(weather.getLocation(), weather);
+            }
+            snapshot = null;
+        }
+        return conditions;
+    }
+
+    /**
+     * Escreve o snapshot fora do lock das condições. As escritas são feitas uma de cada vez e uma
+     * lista mais antiga do que a última escrita é ignorada, para que o ficheiro nunca volte atrás.
+     */
+    private void writeSnapshot(long generation, List<Weather> weathers) {
+        if (snapshotFile == null) {
+            return;
+        }
+        synchronized (snapshotLock) {
+            if (generation <= writtenGeneration) {
+                return;
+            }
+            writtenGeneration = generation;
+            try {
+                ConditionsSnapshot.write(snapshotFile, weathers);
+            } catch (IOException e) {
+                // O Room continua a ser a fonte de verdade: sem ficheiro, o próximo arranque lê a tabela
+                e.printStackTrace();
+                snapshotFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Fornece o DAO da tabela {@code weather} só quando for preciso, para que um arranque servido
+     * pelo snapshot não inicialize o Room.
+     */
+    public interface DaoProvider {
+        WeatherDao get();
+    }
+}
@@ -1,15 +1,32 @@
 package com.example.weatherapp2.ui.room;
 
 import androidx.room.Dao;
-import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.Upsert;
 
 import java.util.List;
 
 @Dao
 public interface WeatherDao {
-    @Insert
-    void insert(WeatherEntity weatherEntity);
+    /**
+     * Grava as condições de uma localização, atualizando no lugar a linha existente para a mesma
+     * localização; a linha mantém a sua posição em {@link #getAll()}.
+     */
+    @Upsert
+    void upsert(WeatherEntity weatherEntity);
+
+    /**
+     * Grava o resultado de uma atualização completa numa única transação, com uma só instrução compilada.
+     */
+    @Upsert
+    void upsertAll(List<WeatherEntity> weatherEntities);
+
+    /**
+     * Lê as últimas condições gravadas de todas as localizações, pela ordem em que cada localização
+     * foi gravada pela primeira vez.
+     */
+    @Query("SELECT * FROM weather ORDER BY rowid")
+    List<WeatherEntity> getAll();
 
     @Query("SELECT * FROM weather WHERE location = :location")
     WeatherEntity getWeatherByLocation(String location);
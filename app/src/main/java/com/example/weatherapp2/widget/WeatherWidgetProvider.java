@@ -5,30 +5,31 @@ import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.widget.RemoteViews;
 
 import com.example.weatherapp2.MainActivity;
 import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.display.WeatherDisplayMapper;
+import com.example.weatherapp2.ui.display.WeatherDisplayModel;
 import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.Map;
 
 /**
  * Fornece o provedor de widgets para o widget de clima.
  * Atualiza o widget com as informações do clima para a localização configurada.
+ * Os widgets são desenhados a partir das últimas condições gravadas ({@link LastConditionsStore}),
+ * sem nenhum pedido de rede no receptor. A busca dos dados é feita pelo {@link WidgetRefreshWorker},
+ * agendado pelo {@link WidgetRefreshScheduler} de acordo com a preferência {@code update_frequency}.
  */
 public class WeatherWidgetProvider extends AppWidgetProvider {
 
     /**
      * Atualiza todos os widgets configurados.
      * Este método é chamado pelo sistema quando o widget precisa ser atualizado.
+     * Desenha de imediato as condições gravadas; se ainda não estiverem em memória, são lidas em
+     * segundo plano com {@link #goAsync()}. Só pede uma atualização à rede se faltarem condições.
      *
      * @param context            O contexto da aplicação.
      * @param appWidgetManager   O gerenciador de widgets usado para atualizar o widget.
@@ -36,11 +37,54 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
      */
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        // Atualiza todos os widgets
+        WidgetRefreshScheduler.schedule(context);
+
+        LastConditionsStore store = LastConditionsStore.getInstance(context);
+        if (store.isLoaded()) {
+            renderStoredOrRefresh(context, appWidgetManager, appWidgetIds, store);
+            return;
+        }
+
+        PendingResult pendingResult = goAsync();
+        store.loadAsync(() -> {
+            try {
+                renderStoredOrRefresh(context, appWidgetManager, appWidgetIds, store);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    /**
+     * Agenda a atualização periódica quando o primeiro widget é adicionado.
+     *
+     * @param context O contexto da aplicação.
+     */
+    @Override
+    public void onEnabled(Context context) {
+        WidgetRefreshScheduler.schedule(context);
+    }
+
+    /**
+     * Cancela a atualização periódica quando o último widget é removido.
+     *
+     * @param context O contexto da aplicação.
+     */
+    @Override
+    public void onDisabled(Context context) {
+        WidgetRefreshScheduler.cancel(context);
+    }
+
+    /**
+     * Remove a localização guardada dos widgets apagados.
+     *
+     * @param context      O contexto da aplicação.
+     * @param appWidgetIds Os IDs dos widgets apagados.
+     */
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
         for (int appWidgetId : appWidgetIds) {
-            // Carregar localização configurada ou usar padrão
-            String location = WidgetConfigureActivity.loadLocationPref(context, appWidgetId);
-            new FetchWeatherTask(context, appWidgetManager, appWidgetId).execute(location);
+            WidgetConfigureActivity.deleteLocationPref(context, appWidgetId);
         }
     }
 
@@ -53,95 +97,98 @@ public class WeatherWidgetProvider extends AppWidgetProvider {
      * @param appWidgetId        O ID do widget a ser atualizado.
      */
     public static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        // Carregar localização configurada ou usar padrão
-        String location = WidgetConfigureActivity.loadLocationPref(context, appWidgetId);
-        new FetchWeatherTask(context, appWidgetManager, appWidgetId).execute(location);
+        int[] appWidgetIds = {appWidgetId};
+        LastConditionsStore store = LastConditionsStore.getInstance(context);
+        if (store.isLoaded()) {
+            renderStoredOrRefresh(context, appWidgetManager, appWidgetIds, store);
+        } else {
+            store.loadAsync(() -> renderStoredOrRefresh(context, appWidgetManager, appWidgetIds, store));
+        }
     }
 
     /**
-     * Tarefa assíncrona para buscar as informações do clima da API e atualizar o widget.
+     * Desenha os widgets com as condições já em memória, agrupados pela localização configurada,
+     * com uma única chamada ao {@link AppWidgetManager} por localização. Não acede à rede.
+     * Os widgets de localizações sem condições gravadas mostram apenas o nome.
+     *
+     * @param context          O contexto da aplicação.
+     * @param appWidgetManager O gerenciador de widgets.
+     * @param appWidgetIds     Os IDs dos widgets a desenhar.
+     * @param store            As últimas condições conhecidas, já carregadas.
+     * @return Verdadeiro se algum widget ficou sem condições.
      */
-    private static class FetchWeatherTask extends AsyncTask<String, Void, Weather> {
-        private Context context;
-        private AppWidgetManager appWidgetManager;
-        private int appWidgetId;
-
-        /**
-         * Construtor da tarefa assíncrona.
-         *
-         * @param context            O contexto da aplicação.
-         * @param appWidgetManager   O gerenciador de widgets usado para atualizar o widget.
-         * @param appWidgetId        O ID do widget a ser atualizado.
-         */
-        public FetchWeatherTask(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-            this.context = context;
-            this.appWidgetManager = appWidgetManager;
-            this.appWidgetId = appWidgetId;
+    static boolean renderStored(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                             LastConditionsStore store) {
+        Map<String, int[]> widgetsByLocation = WidgetRefreshWorker.groupByLocation(appWidgetIds,
+                appWidgetId -> WidgetConfigureActivity.loadLocationPref(context, appWidgetId));
+
+        WeatherDisplayMapper mapper = new WeatherDisplayMapper();
+        boolean missing = false;
+        for (Map.Entry<String, int[]> entry : widgetsByLocation.entrySet()) {
+            Weather weather = store.peek(entry.getKey());
+            RemoteViews views;
+            if (weather != null) {
+                views = buildViews(context, mapper.map(weather));
+            } else {
+                views = buildPlaceholderViews(context, entry.getKey());
+                missing = true;
+            }
+            appWidgetManager.updateAppWidget(entry.getValue(), views);
         }
 
-        /**
-         * Busca os dados do clima em segundo plano.
-         *
-         * @param params O(s) parâmetro(s) de entrada, onde o primeiro parâmetro é a localização.
-         * @return O objeto {@link Weather} com as informações do clima, ou null se ocorrer um erro.
-         */
-        @Override
-        protected Weather doInBackground(String... params) {
-            String location = params[0];
-            String apiKey = "6285a2ad6dbc06206791b13cdb864c27";
-            String apiUrl = "https://api.openweathermap.org/data/2.5/forecast?q=" + location + "&appid=" + apiKey + "&units=metric";
+        return missing;
+    }
 
-            try {
-                URL url = new URL(apiUrl);
-                HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(urlConnection.getInputStream()));
-                StringBuilder json = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    json.append(line);
-                }
-                reader.close();
-
-                JSONObject jsonObject = new JSONObject(json.toString());
-                JSONArray list = jsonObject.getJSONArray("list");
-                if (list.length() > 0) {
-                    JSONObject dayForecast = list.getJSONObject(0); // Pega o primeiro item para o clima atual
-                    JSONObject main = dayForecast.getJSONObject("main");
-                    double tempMin = main.getDouble("temp_min");
-                    double tempMax = main.getDouble("temp_max");
-                    String cityName = jsonObject.getJSONObject("city").getString("name");
-
-                    return new Weather(cityName, tempMin, tempMax);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            return null;
+    /**
+     * Desenha os widgets e pede uma atualização à rede se faltarem condições.
+     */
+    private static void renderStoredOrRefresh(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                              LastConditionsStore store) {
+        if (renderStored(context, appWidgetManager, appWidgetIds, store)) {
+            WidgetRefreshScheduler.refreshNow(context);
         }
+    }
 
-        /**
-         * Atualiza o widget com os dados do clima após a tarefa assíncrona ser concluída.
-         *
-         * @param weather O objeto {@link Weather} com as informações do clima.
-         */
-        @Override
-        protected void onPostExecute(Weather weather) {
-            if (weather != null) {
-                RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_weather);
+    /**
+     * Cria as views do widget a partir de um modelo já formatado.
+     *
+     * @param context O contexto da aplicação.
+     * @param weather O modelo com as informações do clima.
+     * @return As views prontas a enviar ao {@link AppWidgetManager}.
+     */
+    static RemoteViews buildViews(Context context, WeatherDisplayModel weather) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_weather);
 
-                // Atualizar o widget com os dados do clima
-                views.setTextViewText(R.id.widget_location, weather.getLocation());
-                views.setTextViewText(R.id.widget_temp_min, String.format("Min: %.1f°C", weather.getTempMin()));
-                views.setTextViewText(R.id.widget_temp_max, String.format("Max: %.1f°C", weather.getTempMax()));
+        // Atualizar o widget com os dados do clima
+        views.setTextViewText(R.id.widget_location, weather.getLocation());
+        views.setTextViewText(R.id.widget_temp_min, weather.getTempMinText());
+        views.setTextViewText(R.id.widget_temp_max, weather.getTempMaxText());
 
-                // Configurar um clique no widget para abrir o MainActivity
-                Intent intent = new Intent(context, MainActivity.class);
-                PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
-                views.setOnClickPendingIntent(R.id.widget_location, pendingIntent);
+        setOpenAppOnClick(context, views);
+        return views;
+    }
 
-                // Atualizar o widget
-                appWidgetManager.updateAppWidget(appWidgetId, views);
-            }
-        }
+    /**
+     * Cria as views de um widget cuja localização ainda não tem condições gravadas.
+     *
+     * @param context  O contexto da aplicação.
+     * @param location A localização configurada.
+     * @return As views com o nome da localização e a indicação de que os dados estão a chegar.
+     */
+    static RemoteViews buildPlaceholderViews(Context context, String location) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_weather);
+        views.setTextViewText(R.id.widget_location, location);
+        views.setTextViewText(R.id.widget_temp_min, context.getString(R.string.widget_waiting));
+        views.setTextViewText(R.id.widget_temp_max, "");
+
+        setOpenAppOnClick(context, views);
+        return views;
+    }
+
+    private static void setOpenAppOnClick(Context context, RemoteViews views) {
+        // Configurar um clique no widget para abrir o MainActivity
+        Intent intent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+        views.setOnClickPendingIntent(R.id.widget_location, pendingIntent);
     }
 }
@@ -6,19 +6,24 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.EditText;
 import android.widget.ListView;
 
 import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.catalog.BundledCityCatalog;
+import com.example.weatherapp2.ui.catalog.CityCatalog;
 
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Activity para configurar o widget de clima.
- * Permite ao usuário selecionar uma localização para o widget exibir o clima.
+ * Permite ao usuário selecionar uma localização para o widget exibir o clima, entre as cidades
+ * por omissão ou pesquisando no {@link CityCatalog} à medida que escreve.
  */
 public class WidgetConfigureActivity extends Activity {
 
@@ -27,16 +32,13 @@ public class WidgetConfigureActivity extends Activity {
 
     int appWidgetId = AppWidgetManager.INVALID_APPWIDGET_ID;
     ListView listView;
-    List<String> locations = Arrays.asList(
-            "Lisbon", "Porto", "Funchal", "Ponta Delgada", "Braga", "Faro", "Setúbal",
-            "Coimbra", "Madrid,es", "Paris,fr", "Barcelona,es", "Rome,it", "London,uk",
-            "Berlin,de", "Amsterdam,nl", "Vienna,at", "Prague,cz", "Warsaw,pl",
-            "Brussels,be", "Zurich,ch", "Geneva,ch", "Stockholm,se", "Oslo,no",
-            "Helsinki,fi", "Copenhagen,dK", "Dublin,ie", "Edinburgh,uk", "Glasgow,uk",
-            "Luxembourg,lu", "Monaco", "Malta", "San Marino", "Andorra", "Liechtenstein",
-            "Vilnius,lt", "Riga,lv", "Tallinn,ee", "Bucharest,ro", "Sofia,bg", "Budapest,hu",
-            "Ljubljana,si", "Zagreb,hr", "Dubrovnik,hr", "Sarajevo,ba", "Belgrade,rs",
-            "Skopje,mk", "Tirana,al", "Athens,gr", "Istanbul,tr", "Dubai,ae", "Doha,qa");
+    CityCatalog catalog;
+    List<CityCatalog.City> cities;
+
+    /**
+     * Número máximo de sugestões mostradas durante a pesquisa.
+     */
+    static final int MAX_RESULTS = 50;
 
     /**
      * Método chamado quando a Activity é criada.
@@ -67,8 +69,25 @@ public class WidgetConfigureActivity extends Activity {
             return;
         }
 
+        catalog = BundledCityCatalog.getInstance(this);
         listView = findViewById(R.id.location_list);
-        listView.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, locations));
+        showCities("");
+
+        EditText search = findViewById(R.id.location_search);
+        search.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                showCities(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
 
         listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             /**
@@ -85,7 +104,7 @@ public class WidgetConfigureActivity extends Activity {
                 final Context context = WidgetConfigureActivity.this;
 
                 // Quando um local é clicado, salva a escolha em SharedPreferences
-                String location = locations.get(position);
+                String location = cities.get(position).getLocation();
                 saveLocationPref(context, appWidgetId, location);
 
                 // Atualiza o widget após a configuração
@@ -101,6 +120,17 @@ public class WidgetConfigureActivity extends Activity {
         });
     }
 
+    /**
+     * Mostra as cidades por omissão, se a pesquisa estiver vazia, ou as cidades cujo nome começa
+     * pelo texto escrito.
+     *
+     * @param query O texto escrito.
+     */
+    private void showCities(String query) {
+        cities = query.trim().isEmpty() ? catalog.getDefaults() : catalog.search(query, MAX_RESULTS);
+        listView.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, cities));
+    }
+
     /**
      * Salva a localização selecionada em SharedPreferences.
      *
@@ -119,11 +149,11 @@ public class WidgetConfigureActivity extends Activity {
      *
      * @param context     O contexto em que as SharedPreferences são acessadas.
      * @param appWidgetId O ID do widget para o qual a localização é carregada.
-     * @return A localização salva, ou um valor padrão ("Lisbon") se não houver nenhuma localização salva.
+     * @return A localização salva, ou um valor padrão ("Lisbon,PT") se não houver nenhuma localização salva.
      */
     static String loadLocationPref(Context context, int appWidgetId) {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, 0);
-        return prefs.getString(PREF_PREFIX_KEY + appWidgetId, "Lisbon");
+        return prefs.getString(PREF_PREFIX_KEY + appWidgetId, "Lisbon,PT");
     }
 
     /**
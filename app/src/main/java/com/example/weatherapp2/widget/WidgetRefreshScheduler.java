@@ -0,0 +1,101 @@
+package com.example.weatherapp2.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agenda a atualização periódica dos widgets com o {@link WidgetRefreshWorker}.
+ * O intervalo segue a preferência {@code update_frequency} e a atualização só corre com rede
+ * e com a bateria acima do nível baixo.
+ */
+public class WidgetRefreshScheduler {
+
+    static final String PERIODIC_WORK_NAME = "widget_refresh";
+    static final String IMMEDIATE_WORK_NAME = "widget_refresh_now";
+    static final String PREF_UPDATE_FREQUENCY = "update_frequency";
+
+    /**
+     * Intervalo usado quando a preferência não está definida (o mesmo que o widget usava antes).
+     */
+    static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private WidgetRefreshScheduler() {
+    }
+
+    /**
+     * Agenda, ou reagenda com o intervalo atual, a atualização periódica dos widgets.
+     *
+     * @param context O contexto da aplicação.
+     */
+    public static void schedule(Context context) {
+        long interval = getIntervalMillis(PreferenceManager.getDefaultSharedPreferences(context));
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(WidgetRefreshWorker.class,
+                interval, TimeUnit.MILLISECONDS)
+                .setConstraints(constraints())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.UPDATE, request);
+    }
+
+    /**
+     * Pede uma atualização imediata de todos os widgets. Pedidos feitos enquanto outro
+     * ainda está pendente são ignorados.
+     *
+     * @param context O contexto da aplicação.
+     */
+    public static void refreshNow(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(WidgetRefreshWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(IMMEDIATE_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Cancela as atualizações, por exemplo quando o último widget é removido.
+     *
+     * @param context O contexto da aplicação.
+     */
+    public static void cancel(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.cancelUniqueWork(PERIODIC_WORK_NAME);
+        workManager.cancelUniqueWork(IMMEDIATE_WORK_NAME);
+    }
+
+    /**
+     * Lê o intervalo de atualização das preferências. O valor é guardado em milissegundos
+     * (ver {@code update_frequency_values}) e nunca fica abaixo do mínimo do WorkManager.
+     *
+     * @param prefs As preferências partilhadas.
+     * @return O intervalo em milissegundos.
+     */
+    static long getIntervalMillis(SharedPreferences prefs) {
+        long interval;
+        try {
+            interval = Long.parseLong(prefs.getString(PREF_UPDATE_FREQUENCY, String.valueOf(DEFAULT_INTERVAL_MILLIS)));
+        } catch (NumberFormatException e) {
+            interval = DEFAULT_INTERVAL_MILLIS;
+        }
+        return Math.max(interval, PeriodicWorkRequest.MIN_PERIODIC_INTERVAL_MILLIS);
+    }
+
+    private static Constraints constraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+    }
+}
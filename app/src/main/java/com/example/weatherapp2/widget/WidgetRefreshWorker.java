@@ -0,0 +1,108 @@
+package com.example.weatherapp2.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.widget.RemoteViews;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.weatherapp2.ui.network.RequestScheduler;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Atualiza todos os widgets de clima de uma só vez. Os widgets são agrupados pela localização
+ * configurada, cada localização distinta é buscada uma única vez e, no fim, as condições são gravadas
+ * no {@link LastConditionsStore} e todos os widgets são atualizados numa só passagem.
+ * Os pedidos usam a prioridade {@link RequestScheduler.Priority#WIDGET}, abaixo dos pedidos do ecrã visível.
+ */
+public class WidgetRefreshWorker extends Worker {
+
+    public WidgetRefreshWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, WeatherWidgetProvider.class));
+        if (appWidgetIds.length == 0) {
+            return Result.success();
+        }
+
+        Map<String, int[]> widgetsByLocation = groupByLocation(appWidgetIds,
+                appWidgetId -> WidgetConfigureActivity.loadLocationPref(context, appWidgetId));
+
+        WeatherRepository repository = WeatherRepository.getInstance(context);
+        List<Weather> results = new ArrayList<>(widgetsByLocation.size());
+        for (String location : widgetsByLocation.keySet()) {
+            try {
+                // O widget só mostra as condições atuais: basta o /weather, sem a previsão completa
+                Weather weather = RequestScheduler.withPriority(RequestScheduler.Priority.WIDGET,
+                        () -> repository.getCurrentByName(location)).toWeather();
+                // Guardada com a localização configurada, que é a chave usada para desenhar o widget
+                results.add(weather.withLocation(location));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Grava as condições e atualiza todos os widgets de uma vez, a partir das condições gravadas
+        LastConditionsStore store = LastConditionsStore.getInstance(context);
+        if (!results.isEmpty()) {
+            store.putAll(results);
+        }
+        WeatherWidgetProvider.renderStored(context, appWidgetManager, appWidgetIds, store);
+
+        return results.isEmpty() ? Result.retry() : Result.success();
+    }
+
+    /**
+     * Agrupa os IDs dos widgets pela localização configurada, mantendo a ordem em que cada
+     * localização aparece pela primeira vez.
+     *
+     * @param appWidgetIds Os IDs dos widgets.
+     * @param lookup       A função que devolve a localização de um widget.
+     * @return Os IDs de cada localização distinta.
+     */
+    static Map<String, int[]> groupByLocation(int[] appWidgetIds, LocationLookup lookup) {
+        Map<String, List<Integer>> grouped = new LinkedHashMap<>();
+        for (int appWidgetId : appWidgetIds) {
+            String location = lookup.getLocation(appWidgetId);
+            List<Integer> ids = grouped.get(location);
+            if (ids == null) {
+                ids = new ArrayList<>();
+                grouped.put(location, ids);
+            }
+            ids.add(appWidgetId);
+        }
+
+        Map<String, int[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : grouped.entrySet()) {
+            int[] ids = new int[entry.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = entry.getValue().get(i);
+            }
+            result.put(entry.getKey(), ids);
+        }
+        return result;
+    }
+
+    /**
+     * Devolve a localização configurada num widget.
+     */
+    interface LocationLookup {
+        String getLocation(int appWidgetId);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.weatherapp2.ui.catalog;
+
+import java.io.File;
+
+/**
+ * Os ficheiros do catálogo de cidades da aplicação, resolvidos a partir da pasta do módulo que o
+ * Gradle passa aos testes em {@value #PROJECT_DIR_PROPERTY}, para que os testes não dependam da
+ * pasta de trabalho.
+ */
+public final class CatalogFiles {
+
+    /**
+     * A propriedade de sistema com a pasta do módulo :app (ver {@code testOptions} em app/build.gradle).
+     */
+    public static final String PROJECT_DIR_PROPERTY = "weatherapp.projectDir";
+
+    private CatalogFiles() {
+    }
+
+    /**
+     * @return O catálogo empacotado na aplicação, gerado a partir de {@link #cityList()} e {@link #defaults()}.
+     */
+    public static File bundledCatalog() {
+        return file("src/main/assets/" + CityCatalog.ASSET_NAME);
+    }
+
+    /**
+     * @return A lista de cidades no formato da OpenWeather.
+     */
+    public static File cityList() {
+        return file("catalog/city.list.json.gz");
+    }
+
+    /**
+     * @return A lista das cidades mostradas por omissão.
+     */
+    public static File defaults() {
+        return file("catalog/defaults.txt");
+    }
+
+    private static File file(String path) {
+        String projectDir = System.getProperty(PROJECT_DIR_PROPERTY);
+        if (projectDir == null) {
+            throw new IllegalStateException("System property " + PROJECT_DIR_PROPERTY
+                    + " is not set; run the tests through Gradle or pass -D" + PROJECT_DIR_PROPERTY + "=<app dir>");
+        }
+        return new File(projectDir, path);
+    }
+}
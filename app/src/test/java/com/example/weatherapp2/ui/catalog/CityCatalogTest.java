@@ -0,0 +1,215 @@
+package com.example.weatherapp2.ui.catalog;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica o formato e a pesquisa por prefixo do {@link CityCatalog}, o catálogo empacotado na
+ * aplicação e a sua geração pelo {@link CityCatalogGenerator}. O desempenho da pesquisa é medido
+ * pelo {@code CatalogBenchmark} do módulo :benchmark.
+ */
+public class CityCatalogTest {
+
+    private static final File BUNDLED = CatalogFiles.bundledCatalog();
+    private static final File CITY_LIST = CatalogFiles.cityList();
+    private static final File DEFAULTS = CatalogFiles.defaults();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void searchIgnoresCaseAndAccentsAndFiltersByCountry() throws Exception {
+        CityCatalog catalog = write(Arrays.asList(
+                new CityCatalog.City("Porto", "PT", 2735943, 41.1496, -8.6110),
+                new CityCatalog.City("Porto Alegre", "BR", 0, -30.0346, -51.2177),
+                new CityCatalog.City("Setúbal", "PT", 0, 38.5244, -8.8882),
+                new CityCatalog.City("Portimão", "PT", 0, 37.1386, -8.5370),
+                new CityCatalog.City("Paris", "FR", 2988507, 48.8566, 2.3522)),
+                new ArrayList<>());
+
+        assertEquals(5, catalog.size());
+        assertEquals(Arrays.asList("Portimão, PT", "Porto, PT", "Porto Alegre, BR"), names(catalog.search("POR", 10)));
+        assertEquals(Arrays.asList("Setúbal, PT"), names(catalog.search("setub", 10)));
+        assertEquals(Arrays.asList("Portimão, PT", "Porto, PT"), names(catalog.search("port,pt", 10)));
+        assertEquals(1, catalog.search("por", 1).size());
+        assertTrue(catalog.search("x", 10).isEmpty());
+        assertTrue(catalog.search("  ", 10).isEmpty());
+
+        CityCatalog.City porto = catalog.search("porto", 1).get(0);
+        assertEquals("Porto,PT", porto.getLocation());
+        assertEquals(2735943, porto.getId());
+        assertEquals(41.1496, porto.getLatitude(), 1e-6);
+        assertEquals(-8.6110, porto.getLongitude(), 1e-6);
+    }
+
+    @Test
+    public void findAcceptsOnlyCatalogLocations() throws Exception {
+        CityCatalog catalog = write(Arrays.asList(
+                new CityCatalog.City("Setúbal", "PT", 0, 38.5244, -8.8882),
+                new CityCatalog.City("Monaco", "MC", 0, 43.7384, 7.4246)),
+                new ArrayList<>());
+
+        assertEquals("Setúbal,PT", catalog.find("setubal,pt").getLocation());
+        assertEquals("Monaco,MC", catalog.find("Monaco, mc").getLocation());
+        assertNull(catalog.find("Monaco"));
+        assertNull(catalog.find("Monaco,FR"));
+        assertNull(catalog.find("Mona,MC"));
+    }
+
+    @Test
+    public void defaultsKeepTheirOrder() throws Exception {
+        CityCatalog.City lisbon = new CityCatalog.City("Lisbon", "PT", 0, 38.7167, -9.1333);
+        CityCatalog.City athens = new CityCatalog.City("Athens", "GR", 0, 37.9838, 23.7275);
+        CityCatalog catalog = write(Arrays.asList(athens, lisbon), Arrays.asList(lisbon, athens));
+
+        assertEquals(Arrays.asList("Lisbon, PT", "Athens, GR"), names(catalog.getDefaults()));
+    }
+
+    @Test
+    public void corruptFileIsRejected() throws Exception {
+        File file = folder.newFile("cities.bin");
+        try (OutputStream out = new FileOutputStream(file)) {
+            CityCatalog.write(out, Arrays.asList(new CityCatalog.City("Lisbon", "PT", 0, 38.7167, -9.1333)), new ArrayList<>());
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 1);
+        }
+        assertNull(CityCatalog.open(file));
+    }
+
+    @Test
+    public void bundledCatalogHasTheDefaultCities() throws Exception {
+        CityCatalog catalog = CityCatalog.open(BUNDLED);
+        assertNotNull(catalog);
+
+        List<CityCatalog.City> defaults = catalog.getDefaults();
+        assertEquals(51, defaults.size());
+        assertEquals("Lisbon,PT", defaults.get(0).getLocation());
+        assertEquals("Doha,QA", defaults.get(50).getLocation());
+        for (CityCatalog.City city : defaults) {
+            assertEquals(city.getLocation(), catalog.find(city.getLocation()).getLocation());
+            assertTrue(city.getLocation(), city.getLatitude() != 0 && city.getLongitude() != 0);
+        }
+    }
+
+    @Test
+    public void bundledCatalogIsGeneratedFromTheCityLists() throws Exception {
+        File generated = folder.newFile();
+        CityCatalogGenerator.main(new String[]{CITY_LIST.getPath(), DEFAULTS.getPath(), generated.getPath()});
+
+        assertArrayEquals(Files.readAllBytes(BUNDLED.toPath()), Files.readAllBytes(generated.toPath()));
+    }
+
+    @Test
+    public void cityListInTheOpenWeatherFormatIsRead() throws Exception {
+        List<CityCatalog.City> cities = CityCatalogGenerator.readCityList(utf8("[\n"
+                + "{\"id\": 2267057, \"name\": \"Lisbon\", \"state\": \"\", \"country\": \"PT\","
+                + " \"coord\": {\"lon\": -9.13333, \"lat\": 38.716671}},\n"
+                + "{\"id\": 1, \"name\": \"Nowhere\", \"state\": \"\", \"country\": \"\","
+                + " \"coord\": {\"lon\": 0, \"lat\": 0}},\n"
+                + "{\"id\": 2262963, \"name\": \"Setúbal\", \"state\": \"\", \"country\": \"PT\","
+                + " \"coord\": {\"lon\": -8.8882, \"lat\": 38.5244}}\n"
+                + "]"));
+
+        assertEquals(Arrays.asList("Lisbon, PT", "Setúbal, PT"), names(cities));
+        assertEquals(2267057, cities.get(0).getId());
+        assertEquals(38.716671, cities.get(0).getLatitude(), 1e-9);
+        assertEquals(-9.13333, cities.get(0).getLongitude(), 1e-9);
+
+        List<CityCatalog.City> defaults = CityCatalogGenerator.readDefaults(
+                utf8("# Por omissão\nSetúbal,PT\n\nLisbon,PT\n"), cities);
+        assertEquals(Arrays.asList("Setúbal, PT", "Lisbon, PT"), names(defaults));
+        try {
+            CityCatalogGenerator.readDefaults(utf8("Porto,PT\n"), cities);
+            fail("Porto is not in the city list");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("Porto,PT"));
+        }
+    }
+
+    @Test
+    public void prefixSearchMatchesALinearScan() throws Exception {
+        Random random = new Random(5);
+        String[] syllables = {"ba", "be", "ca", "do", "el", "fa", "go", "ha", "in", "jo", "ka", "la", "ma",
+                "no", "or", "pa", "qu", "ri", "sa", "to", "ul", "va", "xe", "za"};
+        List<CityCatalog.City> cities = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                name.append(syllables[random.nextInt(syllables.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            cities.add(new CityCatalog.City(name.toString(), "X" + (char) ('A' + random.nextInt(3)), i + 1,
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        CityCatalog catalog = write(cities, cities.subList(0, 50));
+        assertEquals(cities.size(), catalog.size());
+
+        for (int q = 0; q < 200; q++) {
+            String name = CityCatalog.normalize(cities.get(random.nextInt(cities.size())).getName());
+            String prefix = name.substring(0, 1 + random.nextInt(name.length()));
+            Set<Integer> expected = new HashSet<>();
+            for (CityCatalog.City city : cities) {
+                if (CityCatalog.normalize(city.getName()).startsWith(prefix)) {
+                    expected.add(city.getId());
+                }
+            }
+
+            List<CityCatalog.City> found = catalog.search(prefix, Integer.MAX_VALUE);
+            Set<Integer> ids = new HashSet<>();
+            for (int i = 0; i < found.size(); i++) {
+                ids.add(found.get(i).getId());
+                if (i > 0) {
+                    String previous = CityCatalog.normalize(found.get(i - 1).getName());
+                    assertTrue(prefix, previous.compareTo(CityCatalog.normalize(found.get(i).getName())) <= 0);
+                }
+            }
+            assertEquals(prefix, expected, ids);
+            assertEquals(prefix, Math.min(10, expected.size()), catalog.search(prefix, 10).size());
+        }
+    }
+
+    private CityCatalog write(List<CityCatalog.City> cities, List<CityCatalog.City> defaults) throws Exception {
+        File file = folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            CityCatalog.write(out, cities, defaults);
+        }
+        return CityCatalog.open(file);
+    }
+
+    private static InputStream utf8(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> names(List<CityCatalog.City> cities) {
+        List<String> names = new ArrayList<>();
+        for (CityCatalog.City city : cities) {
+            names.add(city.toString());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.weatherapp2.ui.list;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.FragmentActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.display.WeatherDisplayMapper;
+import com.example.weatherapp2.ui.display.WeatherDisplayModel;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Mede a memória alocada pela associação de linhas do {@link WeatherAdapter} enquanto uma lista
+ * de 1.000 cidades é percorrida, antes e depois de o instante de referência avançar. As views das
+ * linhas apenas guardam o valor recebido, para que a medição conte só o trabalho do adaptador e
+ * não o desenho de texto da plataforma.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherAdapterAllocationTest {
+
+    private static final int ROWS = 1_000;
+    private static final int ROW_HEIGHT = 100;
+    private static final int VIEWPORT_HEIGHT = 1_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void bindingAllocatesOnlyTheNewAgeTextAfterTimeMovesOn() {
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class).setup().get();
+        WeatherDisplayMapper mapper = new WeatherDisplayMapper();
+        List<WeatherDisplayModel> models = new ArrayList<>(ROWS);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ROWS; i++) {
+            models.add(mapper.map(new Weather("City" + i, 5 + i % 10, 10 + i % 15, now - i * 60_000L)));
+        }
+
+        MeasuringAdapter adapter = new MeasuringAdapter();
+        RecyclerView recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        recyclerView.setAdapter(adapter);
+        activity.setContentView(recyclerView, new ViewGroup.LayoutParams(1080, VIEWPORT_HEIGHT));
+        adapter.refreshUpdatedAt(now);
+        adapter.submitList(models);
+        shadowOf(Looper.getMainLooper()).idle();
+        layout(recyclerView);
+
+        // Primeira passagem para carregar classes e aquecer o JIT
+        scrollThrough(recyclerView);
+        rewind(recyclerView);
+
+        // Com o mesmo instante de referência, cada texto já formatado é reutilizado
+        adapter.reset();
+        scrollThrough(recyclerView);
+        assertTrue(adapter.binds >= ROWS - VIEWPORT_HEIGHT / ROW_HEIGHT);
+        assertEquals(0, adapter.allocatedBytes);
+
+        // O minuto seguinte: as linhas visíveis são atualizadas com um payload e as restantes
+        // ao aparecerem; cada uma formata o novo texto uma única vez e nada mais
+        rewind(recyclerView);
+        long later = now + 60_000L;
+        adapter.reset();
+        adapter.refreshUpdatedAt(later);
+        layout(recyclerView);
+        scrollThrough(recyclerView);
+        int rebinds = adapter.binds;
+        long rebindBytes = adapter.allocatedBytes;
+        assertTrue(rebinds >= ROWS - VIEWPORT_HEIGHT / ROW_HEIGHT);
+        assertTrue(rebindBytes > 0);
+        long formatBytes = formattingBytes(activity, models, later + 60_000L);
+        assertTrue(rebindBytes + " bytes for " + rebinds + " binds, formatting alone " + formatBytes
+                        + " bytes for " + ROWS + " rows",
+                rebindBytes * ROWS <= formatBytes * rebinds * 5 / 4);
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View row = recyclerView.getChildAt(i);
+            WeatherDisplayModel model = models.get(recyclerView.getChildAdapterPosition(row));
+            assertEquals(WeatherDisplayMapper.formatUpdatedAt(activity, model.getUpdatedAt(), later),
+                    ((RecordingTextView) row.findViewById(R.id.updated_at)).value);
+        }
+
+        // Depois de formatados, os textos do novo instante voltam a ser reutilizados
+        rewind(recyclerView);
+        adapter.reset();
+        scrollThrough(recyclerView);
+        assertEquals(0, adapter.allocatedBytes);
+    }
+
+    /**
+     * Mede a memória alocada só pela formatação da idade de todas as linhas para um instante.
+     */
+    private long formattingBytes(Context context, List<WeatherDisplayModel> models, long now) {
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (WeatherDisplayModel model : models) {
+            WeatherDisplayMapper.formatUpdatedAt(context, model.getUpdatedAt(), now);
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static void rewind(RecyclerView recyclerView) {
+        recyclerView.scrollToPosition(0);
+        layout(recyclerView);
+    }
+
+    private static void scrollThrough(RecyclerView recyclerView) {
+        for (int i = 0; i < ROWS; i++) {
+            recyclerView.scrollBy(0, ROW_HEIGHT);
+        }
+    }
+
+    private static void layout(RecyclerView recyclerView) {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(VIEWPORT_HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 1080, VIEWPORT_HEIGHT);
+    }
+
+    /**
+     * Adaptador que mede a memória alocada pela thread principal dentro de cada associação.
+     */
+    private class MeasuringAdapter extends WeatherAdapter {
+        int binds;
+        long allocatedBytes;
+
+        MeasuringAdapter() {
+            super(model -> {
+            });
+        }
+
+        @NonNull
+        @Override
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            Context context = parent.getContext();
+            LinearLayout row = new LinearLayout(context);
+            row.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+            row.addView(withId(new RecordingImageView(context), R.id.weather_icon));
+            row.addView(withId(new RecordingTextView(context), R.id.location));
+            row.addView(withId(new RecordingTextView(context), R.id.temp_min));
+            row.addView(withId(new RecordingTextView(context), R.id.temp_max));
+            row.addView(withId(new RecordingTextView(context), R.id.updated_at));
+            return new ViewHolder(row);
+        }
+
+        void reset() {
+            binds = 0;
+            allocatedBytes = 0;
+        }
+
+        /**
+         * O RecyclerView chama sempre esta variante, com ou sem payload.
+         */
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+            long threadId = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            super.onBindViewHolder(holder, position, payloads);
+            allocatedBytes += threads.getThreadAllocatedBytes(threadId) - before;
+            binds++;
+        }
+    }
+
+    private static View withId(View view, int id) {
+        view.setId(id);
+        return view;
+    }
+
+    private static class RecordingTextView extends TextView {
+        CharSequence value;
+
+        RecordingTextView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void setText(CharSequence text, BufferType type) {
+            value = text;
+        }
+    }
+
+    private static class RecordingImageView extends ImageView {
+        int resource;
+
+        RecordingImageView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void setImageResource(int resId) {
+            resource = resId;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.weatherapp2.ui.list;
+
+import android.os.Looper;
+import android.text.format.DateUtils;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.FragmentActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.display.WeatherDisplayMapper;
+import com.example.weatherapp2.ui.display.WeatherDisplayModel;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Conta as associações de linhas feitas pelo {@link WeatherAdapter} quando uma atualização
+ * incremental muda a temperatura de uma única cidade, e verifica que avançar o instante de
+ * referência atualiza só a idade das condições.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherAdapterTest {
+
+    private static final int CITIES = 10;
+
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private WeatherDisplayMapper mapper;
+
+    @Before
+    public void setUp() {
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class).setup().get();
+        mapper = new WeatherDisplayMapper();
+        recyclerView = new RecyclerView(activity);
+        recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+        adapter = new CountingAdapter();
+        recyclerView.setAdapter(adapter);
+        activity.setContentView(recyclerView, new ViewGroup.LayoutParams(1080, 10_000));
+    }
+
+    @Test
+    public void changingOneCityRebindsOnlyThatRow() {
+        submitAndLayout(cities(20.0));
+        assertEquals(CITIES, adapter.binds);
+
+        adapter.binds = 0;
+        List<WeatherDisplayModel> updated = cities(20.0);
+        updated.set(3, mapper.map(new Weather("City3", 12.0, 24.5, 2000L)));
+        submitAndLayout(updated);
+
+        assertEquals(1, adapter.binds);
+        assertEquals(3, adapter.lastBoundPosition);
+    }
+
+    @Test
+    public void identicalRefreshRebindsNothing() {
+        submitAndLayout(cities(20.0));
+        adapter.binds = 0;
+
+        submitAndLayout(cities(20.0));
+
+        assertEquals(0, adapter.binds);
+    }
+
+    @Test
+    public void refreshingTheTimeUpdatesOnlyTheAgeText() {
+        submitAndLayout(cities(20.0));
+        adapter.binds = 0;
+        long now = 1000L + 5 * DateUtils.MINUTE_IN_MILLIS;
+
+        adapter.refreshUpdatedAt(now);
+        layout();
+
+        TextView updatedAt = recyclerView.findViewHolderForAdapterPosition(0).itemView.findViewById(R.id.updated_at);
+        assertEquals(WeatherDisplayMapper.formatUpdatedAt(recyclerView.getContext(), 1000L, now),
+                updatedAt.getText().toString());
+        assertEquals(0, adapter.binds);
+    }
+
+    @Test
+    public void idsAreStableAcrossReorderedLists() {
+        submitAndLayout(cities(20.0));
+        long firstId = adapter.getItemId(0);
+
+        List<WeatherDisplayModel> reordered = cities(20.0);
+        reordered.add(0, reordered.remove(CITIES - 1));
+        submitAndLayout(reordered);
+
+        assertEquals(firstId, adapter.getItemId(1));
+        assertNotEquals(firstId, adapter.getItemId(0));
+    }
+
+    @Test
+    public void idsDependOnlyOnTheLocation() {
+        submitAndLayout(cities(20.0));
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < adapter.getItemCount(); i++) {
+            long id = adapter.getItemId(i);
+            assertEquals(WeatherAdapter.stableId(adapter.getCurrentList().get(i).getLocation()), id);
+            ids.add(id);
+        }
+        assertEquals(adapter.getItemCount(), ids.size());
+    }
+
+    /**
+     * Submete a lista, espera pelo cálculo das diferenças em segundo plano e volta a dispor a lista.
+     */
+    private void submitAndLayout(List<WeatherDisplayModel> weathers) {
+        adapter.submitList(weathers);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (adapter.getCurrentList() != weathers && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.yield();
+        }
+        assertEquals(weathers, adapter.getCurrentList());
+        layout();
+    }
+
+    private void layout() {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(10_000, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 1080, 10_000);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private List<WeatherDisplayModel> cities(double tempMax) {
+        List<WeatherDisplayModel> models = new ArrayList<>();
+        for (int i = 0; i < CITIES; i++) {
+            models.add(mapper.map(new Weather("City" + i, 12.0, tempMax, 1000L)));
+        }
+        return models;
+    }
+
+    private static class CountingAdapter extends WeatherAdapter {
+        int binds;
+        int lastBoundPosition = -1;
+
+        CountingAdapter() {
+            super(weather -> {
+            });
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            binds++;
+            lastBoundPosition = position;
+            super.onBindViewHolder(holder, position);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.weatherapp2.ui.list;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.fragment.app.FragmentActivity;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.repository.WeatherRemoteSource;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.AppDatabase;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+import com.example.weatherapp2.ui.room.WeatherDao;
+import com.example.weatherapp2.ui.room.WeatherEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Verifica que a {@link WeatherListFragment} mostra as condições gravadas no Room sem depender
+ * da rede, que os resultados da rede substituem as linhas da mesma localização, e que esconder
+ * ou recriar a visualização não repete os pedidos.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherListFragmentTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private FakeRemoteSource remote;
+
+    @Before
+    public void setUp() throws Exception {
+        remote = new FakeRemoteSource();
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        WeatherRepository.setInstance(new WeatherRepository(remote, cache, Runnable::run));
+
+        Context context = ApplicationProvider.getApplicationContext();
+        WeatherDao weatherDao = AppDatabase.getDatabase(context).weatherDao();
+        long now = System.currentTimeMillis();
+        // O Room não aceita consultas na thread principal
+        Thread writer = new Thread(() -> {
+            weatherDao.deleteAll();
+            weatherDao.upsertAll(Arrays.asList(
+                    new WeatherEntity("Lisbon,PT", 15.2, 22.8, now - 2 * HOUR),
+                    new WeatherEntity("Porto,PT", 13.1, 19.4, now - 2 * HOUR)));
+        });
+        writer.start();
+        writer.join();
+        LastConditionsStore.setInstance(new LastConditionsStore(() -> weatherDao, null, Runnable::run));
+    }
+
+    @Test
+    public void lastSnapshotIsShownWithTheNetworkSwitchedOff() {
+        remote.online = false;
+
+        RecyclerView listView = launch();
+        WeatherAdapter adapter = (WeatherAdapter) listView.getAdapter();
+        waitUntil(() -> adapter.getItemCount() == 2 && remote.calls.get() > 0);
+
+        assertEquals("Lisbon,PT", adapter.getCurrentList().get(0).getLocation());
+        assertEquals("Porto,PT", adapter.getCurrentList().get(1).getLocation());
+
+        WeatherAdapter.ViewHolder holder = adapter.createViewHolder(listView, 0);
+        adapter.bindViewHolder(holder, 0);
+        View row = holder.itemView;
+        assertEquals("Lisbon,PT", text(row, R.id.location));
+        assertEquals("Max: 22.8°C", text(row, R.id.temp_max));
+        assertTrue(text(row, R.id.updated_at), text(row, R.id.updated_at).startsWith("Updated "));
+    }
+
+    @Test
+    public void networkResultsReplaceSnapshotRowsInPlace() {
+        WeatherAdapter adapter = (WeatherAdapter) launch().getAdapter();
+        waitUntil(() -> adapter.getItemCount() == 51);
+
+        Weather lisbon = adapter.getCurrentList().get(0).getWeather();
+        assertEquals("Lisbon,PT", lisbon.getLocation());
+        assertEquals(FakeRemoteSource.TEMP_MAX, lisbon.getTempMax(), 0);
+        assertEquals("Porto,PT", adapter.getCurrentList().get(1).getLocation());
+    }
+
+    @Test
+    public void hidingAndShowingTheListKeepsItsViewAndMakesNoRequests() {
+        WeatherListFragment fragment = launchFragment();
+        WeatherAdapter adapter = (WeatherAdapter) listView(fragment).getAdapter();
+        waitUntil(() -> adapter.getItemCount() == 51);
+        View view = fragment.requireView();
+        int calls = remote.calls.get();
+
+        for (int i = 0; i < 3; i++) {
+            fragment.getParentFragmentManager().beginTransaction().hide(fragment).commitNow();
+            fragment.getParentFragmentManager().beginTransaction().show(fragment).commitNow();
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+
+        assertSame(view, fragment.requireView());
+        assertEquals(51, adapter.getItemCount());
+        assertEquals(calls, remote.calls.get());
+    }
+
+    @Test
+    public void recreatedViewShowsLoadedRowsWithoutNewRequests() {
+        WeatherListFragment fragment = launchFragment();
+        waitUntil(() -> listView(fragment).getAdapter().getItemCount() == 51);
+        View view = fragment.requireView();
+        int calls = remote.calls.get();
+
+        fragment.getParentFragmentManager().beginTransaction().detach(fragment).commitNow();
+        fragment.getParentFragmentManager().beginTransaction().attach(fragment).commitNow();
+        waitUntil(() -> listView(fragment).getAdapter().getItemCount() == 51);
+
+        assertNotSame(view, fragment.requireView());
+        assertEquals("Lisbon,PT", ((WeatherAdapter) listView(fragment).getAdapter()).getCurrentList().get(0).getLocation());
+        assertEquals(calls, remote.calls.get());
+    }
+
+    private static RecyclerView launch() {
+        return listView(launchFragment());
+    }
+
+    private static WeatherListFragment launchFragment() {
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class).setup().get();
+        WeatherListFragment fragment = new WeatherListFragment();
+        activity.getSupportFragmentManager().beginTransaction()
+                .add(android.R.id.content, fragment)
+                .commitNow();
+        return fragment;
+    }
+
+    private static RecyclerView listView(WeatherListFragment fragment) {
+        return fragment.requireView().findViewById(R.id.weather_list);
+    }
+
+    /**
+     * Corre a thread principal até a condição ser satisfeita; os pedidos correm em threads reais.
+     */
+    private static void waitUntil(Condition condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (condition.isMet()) {
+                return;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        throw new AssertionError("condition not met within 5 s");
+    }
+
+    private static String text(View row, int id) {
+        return ((TextView) row.findViewById(id)).getText().toString();
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Fonte remota falsa que devolve o clima atual de qualquer localização, ou falha como se não houvesse rede.
+     */
+    private static class FakeRemoteSource implements WeatherRemoteSource {
+        static final double TEMP_MAX = 25.0;
+
+        final AtomicInteger calls = new AtomicInteger();
+        volatile boolean online = true;
+
+        @Override
+        public WeatherResponse fetchCurrentByName(String location) throws IOException {
+            calls.incrementAndGet();
+            if (!online) {
+                throw new IOException("Network switched off");
+            }
+            WeatherResponse response = new WeatherResponse();
+            response.id = calls.get();
+            // Como a API, devolve só o nome da cidade, sem o país do pedido
+            response.name = location.split(",")[0];
+            response.dt = System.currentTimeMillis() / 1000L;
+            response.main = new WeatherResponse.Main();
+            response.main.tempMin = 18.0;
+            response.main.tempMax = TEMP_MAX;
+            return response;
+        }
+
+        @Override
+        public Forecast fetchForecast(String location) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<WeatherResponse> fetchCurrentByIds(String cityIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.weatherapp2.ui.location;
+
+/**
+ * Fonte de posição para testes: devolve uma posição fixa, ou nenhuma, e conta os pedidos.
+ */
+public class FakeDeviceLocationSource implements DeviceLocationSource {
+
+    private double latitude;
+    private double longitude;
+    private boolean available;
+    public int requests;
+
+    public void setLocation(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.available = true;
+    }
+
+    public void setUnavailable() {
+        available = false;
+    }
+
+    @Override
+    public void getLocation(Callback callback) {
+        requests++;
+        if (available) {
+            callback.onLocation(latitude, longitude);
+        } else {
+            callback.onUnavailable(null);
+        }
+    }
+}
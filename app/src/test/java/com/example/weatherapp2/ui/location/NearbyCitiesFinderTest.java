@@ -0,0 +1,161 @@
+package com.example.weatherapp2.ui.location;
+
+import com.example.weatherapp2.ui.network.FakeClock;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.InMemoryWeatherDao;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica o {@link NearbyCitiesFinder} com uma posição falsa: as condições gravadas são servidas
+ * sem pedidos e só as cidades em falta ou com condições antigas são pedidas.
+ */
+public class NearbyCitiesFinderTest {
+
+    private static final double ISEP_LAT = 41.17846;
+    private static final double ISEP_LON = -8.60893;
+    private static final long NOW = 1718290800000L;
+
+    private FakeDeviceLocationSource locationSource;
+    private LastConditionsStore store;
+    private List<String> fetched;
+    private boolean offline;
+    private NearbyCitiesFinder finder;
+
+    @Before
+    public void setUp() {
+        locationSource = new FakeDeviceLocationSource();
+        InMemoryWeatherDao weatherDao = new InMemoryWeatherDao();
+        store = new LastConditionsStore(() -> weatherDao, null, Runnable::run);
+        fetched = new ArrayList<>();
+        finder = new NearbyCitiesFinder(locationSource, store, location -> {
+            fetched.add(location);
+            if (offline) {
+                throw new IOException("offline");
+            }
+            return new Weather("Somewhere", 10, 20, NOW);
+        }, Runnable::run, Runnable::run, new FakeClock(NOW));
+        finder.setCities(
+                new String[]{"Lisbon", "Porto", "Braga", "Madrid"},
+                new String[]{"Lisbon,PT", "Porto,PT", "Braga,PT", "Madrid,ES"},
+                new double[]{38.7167, 41.1496, 41.5454, 40.4168},
+                new double[]{-9.1333, -8.6110, -8.4265, -3.7038});
+    }
+
+    @Test
+    public void storedConditionsAreServedWithoutFetching() {
+        store.putAll(Arrays.asList(
+                new Weather("Porto,PT", 13.1, 19.4, NOW, 41.1496, -8.6110),
+                new Weather("Braga,PT", 11.0, 21.0, NOW, 41.5454, -8.4265)));
+        locationSource.setLocation(ISEP_LAT, ISEP_LON);
+
+        List<NearbyCitiesFinder.NearbyCity> result = new ArrayList<>();
+        finder.findNearby(2, new NearbyCitiesFinder.Callback() {
+            @Override
+            public void onNearby(double latitude, double longitude, List<NearbyCitiesFinder.NearbyCity> cities) {
+                result.addAll(cities);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                throw new AssertionError(error);
+            }
+        });
+
+        assertEquals(2, result.size());
+        assertEquals("Porto", result.get(0).getName());
+        assertEquals("Braga", result.get(1).getName());
+        assertTrue(result.get(0).getDistanceMeters() < result.get(1).getDistanceMeters());
+        assertTrue(result.get(0).isFromCache());
+        assertEquals(13.1, result.get(0).getWeather().getTempMin(), 0);
+        assertEquals(0, finder.getFetchCount());
+        assertTrue(fetched.isEmpty());
+    }
+
+    @Test
+    public void missingConditionsAreFetchedOnceAndStored() {
+        List<NearbyCitiesFinder.NearbyCity> first = finder.findNear(38.72, -9.14, 1);
+        assertEquals("Lisbon", first.get(0).getName());
+        assertFalse(first.get(0).isFromCache());
+        assertEquals(Collections.singletonList("Lisbon,PT"), fetched);
+
+        // O resultado foi gravado com a localização e a posição do catálogo
+        Weather stored = store.peek("Lisbon,PT");
+        assertEquals(38.7167, stored.getLatitude(), 0);
+
+        List<NearbyCitiesFinder.NearbyCity> second = finder.findNear(38.72, -9.14, 1);
+        assertTrue(second.get(0).isFromCache());
+        assertEquals(1, finder.getFetchCount());
+    }
+
+    @Test
+    public void conditionsAreStoredUnderTheCatalogLocation() {
+        store.putAll(Collections.singletonList(new Weather("Porto", 1, 2, NOW)));
+
+        List<NearbyCitiesFinder.NearbyCity> first = finder.findNear(41.15, -8.61, 1);
+
+        // A linha com o nome da API não é a chave do catálogo: a cidade é pedida pela localização
+        assertEquals("Porto", first.get(0).getName());
+        assertFalse(first.get(0).isFromCache());
+        assertEquals(Collections.singletonList("Porto,PT"), fetched);
+        assertEquals(41.1496, store.peek("Porto,PT").getLatitude(), 0);
+        assertTrue(finder.findNear(41.15, -8.61, 1).get(0).isFromCache());
+    }
+
+    @Test
+    public void conditionsOlderThanTheMaximumAgeAreFetchedAgain() {
+        store.putAll(Collections.singletonList(
+                new Weather("Braga,PT", 11.0, 21.0, NOW - NearbyCitiesFinder.MAX_AGE_MILLIS - 1, 41.5454, -8.4265)));
+
+        NearbyCitiesFinder.NearbyCity braga = finder.findNear(41.55, -8.43, 1).get(0);
+
+        assertFalse(braga.isFromCache());
+        assertEquals(Collections.singletonList("Braga,PT"), fetched);
+        assertEquals(NOW, store.peek("Braga,PT").getUpdatedAt());
+    }
+
+    @Test
+    public void oldConditionsAreServedWhenTheFetchFails() {
+        store.putAll(Collections.singletonList(
+                new Weather("Braga,PT", 11.0, 21.0, NOW - NearbyCitiesFinder.MAX_AGE_MILLIS - 1, 41.5454, -8.4265)));
+        offline = true;
+
+        NearbyCitiesFinder.NearbyCity braga = finder.findNear(41.55, -8.43, 1).get(0);
+
+        assertTrue(braga.isFromCache());
+        assertEquals(21.0, braga.getWeather().getTempMax(), 0);
+        assertEquals(1, finder.getFetchCount());
+    }
+
+    @Test
+    public void unavailableLocationIsReported() {
+        locationSource.setUnavailable();
+        boolean[] failed = new boolean[1];
+        finder.findNearby(3, new NearbyCitiesFinder.Callback() {
+            @Override
+            public void onNearby(double latitude, double longitude, List<NearbyCitiesFinder.NearbyCity> cities) {
+                throw new AssertionError("no location");
+            }
+
+            @Override
+            public void onError(Exception error) {
+                assertNull(error);
+                failed[0] = true;
+            }
+        });
+        assertTrue(failed[0]);
+    }
+}
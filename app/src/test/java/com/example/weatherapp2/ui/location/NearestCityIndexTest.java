@@ -0,0 +1,78 @@
+package com.example.weatherapp2.ui.location;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifica a {@link NearestCityIndex} contra uma pesquisa linear com a distância de haversine.
+ */
+public class NearestCityIndexTest {
+
+    @Test
+    public void haversineMatchesKnownDistances() {
+        // Lisboa-Porto: cerca de 274 km
+        assertEquals(274_000, NearestCityIndex.haversineMeters(38.7167, -9.1333, 41.1496, -8.6110), 2_000);
+        // Um grau de latitude: cerca de 111,2 km
+        assertEquals(111_195, NearestCityIndex.haversineMeters(0, 0, 1, 0), 10);
+        assertEquals(0, NearestCityIndex.haversineMeters(41.17846, -8.60893, 41.17846, -8.60893), 0);
+    }
+
+    @Test
+    public void nearestMatchesALinearScan() {
+        Random random = new Random(3);
+        double[] latitudes = new double[20_000];
+        double[] longitudes = new double[20_000];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        NearestCityIndex index = new NearestCityIndex(latitudes, longitudes);
+
+        for (int q = 0; q < 300; q++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            assertArrayEquals(linearNearest(latitudes, longitudes, latitude, longitude, 7),
+                    index.nearest(latitude, longitude, 7));
+        }
+    }
+
+    @Test
+    public void nearestCrossesTheAntimeridianAndThePole() {
+        NearestCityIndex index = new NearestCityIndex(
+                new double[]{-18.1416, -13.8333, 38.7167, 89.9, 89.5},
+                new double[]{178.4419, -171.7667, -9.1333, 0, 179});
+
+        // Ao lado de Suva, mas do outro lado do antimeridiano
+        assertArrayEquals(new int[]{0, 1}, index.nearest(-18.0, -179.9, 2));
+        // Perto do polo, a longitude quase não conta
+        assertArrayEquals(new int[]{3, 4}, index.nearest(89.8, -120, 2));
+    }
+
+    @Test
+    public void countLargerThanTheCatalogReturnsEveryCity() {
+        NearestCityIndex index = new NearestCityIndex(new double[]{41.1496, 38.7167}, new double[]{-8.6110, -9.1333});
+        assertArrayEquals(new int[]{0, 1}, index.nearest(41.17846, -8.60893, 10));
+        assertEquals(0, new NearestCityIndex(new double[0], new double[0]).nearest(0, 0, 3).length);
+    }
+
+    private static int[] linearNearest(double[] latitudes, double[] longitudes, double latitude, double longitude, int count) {
+        Integer[] order = new Integer[latitudes.length];
+        double[] distances = new double[latitudes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            distances[i] = NearestCityIndex.haversineMeters(latitude, longitude, latitudes[i], longitudes[i]);
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> distances[i]));
+        int[] nearest = new int[count];
+        for (int i = 0; i < count; i++) {
+            nearest[i] = order[i];
+        }
+        return nearest;
+    }
+}
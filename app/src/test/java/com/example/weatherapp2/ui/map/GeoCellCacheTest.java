@@ -0,0 +1,77 @@
+package com.example.weatherapp2.ui.map;
+
+import com.example.weatherapp2.ui.network.FakeClock;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verifica a quantização das coordenadas, a validade e as estatísticas da {@link GeoCellCache}.
+ */
+public class GeoCellCacheTest {
+
+    private static final double ISEP_LAT = 41.17846;
+    private static final double ISEP_LON = -8.60893;
+
+    private FakeClock clock;
+    private GeoCellCache cache;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(1718290800000L);
+        cache = new GeoCellCache(clock, Forecast.CURRENT_CONDITIONS_TTL_MILLIS, 4);
+    }
+
+    @Test
+    public void nearbyTapsShareACell() {
+        WeatherResponse weather = new WeatherResponse();
+        cache.put(ISEP_LAT, ISEP_LON, weather);
+
+        // Cerca de 100 m ao lado, na mesma célula
+        assertSame(weather, cache.get(ISEP_LAT + 0.0009, ISEP_LON + 0.0009));
+        // Cerca de 1 km ao lado, noutra célula
+        assertNull(cache.get(ISEP_LAT + 0.009, ISEP_LON));
+    }
+
+    @Test
+    public void negativeCoordinatesDoNotCollide() {
+        assertNotEquals(GeoCellCache.cellOf(0.001, -0.001), GeoCellCache.cellOf(0.001, 0.001));
+        assertNotEquals(GeoCellCache.cellOf(-0.001, 0.001), GeoCellCache.cellOf(0.001, 0.001));
+        assertNotEquals(GeoCellCache.cellOf(-33.9, 151.2), GeoCellCache.cellOf(33.9, 151.2));
+    }
+
+    @Test
+    public void resultsExpireAfterTheValidityWindow() {
+        cache.put(ISEP_LAT, ISEP_LON, new WeatherResponse());
+
+        clock.advance(Forecast.CURRENT_CONDITIONS_TTL_MILLIS - 1);
+        assertEquals(1, cache.getStats().cells);
+        cache.get(ISEP_LAT, ISEP_LON);
+
+        clock.advance(1);
+        assertNull(cache.get(ISEP_LAT, ISEP_LON));
+        GeoCellCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(1, stats.expired);
+        assertEquals(0.5, stats.getHitRate(), 1e-9);
+        assertEquals(0, stats.cells);
+    }
+
+    @Test
+    public void leastRecentlyUsedCellIsEvicted() {
+        for (int i = 0; i < 5; i++) {
+            cache.put(ISEP_LAT + i * 0.01, ISEP_LON, new WeatherResponse());
+        }
+
+        assertEquals(4, cache.getStats().cells);
+        assertNull(cache.get(ISEP_LAT, ISEP_LON));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.weatherapp2.ui.map;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica as consultas e o agrupamento do {@link SpatialIndex}, comparando com uma pesquisa linear.
+ */
+public class SpatialIndexTest {
+
+    private static final double[] LISBON = {38.7167, -9.1333};
+    private static final double[] PORTO = {41.1496, -8.6110};
+    private static final double[] MADRID = {40.4168, -3.7038};
+    private static final double[] SUVA = {-18.1416, 178.4419};
+    private static final double[] APIA = {-13.8333, -171.7667};
+
+    @Test
+    public void wholeWorldQueryCountsEveryPointAtEveryZoom() {
+        SpatialIndex index = randomIndex(new Random(1), 2000);
+        for (int zoom = 0; zoom <= SpatialIndex.MAX_ZOOM; zoom++) {
+            int[] total = new int[1];
+            index.query(-90, -180, 90, 180, zoom, (cellKey, latitude, longitude, count, pointIndex) -> total[0] += count);
+            assertEquals("zoom " + zoom, 2000, total[0]);
+        }
+    }
+
+    @Test
+    public void nearbyCitiesAreGroupedWhenZoomedOut() {
+        SpatialIndex index = index(LISBON, PORTO, MADRID);
+
+        List<Integer> counts = new ArrayList<>();
+        index.query(35, -12, 45, 0, 2, (cellKey, latitude, longitude, count, pointIndex) -> counts.add(count));
+        assertEquals(1, counts.size());
+        assertEquals(3, (int) counts.get(0));
+
+        Set<Integer> points = new HashSet<>();
+        index.query(35, -12, 45, 0, 10, (cellKey, latitude, longitude, count, pointIndex) -> {
+            assertEquals(1, count);
+            points.add(pointIndex);
+        });
+        assertEquals(3, points.size());
+    }
+
+    @Test
+    public void clusterIsPlacedAtTheCentreOfItsPoints() {
+        SpatialIndex index = index(LISBON, PORTO);
+
+        double[] centre = new double[2];
+        index.query(35, -12, 45, 0, 3, (cellKey, latitude, longitude, count, pointIndex) -> {
+            assertEquals(2, count);
+            assertEquals(-1, pointIndex);
+            centre[0] = latitude;
+            centre[1] = longitude;
+        });
+        assertEquals((LISBON[0] + PORTO[0]) / 2, centre[0], 1e-9);
+        assertEquals((LISBON[1] + PORTO[1]) / 2, centre[1], 1e-9);
+    }
+
+    @Test
+    public void viewportAcrossTheAntimeridianSeesBothSides() {
+        SpatialIndex index = index(SUVA, APIA, LISBON);
+
+        Set<Integer> points = new HashSet<>();
+        index.query(-25, 170, -5, -165, 8, (cellKey, latitude, longitude, count, pointIndex) -> points.add(pointIndex));
+        assertEquals(2, points.size());
+        assertTrue(points.contains(0));
+        assertTrue(points.contains(1));
+    }
+
+    @Test
+    public void viewportQueryMatchesALinearScan() {
+        Random random = new Random(7);
+        double[] latitudes = new double[5000];
+        double[] longitudes = new double[5000];
+        fill(random, latitudes, longitudes);
+        SpatialIndex index = new SpatialIndex(latitudes, longitudes);
+
+        for (int q = 0; q < 200; q++) {
+            int zoom = random.nextInt(SpatialIndex.MAX_ZOOM + 1);
+            double south = 36 + random.nextDouble() * 20;
+            double west = -10 + random.nextDouble() * 30;
+            double north = south + random.nextDouble() * 5;
+            double east = west + random.nextDouble() * 8;
+
+            // Referência: os pontos cujas células intersetam a área, contados por célula
+            double cell = SpatialIndex.cellDegrees(zoom);
+            Map<Long, Integer> expected = new HashMap<>();
+            for (int i = 0; i < latitudes.length; i++) {
+                long row = (long) Math.floor((latitudes[i] + 90) / cell);
+                long column = (long) Math.floor((longitudes[i] + 180) / cell);
+                if (row >= (long) Math.floor((south + 90) / cell) && row <= (long) Math.floor((north + 90) / cell)
+                        && column >= (long) Math.floor((west + 180) / cell) && column <= (long) Math.floor((east + 180) / cell)) {
+                    expected.merge(row * (long) Math.ceil(360 / cell) + column, 1, Integer::sum);
+                }
+            }
+
+            Map<Long, Integer> actual = new HashMap<>();
+            index.query(south, west, north, east, zoom, (cellKey, latitude, longitude, count, pointIndex) -> {
+                assertEquals(null, actual.put(cellKey, count));
+                if (count == 1) {
+                    assertTrue(pointIndex >= 0);
+                    assertEquals(latitudes[pointIndex], latitude, 0);
+                }
+            });
+            assertEquals("zoom " + zoom, expected, actual);
+        }
+    }
+
+    private static SpatialIndex index(double[]... points) {
+        double[] latitudes = new double[points.length];
+        double[] longitudes = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            latitudes[i] = points[i][0];
+            longitudes[i] = points[i][1];
+        }
+        return new SpatialIndex(latitudes, longitudes);
+    }
+
+    private static SpatialIndex randomIndex(Random random, int points) {
+        double[] latitudes = new double[points];
+        double[] longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = random.nextDouble() * 170 - 85;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        return new SpatialIndex(latitudes, longitudes);
+    }
+
+    /**
+     * Pontos concentrados na Europa, como as cidades da lista, com alguns espalhados pelo mundo.
+     */
+    static void fill(Random random, double[] latitudes, double[] longitudes) {
+        for (int i = 0; i < latitudes.length; i++) {
+            if (i % 10 == 0) {
+                latitudes[i] = random.nextDouble() * 170 - 85;
+                longitudes[i] = random.nextDouble() * 360 - 180;
+            } else {
+                latitudes[i] = 35 + random.nextDouble() * 30;
+                longitudes[i] = -10 + random.nextDouble() * 40;
+            }
+        }
+    }
+}
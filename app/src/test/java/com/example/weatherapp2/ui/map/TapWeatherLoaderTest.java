@@ -0,0 +1,153 @@
+package com.example.weatherapp2.ui.map;
+
+import com.example.weatherapp2.ui.network.AppExecutors;
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.network.IoThread;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que o {@link TapWeatherLoader} agrupa toques rápidos num único pedido, interrompe e
+ * cancela o pedido substituído, entrega só o resultado do último toque e responde toques
+ * próximos pela cache.
+ */
+public class TapWeatherLoaderTest {
+
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private ScheduledExecutorService scheduler;
+    private GeoCellCache cache;
+    private FakeFetcher fetcher;
+    private RecordingCallback callback;
+    private TapWeatherLoader loader;
+
+    @Before
+    public void setUp() {
+        scheduler = AppExecutors.newIoScheduler("tap-test");
+        cache = new GeoCellCache(Clock.SYSTEM, Forecast.CURRENT_CONDITIONS_TTL_MILLIS, GeoCellCache.MAX_CELLS);
+        fetcher = new FakeFetcher();
+        callback = new RecordingCallback();
+        loader = new TapWeatherLoader(fetcher, cache, scheduler, Runnable::run, DEBOUNCE_MILLIS);
+    }
+
+    @After
+    public void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    public void rapidTapsIssueOneRequestForTheLastTap() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            loader.onTap(41.0 + i, -8.0, callback);
+        }
+
+        assertTrue(callback.await());
+        assertEquals(1, fetcher.calls.get());
+        assertEquals(1, loader.getRequestCount());
+        assertEquals(4, loader.getCancelledCount());
+        assertEquals(1, callback.results.size());
+        assertEquals(49.0, callback.results.get(0).main.temp, 1e-9);
+    }
+
+    @Test
+    public void supersededRequestIsInterruptedAndNotDelivered() throws Exception {
+        fetcher.blockFirstCall = true;
+        loader.onTap(41.0, -8.0, callback);
+        assertTrue(fetcher.firstCallStarted.await(5, TimeUnit.SECONDS));
+
+        loader.onTap(42.0, -8.0, callback);
+
+        assertTrue(callback.await());
+        assertTrue(fetcher.firstCallInterrupted);
+        assertTrue(fetcher.firstCallCancelled);
+        assertEquals(2, loader.getRequestCount());
+        assertEquals(1, callback.results.size());
+        assertEquals(46.0, callback.results.get(0).main.temp, 1e-9);
+    }
+
+    @Test
+    public void tapNearAPreviousOneIsAnsweredFromTheCellCache() throws Exception {
+        loader.onTap(41.17846, -8.60893, callback);
+        assertTrue(callback.await());
+
+        callback.reset();
+        loader.onTap(41.17900, -8.60850, callback);
+
+        // Entregue de imediato, sem esperar pelo debounce
+        assertEquals(1, callback.results.size());
+        assertEquals(1, fetcher.calls.get());
+        assertEquals(0.5, cache.getStats().getHitRate(), 1e-9);
+    }
+
+    /**
+     * Fonte falsa cuja temperatura é a latitude mais 4, para identificar o toque que a pediu.
+     */
+    private static class FakeFetcher implements TapWeatherLoader.Fetcher {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch firstCallStarted = new CountDownLatch(1);
+        volatile boolean blockFirstCall;
+        volatile boolean firstCallInterrupted;
+        volatile boolean firstCallCancelled;
+
+        @Override
+        public WeatherResponse fetch(double latitude, double longitude) throws Exception {
+            if (calls.incrementAndGet() == 1 && blockFirstCall) {
+                // Como o CancelOnInterruptInterceptor faz com a chamada HTTP
+                ((IoThread) Thread.currentThread()).setCancelAction(() -> firstCallCancelled = true);
+                firstCallStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    firstCallInterrupted = true;
+                    throw e;
+                }
+            }
+            WeatherResponse response = new WeatherResponse();
+            response.main = new WeatherResponse.Main();
+            response.main.temp = latitude + 4;
+            return response;
+        }
+    }
+
+    private static class RecordingCallback implements TapWeatherLoader.Callback {
+        final List<WeatherResponse> results = new CopyOnWriteArrayList<>();
+        volatile CountDownLatch delivered = new CountDownLatch(1);
+
+        @Override
+        public void onWeather(WeatherResponse weather) {
+            results.add(weather);
+            delivered.countDown();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            delivered.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            boolean done = delivered.await(5, TimeUnit.SECONDS);
+            // Dá tempo a uma eventual entrega indevida de um toque substituído
+            Thread.sleep(2 * DEBOUNCE_MILLIS);
+            return done;
+        }
+
+        void reset() {
+            results.clear();
+            delivered = new CountDownLatch(1);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.weatherapp2.ui.network;
+
+/**
+ * Relógio virtual para testes, avançado manualmente.
+ */
+public class FakeClock implements Clock {
+
+    private long nowMillis;
+
+    public FakeClock(long startMillis) {
+        this.nowMillis = startMillis;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return nowMillis;
+    }
+
+    public synchronized void advance(long millis) {
+        nowMillis += millis;
+    }
+
+    public synchronized void set(long millis) {
+        nowMillis = millis;
+    }
+}
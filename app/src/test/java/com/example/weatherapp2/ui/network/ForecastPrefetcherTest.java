@@ -0,0 +1,216 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.repository.WeatherRemoteSource;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que o {@link ForecastPrefetcher} deixa em memória as previsões das linhas visíveis e das
+ * cidades recentes, dentro do orçamento reservado na cache, e que os pedidos de linhas que saíram do
+ * ecrã são cancelados.
+ */
+public class ForecastPrefetcherTest {
+
+    private CountingRemoteSource remote;
+    private ForecastCache cache;
+    private WeatherRepository repository;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        remote = new CountingRemoteSource();
+        cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        repository = new WeatherRepository(remote, cache, Runnable::run);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void visibleRowsOpenWithoutANetworkRequest() throws Exception {
+        ForecastPrefetcher prefetcher = newPrefetcher(ForecastPrefetcher.DEFAULT_BUDGET_BYTES);
+        assertNull(repository.peekForecast("Lisbon"));
+
+        prefetcher.setVisible(Arrays.asList("Lisbon", "Porto"));
+        waitUntilIdle(prefetcher);
+
+        // Os detalhes leem a previsão da memória, na thread principal
+        Forecast lisbon = repository.peekForecast("Lisbon");
+        assertNotNull(lisbon);
+        assertEquals(40, lisbon.size());
+        assertNotNull(repository.peekForecast("Porto"));
+        assertEquals(2, remote.total());
+    }
+
+    @Test
+    public void rowsAlreadyInMemoryAreNotFetchedAgain() throws Exception {
+        ForecastPrefetcher prefetcher = newPrefetcher(ForecastPrefetcher.DEFAULT_BUDGET_BYTES);
+
+        prefetcher.setVisible(Arrays.asList("Lisbon", "Porto"));
+        waitUntilIdle(prefetcher);
+        prefetcher.setVisible(Arrays.asList("Porto", "Lisbon"));
+        waitUntilIdle(prefetcher);
+
+        assertEquals(1, remote.hits("Lisbon"));
+        assertEquals(1, remote.hits("Porto"));
+    }
+
+    @Test
+    public void queuedRequestsForRowsScrolledAwayAreCancelled() throws Exception {
+        ForecastPrefetcher prefetcher = newPrefetcher(ForecastPrefetcher.DEFAULT_BUDGET_BYTES);
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        prefetcher.setVisible(Arrays.asList("Lisbon", "Porto", "Madrid"));
+        prefetcher.setVisible(Collections.singletonList("Oslo"));
+        blocker.countDown();
+        waitUntilIdle(prefetcher);
+
+        assertEquals(1, remote.total());
+        assertEquals(1, remote.hits("Oslo"));
+    }
+
+    @Test
+    public void recentCitiesFollowVisibleRowsNewestFirst() {
+        ForecastPrefetcher prefetcher = newPrefetcher(ForecastPrefetcher.DEFAULT_BUDGET_BYTES);
+        for (int i = 0; i < ForecastPrefetcher.RECENT_CAPACITY + 2; i++) {
+            prefetcher.onOpened("City" + i);
+        }
+        // Reabrir uma cidade torna-a a mais recente
+        prefetcher.onOpened("City5");
+        prefetcher.setVisible(Arrays.asList("Lisbon", "City9"));
+
+        List<String> wanted = prefetcher.getWanted();
+
+        assertEquals(Arrays.asList("Lisbon", "City9", "City5", "City8", "City7", "City6", "City4", "City3", "City2"),
+                wanted);
+    }
+
+    @Test
+    public void wantedCitiesStayWithinTheBudget() throws Exception {
+        ForecastPrefetcher prefetcher = newPrefetcher(3 * ForecastPrefetcher.ESTIMATED_FORECAST_BYTES);
+        prefetcher.setVisible(Arrays.asList("Lisbon", "Porto", "Madrid", "Paris"));
+        prefetcher.onOpened("Oslo");
+        waitUntilIdle(prefetcher);
+
+        assertEquals(Arrays.asList("Lisbon", "Porto", "Madrid"), prefetcher.getWanted());
+        assertEquals(3, remote.total());
+        assertNull(repository.peekForecast("Paris"));
+        assertNull(repository.peekForecast("Oslo"));
+    }
+
+    @Test
+    public void prefetchedRowsSurviveOpeningOtherCities() throws Exception {
+        int budget = 2 * ForecastPrefetcher.ESTIMATED_FORECAST_BYTES;
+        cache.setMemoryBudgetBytes(2 * budget);
+        ForecastPrefetcher prefetcher = newPrefetcher(budget);
+        prefetcher.setVisible(Arrays.asList("Lisbon", "Porto"));
+        waitUntilIdle(prefetcher);
+        int pinnedBytes = cache.getStats().pinnedBytes;
+
+        // Os detalhes abertos fora da antecipação ocupam só a parte não reservada da LRU
+        for (int i = 0; i < 10; i++) {
+            repository.getForecast("City" + i);
+        }
+
+        assertNotNull(repository.peekForecast("Lisbon"));
+        assertNotNull(repository.peekForecast("Porto"));
+        assertNull(repository.peekForecast("City0"));
+        assertEquals(pinnedBytes, cache.getStats().pinnedBytes);
+        assertTrue(cache.getStats().evictions > 0);
+    }
+
+    private ForecastPrefetcher newPrefetcher(int budgetBytes) {
+        return new ForecastPrefetcher(repository::getForecast, repository::pinForecasts, executor, budgetBytes);
+    }
+
+    private static void waitUntilIdle(ForecastPrefetcher prefetcher) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (prefetcher.getPendingCount() > 0) {
+            assertTrue("prefetch not finished within 5 s", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Fonte remota falsa que devolve uma previsão de 5 dias a começar na próxima hora e conta os pedidos.
+     */
+    private static class CountingRemoteSource implements WeatherRemoteSource {
+        private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+        int hits(String location) {
+            AtomicInteger count = hits.get(location);
+            return count == null ? 0 : count.get();
+        }
+
+        int total() {
+            int total = 0;
+            for (AtomicInteger count : hits.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+
+        @Override
+        public Forecast fetchForecast(String location) {
+            hits.computeIfAbsent(location, key -> new AtomicInteger()).incrementAndGet();
+            long firstSlot = System.currentTimeMillis() / 1000L + 3600;
+            long[] times = new long[40];
+            double[] minimums = new double[40];
+            double[] maximums = new double[40];
+            for (int i = 0; i < times.length; i++) {
+                times[i] = firstSlot + i * 3 * 3600L;
+                minimums[i] = 15;
+                maximums[i] = 22;
+            }
+            return new Forecast(location, times, minimums, maximums);
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByName(String location) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<WeatherResponse> fetchCurrentByIds(String cityIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
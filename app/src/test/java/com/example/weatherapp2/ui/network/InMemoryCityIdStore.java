@@ -0,0 +1,35 @@
+package com.example.weatherapp2.ui.network;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementação em memória de {@link CityIdStore}, segura para as threads do {@link ParallelFetchEngine}.
+ */
+public class InMemoryCityIdStore implements CityIdStore {
+
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+
+    @Override
+    public long getCityId(String location) {
+        Long id = ids.get(location);
+        return id != null ? id : -1L;
+    }
+
+    @Override
+    public boolean hasCityId(String location) {
+        return ids.containsKey(location);
+    }
+
+    @Override
+    public void putCityId(String location, long cityId) {
+        ids.put(location, cityId);
+    }
+
+    /**
+     * @return O número de localizações com ID resolvido.
+     */
+    public int size() {
+        return ids.size();
+    }
+}
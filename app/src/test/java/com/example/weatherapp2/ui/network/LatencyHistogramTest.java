@@ -0,0 +1,90 @@
+package com.example.weatherapp2.ui.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que o {@link LatencyHistogram} calcula percentis dentro do erro dos baldes e que não
+ * perde gravações feitas por várias threads ao mesmo tempo.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesStayWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertWithinBucketError(50_000, histogram.getPercentileMicros(50));
+        assertWithinBucketError(95_000, histogram.getPercentileMicros(95));
+        assertWithinBucketError(99_000, histogram.getPercentileMicros(99));
+        assertEquals(100_000, histogram.getPercentileMicros(100));
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertEquals(50_000, histogram.getMeanMicros());
+    }
+
+    @Test
+    public void bucketsCoverEveryValueInOrder() {
+        int previous = -1;
+        for (long micros = 0; micros < 1L << 20; micros += 1 + micros / 64) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(bucket >= previous);
+            assertTrue(micros <= LatencyHistogram.upperBoundOf(bucket));
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(99));
+        assertEquals(0, histogram.getMeanMicros());
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(1 + random.nextInt(2_000_000));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * perThread, histogram.getCount());
+        assertWithinBucketError(1_000_000, histogram.getPercentileMicros(50));
+    }
+
+    private static void assertWithinBucketError(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected * 0.13);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.repository.OpenWeatherRemoteSource;
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que cancelar um {@link LifecycleTaskScope} corta os pedidos em curso: a ligação sai do
+ * pool do OkHttp e a thread fica livre, em vez de esperar pela resposta de um servidor lento.
+ */
+public class LifecycleTaskScopeTest {
+
+    private static final long SLOW_LATENCY_MS = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ThreadPoolExecutor io;
+
+    @Before
+    public void setUp() {
+        io = AppExecutors.newIoPool("test-io", 1);
+    }
+
+    @After
+    public void tearDown() {
+        io.shutdownNow();
+    }
+
+    @Test
+    public void cancelledFetchReleasesItsConnection() throws Exception {
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.fixed(SLOW_LATENCY_MS))
+                .start()) {
+            OkHttpClient client = RetrofitClient.createHttpClient(folder.newFolder("http"));
+            OpenWeatherRemoteSource source = new OpenWeatherRemoteSource(server.baseUrl(), client);
+            LifecycleTaskScope scope = new LifecycleTaskScope(Runnable::run);
+            RecordingCallback<Object> callback = new RecordingCallback<>();
+
+            Future<Object> fetch = scope.submit(io, () -> source.fetchForecast("Lisbon"), callback);
+            waitUntil(() -> server.requestCount() == 1 && client.connectionPool().connectionCount() == 1);
+            assertEquals(1, client.dispatcher().runningCallsCount());
+
+            long start = System.nanoTime();
+            scope.cancel();
+            waitUntil(() -> client.connectionPool().connectionCount() == 0
+                    && client.dispatcher().runningCallsCount() == 0);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(fetch.isCancelled());
+            assertEquals(0, scope.getActiveCount());
+            assertTrue("released after " + elapsedMs + " ms", elapsedMs < SLOW_LATENCY_MS / 10);
+
+            // A única thread do pool fica livre para a tarefa seguinte
+            CountDownLatch next = new CountDownLatch(1);
+            io.execute(next::countDown);
+            assertTrue(next.await(1, TimeUnit.SECONDS));
+            assertEquals(0, callback.results.size() + callback.errors.size());
+        }
+    }
+
+    @Test
+    public void resultsAreDeliveredUntilTheScopeIsCancelled() throws Exception {
+        LifecycleTaskScope scope = new LifecycleTaskScope(Runnable::run);
+        RecordingCallback<String> callback = new RecordingCallback<>();
+
+        scope.submit(io, () -> "Lisbon", callback).get(1, TimeUnit.SECONDS);
+        waitUntil(() -> callback.results.size() == 1);
+        scope.submit(io, () -> {
+            throw new IllegalStateException("offline");
+        }, callback);
+        waitUntil(() -> callback.errors.size() == 1);
+
+        scope.cancel();
+        Future<String> late = scope.submit(io, () -> "Porto", callback);
+
+        assertTrue(late.isCancelled());
+        assertEquals("Lisbon", callback.results.get(0));
+        assertTrue(callback.errors.get(0) instanceof IllegalStateException);
+        assertEquals(1, callback.results.size());
+    }
+
+    @Test
+    public void resultQueuedForTheMainThreadIsDroppedAfterCancel() throws Exception {
+        List<Runnable> mainThread = new ArrayList<>();
+        LifecycleTaskScope scope = new LifecycleTaskScope(runnable -> {
+            synchronized (mainThread) {
+                mainThread.add(runnable);
+            }
+        });
+        RecordingCallback<String> callback = new RecordingCallback<>();
+
+        scope.submit(io, () -> "Lisbon", callback).get(1, TimeUnit.SECONDS);
+        waitUntil(() -> {
+            synchronized (mainThread) {
+                return mainThread.size() == 1;
+            }
+        });
+        scope.cancel();
+        mainThread.get(0).run();
+
+        assertTrue(callback.results.isEmpty());
+    }
+
+    @Test
+    public void queuedTaskIsNeverStartedAfterCancel() throws Exception {
+        LifecycleTaskScope scope = new LifecycleTaskScope(Runnable::run);
+        CountDownLatch blocker = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+
+        io.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        scope.submit(io, started::incrementAndGet, new RecordingCallback<>());
+        scope.cancel();
+        blocker.countDown();
+
+        CountDownLatch drained = new CountDownLatch(1);
+        io.execute(drained::countDown);
+        assertTrue(drained.await(1, TimeUnit.SECONDS));
+        assertEquals(0, started.get());
+        assertFalse(scope.getActiveCount() > 0);
+    }
+
+    /**
+     * Corre até a condição ser satisfeita, no máximo 5 segundos.
+     */
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.isMet()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5 s");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    private static class RecordingCallback<T> implements LifecycleTaskScope.Callback<T> {
+        final List<T> results = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+
+        @Override
+        public synchronized void onResult(T result) {
+            results.add(result);
+        }
+
+        @Override
+        public synchronized void onError(Exception error) {
+            errors.add(error);
+        }
+    }
+}
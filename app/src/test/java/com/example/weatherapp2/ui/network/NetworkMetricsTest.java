@@ -0,0 +1,118 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.debug.MetricsReport;
+import com.example.weatherapp2.ui.repository.OpenWeatherRemoteSource;
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica, contra o {@link StandInWeatherServer}, que as {@link NetworkMetrics} medem cada chamada
+ * no endpoint certo: latência, bytes, códigos de estado, cache HTTP e falhas.
+ */
+public class NetworkMetricsTest {
+
+    private static final long LATENCY_MS = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void successfulFetchIsMeasuredOnItsEndpoint() throws Exception {
+        NetworkMetrics metrics = new NetworkMetrics();
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.fixed(LATENCY_MS))
+                .start()) {
+            OpenWeatherRemoteSource source = newSource(server, metrics);
+
+            source.fetchForecast("Lisbon");
+            source.fetchForecast("Porto");
+        }
+
+        NetworkMetrics.EndpointMetrics forecast = metrics.get(NetworkMetrics.Endpoint.FORECAST);
+        assertEquals(2, forecast.getCalls());
+        assertEquals(2, forecast.getStatusCount(2));
+        assertEquals(0, forecast.getFailures());
+        assertEquals(2, forecast.getCacheMisses());
+        assertTrue(forecast.getBytesReceived() > 0);
+        // A latência do servidor aparece no tempo até ao primeiro byte e no total
+        assertTrue(forecast.timeToFirstByte.getPercentileMicros(50) >= LATENCY_MS * 1000 * 7 / 8);
+        assertTrue(forecast.total.getPercentileMicros(99) >= forecast.timeToFirstByte.getPercentileMicros(50));
+        assertEquals(1, forecast.connect.getCount());
+        assertEquals(0, metrics.get(NetworkMetrics.Endpoint.WEATHER).getCalls());
+    }
+
+    @Test
+    public void errorStatusAndFailuresAreCounted() throws Exception {
+        NetworkMetrics metrics = new NetworkMetrics();
+        OpenWeatherRemoteSource source;
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder().errorRate(1).start()) {
+            source = newSource(server, metrics);
+            // Todas as respostas são erros 500 injetados
+            try {
+                source.fetchCurrentByName("Lisbon");
+                fail("expected HTTP 500");
+            } catch (IOException expected) {
+                // esperado
+            }
+        }
+        // Com o servidor desligado, a ligação falha
+        try {
+            source.fetchCurrentByName("Lisbon");
+            fail("expected connection failure");
+        } catch (IOException expected) {
+            // esperado
+        }
+
+        NetworkMetrics.EndpointMetrics weather = metrics.get(NetworkMetrics.Endpoint.WEATHER);
+        assertEquals(2, weather.getCalls());
+        assertEquals(1, weather.getStatusCount(5));
+        assertEquals(1, weather.getFailures());
+        assertNotNull(weather.getLastError());
+        assertTrue(metrics.getReport().contains("/weather: 2 calls, 1 failed"));
+    }
+
+    @Test
+    public void reportIsDumpedToAFile() throws Exception {
+        NetworkMetrics metrics = new NetworkMetrics();
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder().start()) {
+            newSource(server, metrics).fetchForecast("Lisbon");
+        }
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        RequestScheduler scheduler = new RequestScheduler(RequestScheduler.DEFAULT_CAPACITY,
+                RequestScheduler.DEFAULT_REFILL_MILLIS, new FakeClock(0));
+
+        String report = MetricsReport.build(1718301600000L, metrics, cache.getStats(), scheduler.getStats());
+        File file = MetricsReport.dump(new File(folder.getRoot(), "metrics"), 1718301600000L, report);
+
+        assertEquals("metrics-20240613-180000.txt", file.getName());
+        String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(report, written);
+        assertTrue(written.startsWith("Metrics at 2024-06-13T18:00:00Z"));
+        assertTrue(written.contains("/forecast: 1 calls, 0 failed"));
+        assertTrue(written.contains("p50="));
+        assertTrue(written.contains("30 tokens available"));
+    }
+
+    private OpenWeatherRemoteSource newSource(StandInWeatherServer server, NetworkMetrics metrics) throws IOException {
+        OkHttpClient client = RetrofitClient.createHttpClient(folder.newFolder(), metrics);
+        return new OpenWeatherRemoteSource(server.baseUrl(), client);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.weatherapp2.ui.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que o {@link ParallelFetchEngine} reduz o tempo total de O(n) para O(n / concorrência)
+ * contra um servidor local com latência injetada, e que os resultados chegam antes do fim do lote.
+ */
+public class ParallelFetchEngineTest {
+
+    private static final long LATENCY_MS = 150;
+    private static final int REQUESTS = 12;
+
+    private StandInWeatherServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.fixed(LATENCY_MS))
+                .start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void sequentialFetchIsLinearInRequestCount() throws Exception {
+        Run run = runBatch(1);
+
+        assertEquals(REQUESTS, run.results);
+        assertTrue("elapsed " + run.elapsedMs, run.elapsedMs >= REQUESTS * LATENCY_MS);
+    }
+
+    @Test
+    public void parallelFetchDividesWallClockByConcurrency() throws Exception {
+        Run sequential = runBatch(1);
+        Run parallel = runBatch(4);
+
+        assertEquals(REQUESTS, parallel.results);
+        // 12 pedidos com 4 em simultâneo = 3 rodadas de latência
+        assertTrue("elapsed " + parallel.elapsedMs, parallel.elapsedMs >= (REQUESTS / 4) * LATENCY_MS);
+        assertTrue("parallel " + parallel.elapsedMs + " vs sequential " + sequential.elapsedMs,
+                parallel.elapsedMs * 2 < sequential.elapsedMs);
+    }
+
+    @Test
+    public void resultsAreStreamedBeforeTheBatchCompletes() throws Exception {
+        Run run = runBatch(4);
+
+        assertTrue("first result " + run.firstResultMs + " vs total " + run.elapsedMs,
+                run.firstResultMs * 2 < run.elapsedMs);
+    }
+
+    @Test
+    public void concurrencyLimitIsRespected() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            tasks.add(() -> {
+                int now = active.incrementAndGet();
+                peak.accumulateAndGet(now, Math::max);
+                try {
+                    return get(server.baseUrl() + "forecast?q=Lisbon");
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        ParallelFetchEngine engine = new ParallelFetchEngine(3, Runnable::run);
+        engine.execute(tasks, new CountingListener<>(done, new AtomicInteger(), new AtomicLong(), 0));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        engine.shutdown();
+
+        assertEquals(3, peak.get());
+    }
+
+    private Run runBatch(int concurrency) throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            tasks.add(() -> get(server.baseUrl() + "forecast?q=Lisbon"));
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger results = new AtomicInteger();
+        AtomicLong firstResult = new AtomicLong(-1);
+        ParallelFetchEngine engine = new ParallelFetchEngine(concurrency, Runnable::run);
+
+        long start = System.nanoTime();
+        engine.execute(tasks, new CountingListener<>(done, results, firstResult, start));
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        engine.shutdown();
+
+        Run run = new Run();
+        run.results = results.get();
+        run.elapsedMs = elapsed;
+        run.firstResultMs = firstResult.get();
+        return run;
+    }
+
+    private static int get(String url) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            int bytes = 0;
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes += read;
+            }
+            return bytes;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class Run {
+        int results;
+        long elapsedMs;
+        long firstResultMs;
+    }
+
+    private static class CountingListener<T> implements ParallelFetchEngine.Listener<T> {
+        private final CountDownLatch done;
+        private final AtomicInteger results;
+        private final AtomicLong firstResultMs;
+        private final long startNanos;
+
+        CountingListener(CountDownLatch done, AtomicInteger results, AtomicLong firstResultMs, long startNanos) {
+            this.done = done;
+            this.results = results;
+            this.firstResultMs = firstResultMs;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onResult(T result) {
+            firstResultMs.compareAndSet(-1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            results.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            throw new AssertionError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
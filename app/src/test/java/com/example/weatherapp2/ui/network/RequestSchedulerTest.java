@@ -0,0 +1,237 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.network.RequestScheduler.Priority;
+import com.example.weatherapp2.ui.network.RequestScheduler.Ticket;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica, com um relógio virtual, que o {@link RequestScheduler} respeita a quota da API, atende
+ * os pedidos por ordem de prioridade e reporta a profundidade da fila e os tempos de espera.
+ */
+public class RequestSchedulerTest {
+
+    private static final long START = 1_000_000L;
+
+    private final FakeClock clock = new FakeClock(START);
+    private final RequestScheduler scheduler = new RequestScheduler(
+            RequestScheduler.DEFAULT_CAPACITY, RequestScheduler.DEFAULT_REFILL_MILLIS, clock);
+
+    @Test
+    public void burstUpToCapacityThenOneRequestPerInterval() {
+        List<Ticket> tickets = enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY + 1);
+
+        assertEquals(RequestScheduler.DEFAULT_CAPACITY, scheduler.dispatch());
+        assertFalse(tickets.get(RequestScheduler.DEFAULT_CAPACITY).isGranted());
+
+        clock.advance(RequestScheduler.DEFAULT_REFILL_MILLIS - 1);
+        assertEquals(0, scheduler.dispatch());
+        clock.advance(1);
+        assertEquals(1, scheduler.dispatch());
+        assertEquals(RequestScheduler.DEFAULT_REFILL_MILLIS, tickets.get(RequestScheduler.DEFAULT_CAPACITY).getWaitMillis());
+    }
+
+    @Test
+    public void noMinuteExceedsTheFreeTierQuota() {
+        enqueue(Priority.FOREGROUND, 500);
+
+        // Procura satisfeita ao ritmo de um despacho a cada 100 ms, durante 5 minutos virtuais
+        List<Long> grantedAt = new ArrayList<>();
+        for (long t = 0; t <= 5 * 60_000; t += 100) {
+            clock.set(START + t);
+            int granted = scheduler.dispatch();
+            for (int i = 0; i < granted; i++) {
+                grantedAt.add(t);
+            }
+        }
+
+        for (int first = 0; first < grantedAt.size(); first++) {
+            int inWindow = 0;
+            for (int i = first; i < grantedAt.size() && grantedAt.get(i) < grantedAt.get(first) + 60_000; i++) {
+                inWindow++;
+            }
+            assertTrue(inWindow + " requests in one minute", inWindow <= 60);
+        }
+        // Depois da rajada inicial, o ritmo sustentado é de 30 pedidos por minuto
+        assertEquals(RequestScheduler.DEFAULT_CAPACITY + 5 * 30, grantedAt.size());
+    }
+
+    @Test
+    public void foregroundIsServedBeforeQueuedBackgroundWork() {
+        enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY);
+        scheduler.dispatch();
+
+        Ticket prefetch = scheduler.enqueue(Priority.PREFETCH);
+        Ticket widget = scheduler.enqueue(Priority.WIDGET);
+        Ticket foreground = scheduler.enqueue(Priority.FOREGROUND);
+
+        clock.advance(RequestScheduler.DEFAULT_REFILL_MILLIS);
+        assertEquals(1, scheduler.dispatch());
+        assertTrue(foreground.isGranted());
+        assertFalse(widget.isGranted());
+
+        // O widget só recebe uma ficha quando sobra a sua reserva
+        clock.advance((Priority.WIDGET.reserve + 1) * RequestScheduler.DEFAULT_REFILL_MILLIS);
+        assertEquals(1, scheduler.dispatch());
+        assertTrue(widget.isGranted());
+        assertFalse(prefetch.isGranted());
+
+        clock.advance((Priority.PREFETCH.reserve + 1) * RequestScheduler.DEFAULT_REFILL_MILLIS);
+        assertEquals(1, scheduler.dispatch());
+        assertTrue(prefetch.isGranted());
+    }
+
+    @Test
+    public void raisedTicketIsServedWithItsNewPriority() {
+        enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY - Priority.PREFETCH.reserve);
+        scheduler.dispatch();
+
+        Ticket prefetch = scheduler.enqueue(Priority.PREFETCH);
+        assertEquals(0, scheduler.dispatch());
+        assertEquals(1, scheduler.getStats().prefetchQueued);
+
+        scheduler.raise(prefetch, Priority.FOREGROUND);
+
+        assertTrue(prefetch.isGranted());
+        assertEquals(Priority.FOREGROUND, prefetch.getPriority());
+        assertEquals(0, scheduler.getStats().getQueueDepth());
+    }
+
+    @Test
+    public void raiseNeverLowersThePriority() {
+        enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY);
+        scheduler.dispatch();
+        Ticket widget = scheduler.enqueue(Priority.WIDGET);
+
+        scheduler.raise(widget, Priority.PREFETCH);
+
+        assertEquals(Priority.WIDGET, widget.getPriority());
+        assertEquals(1, scheduler.getStats().widgetQueued);
+    }
+
+    @Test
+    public void prefetchBurstLeavesTokensForTheVisibleScreen() {
+        List<Ticket> prefetches = enqueue(Priority.PREFETCH, RequestScheduler.DEFAULT_CAPACITY);
+
+        assertEquals(RequestScheduler.DEFAULT_CAPACITY - Priority.PREFETCH.reserve, scheduler.dispatch());
+        assertFalse(prefetches.get(prefetches.size() - 1).isGranted());
+
+        List<Ticket> visible = enqueue(Priority.FOREGROUND, Priority.PREFETCH.reserve);
+        assertEquals(Priority.PREFETCH.reserve, scheduler.dispatch());
+        for (Ticket ticket : visible) {
+            assertTrue(ticket.isGranted());
+            assertEquals(0, ticket.getWaitMillis());
+        }
+    }
+
+    @Test
+    public void statsReportQueueDepthAndWaitTimes() {
+        enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY);
+        scheduler.dispatch();
+        enqueue(Priority.FOREGROUND, 2);
+        enqueue(Priority.WIDGET, 1);
+        enqueue(Priority.PREFETCH, 3);
+
+        RequestScheduler.Stats queued = scheduler.getStats();
+        assertEquals(2, queued.foregroundQueued);
+        assertEquals(1, queued.widgetQueued);
+        assertEquals(3, queued.prefetchQueued);
+        assertEquals(6, queued.getQueueDepth());
+        assertEquals(0, queued.availableTokens);
+        assertEquals(RequestScheduler.DEFAULT_REFILL_MILLIS, scheduler.getDelayUntilNextTokenMillis());
+
+        clock.advance(2 * RequestScheduler.DEFAULT_REFILL_MILLIS);
+        scheduler.dispatch();
+
+        RequestScheduler.Stats served = scheduler.getStats();
+        assertEquals(0, served.foregroundQueued);
+        assertEquals(4, served.getQueueDepth());
+        assertEquals(RequestScheduler.DEFAULT_CAPACITY + 2, served.grantedCount);
+        assertEquals(2 * 2 * RequestScheduler.DEFAULT_REFILL_MILLIS, served.totalWaitMillis);
+        assertEquals(2 * RequestScheduler.DEFAULT_REFILL_MILLIS, served.maxWaitMillis);
+    }
+
+    @Test
+    public void blockedCallerRunsOnceTheClockRefillsTheBucket() throws Exception {
+        enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY);
+        scheduler.dispatch();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> call = pool.submit(() -> RequestScheduler.withPriority(Priority.WIDGET,
+                    () -> scheduler.execute(() -> "Lisbon")));
+            waitUntilQueued(1);
+            assertFalse(call.isDone());
+
+            clock.advance((Priority.WIDGET.reserve + 1) * RequestScheduler.DEFAULT_REFILL_MILLIS);
+            assertEquals("Lisbon", call.get(5, TimeUnit.SECONDS));
+            assertEquals(0, scheduler.getStats().getQueueDepth());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptedCallerLeavesTheQueue() throws Exception {
+        enqueue(Priority.FOREGROUND, RequestScheduler.DEFAULT_CAPACITY);
+        scheduler.dispatch();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> call = pool.submit(() -> scheduler.execute(() -> "Lisbon"));
+            waitUntilQueued(1);
+            pool.shutdownNow();
+
+            try {
+                call.get(5, TimeUnit.SECONDS);
+                fail("expected interruption");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof InterruptedException);
+            }
+            assertEquals(0, scheduler.getStats().getQueueDepth());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void priorityIsScopedToTheCallingThread() throws Exception {
+        assertEquals(Priority.FOREGROUND, RequestScheduler.currentPriority());
+        Priority inside = RequestScheduler.withPriority(Priority.PREFETCH, RequestScheduler::currentPriority);
+
+        assertEquals(Priority.PREFETCH, inside);
+        assertEquals(Priority.FOREGROUND, RequestScheduler.currentPriority());
+    }
+
+    private List<Ticket> enqueue(Priority priority, int count) {
+        List<Ticket> tickets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tickets.add(scheduler.enqueue(priority));
+        }
+        return tickets;
+    }
+
+    /**
+     * Espera até haver o número indicado de pedidos na fila, no máximo 5 segundos.
+     */
+    private void waitUntilQueued(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getStats().getQueueDepth() != depth) {
+            assertTrue("queue never reached " + depth, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.weatherapp2.ui.network;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica que cancelar a chamada que iniciou um pedido do {@link SingleFlight} não cancela as
+ * chamadas que se juntaram a ela.
+ */
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    @Test
+    public void cancelledLeaderLetsAWaitingCallerRetry() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        try {
+            Future<String> leader = pool.submit(() -> singleFlight.execute("Lisbon", () -> {
+                leaderStarted.countDown();
+                Thread.sleep(10_000);
+                return "leader";
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+            Future<String> joiner = pool.submit(() -> singleFlight.execute("Lisbon", () -> "retried"));
+            waitUntilCoalesced(1);
+
+            leader.cancel(true);
+
+            assertEquals("retried", joiner.get(5, TimeUnit.SECONDS));
+            assertEquals(2, singleFlight.getIssuedCount());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failureOfTheLeaderIsStillShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<String> leader = pool.submit(() -> singleFlight.execute("Lisbon", () -> {
+                release.await();
+                throw new IllegalStateException("HTTP 500");
+            }));
+            waitUntilInFlight();
+            Future<String> joiner = pool.submit(() -> singleFlight.execute("Lisbon", () -> "retried"));
+            waitUntilCoalesced(1);
+            release.countDown();
+
+            for (Future<String> call : Arrays.asList(leader, joiner)) {
+                try {
+                    call.get(5, TimeUnit.SECONDS);
+                    fail("expected failure");
+                } catch (ExecutionException e) {
+                    assertEquals("HTTP 500", e.getCause().getMessage());
+                }
+            }
+            assertEquals(1, singleFlight.getIssuedCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void waitUntilInFlight() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getInFlightCount() == 0) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private void waitUntilCoalesced(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getCoalescedCount() < count) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.weatherapp2.ui.network;
+
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponseAdapter;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponseAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Servidor local que substitui a API da OpenWeather nos testes de carga. Responde a
+ * {@code /forecast}, {@code /weather} e {@code /group} a partir das respostas gravadas em
+ * {@code fixtures/}, com o nome e o ID da cidade pedida, e pode injetar latência, erros 500 e
+ * respostas 429 quando é excedido um limite de pedidos por janela de tempo, como faz a API real.
+ * Criado com um {@link Builder}.
+ */
+public class StandInWeatherServer implements AutoCloseable {
+
+    /**
+     * Distribuição do atraso aplicado antes dos cabeçalhos de cada resposta.
+     */
+    public interface LatencyDistribution {
+
+        /**
+         * @param random O gerador partilhado pelo servidor.
+         * @return O atraso de uma resposta, em milissegundos.
+         */
+        long sampleMillis(Random random);
+    }
+
+    /**
+     * @param millis O atraso de todas as respostas.
+     * @return Uma distribuição constante.
+     */
+    public static LatencyDistribution fixed(long millis) {
+        return random -> millis;
+    }
+
+    /**
+     * @param minMillis O atraso mínimo.
+     * @param maxMillis O atraso máximo.
+     * @return Uma distribuição uniforme entre os dois valores.
+     */
+    public static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+    }
+
+    /**
+     * Distribuição log-normal, com a cauda longa das latências de uma rede móvel: com
+     * {@code sigma = 0.5} o percentil 99 fica a cerca de 3,2 vezes a mediana.
+     *
+     * @param medianMillis A mediana do atraso.
+     * @param sigma        O desvio padrão do logaritmo do atraso.
+     * @param maxMillis    O atraso máximo, que corta a cauda.
+     * @return A distribuição.
+     */
+    public static LatencyDistribution logNormal(long medianMillis, double sigma, long maxMillis) {
+        return random -> Math.min(maxMillis, Math.round(medianMillis * Math.exp(sigma * random.nextGaussian())));
+    }
+
+    private static final long FIRST_GENERATED_ID = 9_000_000L;
+
+    private final MockWebServer server = new MockWebServer();
+    private final WeatherResponseAdapter weatherAdapter = new WeatherResponseAdapter();
+    private final GroupWeatherResponseAdapter groupAdapter = new GroupWeatherResponseAdapter(weatherAdapter);
+    private final String weatherTemplate;
+    private final Map<String, String> forecastsByCity = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(FIRST_GENERATED_ID);
+
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final int throttleLimit;
+    private final long throttleWindowMillis;
+    private final Random random;
+
+    private final Map<String, AtomicInteger> requestsByEndpoint = new ConcurrentHashMap<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger injectedErrors = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private long windowStart;
+    private int windowRequests;
+
+    private StandInWeatherServer(Builder builder) throws IOException {
+        latency = builder.latency;
+        errorRate = builder.errorRate;
+        throttleLimit = builder.throttleLimit;
+        throttleWindowMillis = builder.throttleWindowMillis;
+        random = new Random(builder.seed);
+        weatherTemplate = readFixture("weather_lisbon.json");
+        for (String city : new String[]{"Lisbon", "London", "Doha"}) {
+            forecastsByCity.put(city, readFixture("forecast_" + city.toLowerCase(Locale.ROOT) + ".json"));
+        }
+        for (Map.Entry<Long, String> city : builder.cities.entrySet()) {
+            idsByName.put(city.getValue(), city.getKey());
+            namesById.put(city.getKey(), city.getValue());
+        }
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request.getRequestUrl());
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * @return A URL base do servidor, terminada em {@code /data/2.5/}.
+     */
+    public String baseUrl() {
+        return server.url("/data/2.5/").toString();
+    }
+
+    /**
+     * @return O número de pedidos recebidos, incluindo os que falharam ou foram recusados.
+     */
+    public int requestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @param endpoint O último segmento do caminho, por exemplo {@code "weather"}.
+     * @return O número de pedidos recebidos nesse endpoint.
+     */
+    public int requestCount(String endpoint) {
+        AtomicInteger count = requestsByEndpoint.get(endpoint);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return O número de respostas 500 injetadas.
+     */
+    public int injectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * @return O número de respostas 429 por excesso de pedidos.
+     */
+    public int throttledCount() {
+        return throttled.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Liberta as respostas ainda em atraso, para que o servidor pare sem esperar por elas
+        closed.countDown();
+        server.shutdown();
+    }
+
+    /**
+     * Responde a um pedido. Corre numa thread do {@link MockWebServer} por ligação.
+     */
+    private MockResponse respond(HttpUrl url) {
+        requestCount.incrementAndGet();
+        String endpoint = url.pathSegments().get(url.pathSize() - 1);
+        requestsByEndpoint.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+
+        long delayMillis;
+        boolean fail;
+        synchronized (this) {
+            delayMillis = latency.sampleMillis(random);
+            fail = random.nextDouble() < errorRate;
+        }
+        long retryAfterMillis = takeFromWindow();
+        if (retryAfterMillis > 0) {
+            throttled.incrementAndGet();
+            return new MockResponse()
+                    .setResponseCode(429)
+                    .setHeader("Retry-After", (retryAfterMillis + 999) / 1000)
+                    .setBody("{\"cod\":429,\"message\":\"Your account is temporary blocked due to exceeding"
+                            + " of requests limitation of your subscription type.\"}");
+        }
+        if (!delay(delayMillis)) {
+            return json(503, "{\"cod\":\"503\",\"message\":\"Server closed\"}");
+        }
+        if (fail) {
+            injectedErrors.incrementAndGet();
+            return json(500, "{\"cod\":\"500\",\"message\":\"Internal error\"}");
+        }
+
+        switch (endpoint) {
+            case "forecast":
+                return json(200, forecast(cityName(url.queryParameter("q"))));
+            case "weather":
+                String query = url.queryParameter("q");
+                String name = query != null ? cityName(query) : url.queryParameter("lat") + "," + url.queryParameter("lon");
+                return json(200, weatherAdapter.toJson(weather(idOf(name), name)));
+            case "group":
+                GroupWeatherResponse group = new GroupWeatherResponse();
+                group.list = new ArrayList<>();
+                for (String id : url.queryParameter("id").split(",")) {
+                    long cityId = Long.parseLong(id);
+                    String cityName = namesById.get(cityId);
+                    group.list.add(weather(cityId, cityName != null ? cityName : "City " + cityId));
+                }
+                return json(200, groupAdapter.toJson(group));
+            default:
+                return json(404, "{\"cod\":\"404\",\"message\":\"Not found\"}");
+        }
+    }
+
+    /**
+     * Conta um pedido na janela atual do limite de pedidos.
+     *
+     * @return Zero se o pedido é aceite, ou o tempo até ao fim da janela se deve ser recusado.
+     */
+    private synchronized long takeFromWindow() {
+        if (throttleLimit <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime() / 1_000_000;
+        if (now - windowStart >= throttleWindowMillis) {
+            windowStart = now;
+            windowRequests = 0;
+        }
+        if (windowRequests >= throttleLimit) {
+            return Math.max(1, windowStart + throttleWindowMillis - now);
+        }
+        windowRequests++;
+        return 0;
+    }
+
+    /**
+     * @return A previsão gravada da cidade, ou a de Lisboa com o nome da cidade pedida.
+     */
+    private String forecast(String city) {
+        String recorded = forecastsByCity.get(city);
+        if (recorded != null) {
+            return recorded;
+        }
+        return forecastsByCity.get("Lisbon").replace("\"name\":\"Lisbon\"", "\"name\":\"" + city + "\"");
+    }
+
+    /**
+     * @return O clima atual gravado de Lisboa, com o ID e o nome indicados.
+     */
+    private WeatherResponse weather(long id, String name) {
+        try {
+            WeatherResponse response = weatherAdapter.fromJson(weatherTemplate);
+            response.id = id;
+            response.name = name;
+            return response;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return O ID da cidade, atribuído no primeiro pedido por nome se não foi indicado no {@link Builder}.
+     */
+    private long idOf(String name) {
+        return idsByName.computeIfAbsent(name, key -> {
+            long id = nextId.getAndIncrement();
+            namesById.put(id, key);
+            return id;
+        });
+    }
+
+    /**
+     * @return O nome da cidade de um parâmetro {@code q}, sem o código do país.
+     */
+    private static String cityName(String query) {
+        int comma = query.indexOf(',');
+        return comma < 0 ? query : query.substring(0, comma);
+    }
+
+    /**
+     * Espera antes de responder, como a rede e o servidor real. Ao contrário do atraso do
+     * {@link MockResponse}, a espera termina quando o servidor é fechado.
+     *
+     * @return Falso se o servidor foi fechado durante a espera.
+     */
+    private boolean delay(long delayMillis) {
+        try {
+            return delayMillis <= 0 || !closed.await(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static MockResponse json(int code, String body) {
+        return new MockResponse()
+                .setResponseCode(code)
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(body);
+    }
+
+    private static String readFixture(String name) throws IOException {
+        try (InputStream in = StandInWeatherServer.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Configuração do {@link StandInWeatherServer}. Por omissão responde sem atraso, sem erros e
+     * sem limite de pedidos.
+     */
+    public static class Builder {
+
+        private LatencyDistribution latency = fixed(0);
+        private double errorRate;
+        private int throttleLimit;
+        private long throttleWindowMillis;
+        private long seed = 42;
+        private final Map<Long, String> cities = new ConcurrentHashMap<>();
+
+        /**
+         * @param latency A distribuição do atraso de cada resposta.
+         * @return Este construtor.
+         */
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * @param errorRate A fração dos pedidos, entre 0 e 1, que recebe uma resposta 500.
+         * @return Este construtor.
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Recusa com 429 os pedidos acima de um limite por janela fixa de tempo.
+         *
+         * @param limit        O número de pedidos aceites em cada janela.
+         * @param windowMillis A duração da janela.
+         * @return Este construtor.
+         */
+        public Builder throttle(int limit, long windowMillis) {
+            this.throttleLimit = limit;
+            this.throttleWindowMillis = windowMillis;
+            return this;
+        }
+
+        /**
+         * @param seed A semente do gerador da latência e dos erros, para repetir uma execução.
+         * @return Este construtor.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Regista uma cidade conhecida, devolvida com este nome nos pedidos {@code /group}.
+         *
+         * @param id   O ID da cidade.
+         * @param name O nome da cidade.
+         * @return Este construtor.
+         */
+        public Builder city(long id, String name) {
+            cities.put(id, name);
+            return this;
+        }
+
+        /**
+         * @return O servidor, já a aceitar pedidos numa porta livre.
+         * @throws IOException Se não for possível abrir a porta.
+         */
+        public StandInWeatherServer start() throws IOException {
+            return new StandInWeatherServer(this);
+        }
+    }
+}
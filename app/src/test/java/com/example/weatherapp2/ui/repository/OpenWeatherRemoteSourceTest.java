@@ -0,0 +1,153 @@
+package com.example.weatherapp2.ui.repository;
+
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica, contra um servidor local, que a {@link OpenWeatherRemoteSource} reutiliza as ligações,
+ * pede respostas comprimidas e revalida as respostas guardadas com {@code ETag} e {@code Last-Modified}.
+ */
+public class OpenWeatherRemoteSourceTest {
+
+    @Rule
+    public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+    private MockWebServer server;
+    private OkHttpClient httpClient;
+    private OpenWeatherRemoteSource remoteSource;
+    private byte[] forecastJson;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        httpClient = RetrofitClient.createHttpClient(cacheDirectory.newFolder());
+        remoteSource = new OpenWeatherRemoteSource(server.url("/data/2.5/").toString(), httpClient);
+        forecastJson = readFixture("fixtures/forecast_lisbon.json");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void responsesAreRequestedGzippedAndDecodedTransparently() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(gzip(forecastJson)));
+
+        Forecast forecast = remoteSource.fetchForecast("Lisbon");
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+        assertEquals("/data/2.5/forecast?q=Lisbon&appid=6285a2ad6dbc06206791b13cdb864c27&units=metric",
+                request.getPath());
+        assertEquals("Lisbon", forecast.getCityName());
+        assertEquals(40, forecast.size());
+    }
+
+    @Test
+    public void sequentialRequestsReuseTheConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody(new Buffer().write(forecastJson)));
+        server.enqueue(new MockResponse().setBody(new Buffer().write(forecastJson)));
+
+        remoteSource.fetchForecast("Lisbon");
+        remoteSource.fetchForecast("Porto");
+
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        // Mesmo número de ligação, segundo pedido nela
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+        assertEquals(1, httpClient.connectionPool().connectionCount());
+    }
+
+    @Test
+    public void etagIsRevalidatedAndNotModifiedIsServedFromDisk() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Cache-Control", "no-cache")
+                .setBody(new Buffer().write(forecastJson)));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        Forecast first = remoteSource.fetchForecast("Lisbon");
+        Forecast second = remoteSource.fetchForecast("Lisbon");
+
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(first.size(), second.size());
+        assertEquals(first.getTempMax(39), second.getTempMax(39), 0);
+        assertEquals(2, httpClient.cache().networkCount());
+        assertEquals(1, httpClient.cache().hitCount());
+    }
+
+    @Test
+    public void lastModifiedIsRevalidated() throws Exception {
+        String lastModified = "Thu, 13 Jun 2024 15:00:00 GMT";
+        server.enqueue(new MockResponse()
+                .setHeader("Last-Modified", lastModified)
+                .setHeader("Cache-Control", "no-cache")
+                .setBody(new Buffer().write(forecastJson)));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        remoteSource.fetchForecast("Lisbon");
+        Forecast second = remoteSource.fetchForecast("Lisbon");
+
+        server.takeRequest();
+        assertEquals(lastModified, server.takeRequest().getHeader("If-Modified-Since"));
+        assertEquals("Lisbon", second.getCityName());
+    }
+
+    @Test
+    public void httpErrorsAreReportedAsIOException() {
+        server.enqueue(new MockResponse().setResponseCode(401).setBody("{\"cod\":401}"));
+
+        try {
+            remoteSource.fetchForecast("Lisbon");
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("HTTP 401"));
+        }
+    }
+
+    private static Buffer gzip(byte[] data) throws IOException {
+        Buffer buffer = new Buffer();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer.outputStream())) {
+            out.write(data);
+        }
+        return buffer;
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        InputStream in = OpenWeatherRemoteSourceTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            return Okio.buffer(Okio.source(in)).readByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
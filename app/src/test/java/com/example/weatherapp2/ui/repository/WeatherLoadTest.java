@@ -0,0 +1,262 @@
+package com.example.weatherapp2.ui.repository;
+
+import com.example.weatherapp2.ui.catalog.CatalogFiles;
+import com.example.weatherapp2.ui.catalog.CityCatalog;
+import com.example.weatherapp2.ui.network.BatchedWeatherLoader;
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.network.InMemoryCityIdStore;
+import com.example.weatherapp2.ui.network.LatencyHistogram;
+import com.example.weatherapp2.ui.network.NetworkMetrics;
+import com.example.weatherapp2.ui.network.ParallelFetchEngine;
+import com.example.weatherapp2.ui.network.RequestScheduler;
+import com.example.weatherapp2.ui.network.StandInWeatherServer;
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testes de carga dos caminhos de busca contra o {@link StandInWeatherServer}: a atualização
+ * completa das 51 cidades da lista, a fria e com os IDs já resolvidos, e uma tempestade de
+ * atualizações de widgets. São verificados os pedidos que chegam ao servidor, as latências medidas
+ * e os limites inferiores que o servidor e o escalonador impõem; os limites superiores dependem da
+ * máquina e não são verificados.
+ */
+public class WeatherLoadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<String> locations;
+
+    @Before
+    public void setUp() throws Exception {
+        locations = new ArrayList<>();
+        for (CityCatalog.City city : CityCatalog.open(CatalogFiles.bundledCatalog()).getDefaults()) {
+            locations.add(city.getLocation());
+        }
+        assertEquals(51, locations.size());
+    }
+
+    @Test
+    public void fullRefreshOf51CitiesColdAndWithResolvedIds() throws Exception {
+        NetworkMetrics metrics = new NetworkMetrics();
+        InMemoryCityIdStore cityIds = new InMemoryCityIdStore();
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.logNormal(40, 0.5, 400))
+                .start()) {
+            // Primeira abertura: nenhuma cidade tem ID, cada uma é resolvida por nome
+            RefreshResult cold = refresh(newRepository(server, RequestScheduler.unlimited(), metrics), cityIds);
+            assertEquals(51, cold.weathers.size());
+            assertTrue(cold.errors.isEmpty());
+            assertEquals(51, server.requestCount("weather"));
+            assertEquals(51, cityIds.size());
+            // Cada pedido foi medido e nenhum respondeu antes do atraso do servidor (mediana de 40 ms)
+            LatencyHistogram byName = metrics.get(NetworkMetrics.Endpoint.WEATHER).total;
+            assertEquals(51, byName.getCount());
+            assertTrue(byName.getPercentileMicros(50) >= 20_000);
+
+            // Aberturas seguintes: os IDs guardados agrupam as cidades em pedidos /group de 20
+            WeatherRepository repository = newRepository(server, RequestScheduler.unlimited(), metrics);
+            RefreshResult warm = refresh(repository, cityIds);
+            assertEquals(51, warm.weathers.size());
+            assertEquals(3, server.requestCount("group"));
+            assertEquals(3, metrics.get(NetworkMetrics.Endpoint.GROUP).total.getCount());
+            // Cada cidade volta com a localização da lista, e não com o nome devolvido pela API
+            Set<String> warmLocations = new HashSet<>();
+            for (Weather weather : warm.weathers) {
+                warmLocations.add(weather.getLocation());
+            }
+            assertEquals(new HashSet<>(locations), warmLocations);
+
+            // Com a cache válida, nenhum pedido chega ao servidor
+            int before = server.requestCount();
+            assertEquals(51, refresh(repository, cityIds).weathers.size());
+            assertEquals(before, server.requestCount());
+        }
+    }
+
+    @Test
+    public void schedulerKeepsAColdRefreshUnderTheServerRateLimit() throws Exception {
+        // O servidor aceita 25 pedidos por janela de 500 ms; o escalonador deixa passar no máximo
+        // 11 de uma vez e mais um a cada 50 ms, ou seja, 21 por janela
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.fixed(20))
+                .throttle(25, 500)
+                .start()) {
+            RefreshResult unlimited = refresh(newRepository(server, RequestScheduler.unlimited(), new NetworkMetrics()),
+                    new InMemoryCityIdStore());
+            int throttledWithoutScheduler = server.throttledCount();
+            assertTrue(throttledWithoutScheduler > 0);
+            assertEquals(throttledWithoutScheduler, unlimited.errors.size());
+            assertEquals(51, unlimited.weathers.size() + unlimited.errors.size());
+
+            // Espera pelo fim da janela atual do servidor
+            Thread.sleep(500);
+            NetworkMetrics metrics = new NetworkMetrics();
+            RequestScheduler scheduler = new RequestScheduler(11, 50, Clock.SYSTEM);
+            RefreshResult scheduled = refresh(newRepository(server, scheduler, metrics), new InMemoryCityIdStore());
+            assertEquals(throttledWithoutScheduler, server.throttledCount());
+            assertEquals(51, scheduled.weathers.size());
+            // Depois das 11 fichas iniciais, os outros 40 pedidos esperam cada um pela sua ficha; a
+            // primeira reposição pode chegar até um intervalo mais cedo
+            assertTrue(scheduled.elapsedMillis() + " ms", scheduled.elapsedMillis() >= (51 - 11 - 1) * 50);
+            assertEquals(0, metrics.get(NetworkMetrics.Endpoint.WEATHER).getStatusCount(4));
+        }
+    }
+
+    @Test
+    public void injectedErrorsOnlyFailTheirOwnCities() throws Exception {
+        NetworkMetrics metrics = new NetworkMetrics();
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.uniform(5, 30))
+                .errorRate(0.2)
+                .seed(7)
+                .start()) {
+            RefreshResult result = refresh(newRepository(server, RequestScheduler.unlimited(), metrics),
+                    new InMemoryCityIdStore());
+
+            assertTrue(server.injectedErrorCount() > 0);
+            assertEquals(server.injectedErrorCount(), result.errors.size());
+            assertEquals(51, result.weathers.size() + result.errors.size());
+            assertEquals(server.injectedErrorCount(), metrics.get(NetworkMetrics.Endpoint.WEATHER).getStatusCount(5));
+            assertEquals(51, metrics.get(NetworkMetrics.Endpoint.WEATHER).total.getCount());
+        }
+    }
+
+    @Test
+    public void widgetStormIsCoalescedIntoOneRequestPerLocation() throws Exception {
+        int distinctLocations = 12;
+        int widgetsPerLocation = 8;
+        NetworkMetrics metrics = new NetworkMetrics();
+        try (StandInWeatherServer server = new StandInWeatherServer.Builder()
+                .latency(StandInWeatherServer.uniform(20, 80))
+                .throttle(20, 1000)
+                .start()) {
+            RequestScheduler scheduler = new RequestScheduler(RequestScheduler.DEFAULT_CAPACITY,
+                    RequestScheduler.DEFAULT_REFILL_MILLIS, Clock.SYSTEM);
+            WeatherRepository repository = newRepository(server, scheduler, metrics);
+            List<String> widgets = new ArrayList<>();
+            for (int i = 0; i < distinctLocations * widgetsPerLocation; i++) {
+                widgets.add(locations.get(i % distinctLocations));
+            }
+
+            LatencyHistogram cold = widgetStorm(repository, widgets);
+            assertEquals(widgets.size(), cold.getCount());
+            // Os widgets esperaram pelos pedidos, que o servidor atrasa pelo menos 20 ms
+            assertTrue(cold.getPercentileMicros(50) >= 20_000);
+            assertEquals(distinctLocations, server.requestCount("forecast"));
+            assertEquals(0, server.throttledCount());
+
+            // A segunda vaga é servida da cache
+            LatencyHistogram cached = widgetStorm(repository, widgets);
+            assertEquals(widgets.size(), cached.getCount());
+            assertEquals(distinctLocations, server.requestCount("forecast"));
+        }
+    }
+
+    private WeatherRepository newRepository(StandInWeatherServer server, RequestScheduler scheduler,
+                                            NetworkMetrics metrics) throws IOException {
+        OkHttpClient client = RetrofitClient.createHttpClient(folder.newFolder(), metrics);
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        return new WeatherRepository(new OpenWeatherRemoteSource(server.baseUrl(), client), cache,
+                Runnable::run, scheduler);
+    }
+
+    /**
+     * Atualiza as 51 cidades como a lista: o {@link BatchedWeatherLoader} agrupa as cidades com ID
+     * em pedidos {@code /group} e resolve as restantes por nome, e as tarefas correm no
+     * {@link ParallelFetchEngine} com a concorrência da aplicação.
+     */
+    private RefreshResult refresh(WeatherRepository repository, InMemoryCityIdStore cityIds) throws Exception {
+        List<Callable<List<Weather>>> tasks = new BatchedWeatherLoader(repository, cityIds).createTasks(locations);
+
+        RefreshResult result = new RefreshResult();
+        CountDownLatch done = new CountDownLatch(1);
+        ParallelFetchEngine engine = new ParallelFetchEngine(ParallelFetchEngine.DEFAULT_MAX_CONCURRENCY, Runnable::run);
+        long start = System.nanoTime();
+        engine.execute(tasks, new ParallelFetchEngine.Listener<List<Weather>>() {
+            @Override
+            public void onResult(List<Weather> weathers) {
+                result.weathers.addAll(weathers);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                result.errors.add(error);
+            }
+
+            @Override
+            public void onComplete() {
+                result.elapsedNanos = System.nanoTime() - start;
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        engine.shutdown();
+        return result;
+    }
+
+    /**
+     * Atualiza todos os widgets ao mesmo tempo, cada um na sua thread, com a prioridade dos widgets.
+     *
+     * @return A latência de cada atualização, vista pelo widget.
+     */
+    private static LatencyHistogram widgetStorm(WeatherRepository repository, List<String> widgets) throws Exception {
+        LatencyHistogram latencies = new LatencyHistogram();
+        ExecutorService threads = Executors.newFixedThreadPool(widgets.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Forecast>> futures = new ArrayList<>();
+        for (String location : widgets) {
+            futures.add(threads.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                Forecast forecast = RequestScheduler.withPriority(RequestScheduler.Priority.WIDGET,
+                        () -> repository.getForecast(location));
+                latencies.recordNanos(System.nanoTime() - begin);
+                return forecast;
+            }));
+        }
+        start.countDown();
+        for (Future<Forecast> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+        return latencies;
+    }
+
+    private static class RefreshResult {
+        final List<Weather> weathers = Collections.synchronizedList(new ArrayList<>());
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+        volatile long elapsedNanos;
+
+        long elapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+    }
+}
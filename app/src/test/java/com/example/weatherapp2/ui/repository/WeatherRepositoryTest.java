@@ -0,0 +1,284 @@
+package com.example.weatherapp2.ui.repository;
+
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.network.FakeClock;
+import com.example.weatherapp2.ui.network.RequestScheduler;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica que chamadas simultâneas ao {@link WeatherRepository} para a mesma localização
+ * geram exatamente um pedido à fonte remota, e que a cache serve entradas desatualizadas
+ * enquanto as revalida.
+ */
+public class WeatherRepositoryTest {
+
+    private static final int CALLERS = 16;
+
+    @Test
+    public void simultaneousCallersShareOneUpstreamRequest() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        WeatherRepository repository = newRepository(remote, Clock.SYSTEM, Runnable::run);
+        // A resposta só é liberada quando todas as outras chamadas já estão à espera dela
+        remote.release = () -> repository.getCoalescedRequestCount() == CALLERS - 1;
+
+        List<Forecast> results = callConcurrently(repository, "Lisbon");
+
+        assertEquals(1, remote.forecastHits.get());
+        assertEquals(1, repository.getIssuedRequestCount());
+        assertEquals(CALLERS - 1, repository.getCoalescedRequestCount());
+        for (Forecast forecast : results) {
+            assertSame(results.get(0), forecast);
+        }
+    }
+
+    @Test
+    public void coalescedCallersSpendOneSchedulerToken() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        RequestScheduler scheduler = new RequestScheduler(RequestScheduler.DEFAULT_CAPACITY,
+                RequestScheduler.DEFAULT_REFILL_MILLIS, new FakeClock(0));
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        WeatherRepository repository = new WeatherRepository(remote, cache, Runnable::run, scheduler);
+        remote.release = () -> repository.getCoalescedRequestCount() == CALLERS - 1;
+
+        callConcurrently(repository, "Lisbon");
+
+        RequestScheduler.Stats stats = repository.getSchedulerStats();
+        assertEquals(1, stats.grantedCount);
+        assertEquals(RequestScheduler.DEFAULT_CAPACITY - 1, stats.availableTokens);
+    }
+
+    @Test
+    public void foregroundCallerRaisesTheQueuedPrefetchItJoins() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        RequestScheduler scheduler = new RequestScheduler(RequestScheduler.DEFAULT_CAPACITY,
+                RequestScheduler.DEFAULT_REFILL_MILLIS, new FakeClock(0));
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        WeatherRepository repository = new WeatherRepository(remote, cache, Runnable::run, scheduler);
+        // Sobram fichas para o ecrã visível, mas não a reserva de uma antecipação; o relógio não avança
+        for (int i = 0; i < RequestScheduler.DEFAULT_CAPACITY - RequestScheduler.Priority.PREFETCH.reserve; i++) {
+            scheduler.enqueue(RequestScheduler.Priority.FOREGROUND);
+        }
+        scheduler.dispatch();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Forecast> prefetch = pool.submit(() -> RequestScheduler.withPriority(
+                    RequestScheduler.Priority.PREFETCH, () -> repository.getForecast("Lisbon")));
+            waitUntil(() -> repository.getSchedulerStats().prefetchQueued == 1);
+            Future<Forecast> visible = pool.submit(() -> repository.getForecast("Lisbon"));
+
+            assertSame(prefetch.get(5, TimeUnit.SECONDS), visible.get(5, TimeUnit.SECONDS));
+            assertEquals(1, remote.forecastHits.get());
+            assertEquals(1, repository.getCoalescedRequestCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void differentLocationsAreNotCoalesced() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        WeatherRepository repository = newRepository(remote, Clock.SYSTEM, Runnable::run);
+
+        repository.getForecast("Lisbon");
+        repository.getForecast("Porto");
+
+        assertEquals(2, remote.forecastHits.get());
+        assertEquals(0, repository.getCoalescedRequestCount());
+    }
+
+    @Test
+    public void sequentialCallsAreServedFromCache() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        WeatherRepository repository = newRepository(remote, Clock.SYSTEM, Runnable::run);
+
+        repository.getForecast("Lisbon");
+        repository.getForecast("Lisbon");
+
+        assertEquals(1, remote.forecastHits.get());
+        assertEquals(1, repository.getCacheStats().memoryHits);
+    }
+
+    @Test
+    public void staleForecastIsServedWhileRevalidating() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        FakeClock clock = new FakeClock(CountingRemoteSource.FIRST_SLOT_SECONDS * 1000L - 60 * 60 * 1000L);
+        Queue<Runnable> background = new ArrayDeque<>();
+        WeatherRepository repository = newRepository(remote, clock, background::add);
+
+        Forecast first = repository.getForecast("Lisbon");
+        clock.advance(2 * 60 * 60 * 1000L);
+
+        // A entrada expirada é devolvida de imediato e a revalidação fica agendada
+        assertSame(first, repository.getForecast("Lisbon"));
+        assertEquals(1, remote.forecastHits.get());
+        assertEquals(1, background.size());
+
+        background.poll().run();
+        assertEquals(2, remote.forecastHits.get());
+
+        Forecast revalidated = repository.getForecast("Lisbon");
+        assertFalse(first == revalidated);
+        assertEquals(2, remote.forecastHits.get());
+    }
+
+    @Test
+    public void groupEntriesWithoutConditionsAreLeftOut() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        WeatherResponse lisbon = new WeatherResponse();
+        lisbon.id = 2267057;
+        lisbon.name = "Lisbon";
+        lisbon.main = new WeatherResponse.Main();
+        lisbon.main.tempMax = 22.4;
+        WeatherResponse broken = new WeatherResponse();
+        broken.id = 2735943;
+        broken.name = "Porto";
+        remote.group = Arrays.asList(lisbon, broken);
+        WeatherRepository repository = newRepository(remote, Clock.SYSTEM, Runnable::run);
+
+        Map<Long, Weather> result = repository.getCurrentByIds(Arrays.asList(2267057L, 2735943L));
+
+        assertEquals(Collections.singleton(2267057L), result.keySet());
+        assertEquals(22.4, result.get(2267057L).getTempMax(), 0);
+    }
+
+    @Test
+    public void failureIsDeliveredToEveryWaiter() throws Exception {
+        CountingRemoteSource remote = new CountingRemoteSource();
+        remote.failure = new IOException("HTTP 500");
+        WeatherRepository repository = newRepository(remote, Clock.SYSTEM, Runnable::run);
+        remote.release = () -> repository.getCoalescedRequestCount() == CALLERS - 1;
+
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        List<Future<Forecast>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(pool.submit(() -> repository.getForecast("Lisbon")));
+        }
+        for (Future<Forecast> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertSame(remote.failure, e.getCause());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(1, remote.forecastHits.get());
+    }
+
+    private static WeatherRepository newRepository(WeatherRemoteSource remote, Clock clock,
+                                                   Executor background) {
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        return new WeatherRepository(remote, cache, background);
+    }
+
+    private static List<Forecast> callConcurrently(WeatherRepository repository, String location) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Forecast>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return repository.getForecast(location);
+            }));
+        }
+        start.countDown();
+
+        List<Forecast> results = new ArrayList<>();
+        for (Future<Forecast> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        return results;
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.isMet()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Fonte remota falsa que conta os pedidos e só responde quando a condição de liberação é satisfeita.
+     */
+    private static class CountingRemoteSource implements WeatherRemoteSource {
+        static final long FIRST_SLOT_SECONDS = 1718301600L;
+
+        final AtomicInteger forecastHits = new AtomicInteger();
+        volatile Condition release = () -> true;
+        volatile IOException failure;
+        volatile List<WeatherResponse> group;
+
+        @Override
+        public Forecast fetchForecast(String location) throws IOException {
+            forecastHits.incrementAndGet();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!release.isMet() && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return new Forecast(location, new long[]{FIRST_SLOT_SECONDS, FIRST_SLOT_SECONDS + 3 * 60 * 60},
+                    new double[]{19.8, 18.1}, new double[]{22.4, 20.3});
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByName(String location) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<WeatherResponse> fetchCurrentByIds(String cityIds) {
+            if (group == null) {
+                throw new UnsupportedOperationException();
+            }
+            return group;
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.weatherapp2.ui.retrofit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Verifica que o {@link RetrofitClient} respeita a URL base de cada chamada e que todas as
+ * instâncias partilham o mesmo cliente HTTP.
+ */
+public class RetrofitClientTest {
+
+    @Rule
+    public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+    @Test
+    public void eachBaseUrlGetsItsOwnRetrofit() throws Exception {
+        OkHttpClient httpClient = RetrofitClient.createHttpClient(cacheDirectory.newFolder());
+
+        Retrofit first = RetrofitClient.getClient("http://first.example/api/", httpClient);
+        Retrofit second = RetrofitClient.getClient("http://second.example/api/", httpClient);
+
+        assertEquals("http://first.example/api/", first.baseUrl().toString());
+        assertEquals("http://second.example/api/", second.baseUrl().toString());
+        assertSame(first, RetrofitClient.getClient("http://first.example/api/", httpClient));
+        assertSame(httpClient, first.callFactory());
+        assertSame(httpClient, second.callFactory());
+    }
+
+    @Test
+    public void httpClientHasCacheAndTimeouts() throws Exception {
+        OkHttpClient httpClient = RetrofitClient.createHttpClient(cacheDirectory.newFolder());
+
+        assertNotNull(httpClient.cache());
+        assertEquals(RetrofitClient.CACHE_SIZE_BYTES, httpClient.cache().maxSize());
+        assertEquals(10_000, httpClient.connectTimeoutMillis());
+        assertEquals(20_000, httpClient.readTimeoutMillis());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compara o {@link ForecastParser} com a leitura anterior via org.json sobre respostas gravadas
+ * do endpoint {@code /forecast}: os resultados têm de ser iguais. A memória e o tempo de cada
+ * leitura medem-se no {@code ParsingBenchmark} do módulo :benchmark.
+ */
+public class ForecastParserTest {
+
+    private static final String[] FIXTURES = {
+            "fixtures/forecast_lisbon.json",
+            "fixtures/forecast_london.json",
+            "fixtures/forecast_doha.json"
+    };
+
+    @Test
+    public void streamingParserMatchesTreeParser() throws Exception {
+        for (String fixture : FIXTURES) {
+            byte[] payload = readFixture(fixture);
+            Forecast streamed = ForecastParser.parse(reader(payload));
+            Forecast tree = parseWithJsonObject(reader(payload));
+
+            assertEquals(40, streamed.size());
+            assertEquals(tree.getCityName(), streamed.getCityName());
+            for (int i = 0; i < tree.size(); i++) {
+                assertEquals(tree.getTimestamp(i), streamed.getTimestamp(i));
+                assertEquals(tree.getTempMin(i), streamed.getTempMin(i), 0);
+                assertEquals(tree.getTempMax(i), streamed.getTempMax(i), 0);
+            }
+            assertArrayEquals(tree.toDailySummaries().toArray(), streamed.toDailySummaries().toArray());
+        }
+    }
+
+    @Test
+    public void unknownFieldsAndMissingCityAreTolerated() throws Exception {
+        String json = "{\"cod\":\"200\",\"extra\":{\"a\":[1,2,{\"b\":null}]},"
+                + "\"list\":[{\"dt\":1718301600,\"main\":{\"temp\":20.1,\"temp_min\":19.5,\"temp_max\":21.25},"
+                + "\"weather\":[{\"id\":800}]}]}";
+
+        Forecast forecast = ForecastParser.parse(new StringReader(json));
+
+        assertEquals("", forecast.getCityName());
+        assertEquals(1, forecast.size());
+        assertEquals(1718301600L, forecast.getTimestamp(0));
+        assertEquals(19.5, forecast.getTempMin(0), 0);
+        assertEquals(21.25, forecast.getTempMax(0), 0);
+    }
+
+    @Test
+    public void responseWithoutListIsRejected() {
+        try {
+            ForecastParser.parse(new StringReader("{\"cod\":\"404\",\"message\":\"city not found\"}"));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // esperado
+        }
+    }
+
+    /**
+     * A leitura anterior do {@code OpenWeatherRemoteSource}: o corpo inteiro numa String e depois
+     * uma árvore de {@link JSONObject}.
+     */
+    private static Forecast parseWithJsonObject(Reader in) throws Exception {
+        BufferedReader reader = new BufferedReader(in);
+        StringBuilder json = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            json.append(line);
+        }
+        reader.close();
+
+        JSONObject jsonObject = new JSONObject(json.toString());
+        JSONArray list = jsonObject.getJSONArray("list");
+        long[] timestamps = new long[list.length()];
+        double[] tempMin = new double[list.length()];
+        double[] tempMax = new double[list.length()];
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject entry = list.getJSONObject(i);
+            JSONObject main = entry.getJSONObject("main");
+            timestamps[i] = entry.getLong("dt");
+            tempMin[i] = main.getDouble("temp_min");
+            tempMax[i] = main.getDouble("temp_max");
+        }
+        String cityName = jsonObject.getJSONObject("city").getString("name");
+        return new Forecast(cityName, timestamps, tempMin, tempMax);
+    }
+
+    private static Reader reader(byte[] payload) {
+        return new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        InputStream in = ForecastParserTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import com.example.weatherapp2.ui.retrofit.RetrofitClient;
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compara o {@link WeatherResponseAdapter} e o {@link GroupWeatherResponseAdapter} com a leitura
+ * reflexiva do Gson sobre respostas gravadas dos endpoints {@code /weather} e {@code /group}.
+ */
+public class WeatherResponseAdapterTest {
+
+    private final Gson adapters = RetrofitClient.createGson();
+    private final Gson reflective = new Gson();
+
+    @Test
+    public void retrofitGsonUsesTheHandWrittenAdapters() {
+        assertTrue(adapters.getAdapter(WeatherResponse.class) instanceof WeatherResponseAdapter);
+        assertTrue(adapters.getAdapter(GroupWeatherResponse.class) instanceof GroupWeatherResponseAdapter);
+    }
+
+    @Test
+    public void currentWeatherMatchesReflectiveDecode() throws Exception {
+        String json = readFixture("fixtures/weather_lisbon.json");
+
+        WeatherResponse decoded = adapters.fromJson(json, WeatherResponse.class);
+
+        assertSameResponse(reflective.fromJson(json, WeatherResponse.class), decoded);
+        assertEquals(2267057, decoded.id);
+        assertEquals("Lisbon", decoded.name);
+        assertEquals(1718301600L, decoded.dt);
+        assertEquals(21.43, decoded.main.temp, 0);
+        assertEquals(60, decoded.main.humidity);
+        assertEquals(5.14, decoded.wind.speed, 0);
+        assertEquals(330, decoded.wind.deg);
+        assertEquals(20, decoded.clouds.all);
+        assertEquals(38.7167, decoded.coord.lat, 0);
+    }
+
+    @Test
+    public void groupMatchesReflectiveDecode() throws Exception {
+        String json = readFixture("fixtures/group_portugal.json");
+
+        GroupWeatherResponse decoded = adapters.fromJson(json, GroupWeatherResponse.class);
+        GroupWeatherResponse expected = reflective.fromJson(json, GroupWeatherResponse.class);
+
+        assertEquals(5, decoded.cnt);
+        assertEquals(expected.list.size(), decoded.list.size());
+        for (int i = 0; i < expected.list.size(); i++) {
+            assertSameResponse(expected.list.get(i), decoded.list.get(i));
+        }
+    }
+
+    @Test
+    public void nullsAndUnknownFieldsAreTolerated() {
+        String json = "{\"id\":1,\"name\":null,\"extra\":{\"a\":[1,{\"b\":null}]},"
+                + "\"main\":{\"temp\":12.5,\"temp_min\":null,\"grnd_level\":1009},\"wind\":null,\"clouds\":{\"all\":null}}";
+
+        WeatherResponse decoded = adapters.fromJson(json, WeatherResponse.class);
+
+        assertSameResponse(reflective.fromJson(json, WeatherResponse.class), decoded);
+        assertNull(decoded.name);
+        assertNull(decoded.wind);
+        assertNull(decoded.coord);
+        assertEquals(12.5, decoded.main.temp, 0);
+        assertEquals(0, decoded.clouds.all);
+    }
+
+    @Test
+    public void responseWithoutMainIsRejectedWithAClearError() {
+        WeatherResponse decoded = adapters.fromJson("{\"id\":7,\"name\":\"Nowhere\",\"dt\":1}", WeatherResponse.class);
+
+        assertFalse(decoded.hasConditions());
+        try {
+            decoded.toWeather();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Nowhere"));
+        }
+    }
+
+    @Test
+    public void writtenJsonReadsBackTheSameResponse() throws Exception {
+        WeatherResponse original = adapters.fromJson(readFixture("fixtures/weather_lisbon.json"), WeatherResponse.class);
+
+        String written = adapters.toJson(original);
+
+        assertSameResponse(original, adapters.fromJson(written, WeatherResponse.class));
+        assertSameResponse(original, reflective.fromJson(written, WeatherResponse.class));
+    }
+
+    private static void assertSameResponse(WeatherResponse expected, WeatherResponse actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.dt, actual.dt);
+        assertEquals(expected.main == null, actual.main == null);
+        if (expected.main != null) {
+            assertEquals(expected.main.temp, actual.main.temp, 0);
+            assertEquals(expected.main.feelsLike, actual.main.feelsLike, 0);
+            assertEquals(expected.main.tempMin, actual.main.tempMin, 0);
+            assertEquals(expected.main.tempMax, actual.main.tempMax, 0);
+            assertEquals(expected.main.pressure, actual.main.pressure);
+            assertEquals(expected.main.humidity, actual.main.humidity);
+        }
+        assertEquals(expected.wind == null, actual.wind == null);
+        if (expected.wind != null) {
+            assertEquals(expected.wind.speed, actual.wind.speed, 0);
+            assertEquals(expected.wind.deg, actual.wind.deg);
+            assertEquals(expected.wind.gust, actual.wind.gust, 0);
+        }
+        assertEquals(expected.clouds == null, actual.clouds == null);
+        if (expected.clouds != null) {
+            assertEquals(expected.clouds.all, actual.clouds.all);
+        }
+        assertEquals(expected.coord == null, actual.coord == null);
+        if (expected.coord != null) {
+            assertEquals(expected.coord.lat, actual.coord.lat, 0);
+            assertEquals(expected.coord.lon, actual.coord.lon, 0);
+        }
+    }
+
+    static String readFixture(String name) throws IOException {
+        InputStream in = WeatherResponseAdapterTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.weatherapp2.ui.room;
+
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifica o formato do {@link ConditionsSnapshot}, a rejeição de ficheiros inválidos, e que o
+ * {@link LastConditionsStore} só lê o Room quando o snapshot não pode ser usado.
+ */
+public class ConditionsSnapshotTest {
+
+    private static final long NOW = 1718290800000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), LastConditionsStore.SNAPSHOT_FILE_NAME);
+    }
+
+    @Test
+    public void writtenConditionsAreReadBack() throws Exception {
+        ConditionsSnapshot.write(file, Arrays.asList(
+                new Weather("Lisbon", 15.2, 22.8, NOW),
+                new Weather("Setúbal", 14.0, 23.5, NOW - 1000)));
+
+        ConditionsSnapshot snapshot = ConditionsSnapshot.open(file);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.size());
+        assertEquals(1, snapshot.indexOf("Setúbal"));
+        assertEquals(-1, snapshot.indexOf("Porto"));
+        assertEquals("Setúbal", snapshot.getLocation(1));
+        assertEquals(22.8, snapshot.getTempMax(0), 1e-9);
+        assertEquals(14.0, snapshot.getTempMin(1), 1e-9);
+        assertEquals(NOW - 1000, snapshot.getUpdatedAt(1));
+        assertEquals(ConditionsSnapshot.HEADER_SIZE + 2 * ConditionsSnapshot.RECORD_SIZE, file.length());
+        assertEquals(Collections.singletonList(file), Arrays.asList(folder.getRoot().listFiles()));
+    }
+
+    @Test
+    public void positionIsKeptAndMissingPositionStaysUnknown() throws Exception {
+        ConditionsSnapshot.write(file, Arrays.asList(
+                new Weather("Lisbon", 15.2, 22.8, NOW, 38.7167, -9.1333),
+                new Weather("Porto", 13.1, 19.4, NOW)));
+
+        ConditionsSnapshot snapshot = ConditionsSnapshot.open(file);
+        Weather lisbon = snapshot.get("Lisbon");
+        assertTrue(lisbon.hasCoordinates());
+        assertEquals(38.7167, lisbon.getLatitude(), 1e-9);
+        assertEquals(-9.1333, lisbon.getLongitude(), 1e-9);
+        assertFalse(snapshot.get("Porto").hasCoordinates());
+    }
+
+    @Test
+    public void rewriteReplacesThePreviousFile() throws Exception {
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Porto", 13.1, 19.4, NOW)));
+
+        ConditionsSnapshot snapshot = ConditionsSnapshot.open(file);
+        assertEquals(1, snapshot.size());
+        assertEquals("Porto", snapshot.getLocation(0));
+    }
+
+    @Test
+    public void tempFileLeftByAnInterruptedWriteIsReplacedByTheNextWrite() throws Exception {
+        File temp = new File(folder.getRoot(), file.getName() + ".tmp");
+        try (RandomAccessFile partial = new RandomAccessFile(temp, "rw")) {
+            partial.write(new byte[]{1, 2, 3});
+        }
+
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Faro", 17.0, 25.1, NOW)));
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Faro", 18.0, 26.0, NOW)));
+
+        assertEquals(26.0, ConditionsSnapshot.open(file).getTempMax(0), 1e-9);
+        assertEquals(Collections.singletonList(file), Arrays.asList(folder.getRoot().listFiles()));
+    }
+
+    @Test
+    public void locationTooLongForARecordKeepsThePreviousFile() throws Exception {
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Faro", 17.0, 25.1, NOW)));
+        try {
+            ConditionsSnapshot.write(file, Arrays.asList(
+                    new Weather(tooLongLocation(), 1, 2, NOW),
+                    new Weather("Faro", 18.0, 26.0, NOW)));
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+
+        ConditionsSnapshot snapshot = ConditionsSnapshot.open(file);
+        assertEquals(1, snapshot.size());
+        assertEquals(25.1, snapshot.getTempMax(0), 1e-9);
+    }
+
+    @Test
+    public void storeDropsTheSnapshotWhenALocationDoesNotFitAndReadsRoomNextTime() throws Exception {
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Faro", 17.0, 25.1, NOW)));
+        InMemoryWeatherDao dao = new InMemoryWeatherDao();
+        LastConditionsStore store = new LastConditionsStore(() -> dao, file, Runnable::run);
+        dao.upsertAll(Collections.singletonList(new WeatherEntity("Faro", 17.0, 25.1, NOW)));
+
+        store.putAll(Collections.singletonList(new Weather(tooLongLocation(), 1, 2, NOW)));
+
+        assertFalse(file.exists());
+        LastConditionsStore restarted = new LastConditionsStore(() -> dao, file, Runnable::run);
+        assertEquals(2, restarted.getAll().size());
+        assertNotNull(restarted.peek(tooLongLocation()));
+    }
+
+    @Test
+    public void concurrentWritesLeaveRoomMemoryAndTheSnapshotWithTheSameConditions() throws Exception {
+        // A transação termina antes de a memória ser atualizada; a pausa alarga essa janela
+        InMemoryWeatherDao dao = new InMemoryWeatherDao() {
+            @Override
+            public void upsertAll(List<WeatherEntity> weatherEntities) {
+                super.upsertAll(weatherEntities);
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        LastConditionsStore store = new LastConditionsStore(() -> dao, file, Runnable::run);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double tempMax = i;
+            String location = "City" + (i % 8);
+            writes.add(pool.submit(() -> store.putAll(Collections.singletonList(
+                    new Weather(location, 0, tempMax, NOW)))));
+        }
+        for (Future<?> write : writes) {
+            write.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        ConditionsSnapshot snapshot = ConditionsSnapshot.open(file);
+        List<Weather> expected = store.getAll();
+        List<WeatherEntity> rows = dao.getAll();
+        assertEquals(expected.size(), snapshot.size());
+        assertEquals(expected.size(), rows.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLocation(), snapshot.getLocation(i));
+            assertEquals(expected.get(i).getTempMax(), snapshot.getTempMax(i), 0);
+            assertEquals(expected.get(i).getLocation(), rows.get(i).getLocation());
+            assertEquals(expected.get(i).getTempMax(), rows.get(i).getTempMax(), 0);
+        }
+        assertEquals(Collections.singletonList(file), Arrays.asList(folder.getRoot().listFiles()));
+    }
+
+    @Test
+    public void corruptFilesAreRejected() throws Exception {
+        assertNull(ConditionsSnapshot.open(file));
+
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        // Um byte alterado num registo falha o CRC
+        corrupt(ConditionsSnapshot.HEADER_SIZE + 20);
+        assertNull(ConditionsSnapshot.open(file));
+
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        // Uma versão desconhecida
+        corrupt(5);
+        assertNull(ConditionsSnapshot.open(file));
+
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        assertNull(ConditionsSnapshot.open(file));
+    }
+
+    @Test
+    public void storeServesTheSnapshotWithoutTouchingRoom() throws Exception {
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        int[] daoRequests = new int[1];
+        InMemoryWeatherDao dao = new InMemoryWeatherDao();
+        LastConditionsStore store = new LastConditionsStore(() -> {
+            daoRequests[0]++;
+            return dao;
+        }, file, Runnable::run);
+
+        List<Weather> all = store.getAll();
+
+        assertEquals(1, all.size());
+        assertEquals(22.8, store.peek("Lisbon").getTempMax(), 1e-9);
+        assertEquals(0, daoRequests[0]);
+    }
+
+    @Test
+    public void storeFallsBackToRoomAndRebuildsACorruptSnapshot() throws Exception {
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        corrupt(0);
+        InMemoryWeatherDao dao = new InMemoryWeatherDao();
+        dao.upsertAll(Collections.singletonList(new WeatherEntity("Porto", 13.1, 19.4, NOW)));
+
+        LastConditionsStore store = new LastConditionsStore(() -> dao, file, Runnable::run);
+
+        assertEquals("Porto", store.getAll().get(0).getLocation());
+        assertEquals(1, dao.reads);
+        ConditionsSnapshot rebuilt = ConditionsSnapshot.open(file);
+        assertNotNull(rebuilt);
+        assertEquals("Porto", rebuilt.getLocation(0));
+    }
+
+    @Test
+    public void writesReachRoomAndTheSnapshot() throws Exception {
+        ConditionsSnapshot.write(file, Collections.singletonList(new Weather("Lisbon", 15.2, 22.8, NOW)));
+        InMemoryWeatherDao dao = new InMemoryWeatherDao();
+        LastConditionsStore store = new LastConditionsStore(() -> dao, file, Runnable::run);
+
+        store.putAll(Collections.singletonList(new Weather("Faro", 17.0, 25.1, 0)));
+
+        assertEquals(1, dao.writes);
+        assertTrue(dao.getWeatherByLocation("Faro").getUpdatedAt() > 0);
+        ConditionsSnapshot snapshot = ConditionsSnapshot.open(file);
+        assertEquals(2, snapshot.size());
+        assertEquals(0, snapshot.indexOf("Lisbon"));
+        assertEquals(1, snapshot.indexOf("Faro"));
+        assertEquals(25.1, store.peek("Faro").getTempMax(), 1e-9);
+    }
+
+    private static String tooLongLocation() {
+        char[] name = new char[ConditionsSnapshot.MAX_LOCATION_BYTES + 1];
+        Arrays.fill(name, 'x');
+        return new String(name);
+    }
+
+    private void corrupt(long position) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.weatherapp2.ui.room;
+
+import com.example.weatherapp2.ui.network.FakeClock;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica a validade baseada no {@code dt}, a LRU limitada por orçamento e a promoção
+ * do nível persistente da {@link ForecastCache}.
+ */
+public class ForecastCacheTest {
+
+    private static final long NOW = 1718290800000L; // 2024-06-13 15:00 UTC
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private FakeClock clock;
+    private InMemoryCachedForecastDao dao;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock(NOW);
+        dao = new InMemoryCachedForecastDao();
+    }
+
+    @Test
+    public void forecastIsFreshUntilItsNextSlotStarts() {
+        ForecastCache cache = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        cache.put("forecast:Lisbon", forecast("Lisbon", NOW + HOUR, 40));
+
+        clock.advance(HOUR - 1);
+        assertTrue(cache.get("forecast:Lisbon").isFresh());
+
+        clock.advance(1);
+        ForecastCache.Hit stale = cache.get("forecast:Lisbon");
+        assertNotNull(stale);
+        assertFalse(stale.isFresh());
+        assertEquals(1, cache.getStats().staleHits);
+    }
+
+    @Test
+    public void entriesPastTheStaleWindowAreMisses() {
+        ForecastCache cache = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        cache.put("forecast:Lisbon", forecast("Lisbon", NOW + HOUR, 40));
+
+        clock.advance(HOUR + ForecastCache.MAX_STALE_MILLIS);
+
+        assertNull(cache.get("forecast:Lisbon"));
+        assertEquals(1, cache.getStats().misses);
+    }
+
+    @Test
+    public void currentConditionsExpireTenMinutesAfterObservation() {
+        ForecastCache cache = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        cache.put("current:2267057", forecast("Lisbon", NOW - 2 * 60 * 1000L, 1));
+
+        clock.advance(7 * 60 * 1000L);
+        assertTrue(cache.get("current:2267057").isFresh());
+
+        clock.advance(60 * 1000L);
+        assertFalse(cache.get("current:2267057").isFresh());
+    }
+
+    @Test
+    public void peekOnlyLooksInMemory() {
+        new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock)
+                .put("forecast:Lisbon", forecast("Lisbon", NOW + HOUR, 40));
+        ForecastCache cache = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+
+        // A previsão só está no nível persistente até ser lida com get
+        assertNull(cache.peek("forecast:Lisbon"));
+        assertNotNull(cache.get("forecast:Lisbon"));
+        assertTrue(cache.peek("forecast:Lisbon").isFresh());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedWhenOverBudget() {
+        int entrySize = forecast("City0", NOW + HOUR, 40).getEstimatedSizeBytes();
+        ForecastCache cache = new ForecastCache(dao, entrySize * 3, clock);
+        cache.put("forecast:City0", forecast("City0", NOW + HOUR, 40));
+        cache.put("forecast:City1", forecast("City1", NOW + HOUR, 40));
+        cache.put("forecast:City2", forecast("City2", NOW + HOUR, 40));
+
+        // City0 passa a ser a mais recente, por isso City1 é a removida
+        cache.get("forecast:City0");
+        cache.put("forecast:City3", forecast("City3", NOW + HOUR, 40));
+
+        ForecastCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.evictions);
+        assertEquals(3, stats.memoryEntries);
+        assertTrue(stats.memoryBytes <= stats.memoryBudgetBytes);
+
+        int readsBefore = dao.reads;
+        cache.get("forecast:City0");
+        assertEquals(readsBefore, dao.reads);
+
+        // A entrada removida da memória continua disponível no nível persistente
+        assertNotNull(cache.get("forecast:City1"));
+        assertEquals(readsBefore + 1, dao.reads);
+        assertEquals(1, cache.getStats().persistentHits);
+    }
+
+    @Test
+    public void persistentTierSurvivesANewProcess() {
+        ForecastCache first = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        first.put("forecast:Porto", forecast("Porto", NOW + HOUR, 40));
+
+        ForecastCache second = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        ForecastCache.Hit hit = second.get("forecast:Porto");
+        assertNotNull(hit);
+        assertEquals("Porto", hit.getForecast().getCityName());
+        assertEquals(40, hit.getForecast().size());
+        assertEquals(22.5, hit.getForecast().getTempMax(39), 1e-9);
+
+        // Depois da promoção, a leitura seguinte é servida pela memória
+        second.get("forecast:Porto");
+        ForecastCache.Stats stats = second.getStats();
+        assertEquals(1, stats.persistentHits);
+        assertEquals(1, stats.memoryHits);
+    }
+
+    @Test
+    public void shrinkingTheBudgetEvictsEntries() {
+        ForecastCache cache = new ForecastCache(dao, ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, clock);
+        for (int i = 0; i < 10; i++) {
+            cache.put("forecast:City" + i, forecast("City" + i, NOW + HOUR, 40));
+        }
+
+        cache.setMemoryBudgetBytes(0);
+
+        assertEquals(0, cache.getStats().memoryEntries);
+        assertEquals(10, cache.getStats().evictions);
+    }
+
+    @Test
+    public void pinnedEntriesAreKeptWhileTheyFitTheirReserve() {
+        int entrySize = forecast("City0", NOW + HOUR, 40).getEstimatedSizeBytes();
+        ForecastCache cache = new ForecastCache(dao, entrySize * 4, clock);
+        cache.pin(Arrays.asList("forecast:City0", "forecast:City1"), entrySize * 2);
+        cache.put("forecast:City0", forecast("City0", NOW + HOUR, 40));
+        cache.put("forecast:City1", forecast("City1", NOW + HOUR, 40));
+
+        // As outras entradas só podem usar a parte do orçamento que não está reservada
+        for (int i = 2; i < 10; i++) {
+            cache.put("forecast:City" + i, forecast("City" + i, NOW + HOUR, 40));
+        }
+
+        assertNotNull(cache.peek("forecast:City0"));
+        assertNotNull(cache.peek("forecast:City1"));
+        assertNull(cache.peek("forecast:City7"));
+        assertNotNull(cache.peek("forecast:City9"));
+        ForecastCache.Stats stats = cache.getStats();
+        assertEquals(4, stats.memoryEntries);
+        assertEquals(entrySize * 2, stats.pinnedBytes);
+    }
+
+    @Test
+    public void pinnedEntriesOverTheReserveCompeteByUse() {
+        int entrySize = forecast("City0", NOW + HOUR, 40).getEstimatedSizeBytes();
+        ForecastCache cache = new ForecastCache(dao, entrySize * 3, clock);
+        cache.put("forecast:City0", forecast("City0", NOW + HOUR, 40));
+        cache.put("forecast:City1", forecast("City1", NOW + HOUR, 40));
+        cache.put("forecast:City2", forecast("City2", NOW + HOUR, 40));
+
+        // Três entradas fixadas não cabem numa reserva de uma; City0 é a menos usada
+        cache.pin(Arrays.asList("forecast:City0", "forecast:City1", "forecast:City2"), entrySize);
+        cache.put("forecast:City3", forecast("City3", NOW + HOUR, 40));
+
+        assertNull(cache.peek("forecast:City0"));
+        assertNotNull(cache.peek("forecast:City3"));
+        assertEquals(3, cache.getStats().memoryEntries);
+
+        // Uma nova reserva liberta as entradas que deixaram de estar fixadas
+        cache.pin(Collections.emptyList(), entrySize);
+        assertEquals(0, cache.getStats().pinnedBytes);
+    }
+
+    static Forecast forecast(String cityName, long firstSlotMillis, int size) {
+        long[] timestamps = new long[size];
+        double[] tempMin = new double[size];
+        double[] tempMax = new double[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = (firstSlotMillis + i * 3 * HOUR) / 1000L;
+            tempMin[i] = 15.0 + i * 0.1;
+            tempMax[i] = 18.6 + i * 0.1;
+        }
+        return new Forecast(cityName, timestamps, tempMin, tempMax);
+    }
+}
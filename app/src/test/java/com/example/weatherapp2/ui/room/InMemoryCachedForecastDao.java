@@ -0,0 +1,44 @@
+package com.example.weatherapp2.ui.room;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Implementação em memória de {@link CachedForecastDao}, usada como nível persistente nos testes JVM.
+ */
+public class InMemoryCachedForecastDao implements CachedForecastDao {
+
+    private final Map<String, CachedForecastEntity> rows = new HashMap<>();
+    public int reads;
+    public int writes;
+
+    @Override
+    public synchronized CachedForecastEntity get(String cacheKey) {
+        reads++;
+        return rows.get(cacheKey);
+    }
+
+    @Override
+    public synchronized void put(CachedForecastEntity entity) {
+        writes++;
+        rows.put(entity.getCacheKey(), entity);
+    }
+
+    @Override
+    public synchronized int deleteExpiredBefore(long cutoff) {
+        int deleted = 0;
+        Iterator<CachedForecastEntity> iterator = rows.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getExpiresAt() < cutoff) {
+                iterator.remove();
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.weatherapp2.ui.room;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementação em memória de {@link WeatherDao}, com a mesma ordem e a mesma atualização no lugar
+ * por localização que a tabela {@code weather}.
+ */
+public class InMemoryWeatherDao implements WeatherDao {
+
+    private final Map<String, WeatherEntity> rows = new LinkedHashMap<>();
+    public int reads;
+    public int writes;
+
+    @Override
+    public synchronized void upsert(WeatherEntity weatherEntity) {
+        writes++;
+        rows.put(weatherEntity.getLocation(), weatherEntity);
+    }
+
+    @Override
+    public synchronized void upsertAll(List<WeatherEntity> weatherEntities) {
+        writes++;
+        for (WeatherEntity weatherEntity : weatherEntities) {
+            rows.put(weatherEntity.getLocation(), weatherEntity);
+        }
+    }
+
+    @Override
+    public synchronized List<WeatherEntity> getAll() {
+        reads++;
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public synchronized WeatherEntity getWeatherByLocation(String location) {
+        reads++;
+        return rows.get(location);
+    }
+
+    @Override
+    public synchronized void deleteAll() {
+        rows.clear();
+    }
+}
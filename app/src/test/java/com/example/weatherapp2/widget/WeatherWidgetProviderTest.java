@@ -0,0 +1,169 @@
+package com.example.weatherapp2.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.repository.WeatherRemoteSource;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+import com.example.weatherapp2.ui.room.InMemoryWeatherDao;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+import com.example.weatherapp2.ui.room.WeatherEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowAppWidgetManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Verifica que o {@link WeatherWidgetProvider} desenha os widgets a partir das condições gravadas,
+ * sem nenhum pedido de rede, e que o desenho num processo aquecido é imediato.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WeatherWidgetProviderTest {
+
+    private Context context;
+    private CountingRemoteSource remote;
+    private InMemoryWeatherDao weatherDao;
+    private ShadowAppWidgetManager shadowManager;
+    private LastConditionsStore store;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context);
+
+        remote = new CountingRemoteSource();
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        WeatherRepository.setInstance(new WeatherRepository(remote, cache, Runnable::run));
+
+        weatherDao = new InMemoryWeatherDao();
+        weatherDao.upsertAll(Arrays.asList(
+                new WeatherEntity("Lisbon", 15.2, 22.8, System.currentTimeMillis()),
+                new WeatherEntity("Porto", 13.1, 19.4, System.currentTimeMillis())));
+        shadowManager = shadowOf(AppWidgetManager.getInstance(context));
+
+        // O createWidgets chama o onUpdate fora de um broadcast, onde o goAsync não está disponível
+        store = new LastConditionsStore(() -> weatherDao, null, Runnable::run);
+        store.getAll();
+        LastConditionsStore.setInstance(store);
+    }
+
+    @Test
+    public void widgetsRenderStoredConditionsWithoutNetwork() {
+        int[] appWidgetIds = shadowManager.createWidgets(WeatherWidgetProvider.class, R.layout.widget_weather, 2);
+        WidgetConfigureActivity.saveLocationPref(context, appWidgetIds[0], "Lisbon");
+        WidgetConfigureActivity.saveLocationPref(context, appWidgetIds[1], "Porto");
+        new WeatherWidgetProvider().onUpdate(context, AppWidgetManager.getInstance(context), appWidgetIds);
+
+        assertEquals("Max: 22.8°C", text(appWidgetIds[0], R.id.widget_temp_max));
+        assertEquals("Max: 19.4°C", text(appWidgetIds[1], R.id.widget_temp_max));
+        assertEquals(0, remote.calls.get());
+    }
+
+    @Test
+    public void coldStoreIsReadInTheBackgroundAndThenRendered() {
+        int[] appWidgetIds = shadowManager.createWidgets(WeatherWidgetProvider.class, R.layout.widget_weather, 1);
+        WidgetConfigureActivity.saveLocationPref(context, appWidgetIds[0], "Porto");
+
+        // Um processo novo: as condições ainda não foram lidas. O executor direto faz a leitura
+        // "em segundo plano" logo dentro da chamada
+        int readsBefore = weatherDao.reads;
+        LastConditionsStore.setInstance(new LastConditionsStore(() -> weatherDao, null, Runnable::run));
+        WeatherWidgetProvider.updateAppWidget(context, AppWidgetManager.getInstance(context), appWidgetIds[0]);
+
+        assertEquals("Min: 13.1°C", text(appWidgetIds[0], R.id.widget_temp_min));
+        assertEquals(readsBefore + 1, weatherDao.reads);
+        assertEquals(0, remote.calls.get());
+    }
+
+    @Test
+    public void locationWithoutStoredConditionsShowsPlaceholder() {
+        int[] appWidgetIds = shadowManager.createWidgets(WeatherWidgetProvider.class, R.layout.widget_weather, 1);
+        WidgetConfigureActivity.saveLocationPref(context, appWidgetIds[0], "Faro");
+        new WeatherWidgetProvider().onUpdate(context, AppWidgetManager.getInstance(context), appWidgetIds);
+
+        assertEquals("Faro", text(appWidgetIds[0], R.id.widget_location));
+        assertEquals(context.getString(R.string.widget_waiting), text(appWidgetIds[0], R.id.widget_temp_min));
+        assertEquals(0, remote.calls.get());
+    }
+
+    @Test
+    public void warmRenderTakesSingleDigitMilliseconds() {
+        int[] appWidgetIds = shadowManager.createWidgets(WeatherWidgetProvider.class, R.layout.widget_weather, 4);
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+
+        // Aquecimento
+        for (int i = 0; i < 20; i++) {
+            WeatherWidgetProvider.renderStored(context, appWidgetManager, appWidgetIds, store);
+        }
+
+        int runs = 50;
+        long[] durations = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            WeatherWidgetProvider.renderStored(context, appWidgetManager, appWidgetIds, store);
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        long medianMillis = durations[runs / 2] / 1_000_000L;
+        assertTrue("median render " + medianMillis + " ms", medianMillis < 10);
+        assertEquals(0, remote.calls.get());
+    }
+
+    private String text(int appWidgetId, int viewId) {
+        View view = shadowManager.getViewFor(appWidgetId);
+        return ((TextView) view.findViewById(viewId)).getText().toString();
+    }
+
+    /**
+     * Fonte remota falsa que só conta as chamadas; o widget nunca a deve usar ao desenhar.
+     */
+    private static class CountingRemoteSource implements WeatherRemoteSource {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Forecast fetchForecast(String location) {
+            calls.incrementAndGet();
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByName(String location) {
+            calls.incrementAndGet();
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<WeatherResponse> fetchCurrentByIds(String cityIds) {
+            calls.incrementAndGet();
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) {
+            calls.incrementAndGet();
+            throw new UnsupportedOperationException();
+        }
+    }
+}
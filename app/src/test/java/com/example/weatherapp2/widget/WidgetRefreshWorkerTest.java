@@ -0,0 +1,148 @@
+package com.example.weatherapp2.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.ListenableWorker;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.testing.TestWorkerBuilder;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.example.weatherapp2.R;
+import com.example.weatherapp2.ui.network.Clock;
+import com.example.weatherapp2.ui.repository.WeatherRemoteSource;
+import com.example.weatherapp2.ui.repository.WeatherRepository;
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.room.ForecastCache;
+import com.example.weatherapp2.ui.room.InMemoryCachedForecastDao;
+import com.example.weatherapp2.ui.room.InMemoryWeatherDao;
+import com.example.weatherapp2.ui.room.LastConditionsStore;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Verifica que o {@link WidgetRefreshWorker} busca as condições atuais de cada localização distinta
+ * uma única vez, sem pedir a previsão, e grava as condições recebidas, e que o intervalo agendado
+ * segue a preferência {@code update_frequency}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class WidgetRefreshWorkerTest {
+
+    private Context context;
+    private FakeRemoteSource remote;
+    private LastConditionsStore store;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context);
+
+        remote = new FakeRemoteSource();
+        ForecastCache cache = new ForecastCache(new InMemoryCachedForecastDao(),
+                ForecastCache.DEFAULT_MEMORY_BUDGET_BYTES, Clock.SYSTEM);
+        WeatherRepository.setInstance(new WeatherRepository(remote, cache, Runnable::run));
+        InMemoryWeatherDao weatherDao = new InMemoryWeatherDao();
+        store = new LastConditionsStore(() -> weatherDao, null, Runnable::run);
+        store.getAll();
+        LastConditionsStore.setInstance(store);
+    }
+
+    @Test
+    public void widgetsAreGroupedByLocationInFirstSeenOrder() {
+        String[] locations = {"Lisbon", "Porto", "Lisbon", "Faro", "Porto"};
+
+        Map<String, int[]> grouped = WidgetRefreshWorker.groupByLocation(new int[]{10, 11, 12, 13, 14},
+                appWidgetId -> locations[appWidgetId - 10]);
+
+        assertEquals(Arrays.asList("Lisbon", "Porto", "Faro"), new ArrayList<>(grouped.keySet()));
+        assertArrayEquals(new int[]{10, 12}, grouped.get("Lisbon"));
+        assertArrayEquals(new int[]{11, 14}, grouped.get("Porto"));
+        assertArrayEquals(new int[]{13}, grouped.get("Faro"));
+    }
+
+    @Test
+    public void eachDistinctLocationIsFetchedOnce() {
+        int[] appWidgetIds = shadowOf(AppWidgetManager.getInstance(context))
+                .createWidgets(WeatherWidgetProvider.class, R.layout.widget_weather, 6);
+        for (int i = 0; i < appWidgetIds.length; i++) {
+            WidgetConfigureActivity.saveLocationPref(context, appWidgetIds[i], i % 2 == 0 ? "Lisbon" : "Porto");
+        }
+
+        ListenableWorker.Result result = TestWorkerBuilder.from(context, WidgetRefreshWorker.class,
+                Executors.newSingleThreadExecutor()).build().doWork();
+
+        assertEquals(ListenableWorker.Result.success(), result);
+        Collections.sort(remote.fetched);
+        assertEquals(Arrays.asList("Lisbon", "Porto"), remote.fetched);
+        assertEquals(21.0, store.peek("Lisbon").getTempMax(), 1e-9);
+        assertEquals(21.0, store.peek("Porto").getTempMax(), 1e-9);
+    }
+
+    @Test
+    public void intervalFollowsTheUpdateFrequencyPreference() {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        assertEquals(WidgetRefreshScheduler.DEFAULT_INTERVAL_MILLIS, WidgetRefreshScheduler.getIntervalMillis(prefs));
+
+        prefs.edit().putString("update_frequency", "3600000").commit();
+        assertEquals(TimeUnit.HOURS.toMillis(1), WidgetRefreshScheduler.getIntervalMillis(prefs));
+
+        // Valores abaixo do mínimo do WorkManager são arredondados para cima
+        prefs.edit().putString("update_frequency", "60000").commit();
+        assertEquals(PeriodicWorkRequest.MIN_PERIODIC_INTERVAL_MILLIS, WidgetRefreshScheduler.getIntervalMillis(prefs));
+    }
+
+    /**
+     * Fonte remota falsa que regista as localizações pedidas.
+     */
+    private static class FakeRemoteSource implements WeatherRemoteSource {
+        final List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Forecast fetchForecast(String location) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByName(String location) {
+            fetched.add(location);
+            WeatherResponse response = new WeatherResponse();
+            response.id = location.hashCode();
+            response.name = location;
+            response.dt = System.currentTimeMillis() / 1000L;
+            response.main = new WeatherResponse.Main();
+            response.main.tempMin = 15.0;
+            response.main.tempMax = 21.0;
+            return response;
+        }
+
+        @Override
+        public List<WeatherResponse> fetchCurrentByIds(String cityIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public WeatherResponse fetchCurrentByCoordinates(double latitude, double longitude) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.catalog.CityCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Abertura e pesquisa por prefixo do {@link CityCatalog} num catálogo de {@value #CITIES} cidades,
+ * do tamanho da lista da OpenWeather. A abertura só mapeia e valida o ficheiro, sem copiar as cidades
+ * para o heap; a memória alocada é medida com {@code -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    private static final int CITIES = 200_000;
+    private static final int QUERIES = 1024;
+    private static final String[] SYLLABLES = {"ba", "be", "ca", "do", "el", "fa", "go", "ha", "in", "jo", "ka",
+            "la", "ma", "no", "or", "pa", "qu", "ri", "sa", "to", "ul", "va", "xe", "za"};
+
+    private File file;
+    private CityCatalog catalog;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(5);
+        List<CityCatalog.City> cities = new ArrayList<>(CITIES);
+        for (int i = 0; i < CITIES; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int s = 2 + random.nextInt(4); s > 0; s--) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            cities.add(new CityCatalog.City(name.toString(), "X" + (char) ('A' + random.nextInt(26)), i + 1,
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        file = Files.createTempFile("cities", ".bin").toFile();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            CityCatalog.write(out, cities, cities.subList(0, 50));
+        }
+        catalog = CityCatalog.open(file);
+
+        // Prefixos de uma a quatro letras de cidades do catálogo, como os escritos na pesquisa
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = cities.get(random.nextInt(CITIES)).getName().substring(0, 1 + random.nextInt(4));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public CityCatalog open() throws IOException {
+        return CityCatalog.open(file);
+    }
+
+    /**
+     * Uma pesquisa com o limite de sugestões da configuração do widget.
+     */
+    @Benchmark
+    public List<CityCatalog.City> search() {
+        return catalog.search(queries[next++ & (QUERIES - 1)], 50);
+    }
+}
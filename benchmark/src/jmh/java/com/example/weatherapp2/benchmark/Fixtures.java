@@ -0,0 +1,35 @@
+package com.example.weatherapp2.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitura das respostas gravadas da OpenWeather, partilhadas com os testes da aplicação.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param name O nome do ficheiro em {@code fixtures/}, por exemplo {@code forecast_lisbon.json}.
+     * @return O conteúdo do ficheiro.
+     * @throws IOException Se o ficheiro não existir ou não puder ser lido.
+     */
+    static String read(String name) throws IOException {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
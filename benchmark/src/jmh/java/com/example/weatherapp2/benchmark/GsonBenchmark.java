@@ -0,0 +1,127 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponseAdapter;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponseAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Leitura das respostas {@code /weather} e {@code /group} pelo Gson dos conversores Retrofit, com os
+ * adaptadores escritos à mão, contra a leitura reflexiva do modelo anterior, cujas classes internas
+ * não estáticas obrigavam o Gson a alocá-las sem construtor. As variantes {@code newGson} incluem a
+ * criação do Gson e dos adaptadores, o custo da primeira resposta.
+ */
+@State(Scope.Benchmark)
+public class GsonBenchmark {
+
+    private String weatherJson;
+    private String groupJson;
+    private Gson adapters;
+    private Gson reflective;
+
+    @Setup
+    public void setUp() throws IOException {
+        weatherJson = Fixtures.read("weather_lisbon.json");
+        groupJson = Fixtures.read("group_portugal.json");
+        adapters = createGson();
+        reflective = new Gson();
+    }
+
+    @Benchmark
+    public WeatherResponse weatherAdapters() {
+        return adapters.fromJson(weatherJson, WeatherResponse.class);
+    }
+
+    @Benchmark
+    public LegacyWeatherResponse weatherReflective() {
+        return reflective.fromJson(weatherJson, LegacyWeatherResponse.class);
+    }
+
+    @Benchmark
+    public GroupWeatherResponse groupAdapters() {
+        return adapters.fromJson(groupJson, GroupWeatherResponse.class);
+    }
+
+    @Benchmark
+    public LegacyGroupResponse groupReflective() {
+        return reflective.fromJson(groupJson, LegacyGroupResponse.class);
+    }
+
+    @Benchmark
+    public WeatherResponse weatherAdaptersNewGson() {
+        return createGson().fromJson(weatherJson, WeatherResponse.class);
+    }
+
+    @Benchmark
+    public LegacyWeatherResponse weatherReflectiveNewGson() {
+        return new Gson().fromJson(weatherJson, LegacyWeatherResponse.class);
+    }
+
+    /**
+     * A mesma configuração do {@code RetrofitClient.createGson()} da aplicação.
+     */
+    private static Gson createGson() {
+        WeatherResponseAdapter weatherAdapter = new WeatherResponseAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(WeatherResponse.class, weatherAdapter)
+                .registerTypeAdapter(GroupWeatherResponse.class, new GroupWeatherResponseAdapter(weatherAdapter))
+                .create();
+    }
+
+    /**
+     * O modelo lido por reflexão antes dos adaptadores, com classes internas não estáticas.
+     */
+    @SuppressWarnings("unused")
+    public static class LegacyWeatherResponse {
+        public long id;
+        public String name;
+        public long dt;
+        public Main main;
+        public Wind wind;
+        public Clouds clouds;
+        public Coord coord;
+
+        public class Main {
+            public double temp;
+            @SerializedName("feels_like")
+            public double feelsLike;
+            @SerializedName("temp_min")
+            public double tempMin;
+            @SerializedName("temp_max")
+            public double tempMax;
+            public int pressure;
+            public int humidity;
+        }
+
+        public class Wind {
+            public double speed;
+            public int deg;
+            public double gust;
+        }
+
+        public class Clouds {
+            public int all;
+        }
+
+        public class Coord {
+            public double lat;
+            public double lon;
+        }
+    }
+
+    public static class LegacyGroupResponse {
+        public int cnt;
+        public List<LegacyWeatherResponse> list;
+    }
+}
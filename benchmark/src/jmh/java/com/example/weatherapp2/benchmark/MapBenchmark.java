@@ -0,0 +1,98 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.map.SpatialIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Consulta da área visível do mapa no {@link SpatialIndex}, em três níveis de zoom, contra uma
+ * pesquisa linear sobre os mesmos pontos. Nove em cada dez pontos estão na Europa, onde ficam as
+ * áreas consultadas.
+ */
+@State(Scope.Benchmark)
+public class MapBenchmark {
+
+    private static final int VIEWPORTS = 1024;
+
+    @Param({"10000", "100000"})
+    public int points;
+
+    @Param({"5", "9", "13"})
+    public int zoom;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private SpatialIndex index;
+    private double[] southWest;
+    private double width;
+    private double height;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(points);
+        latitudes = new double[points];
+        longitudes = new double[points];
+        for (int i = 0; i < points; i++) {
+            if (i % 10 == 0) {
+                latitudes[i] = random.nextDouble() * 170 - 85;
+                longitudes[i] = random.nextDouble() * 360 - 180;
+            } else {
+                latitudes[i] = 35 + random.nextDouble() * 30;
+                longitudes[i] = -10 + random.nextDouble() * 40;
+            }
+        }
+
+        // Uma área visível de cerca de 1080x1920 píxeis neste zoom
+        width = 1080 * 360.0 / (256.0 * (1 << zoom));
+        height = width * 1920 / 1080;
+        southWest = new double[VIEWPORTS * 2];
+        for (int i = 0; i < VIEWPORTS; i++) {
+            southWest[i * 2] = 36 + random.nextDouble() * 15;
+            southWest[i * 2 + 1] = -10 + random.nextDouble() * 30;
+        }
+
+        // A primeira consulta de cada zoom constrói o nível; mede-se o custo das seguintes
+        index = new SpatialIndex(latitudes, longitudes);
+        index.query(40, -5, 40 + height, -5 + width, zoom, (cellKey, latitude, longitude, count, pointIndex) -> {
+        });
+    }
+
+    /**
+     * @return O número de grupos visíveis.
+     */
+    @Benchmark
+    public int query() {
+        int viewport = (next++ & (VIEWPORTS - 1)) * 2;
+        double south = southWest[viewport];
+        double west = southWest[viewport + 1];
+        int[] clusters = new int[1];
+        index.query(south, west, south + height, west + width, zoom,
+                (cellKey, latitude, longitude, count, pointIndex) -> clusters[0]++);
+        return clusters[0];
+    }
+
+    /**
+     * @return O número de pontos visíveis.
+     */
+    @Benchmark
+    public int linearScan() {
+        int viewport = (next++ & (VIEWPORTS - 1)) * 2;
+        double south = southWest[viewport];
+        double west = southWest[viewport + 1];
+        int inside = 0;
+        for (int i = 0; i < points; i++) {
+            if (latitudes[i] >= south && latitudes[i] <= south + height
+                    && longitudes[i] >= west && longitudes[i] <= west + width) {
+                inside++;
+            }
+        }
+        return inside;
+    }
+}
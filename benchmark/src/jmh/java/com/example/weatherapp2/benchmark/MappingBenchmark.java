@@ -0,0 +1,69 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.display.TemperatureFormatter;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponseAdapter;
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponseAdapter;
+import com.example.weatherapp2.ui.room.WeatherEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversão dos modelos no caminho de gravação e de apresentação da lista: {@link Weather} para
+ * {@link WeatherEntity} e de volta, e os textos das temperaturas mostrados em cada linha.
+ */
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private static final long UPDATED_AT = 1718301600000L;
+
+    private List<Weather> weathers;
+
+    @Setup
+    public void setUp() throws IOException {
+        GroupWeatherResponse group = new GroupWeatherResponseAdapter(new WeatherResponseAdapter())
+                .fromJson(new StringReader(Fixtures.read("group_portugal.json")));
+        weathers = new ArrayList<>(group.list.size());
+        for (WeatherResponse city : group.list) {
+            weathers.add(new Weather(city.name, city.main.tempMin, city.main.tempMax, UPDATED_AT));
+        }
+    }
+
+    /**
+     * O percurso completo de uma lista: gravar na base de dados, ler e formatar.
+     */
+    @Benchmark
+    public void roundTripAndFormat(Blackhole blackhole) {
+        for (Weather weather : weathers) {
+            Weather stored = WeatherEntity.fromWeather(weather, UPDATED_AT).toWeather();
+            blackhole.consume(TemperatureFormatter.formatMin(stored.getTempMin()));
+            blackhole.consume(TemperatureFormatter.formatMax(stored.getTempMax()));
+        }
+    }
+
+    @Benchmark
+    public void toEntity(Blackhole blackhole) {
+        for (Weather weather : weathers) {
+            blackhole.consume(WeatherEntity.fromWeather(weather, UPDATED_AT));
+        }
+    }
+
+    @Benchmark
+    public void formatTemperatures(Blackhole blackhole) {
+        for (Weather weather : weathers) {
+            blackhole.consume(TemperatureFormatter.formatMin(weather.getTempMin()));
+            blackhole.consume(TemperatureFormatter.formatMax(weather.getTempMax()));
+        }
+    }
+}
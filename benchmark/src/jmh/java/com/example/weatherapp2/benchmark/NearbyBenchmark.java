@@ -0,0 +1,64 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.location.NearestCityIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Construção e consulta da {@link NearestCityIndex} do modo "perto de mim" com {@value #CITIES}
+ * cidades espalhadas uniformemente pela esfera.
+ */
+@State(Scope.Benchmark)
+public class NearbyBenchmark {
+
+    private static final int CITIES = 200_000;
+    private static final int POSITIONS = 1024;
+
+    /**
+     * O número de cidades mostradas por omissão ({@code NearbyCitiesFinder.DEFAULT_COUNT}).
+     */
+    private static final int COUNT = 5;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private NearestCityIndex index;
+    private double[] positions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        latitudes = new double[CITIES];
+        longitudes = new double[CITIES];
+        for (int i = 0; i < CITIES; i++) {
+            latitudes[i] = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        index = new NearestCityIndex(latitudes, longitudes);
+
+        positions = new double[POSITIONS * 2];
+        for (int i = 0; i < POSITIONS; i++) {
+            positions[i * 2] = random.nextDouble() * 170 - 85;
+            positions[i * 2 + 1] = random.nextDouble() * 360 - 180;
+        }
+    }
+
+    /**
+     * A construção feita quando o catálogo é carregado, fora da thread principal.
+     */
+    @Benchmark
+    public NearestCityIndex build() {
+        return new NearestCityIndex(latitudes, longitudes);
+    }
+
+    @Benchmark
+    public int[] nearest() {
+        int position = (next++ & (POSITIONS - 1)) * 2;
+        return index.nearest(positions[position], positions[position + 1], COUNT);
+    }
+}
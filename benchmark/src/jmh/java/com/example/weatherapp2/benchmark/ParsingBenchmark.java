@@ -0,0 +1,92 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.retrofit.response.Forecast;
+import com.example.weatherapp2.ui.retrofit.response.ForecastParser;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.GroupWeatherResponseAdapter;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponse;
+import com.example.weatherapp2.ui.retrofit.response.WeatherResponseAdapter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Leitura das respostas dos endpoints {@code /forecast}, {@code /weather} e {@code /group}, a partir
+ * do texto já em memória, para medir só o parser e não a rede. As previsões são também lidas com a
+ * árvore org.json usada antes do {@link ForecastParser}; a memória alocada por leitura de cada um
+ * mede-se com {@code -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+
+    /**
+     * As previsões gravadas: uma cidade europeia, uma com muitos intervalos e uma fora da Europa.
+     */
+    @Param({"forecast_lisbon.json", "forecast_london.json", "forecast_doha.json"})
+    public String forecastFixture;
+
+    private String forecastJson;
+    private String weatherJson;
+    private String groupJson;
+    private WeatherResponseAdapter weatherAdapter;
+    private GroupWeatherResponseAdapter groupAdapter;
+
+    @Setup
+    public void setUp() throws IOException {
+        forecastJson = Fixtures.read(forecastFixture);
+        weatherJson = Fixtures.read("weather_lisbon.json");
+        groupJson = Fixtures.read("group_portugal.json");
+        weatherAdapter = new WeatherResponseAdapter();
+        groupAdapter = new GroupWeatherResponseAdapter(weatherAdapter);
+    }
+
+    @Benchmark
+    public Forecast parseForecast() throws IOException {
+        return ForecastParser.parse(new StringReader(forecastJson));
+    }
+
+    @Benchmark
+    public Forecast parseForecastWithJsonObject() throws JSONException {
+        return parseWithJsonObject(forecastJson);
+    }
+
+    @Benchmark
+    public WeatherResponse parseWeather() throws IOException {
+        return weatherAdapter.fromJson(new StringReader(weatherJson));
+    }
+
+    @Benchmark
+    public GroupWeatherResponse parseGroup() throws IOException {
+        return groupAdapter.fromJson(new StringReader(groupJson));
+    }
+
+    /**
+     * A leitura anterior do {@code OpenWeatherRemoteSource}: o corpo inteiro numa String e depois
+     * uma árvore de {@link JSONObject}.
+     */
+    private static Forecast parseWithJsonObject(String json) throws JSONException {
+        JSONObject jsonObject = new JSONObject(json);
+        JSONArray list = jsonObject.getJSONArray("list");
+        long[] timestamps = new long[list.length()];
+        double[] tempMin = new double[list.length()];
+        double[] tempMax = new double[list.length()];
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject entry = list.getJSONObject(i);
+            JSONObject main = entry.getJSONObject("main");
+            timestamps[i] = entry.getLong("dt");
+            tempMin[i] = main.getDouble("temp_min");
+            tempMax[i] = main.getDouble("temp_max");
+        }
+        String cityName = jsonObject.getJSONObject("city").getString("name");
+        return new Forecast(cityName, timestamps, tempMin, tempMax);
+    }
+}
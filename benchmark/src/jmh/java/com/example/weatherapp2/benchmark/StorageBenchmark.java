@@ -0,0 +1,77 @@
+package com.example.weatherapp2.benchmark;
+
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+import com.example.weatherapp2.ui.room.ConditionsSnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escrita e leitura do {@link ConditionsSnapshot}, o ficheiro mapeado em memória lido no arranque
+ * antes de o Room estar aberto.
+ */
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+
+    @Param({"20", "500"})
+    public int locations;
+
+    private File directory;
+    private File written;
+    private File snapshot;
+    private List<Weather> weathers;
+    private String lastLocation;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("conditions").toFile();
+        written = new File(directory, "written.bin");
+        snapshot = new File(directory, "snapshot.bin");
+        weathers = new ArrayList<>(locations);
+        for (int i = 0; i < locations; i++) {
+            weathers.add(new Weather("City " + i, 10 + i % 7, 20 + i % 11, 1718301600000L + i,
+                    38.7 + i * 0.01, -9.1 - i * 0.01));
+        }
+        lastLocation = weathers.get(locations - 1).getLocation();
+        ConditionsSnapshot.write(snapshot, weathers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        written.delete();
+        snapshot.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public File write() throws IOException {
+        ConditionsSnapshot.write(written, weathers);
+        return written;
+    }
+
+    /**
+     * O caminho do arranque: mapear o ficheiro e criar a lista mostrada.
+     */
+    @Benchmark
+    public List<Weather> openAndReadAll() {
+        return ConditionsSnapshot.open(snapshot).toList();
+    }
+
+    /**
+     * A pesquisa de uma localização, no pior caso da pesquisa linear.
+     */
+    @Benchmark
+    public Weather openAndGet() {
+        return ConditionsSnapshot.open(snapshot).get(lastLocation);
+    }
+}
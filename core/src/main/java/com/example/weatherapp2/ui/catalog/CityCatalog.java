@@ -0,0 +1,442 @@
+package com.example.weatherapp2.ui.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Catálogo de cidades (nome, país, ID da OpenWeather e posição) num ficheiro binário compacto,
+ * lido através de um buffer mapeado em memória. O catálogo não é copiado para o heap: só as
+ * cidades devolvidas por uma pesquisa são convertidas em objetos.
+ * <p>
+ * Formato (big-endian): um cabeçalho de {@link #HEADER_SIZE} bytes; um registo de tamanho fixo por
+ * cidade, ordenado pela chave de pesquisa; os índices das cidades mostradas por omissão; e um bloco
+ * de texto com, para cada cidade, a chave (o nome em minúsculas e sem acentos) seguida do nome.
+ * Os registos ordenados funcionam como uma trie achatada: as cidades cujo nome começa por um prefixo
+ * ocupam um intervalo contínuo, encontrado por pesquisa binária em O(log n) comparações.
+ * <p>
+ * O catálogo da aplicação está em {@code assets/}{@value #ASSET_NAME}, gerado pelo
+ * {@link CityCatalogGenerator} a partir da lista de cidades da OpenWeather e aberto no Android pelo
+ * {@code BundledCityCatalog}. Cidades com ID 0 ainda não têm ID conhecido e são resolvidas pelo
+ * nome no primeiro pedido.
+ */
+public final class CityCatalog {
+
+    /**
+     * Nome do catálogo em {@code assets/}. A extensão está em {@code noCompress} para que o
+     * ficheiro possa ser mapeado diretamente a partir do APK.
+     */
+    public static final String ASSET_NAME = "cities.bin";
+
+    static final int MAGIC = 0x57584354; // "WXCT"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 20;
+    static final int MAX_TEXT_BYTES = 255;
+
+    private static final int LATITUDE_OFFSET = 4;
+    private static final int LONGITUDE_OFFSET = 8;
+    private static final int COUNTRY_OFFSET = 12;
+    private static final int TEXT_OFFSET = 14;
+    private static final int KEY_LENGTH_OFFSET = 18;
+    private static final int NAME_LENGTH_OFFSET = 19;
+    private static final double MICRODEGREES = 1_000_000.0;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int defaultsOffset;
+    private final int defaultCount;
+    private final int textOffset;
+
+    private CityCatalog(ByteBuffer buffer, int count, int defaultCount) {
+        this.buffer = buffer;
+        this.count = count;
+        this.defaultCount = defaultCount;
+        this.defaultsOffset = HEADER_SIZE + count * RECORD_SIZE;
+        this.textOffset = defaultsOffset + defaultCount * 4;
+    }
+
+    /**
+     * Mapeia e valida um ficheiro de catálogo.
+     *
+     * @param file O ficheiro.
+     * @return O catálogo, ou null se o ficheiro for inválido.
+     * @throws IOException Se o ficheiro não puder ser lido.
+     */
+    public static CityCatalog open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Valida um catálogo já carregado.
+     *
+     * @param buffer O conteúdo do catálogo.
+     * @return O catálogo, ou null se o conteúdo for inválido.
+     */
+    public static CityCatalog open(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION
+                || buffer.getShort(6) != RECORD_SIZE) {
+            return null;
+        }
+        int count = buffer.getInt(8);
+        int defaultCount = buffer.getInt(12);
+        int textLength = buffer.getInt(16);
+        long expected = HEADER_SIZE + (long) count * RECORD_SIZE + (long) defaultCount * 4 + textLength;
+        if (count < 0 || defaultCount < 0 || textLength < 0 || buffer.capacity() != expected) {
+            return null;
+        }
+        CityCatalog catalog = new CityCatalog(buffer, count, defaultCount);
+        for (int i = 0; i < count; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            long end = (long) buffer.getInt(record + TEXT_OFFSET)
+                    + (buffer.get(record + KEY_LENGTH_OFFSET) & 0xFF) + (buffer.get(record + NAME_LENGTH_OFFSET) & 0xFF);
+            if (buffer.getInt(record + TEXT_OFFSET) < 0 || end > textLength) {
+                return null;
+            }
+        }
+        for (int i = 0; i < defaultCount; i++) {
+            int index = buffer.getInt(catalog.defaultsOffset + i * 4);
+            if (index < 0 || index >= count) {
+                return null;
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * @return O número de cidades no catálogo.
+     */
+    public int size() {
+        return count;
+    }
+
+    public int getId(int index) {
+        return buffer.getInt(record(index));
+    }
+
+    public double getLatitude(int index) {
+        return buffer.getInt(record(index) + LATITUDE_OFFSET) / MICRODEGREES;
+    }
+
+    public double getLongitude(int index) {
+        return buffer.getInt(record(index) + LONGITUDE_OFFSET) / MICRODEGREES;
+    }
+
+    public String getName(int index) {
+        int record = record(index);
+        int keyLength = buffer.get(record + KEY_LENGTH_OFFSET) & 0xFF;
+        return text(buffer.getInt(record + TEXT_OFFSET) + keyLength, buffer.get(record + NAME_LENGTH_OFFSET) & 0xFF);
+    }
+
+    public String getCountry(int index) {
+        int record = record(index);
+        return new String(new char[]{(char) buffer.get(record + COUNTRY_OFFSET), (char) buffer.get(record + COUNTRY_OFFSET + 1)});
+    }
+
+    /**
+     * @param index O índice da cidade.
+     * @return A cidade nessa posição do catálogo.
+     */
+    public City get(int index) {
+        return new City(getName(index), getCountry(index), getId(index), getLatitude(index), getLongitude(index));
+    }
+
+    /**
+     * @return As cidades mostradas por omissão na lista e na configuração do widget, pela ordem do catálogo.
+     */
+    public List<City> getDefaults() {
+        List<City> cities = new ArrayList<>(defaultCount);
+        for (int i = 0; i < defaultCount; i++) {
+            cities.add(get(buffer.getInt(defaultsOffset + i * 4)));
+        }
+        return cities;
+    }
+
+    /**
+     * Procura as cidades cujo nome começa pelo texto indicado, sem distinguir maiúsculas nem acentos.
+     * O texto pode terminar em {@code ,país} (por exemplo, "porto,pt") para filtrar pelo país.
+     *
+     * @param query O texto escrito.
+     * @param limit O número máximo de cidades a devolver.
+     * @return As cidades encontradas, por ordem alfabética.
+     */
+    public List<City> search(String query, int limit) {
+        String name = query;
+        String country = "";
+        int comma = query.indexOf(',');
+        if (comma >= 0) {
+            name = query.substring(0, comma);
+            country = query.substring(comma + 1).trim().toUpperCase(Locale.ROOT);
+        }
+        byte[] prefix = normalize(name).getBytes(UTF_8);
+        if (prefix.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<City> cities = new ArrayList<>(Math.min(limit, 16));
+        for (int i = lowerBound(prefix); i < count && cities.size() < limit && keyStartsWith(i, prefix); i++) {
+            if (country.isEmpty() || getCountry(i).startsWith(country)) {
+                cities.add(get(i));
+            }
+        }
+        return cities;
+    }
+
+    /**
+     * Procura uma cidade pela localização tal como é enviada à API ({@code Nome,PAÍS}), sem
+     * distinguir maiúsculas nem acentos.
+     *
+     * @param location A localização.
+     * @return A cidade, ou null se não estiver no catálogo.
+     */
+    public City find(String location) {
+        int comma = location.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        byte[] key = normalize(location.substring(0, comma)).getBytes(UTF_8);
+        String country = location.substring(comma + 1).trim().toUpperCase(Locale.ROOT);
+        for (int i = lowerBound(key); i < count && compareKey(i, key) == 0; i++) {
+            if (getCountry(i).equals(country)) {
+                return get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converte um nome na chave de pesquisa: minúsculas, sem acentos e sem espaços nas pontas.
+     *
+     * @param name O nome.
+     * @return A chave.
+     */
+    public static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                key.append(c);
+            }
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private int record(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String text(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(textOffset + offset + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * @return A primeira cidade cuja chave não é menor do que o prefixo.
+     */
+    private int lowerBound(byte[] prefix) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(mid, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareKey(int index, byte[] other) {
+        int record = record(index);
+        int offset = textOffset + buffer.getInt(record + TEXT_OFFSET);
+        int length = buffer.get(record + KEY_LENGTH_OFFSET) & 0xFF;
+        for (int i = 0, n = Math.min(length, other.length); i < n; i++) {
+            int difference = (buffer.get(offset + i) & 0xFF) - (other[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - other.length;
+    }
+
+    private boolean keyStartsWith(int index, byte[] prefix) {
+        int record = record(index);
+        if ((buffer.get(record + KEY_LENGTH_OFFSET) & 0xFF) < prefix.length) {
+            return false;
+        }
+        int offset = textOffset + buffer.getInt(record + TEXT_OFFSET);
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Escreve um catálogo. As cidades são ordenadas pela chave de pesquisa; cidades cujo nome não
+     * cabe num registo não são escritas.
+     *
+     * @param out      O destino.
+     * @param cities   Todas as cidades.
+     * @param defaults As cidades mostradas por omissão, pela ordem em que devem aparecer; devem estar em {@code cities}.
+     * @throws IOException Se a escrita falhar.
+     */
+    public static void write(OutputStream out, List<City> cities, List<City> defaults) throws IOException {
+        List<byte[]> keys = new ArrayList<>(cities.size());
+        List<City> written = new ArrayList<>(cities.size());
+        for (City city : cities) {
+            byte[] key = normalize(city.getName()).getBytes(UTF_8);
+            if (key.length <= MAX_TEXT_BYTES && city.getName().getBytes(UTF_8).length <= MAX_TEXT_BYTES
+                    && city.getCountry().length() == 2) {
+                keys.add(key);
+                written.add(city);
+            }
+        }
+        Integer[] order = new Integer[written.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byKey = compare(keys.get(a), keys.get(b));
+            return byKey != 0 ? byKey : written.get(a).getCountry().compareTo(written.get(b).getCountry());
+        });
+
+        Map<String, Integer> positions = new HashMap<>();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ByteBuffer records = ByteBuffer.allocate(order.length * RECORD_SIZE);
+        for (int position = 0; position < order.length; position++) {
+            City city = written.get(order[position]);
+            byte[] key = keys.get(order[position]);
+            byte[] name = city.getName().getBytes(UTF_8);
+            positions.put(city.getLocation(), position);
+            records.putInt(city.getId());
+            records.putInt((int) Math.round(city.getLatitude() * MICRODEGREES));
+            records.putInt((int) Math.round(city.getLongitude() * MICRODEGREES));
+            records.put((byte) city.getCountry().charAt(0));
+            records.put((byte) city.getCountry().charAt(1));
+            records.putInt(text.size());
+            records.put((byte) key.length);
+            records.put((byte) name.length);
+            text.write(key);
+            text.write(name);
+        }
+
+        List<Integer> defaultIndices = new ArrayList<>(defaults.size());
+        for (City city : defaults) {
+            Integer position = positions.get(city.getLocation());
+            if (position != null) {
+                defaultIndices.add(position);
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeShort(RECORD_SIZE);
+        data.writeInt(order.length);
+        data.writeInt(defaultIndices.size());
+        data.writeInt(text.size());
+        data.writeInt(0);
+        data.write(records.array());
+        for (int index : defaultIndices) {
+            data.writeInt(index);
+        }
+        text.writeTo(data);
+        data.flush();
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0, n = Math.min(a.length, b.length); i < n; i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Uma cidade do catálogo.
+     */
+    public static final class City {
+        private final String name;
+        private final String country;
+        private final int id;
+        private final double latitude;
+        private final double longitude;
+
+        /**
+         * @param name      O nome da cidade.
+         * @param country   O código ISO 3166 do país, com duas letras.
+         * @param id        O ID da OpenWeather, ou 0 se não for conhecido.
+         * @param latitude  A latitude.
+         * @param longitude A longitude.
+         */
+        public City(String name, String country, int id, double latitude, double longitude) {
+            this.name = name;
+            this.country = country.toUpperCase(Locale.ROOT);
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * @return A localização tal como é enviada à API e guardada nas preferências, por exemplo "Porto,PT".
+         */
+        public String getLocation() {
+            return name + "," + country;
+        }
+
+        /**
+         * @return O texto mostrado nas listas de sugestões, por exemplo "Porto, PT".
+         */
+        @Override
+        public String toString() {
+            return name + ", " + country;
+        }
+    }
+}
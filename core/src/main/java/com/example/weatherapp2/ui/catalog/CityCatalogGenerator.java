@@ -0,0 +1,152 @@
+package com.example.weatherapp2.ui.catalog;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Gera o {@link CityCatalog} da aplicação a partir da lista de cidades da OpenWeather
+ * ({@code city.list.json}, em https://bulk.openweathermap.org/sample/) e de uma lista das cidades
+ * mostradas por omissão, uma localização {@code Nome,PAÍS} por linha.
+ * <p>
+ * Corre na compilação, através da tarefa {@code :core:generateCityCatalog}:
+ * <pre>
+ *   CityCatalogGenerator &lt;city.list.json[.gz]&gt; &lt;defaults.txt&gt; &lt;cities.bin&gt;
+ * </pre>
+ */
+public final class CityCatalogGenerator {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CityCatalogGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: CityCatalogGenerator <city.list.json[.gz]> <defaults.txt> <cities.bin>");
+            System.exit(2);
+        }
+        File cityList = new File(args[0]);
+        List<CityCatalog.City> cities;
+        try (InputStream in = open(cityList)) {
+            cities = readCityList(in);
+        }
+        List<CityCatalog.City> defaults;
+        try (InputStream in = new FileInputStream(args[1])) {
+            defaults = readDefaults(in, cities);
+        }
+        File output = new File(args[2]);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            CityCatalog.write(out, cities, defaults);
+        }
+    }
+
+    /**
+     * Lê a lista de cidades no formato da OpenWeather: um array de objetos com {@code id},
+     * {@code name}, {@code country} e {@code coord.lat}/{@code coord.lon}. Os restantes campos são
+     * ignorados, tal como as cidades sem nome ou sem país.
+     *
+     * @param in A lista, em UTF-8.
+     * @return As cidades, pela ordem da lista.
+     * @throws IOException Se a lista não puder ser lida ou não estiver no formato esperado.
+     */
+    public static List<CityCatalog.City> readCityList(InputStream in) throws IOException {
+        List<CityCatalog.City> cities = new ArrayList<>();
+        JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8));
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int id = 0;
+            String name = "";
+            String country = "";
+            double latitude = 0;
+            double longitude = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        id = reader.nextInt();
+                        break;
+                    case "name":
+                        name = reader.nextString().trim();
+                        break;
+                    case "country":
+                        country = reader.nextString().trim();
+                        break;
+                    case "coord":
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String field = reader.nextName();
+                            if (field.equals("lat")) {
+                                latitude = reader.nextDouble();
+                            } else if (field.equals("lon")) {
+                                longitude = reader.nextDouble();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!name.isEmpty() && country.length() == 2) {
+                cities.add(new CityCatalog.City(name, country, id, latitude, longitude));
+            }
+        }
+        reader.endArray();
+        return cities;
+    }
+
+    /**
+     * Lê as cidades mostradas por omissão: uma localização {@code Nome,PAÍS} por linha; as linhas
+     * vazias e as começadas por {@code #} são ignoradas.
+     *
+     * @param in     A lista, em UTF-8.
+     * @param cities As cidades do catálogo.
+     * @return As cidades, pela ordem da lista.
+     * @throws IOException Se a lista não puder ser lida ou tiver uma cidade que não está no catálogo.
+     */
+    public static List<CityCatalog.City> readDefaults(InputStream in, List<CityCatalog.City> cities) throws IOException {
+        Map<String, CityCatalog.City> byLocation = new HashMap<>();
+        for (CityCatalog.City city : cities) {
+            if (!byLocation.containsKey(city.getLocation())) {
+                byLocation.put(city.getLocation(), city);
+            }
+        }
+        List<CityCatalog.City> defaults = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        for (String line; (line = reader.readLine()) != null; ) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            CityCatalog.City city = byLocation.get(line);
+            if (city == null) {
+                throw new IOException("Default city not in the city list: " + line);
+            }
+            defaults.add(city);
+        }
+        return defaults;
+    }
+
+    private static InputStream open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        return file.getName().endsWith(".gz") ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.weatherapp2.ui.display;
+
+/**
+ * Textos das temperaturas mostrados na lista e nos widgets, com uma casa decimal.
+ * Não depende do Android, por isso é usado tanto pelo {@code WeatherDisplayMapper} como pelos benchmarks.
+ */
+public final class TemperatureFormatter {
+
+    private TemperatureFormatter() {
+    }
+
+    /**
+     * @param tempMin A temperatura mínima em °C.
+     * @return O texto da temperatura mínima, por exemplo "Min: 19.8°C".
+     */
+    public static String formatMin(double tempMin) {
+        return String.format("Min: %.1f°C", tempMin);
+    }
+
+    /**
+     * @param tempMax A temperatura máxima em °C.
+     * @return O texto da temperatura máxima, por exemplo "Max: 22.4°C".
+     */
+    public static String formatMax(double tempMax) {
+        return String.format("Max: %.1f°C", tempMax);
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.weatherapp2.ui.location;
+
+/**
+ * Árvore k-d para encontrar as cidades mais próximas de uma posição.
+ * <p>
+ * Cada cidade é guardada como um vetor unitário (x, y, z) na esfera. A distância em linha reta
+ * entre dois vetores cresce com a distância ao longo da superfície, por isso a árvore procura em
+ * três dimensões com distâncias euclidianas, sem problemas no antimeridiano nem nos polos, e as
+ * distâncias devolvidas são calculadas com a fórmula de haversine.
+ * <p>
+ * A árvore é implícita: as coordenadas são reordenadas em arrays primitivos, e o nó de cada
+ * intervalo {@code [lo, hi)} é o elemento do meio. A construção é O(n log n) e deve ser feita
+ * fora da thread principal; as consultas não alteram a árvore e podem ser feitas em paralelo.
+ */
+public class NearestCityIndex {
+
+    /**
+     * Raio médio da Terra, em metros.
+     */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final int[] cities;
+    private final byte[] axes;
+
+    /**
+     * Constrói a árvore. Os arrays recebidos não são alterados.
+     *
+     * @param latitudes  A latitude de cada cidade.
+     * @param longitudes A longitude de cada cidade.
+     */
+    public NearestCityIndex(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Invalid point arrays: " + latitudes.length + "/" + longitudes.length);
+        }
+        int n = latitudes.length;
+        x = new double[n];
+        y = new double[n];
+        z = new double[n];
+        cities = new int[n];
+        axes = new byte[n];
+        double[] point = new double[3];
+        for (int i = 0; i < n; i++) {
+            toVector(latitudes[i], longitudes[i], point);
+            x[i] = point[0];
+            y[i] = point[1];
+            z[i] = point[2];
+            cities[i] = i;
+        }
+        build(0, n);
+    }
+
+    /**
+     * @return O número de cidades na árvore.
+     */
+    public int size() {
+        return cities.length;
+    }
+
+    /**
+     * Procura as cidades mais próximas de uma posição.
+     *
+     * @param latitude  A latitude da posição.
+     * @param longitude A longitude da posição.
+     * @param count     O número máximo de cidades a devolver.
+     * @return Os índices das cidades (pela ordem dos arrays do construtor), da mais próxima para a mais afastada.
+     */
+    public int[] nearest(double latitude, double longitude, int count) {
+        Search search = new Search(latitude, longitude, Math.min(count, cities.length));
+        if (search.capacity > 0) {
+            search.visit(0, cities.length);
+        }
+        return search.sortedCities();
+    }
+
+    /**
+     * Calcula a distância ao longo da superfície entre duas posições com a fórmula de haversine.
+     *
+     * @return A distância em metros.
+     */
+    public static double haversineMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static void toVector(double latitude, double longitude, double[] out) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        out[0] = cosLat * Math.cos(lon);
+        out[1] = cosLat * Math.sin(lon);
+        out[2] = Math.sin(lat);
+    }
+
+    private double coordinate(int axis, int i) {
+        return axis == 0 ? x[i] : axis == 1 ? y[i] : z[i];
+    }
+
+    /**
+     * Divide o intervalo pelo eixo com maior amplitude e coloca a mediana no meio.
+     */
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = widestAxis(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        axes[mid] = (byte) axis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private int widestAxis(int lo, int hi) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = lo; i < hi; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        double spreadX = maxX - minX;
+        double spreadY = maxY - minY;
+        double spreadZ = maxZ - minZ;
+        return spreadX >= spreadY && spreadX >= spreadZ ? 0 : spreadY >= spreadZ ? 1 : 2;
+    }
+
+    /**
+     * Seleção de Hoare: reordena {@code [left, right]} para que o elemento {@code k} fique na sua
+     * posição ordenada pelo eixo indicado, com os menores à esquerda e os maiores à direita.
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (right > left) {
+            double pivot = coordinate(axis, (left + right) >>> 1);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinate(axis, i) < pivot) {
+                    i++;
+                }
+                while (coordinate(axis, j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        double t = x[a];
+        x[a] = x[b];
+        x[b] = t;
+        t = y[a];
+        y[a] = y[b];
+        y[b] = t;
+        t = z[a];
+        z[a] = z[b];
+        z[b] = t;
+        int c = cities[a];
+        cities[a] = cities[b];
+        cities[b] = c;
+    }
+
+    /**
+     * Estado de uma consulta: as melhores cidades encontradas até agora, num heap de máximo
+     * pela distância ao quadrado.
+     */
+    private final class Search {
+        final double qx;
+        final double qy;
+        final double qz;
+        final int capacity;
+        final double[] distances;
+        final int[] positions;
+        int size;
+
+        Search(double latitude, double longitude, int capacity) {
+            double[] point = new double[3];
+            toVector(latitude, longitude, point);
+            qx = point[0];
+            qy = point[1];
+            qz = point[2];
+            this.capacity = capacity;
+            distances = new double[capacity];
+            positions = new int[capacity];
+        }
+
+        void visit(int lo, int hi) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dx = x[mid] - qx;
+            double dy = y[mid] - qy;
+            double dz = z[mid] - qz;
+            offer(dx * dx + dy * dy + dz * dz, mid);
+            if (hi - lo == 1) {
+                return;
+            }
+
+            int axis = axes[mid];
+            double diff = axis == 0 ? qx - x[mid] : axis == 1 ? qy - y[mid] : qz - z[mid];
+            if (diff < 0) {
+                visit(lo, mid);
+                if (size < capacity || diff * diff < distances[0]) {
+                    visit(mid + 1, hi);
+                }
+            } else {
+                visit(mid + 1, hi);
+                if (size < capacity || diff * diff < distances[0]) {
+                    visit(lo, mid);
+                }
+            }
+        }
+
+        void offer(double distance, int position) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    distances[i] = distances[(i - 1) / 2];
+                    positions[i] = positions[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                distances[i] = distance;
+                positions[i] = position;
+            } else if (distance < distances[0]) {
+                // Substitui a mais afastada
+                siftDown(distance, position);
+            }
+        }
+
+        /**
+         * Coloca uma cidade na raiz do heap e desce-a até à sua posição.
+         */
+        void siftDown(double distance, int position) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if (distances[child] <= distance) {
+                    break;
+                }
+                distances[i] = distances[child];
+                positions[i] = positions[child];
+                i = child;
+            }
+            distances[i] = distance;
+            positions[i] = position;
+        }
+
+        int[] sortedCities() {
+            int[] result = new int[size];
+            // Esvazia o heap: a mais afastada sai primeiro e fica no fim
+            for (int n = size; n > 0; n--) {
+                result[n - 1] = cities[positions[0]];
+                size = n - 1;
+                siftDown(distances[n - 1], positions[n - 1]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.weatherapp2.ui.map;
+
+import java.util.Arrays;
+
+/**
+ * Índice espacial em grelha sobre pontos de latitude/longitude, com os pontos já agrupados por
+ * nível de zoom. Em cada nível, a grelha tem células de cerca de {@link #CLUSTER_PIXELS} píxeis no
+ * ecrã; os pontos da mesma célula formam um grupo, representado pelo número de pontos e pelo seu
+ * centro. Uma consulta visita apenas as células da área visível, por isso o custo depende do número
+ * de grupos visíveis e não do número total de pontos.
+ * <p>
+ * Cada nível é guardado em arrays primitivos ordenados pela chave da célula e é construído na
+ * primeira consulta a esse zoom. As células são quadradas em graus (não em Mercator), o que basta
+ * para agrupar marcadores.
+ */
+public class SpatialIndex {
+
+    /**
+     * Maior nível de zoom com grupos próprios; acima dele é usado este nível.
+     */
+    public static final int MAX_ZOOM = 16;
+
+    /**
+     * Tamanho aproximado, em píxeis, de uma célula de agrupamento.
+     */
+    public static final int CLUSTER_PIXELS = 64;
+
+    /**
+     * Número máximo de pontos; o índice de cada ponto ocupa os 24 bits baixos da chave de ordenação.
+     */
+    public static final int MAX_POINTS = 1 << 24;
+
+    private static final int TILE_PIXELS = 256;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final Level[] levels = new Level[MAX_ZOOM + 1];
+
+    /**
+     * Construtor do índice. Os arrays não são copiados e não devem ser alterados depois.
+     *
+     * @param latitudes  A latitude de cada ponto.
+     * @param longitudes A longitude de cada ponto.
+     */
+    public SpatialIndex(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length || latitudes.length > MAX_POINTS) {
+            throw new IllegalArgumentException("Invalid point arrays: " + latitudes.length + "/" + longitudes.length);
+        }
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    /**
+     * @return O número de pontos no índice.
+     */
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     * Calcula o lado, em graus, das células de um nível de zoom.
+     *
+     * @param zoom O nível de zoom.
+     * @return O lado de cada célula em graus.
+     */
+    public static double cellDegrees(int zoom) {
+        return CLUSTER_PIXELS * 360.0 / ((double) TILE_PIXELS * (1 << zoom));
+    }
+
+    /**
+     * Visita os grupos das células que intersetam a área indicada. Se {@code west} for maior do que
+     * {@code east}, a área atravessa o antimeridiano.
+     *
+     * @param south   A latitude do limite sul.
+     * @param west    A longitude do limite oeste.
+     * @param north   A latitude do limite norte.
+     * @param east    A longitude do limite este.
+     * @param zoom    O zoom atual do mapa.
+     * @param visitor Recebe cada grupo visível.
+     */
+    public void query(double south, double west, double north, double east, float zoom, Visitor visitor) {
+        Level level = level(Math.max(0, Math.min(MAX_ZOOM, (int) Math.floor(zoom))));
+        if (west <= east) {
+            level.visit(south, west, north, east, visitor);
+        } else {
+            level.visit(south, west, north, 180, visitor);
+            level.visit(south, -180, north, east, visitor);
+        }
+    }
+
+    private synchronized Level level(int zoom) {
+        if (levels[zoom] == null) {
+            levels[zoom] = new Level(cellDegrees(zoom), latitudes, longitudes);
+        }
+        return levels[zoom];
+    }
+
+    /**
+     * Recebe os grupos de uma consulta.
+     */
+    public interface Visitor {
+        /**
+         * @param cellKey    A chave da célula, estável dentro do mesmo nível de zoom.
+         * @param latitude   A latitude do centro dos pontos do grupo.
+         * @param longitude  A longitude do centro dos pontos do grupo.
+         * @param count      O número de pontos no grupo.
+         * @param pointIndex O índice do ponto, se o grupo tiver um único ponto; -1 caso contrário.
+         */
+        void onCluster(long cellKey, double latitude, double longitude, int count, int pointIndex);
+    }
+
+    /**
+     * Os grupos de um nível de zoom, ordenados pela chave da célula ({@code linha * colunas + coluna}).
+     */
+    private static final class Level {
+        final double cell;
+        final int rows;
+        final int columns;
+        final long[] keys;
+        final int[] counts;
+        final double[] latitudes;
+        final double[] longitudes;
+        final int[] firstPoints;
+
+        Level(double cell, double[] pointLatitudes, double[] pointLongitudes) {
+            this.cell = cell;
+            this.rows = (int) Math.ceil(180 / cell);
+            this.columns = (int) Math.ceil(360 / cell);
+
+            int n = pointLatitudes.length;
+            long[] sortKeys = new long[n];
+            for (int i = 0; i < n; i++) {
+                sortKeys[i] = (cellKey(pointLatitudes[i], pointLongitudes[i]) << 24) | i;
+            }
+            Arrays.sort(sortKeys);
+
+            int clusters = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || (sortKeys[i] >>> 24) != (sortKeys[i - 1] >>> 24)) {
+                    clusters++;
+                }
+            }
+
+            keys = new long[clusters];
+            counts = new int[clusters];
+            latitudes = new double[clusters];
+            longitudes = new double[clusters];
+            firstPoints = new int[clusters];
+            int c = -1;
+            for (int i = 0; i < n; i++) {
+                long key = sortKeys[i] >>> 24;
+                int point = (int) (sortKeys[i] & 0xFFFFFF);
+                if (c < 0 || keys[c] != key) {
+                    c++;
+                    keys[c] = key;
+                    firstPoints[c] = point;
+                }
+                counts[c]++;
+                latitudes[c] += pointLatitudes[point];
+                longitudes[c] += pointLongitudes[point];
+            }
+            for (int i = 0; i < clusters; i++) {
+                latitudes[i] /= counts[i];
+                longitudes[i] /= counts[i];
+            }
+        }
+
+        int row(double latitude) {
+            return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cell)));
+        }
+
+        int column(double longitude) {
+            return Math.max(0, Math.min(columns - 1, (int) Math.floor((longitude + 180) / cell)));
+        }
+
+        long cellKey(double latitude, double longitude) {
+            return (long) row(latitude) * columns + column(longitude);
+        }
+
+        void visit(double south, double west, double north, double east, Visitor visitor) {
+            int firstColumn = column(west);
+            int lastColumn = column(east);
+            for (int row = row(south), lastRow = row(north); row <= lastRow; row++) {
+                long to = (long) row * columns + lastColumn;
+                for (int i = lowerBound((long) row * columns + firstColumn); i < keys.length && keys[i] <= to; i++) {
+                    visitor.onCluster(keys[i], latitudes[i], longitudes[i], counts[i], counts[i] == 1 ? firstPoints[i] : -1);
+                }
+            }
+        }
+
+        private int lowerBound(long key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Previsão de 5 dias em intervalos de 3 horas devolvida pelo endpoint {@code /forecast},
+ * reduzida aos campos usados pela aplicação.
+ */
+public class Forecast {
+
+    /**
+     * Número de intervalos de 3 horas num dia.
+     */
+    public static final int ENTRIES_PER_DAY = 8;
+
+    /**
+     * Validade das condições atuais (previsões com um único intervalo), contada a partir do {@code dt}
+     * da observação. A OpenWeather atualiza as observações a cada 10 minutos.
+     */
+    public static final long CURRENT_CONDITIONS_TTL_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * Validade mínima de qualquer previsão, para não repetir pedidos quando o {@code dt} já passou.
+     */
+    public static final long MIN_TTL_MILLIS = 60 * 1000L;
+
+    private final String cityName;
+    private final long[] timestamps;
+    private final double[] tempMin;
+    private final double[] tempMax;
+
+    /**
+     * Construtor da previsão.
+     *
+     * @param cityName   O nome da cidade devolvido pela API.
+     * @param timestamps O instante de cada intervalo, em segundos desde a época ({@code dt}).
+     * @param tempMin    A temperatura mínima de cada intervalo.
+     * @param tempMax    A temperatura máxima de cada intervalo.
+     */
+    public Forecast(String cityName, long[] timestamps, double[] tempMin, double[] tempMax) {
+        this.cityName = cityName;
+        this.timestamps = timestamps;
+        this.tempMin = tempMin;
+        this.tempMax = tempMax;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double getTempMin(int index) {
+        return tempMin[index];
+    }
+
+    public double getTempMax(int index) {
+        return tempMax[index];
+    }
+
+    /**
+     * Calcula até quando a previsão é válida a partir dos seus próprios {@code dt}.
+     * Uma previsão de 3 em 3 horas só muda quando começa o próximo intervalo, por isso expira no
+     * primeiro {@code dt} posterior ao momento atual. Uma observação única expira
+     * {@link #CURRENT_CONDITIONS_TTL_MILLIS} depois do seu {@code dt}.
+     *
+     * @param nowMillis O tempo atual em milissegundos.
+     * @return O instante de expiração em milissegundos.
+     */
+    public long getExpiresAtMillis(long nowMillis) {
+        long expiresAt = 0;
+        if (size() == 1) {
+            expiresAt = timestamps[0] * 1000L + CURRENT_CONDITIONS_TTL_MILLIS;
+        } else {
+            for (long timestamp : timestamps) {
+                if (timestamp * 1000L > nowMillis) {
+                    expiresAt = timestamp * 1000L;
+                    break;
+                }
+            }
+        }
+        return Math.max(expiresAt, nowMillis + MIN_TTL_MILLIS);
+    }
+
+    /**
+     * Estima a memória ocupada pela previsão, usada para respeitar o orçamento da cache em memória.
+     *
+     * @return O tamanho aproximado em bytes.
+     */
+    public int getEstimatedSizeBytes() {
+        return 64 + 2 * cityName.length() + size() * (8 + 8 + 8);
+    }
+
+    /**
+     * Converte o primeiro intervalo da previsão no clima atual.
+     *
+     * @return O objeto {@link Weather} do primeiro intervalo, ou null se a previsão estiver vazia.
+     */
+    public Weather toCurrentWeather() {
+        if (size() == 0) {
+            return null;
+        }
+        return new Weather(cityName, tempMin[0], tempMax[0], timestamps[0] * 1000L);
+    }
+
+    /**
+     * Resume a previsão com um intervalo por dia, no formato mostrado na tela de detalhes.
+     *
+     * @return Uma linha por dia, por exemplo "2024-06-13: Min: 19.8°C, Max: 22.4°C".
+     */
+    public List<String> toDailySummaries() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < size(); i += ENTRIES_PER_DAY) { // Pega o clima de cada dia
+            String date = dateFormat.format(new Date(timestamps[i] * 1000L));
+            result.add(date + ": Min: " + tempMin[i] + "°C, Max: " + tempMax[i] + "°C");
+        }
+        return result;
+    }
+}
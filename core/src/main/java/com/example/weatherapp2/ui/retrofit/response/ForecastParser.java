@@ -0,0 +1,148 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Leitor em streaming da resposta do endpoint {@code /forecast}.
+ * Lê diretamente do corpo da resposta com o {@link JsonReader} do Gson e extrai apenas
+ * {@code list[].dt}, {@code list[].main.temp_min}, {@code list[].main.temp_max} e {@code city.name};
+ * todos os outros campos são ignorados sem criar objetos.
+ */
+public final class ForecastParser {
+
+    /**
+     * Capacidade inicial dos arrays; a API devolve 40 intervalos quando {@code cnt} não é indicado.
+     */
+    private static final int DEFAULT_CAPACITY = 40;
+
+    private ForecastParser() {
+    }
+
+    /**
+     * Lê uma previsão completa.
+     *
+     * @param reader O corpo da resposta.
+     * @return A previsão com os campos usados pela aplicação.
+     * @throws IOException Se a leitura falhar ou a resposta não contiver a lista de previsões.
+     */
+    public static Forecast parse(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            return readForecast(json);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed forecast", e);
+        } finally {
+            json.close();
+        }
+    }
+
+    private static Forecast readForecast(JsonReader json) throws IOException {
+        String cityName = null;
+        Entries entries = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("list".equals(name)) {
+                entries = readEntries(json);
+            } else if ("city".equals(name)) {
+                cityName = readCityName(json);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (entries == null) {
+            throw new IOException("Forecast response has no list");
+        }
+        entries.trimToSize();
+        return new Forecast(cityName != null ? cityName : "", entries.timestamps, entries.tempMin, entries.tempMax);
+    }
+
+    private static Entries readEntries(JsonReader json) throws IOException {
+        Entries entries = new Entries();
+        json.beginArray();
+        while (json.hasNext()) {
+            entries.ensureCapacity();
+            int index = entries.size;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if ("dt".equals(name)) {
+                    entries.timestamps[index] = json.nextLong();
+                } else if ("main".equals(name)) {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String field = json.nextName();
+                        if ("temp_min".equals(field)) {
+                            entries.tempMin[index] = json.nextDouble();
+                        } else if ("temp_max".equals(field)) {
+                            entries.tempMax[index] = json.nextDouble();
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            entries.size++;
+        }
+        json.endArray();
+        return entries;
+    }
+
+    private static String readCityName(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+
+        String cityName = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            if ("name".equals(json.nextName())) {
+                cityName = json.nextString();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return cityName;
+    }
+
+    /**
+     * Arrays primitivos que crescem à medida que os intervalos são lidos.
+     */
+    private static class Entries {
+        long[] timestamps = new long[DEFAULT_CAPACITY];
+        double[] tempMin = new double[DEFAULT_CAPACITY];
+        double[] tempMax = new double[DEFAULT_CAPACITY];
+        int size;
+
+        void ensureCapacity() {
+            if (size == timestamps.length) {
+                int capacity = timestamps.length * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                tempMin = Arrays.copyOf(tempMin, capacity);
+                tempMax = Arrays.copyOf(tempMax, capacity);
+            }
+        }
+
+        void trimToSize() {
+            if (size != timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size);
+                tempMin = Arrays.copyOf(tempMin, size);
+                tempMax = Arrays.copyOf(tempMax, size);
+            }
+        }
+    }
+}
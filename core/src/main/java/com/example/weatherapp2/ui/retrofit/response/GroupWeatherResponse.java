@@ -0,0 +1,8 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import java.util.List;
+
+public class GroupWeatherResponse {
+    public int cnt;
+    public List<WeatherResponse> list;
+}
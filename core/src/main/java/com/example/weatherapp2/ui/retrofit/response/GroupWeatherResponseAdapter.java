@@ -0,0 +1,74 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Leitura e escrita de um {@link GroupWeatherResponse} sem reflexão. Cada cidade da lista é lida
+ * pelo {@link WeatherResponseAdapter}.
+ */
+public final class GroupWeatherResponseAdapter extends TypeAdapter<GroupWeatherResponse> {
+
+    private final WeatherResponseAdapter cityAdapter;
+
+    /**
+     * Construtor do adaptador.
+     *
+     * @param cityAdapter O adaptador de cada cidade.
+     */
+    public GroupWeatherResponseAdapter(WeatherResponseAdapter cityAdapter) {
+        this.cityAdapter = cityAdapter;
+    }
+
+    @Override
+    public GroupWeatherResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        GroupWeatherResponse group = new GroupWeatherResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if ("cnt".equals(name)) {
+                group.cnt = in.nextInt();
+            } else if ("list".equals(name)) {
+                group.list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    group.list.add(cityAdapter.read(in));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return group;
+    }
+
+    @Override
+    public void write(JsonWriter out, GroupWeatherResponse group) throws IOException {
+        if (group == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("cnt").value(group.cnt);
+        if (group.list != null) {
+            out.name("list").beginArray();
+            for (WeatherResponse city : group.list) {
+                cityAdapter.write(out, city);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+}
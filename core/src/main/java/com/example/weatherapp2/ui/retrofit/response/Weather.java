@@ -0,0 +1,70 @@
+package com.example.weatherapp2.ui.retrofit.response;
+public class Weather {
+    private String location;
+    private double tempMin;
+    private double tempMax;
+    private long updatedAt;
+    private double latitude;
+    private double longitude;
+
+    /**
+     * @param updatedAt O instante, em milissegundos, a que as condições se referem; 0 se for desconhecido.
+     */
+    public Weather(String location, double tempMin, double tempMax, long updatedAt) {
+        this(location, tempMin, tempMax, updatedAt, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * @param updatedAt O instante, em milissegundos, a que as condições se referem; 0 se for desconhecido.
+     * @param latitude  A latitude da cidade, ou {@link Double#NaN} se for desconhecida.
+     * @param longitude A longitude da cidade, ou {@link Double#NaN} se for desconhecida.
+     */
+    public Weather(String location, double tempMin, double tempMax, long updatedAt, double latitude, double longitude) {
+        this.location = location;
+        this.tempMin = tempMin;
+        this.tempMax = tempMax;
+        this.updatedAt = updatedAt;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public double getTempMin() {
+        return tempMin;
+    }
+
+    public double getTempMax() {
+        return tempMax;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return Verdadeiro se a posição da cidade é conhecida e pode ser mostrada no mapa.
+     */
+    public boolean hasCoordinates() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * @param location A localização a usar, normalmente a do catálogo ("Lisbon,PT") em vez do nome
+     *                 devolvido pela API.
+     * @return Estas condições gravadas com outra localização.
+     */
+    public Weather withLocation(String location) {
+        return new Weather(location, tempMin, tempMax, updatedAt, latitude, longitude);
+    }
+}
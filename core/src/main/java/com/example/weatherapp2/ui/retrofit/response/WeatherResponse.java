@@ -0,0 +1,70 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import java.io.IOException;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Resposta do endpoint {@code /weather} e de cada cidade do endpoint {@code /group}.
+ * É lida pelo {@link WeatherResponseAdapter}, sem reflexão; as anotações só servem a leitura
+ * reflexiva usada para comparação nos testes.
+ */
+public class WeatherResponse {
+    public long id;
+    public String name;
+    public long dt;
+    public Main main;
+    public Wind wind;
+    public Clouds clouds;
+    public Coord coord;
+
+    public static class Main {
+        public double temp;
+        @SerializedName("feels_like")
+        public double feelsLike;
+        @SerializedName("temp_min")
+        public double tempMin;
+        @SerializedName("temp_max")
+        public double tempMax;
+        public int pressure;
+        public int humidity;
+    }
+
+    public static class Wind {
+        public double speed;
+        public int deg;
+        public double gust;
+    }
+
+    public static class Clouds {
+        public int all;
+    }
+
+    public static class Coord {
+        public double lat;
+        public double lon;
+    }
+
+    /**
+     * @return Verdadeiro se a resposta tiver o bloco {@code main}, com as temperaturas.
+     */
+    public boolean hasConditions() {
+        return main != null;
+    }
+
+    /**
+     * Converte a resposta nas condições usadas pela aplicação, incluindo a posição quando a API a devolve.
+     *
+     * @return As condições desta resposta.
+     * @throws IOException Se a resposta não tiver o bloco {@code main}.
+     */
+    public Weather toWeather() throws IOException {
+        if (main == null) {
+            throw new IOException("Weather response without \"main\" for " + name + " (id " + id + ")");
+        }
+        double latitude = coord != null ? coord.lat : Double.NaN;
+        double longitude = coord != null ? coord.lon : Double.NaN;
+        return new Weather(name, main.tempMin, main.tempMax, dt * 1000L, latitude, longitude);
+    }
+
+}
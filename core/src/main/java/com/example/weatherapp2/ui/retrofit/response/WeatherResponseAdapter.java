@@ -0,0 +1,204 @@
+package com.example.weatherapp2.ui.retrofit.response;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Leitura e escrita de um {@link WeatherResponse} sem reflexão.
+ * Lê {@code id}, {@code name}, {@code dt}, {@code main}, {@code wind}, {@code clouds} e {@code coord};
+ * os outros campos são ignorados sem criar objetos, e um valor {@code null} deixa o campo no valor padrão,
+ * como na leitura reflexiva do Gson.
+ */
+public final class WeatherResponseAdapter extends TypeAdapter<WeatherResponse> {
+
+    @Override
+    public WeatherResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        WeatherResponse response = new WeatherResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    response.id = in.nextLong();
+                    break;
+                case "name":
+                    response.name = in.nextString();
+                    break;
+                case "dt":
+                    response.dt = in.nextLong();
+                    break;
+                case "main":
+                    response.main = readMain(in);
+                    break;
+                case "wind":
+                    response.wind = readWind(in);
+                    break;
+                case "clouds":
+                    response.clouds = readClouds(in);
+                    break;
+                case "coord":
+                    response.coord = readCoord(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    @Override
+    public void write(JsonWriter out, WeatherResponse response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(response.id);
+        if (response.name != null) {
+            out.name("name").value(response.name);
+        }
+        out.name("dt").value(response.dt);
+        if (response.main != null) {
+            out.name("main").beginObject()
+                    .name("temp").value(response.main.temp)
+                    .name("feels_like").value(response.main.feelsLike)
+                    .name("temp_min").value(response.main.tempMin)
+                    .name("temp_max").value(response.main.tempMax)
+                    .name("pressure").value(response.main.pressure)
+                    .name("humidity").value(response.main.humidity)
+                    .endObject();
+        }
+        if (response.wind != null) {
+            out.name("wind").beginObject()
+                    .name("speed").value(response.wind.speed)
+                    .name("deg").value(response.wind.deg)
+                    .name("gust").value(response.wind.gust)
+                    .endObject();
+        }
+        if (response.clouds != null) {
+            out.name("clouds").beginObject()
+                    .name("all").value(response.clouds.all)
+                    .endObject();
+        }
+        if (response.coord != null) {
+            out.name("coord").beginObject()
+                    .name("lat").value(response.coord.lat)
+                    .name("lon").value(response.coord.lon)
+                    .endObject();
+        }
+        out.endObject();
+    }
+
+    private static WeatherResponse.Main readMain(JsonReader in) throws IOException {
+        WeatherResponse.Main main = new WeatherResponse.Main();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "temp":
+                    main.temp = in.nextDouble();
+                    break;
+                case "feels_like":
+                    main.feelsLike = in.nextDouble();
+                    break;
+                case "temp_min":
+                    main.tempMin = in.nextDouble();
+                    break;
+                case "temp_max":
+                    main.tempMax = in.nextDouble();
+                    break;
+                case "pressure":
+                    main.pressure = in.nextInt();
+                    break;
+                case "humidity":
+                    main.humidity = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return main;
+    }
+
+    private static WeatherResponse.Wind readWind(JsonReader in) throws IOException {
+        WeatherResponse.Wind wind = new WeatherResponse.Wind();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "speed":
+                    wind.speed = in.nextDouble();
+                    break;
+                case "deg":
+                    wind.deg = in.nextInt();
+                    break;
+                case "gust":
+                    wind.gust = in.nextDouble();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return wind;
+    }
+
+    private static WeatherResponse.Clouds readClouds(JsonReader in) throws IOException {
+        WeatherResponse.Clouds clouds = new WeatherResponse.Clouds();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("all".equals(name) && in.peek() != JsonToken.NULL) {
+                clouds.all = in.nextInt();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return clouds;
+    }
+
+    private static WeatherResponse.Coord readCoord(JsonReader in) throws IOException {
+        WeatherResponse.Coord coord = new WeatherResponse.Coord();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if ("lat".equals(name)) {
+                coord.lat = in.nextDouble();
+            } else if ("lon".equals(name)) {
+                coord.lon = in.nextDouble();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return coord;
+    }
+}
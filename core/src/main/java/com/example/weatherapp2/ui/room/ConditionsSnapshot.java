@@ -0,0 +1,249 @@
+package com.example.weatherapp2.ui.room;
+
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Ficheiro binário com as últimas condições de cada localização, lido através de um buffer mapeado
+ * em memória. Serve para desenhar o widget e a primeira frame da lista num processo novo sem abrir
+ * o SQLite.
+ * <p>
+ * Formato (big-endian): um cabeçalho de {@link #HEADER_SIZE} bytes com a assinatura, a versão,
+ * o tamanho de cada registo, o número de registos e o CRC32 dos registos; depois, um registo de
+ * tamanho fixo por localização com o nome em UTF-8 (comprimento mais bytes), a mínima, a máxima,
+ * a hora de observação e a posição ({@link Double#NaN} se for desconhecida). A versão 1 não tinha
+ * a posição; um ficheiro dessa versão é rejeitado e reconstruído a partir do Room. Os ficheiros da
+ * versão 2 podem ter linhas com o nome devolvido pela API, que a migração 3 para 4 do Room apaga, e
+ * são também reconstruídos.
+ * Os valores são lidos diretamente do buffer, sem interpretar texto nem criar objetos intermédios.
+ * <p>
+ * O ficheiro é escrito num ficheiro temporário próprio de cada escrita e depois renomeado, para
+ * que quem lê nunca veja uma escrita a meio. Um ficheiro inválido (assinatura, versão, tamanho ou
+ * CRC) é tratado como inexistente, e quem chama deve voltar ao Room.
+ */
+public final class ConditionsSnapshot {
+
+    static final int MAGIC = 0x57584331; // "WXC1"
+    static final short VERSION = 3;
+    static final int HEADER_SIZE = 16;
+    static final int MAX_LOCATION_BYTES = 62;
+    static final int RECORD_SIZE = 2 + MAX_LOCATION_BYTES + 8 + 8 + 8 + 8 + 8;
+
+    private static final int TEMP_MIN_OFFSET = 2 + MAX_LOCATION_BYTES;
+    private static final int TEMP_MAX_OFFSET = TEMP_MIN_OFFSET + 8;
+    private static final int UPDATED_AT_OFFSET = TEMP_MAX_OFFSET + 8;
+    private static final int LATITUDE_OFFSET = UPDATED_AT_OFFSET + 8;
+    private static final int LONGITUDE_OFFSET = LATITUDE_OFFSET + 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int count;
+
+    private ConditionsSnapshot(ByteBuffer buffer, int count) {
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Mapeia e valida um ficheiro de condições.
+     *
+     * @param file O ficheiro.
+     * @return O snapshot, ou null se o ficheiro não existir ou for inválido.
+     */
+    public static ConditionsSnapshot open(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // O mapeamento continua válido depois de o canal ser fechado
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return validate(buffer);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Escreve as condições de forma atómica, substituindo o ficheiro anterior. A escrita passa por
+     * {@code <ficheiro>.tmp}, sempre o mesmo, por isso as escritas para o mesmo ficheiro têm de ser
+     * feitas uma de cada vez; um temporário deixado por uma escrita interrompida é reescrito pela seguinte.
+     *
+     * @param file     O ficheiro de destino.
+     * @param weathers As condições a escrever.
+     * @throws IOException Se a escrita falhar ou se o nome de uma localização não couber num registo;
+     *                     o ficheiro anterior fica intacto.
+     */
+    public static void write(File file, List<Weather> weathers) throws IOException {
+        List<byte[]> names = new ArrayList<>(weathers.size());
+        for (Weather weather : weathers) {
+            byte[] name = weather.getLocation().getBytes(UTF_8);
+            if (name.length > MAX_LOCATION_BYTES) {
+                // Um ficheiro sem esta localização esconderia as suas condições; quem chama volta ao Room
+                throw new IOException("Location does not fit a snapshot record: " + weather.getLocation());
+            }
+            names.add(name);
+        }
+        int count = weathers.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+        for (int i = 0; i < count; i++) {
+            Weather weather = weathers.get(i);
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            byte[] name = names.get(i);
+            buffer.putShort(offset, (short) name.length);
+            buffer.position(offset + 2);
+            buffer.put(name);
+            buffer.putDouble(offset + TEMP_MIN_OFFSET, weather.getTempMin());
+            buffer.putDouble(offset + TEMP_MAX_OFFSET, weather.getTempMax());
+            buffer.putLong(offset + UPDATED_AT_OFFSET, weather.getUpdatedAt());
+            buffer.putDouble(offset + LATITUDE_OFFSET, weather.getLatitude());
+            buffer.putDouble(offset + LONGITUDE_OFFSET, weather.getLongitude());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, count * RECORD_SIZE);
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) RECORD_SIZE);
+        buffer.putInt(8, count);
+        buffer.putInt(12, (int) crc.getValue());
+
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(buffer.array());
+            out.getFD().sync();
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private static ConditionsSnapshot validate(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+            return null;
+        }
+        int count = buffer.getInt(8);
+        if (count < 0 || buffer.capacity() != HEADER_SIZE + (long) count * RECORD_SIZE) {
+            return null;
+        }
+
+        // O buffer mapeado não tem um array por trás, por isso o CRC é calculado byte a byte
+        CRC32 crc = new CRC32();
+        for (int i = HEADER_SIZE; i < buffer.capacity(); i++) {
+            crc.update(buffer.get(i));
+        }
+        if ((int) crc.getValue() != buffer.getInt(12)) {
+            return null;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getShort(HEADER_SIZE + i * RECORD_SIZE);
+            if (length < 0 || length > MAX_LOCATION_BYTES) {
+                return null;
+            }
+        }
+        return new ConditionsSnapshot(buffer, count);
+    }
+
+    /**
+     * @return O número de localizações no snapshot.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Procura uma localização comparando os bytes do nome diretamente no buffer.
+     *
+     * @param location A localização.
+     * @return O índice do registo, ou -1 se não existir.
+     */
+    public int indexOf(String location) {
+        byte[] name = location.getBytes(UTF_8);
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * RECORD_SIZE;
+            if (buffer.getShort(offset) == name.length && nameEquals(offset + 2, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getLocation(int index) {
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        byte[] name = new byte[buffer.getShort(offset)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(name, UTF_8);
+    }
+
+    public double getTempMin(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + TEMP_MIN_OFFSET);
+    }
+
+    public double getTempMax(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + TEMP_MAX_OFFSET);
+    }
+
+    public long getUpdatedAt(int index) {
+        return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE + UPDATED_AT_OFFSET);
+    }
+
+    public double getLatitude(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + LATITUDE_OFFSET);
+    }
+
+    public double getLongitude(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * RECORD_SIZE + LONGITUDE_OFFSET);
+    }
+
+    /**
+     * Obtém as condições de uma localização.
+     *
+     * @param location A localização.
+     * @return As condições, ou null se a localização não estiver no snapshot.
+     */
+    public Weather get(String location) {
+        int index = indexOf(location);
+        return index < 0 ? null : new Weather(location, getTempMin(index), getTempMax(index), getUpdatedAt(index),
+                getLatitude(index), getLongitude(index));
+    }
+
+    /**
+     * @return As condições de todas as localizações, pela ordem do ficheiro.
+     */
+    public List<Weather> toList() {
+        List<Weather> weathers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            weathers.add(new Weather(getLocation(i), getTempMin(i), getTempMax(i), getUpdatedAt(i),
+                    getLatitude(i), getLongitude(i)));
+        }
+        return weathers;
+    }
+
+    private boolean nameEquals(int offset, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.weatherapp2.ui.room;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import com.example.weatherapp2.ui.retrofit.response.Weather;
+
+/**
+ * Últimas condições conhecidas de uma localização. Existe no máximo uma linha por localização
+ * (chave primária em {@code location}); uma nova gravação atualiza a linha existente no lugar.
+ */
+@Entity(tableName = "weather")
+public class WeatherEntity {
+
+    @PrimaryKey
+    @NonNull
+    private String location;
+    private double tempMin;
+    private double tempMax;
+    private long updatedAt;
+    private Double latitude;
+    private Double longitude;
+
+    @Ignore
+    public WeatherEntity(@NonNull String location, double tempMin, double tempMax, long updatedAt) {
+        this(location, tempMin, tempMax, updatedAt, null, null);
+    }
+
+    public WeatherEntity(@NonNull String location, double tempMin, double tempMax, long updatedAt, Double latitude, Double longitude) {
+        this.location = location;
+        this.tempMin = tempMin;
+        this.tempMax = tempMax;
+        this.updatedAt = updatedAt;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Cria a linha a partir das condições, guardando a posição apenas se for conhecida.
+     *
+     * @param weather   As condições.
+     * @param updatedAt O instante a gravar.
+     * @return A linha a gravar.
+     */
+    public static WeatherEntity fromWeather(Weather weather, long updatedAt) {
+        return weather.hasCoordinates()
+                ? new WeatherEntity(weather.getLocation(), weather.getTempMin(), weather.getTempMax(), updatedAt,
+                weather.getLatitude(), weather.getLongitude())
+                : new WeatherEntity(weather.getLocation(), weather.getTempMin(), weather.getTempMax(), updatedAt);
+    }
+
+    /**
+     * @return As condições desta linha; a posição fica como {@link Double#NaN} se não for conhecida.
+     */
+    public Weather toWeather() {
+        return new Weather(location, tempMin, tempMax, updatedAt,
+                latitude != null ? latitude : Double.NaN, longitude != null ? longitude : Double.NaN);
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(@NonNull String location) {
+        this.location = location;
+    }
+
+    public double getTempMin() {
+        return tempMin;
+    }
+
+    public void setTempMin(double tempMin) {
+        this.tempMin = tempMin;
+    }
+
+    public double getTempMax() {
+        return tempMax;
+    }
+
+    public void setTempMax(double tempMax) {
+        this.tempMax = tempMax;
+    }
+
+    /**
+     * @return O instante, em milissegundos, em que as condições foram gravadas; 0 para linhas
+     * migradas da versão 1, cuja idade é desconhecida.
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * @return A latitude da cidade, ou null para linhas migradas da versão 1.
+     */
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    /**
+     * @return A longitude da cidade, ou null para linhas migradas da versão 1.
+     */
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+}